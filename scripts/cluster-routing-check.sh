@@ -0,0 +1,113 @@
+#!/usr/bin/env bash
+# 多进程分区检查：按 cluster.yml 起两个撮合节点和一个网关，经网关下单 / 撤单，
+# 直接查各节点的订单簿，确认 BTCUSDT 只进了节点 1、ETHUSDT 只进了节点 2，网关转发的行情和所在节点一致
+# 用法：scripts/cluster-routing-check.sh [工作目录，默认临时目录]；需要 JDK 21、mvn（可离线）、curl
+# 端口取 cluster.yml：网关 8080，节点 HTTP 8081 / 8082，节点指令端口 9101 / 9102
+set -euo pipefail
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=${1:-$(mktemp -d -t cluster-check.XXXXXX)}
+GATEWAY_PORT=8080
+ORDERS=${ORDERS:-100}
+
+cd "$ROOT"
+mvn -B -q -o compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt >/dev/null
+CP="$ROOT/target/classes:$(cat target/classpath.txt)"
+mkdir -p "$WORK/node1" "$WORK/node2" "$WORK/gateway"
+
+PIDS=()
+cleanup() {
+    for pid in "${PIDS[@]}"; do
+        kill -9 "$pid" 2>/dev/null || true
+    done
+}
+trap cleanup EXIT
+
+fail() {
+    echo "FAIL: $*" >&2
+    echo "logs: $WORK/node1/app.log $WORK/node2/app.log $WORK/gateway/app.log" >&2
+    exit 1
+}
+
+# $1 工作目录  $2 端口  其余为附加参数
+start() {
+    local dir=$1 port=$2
+    shift 2
+    (cd "$WORK/$dir" && exec "${JAVA_HOME:+$JAVA_HOME/bin/}java" -cp "$CP" com.matching.DisruptorMatchingEngineApplication \
+        --spring.config.import=classpath:cluster.yml --app.load-test.enabled=false --app.shard-count=1 \
+        --app.disruptor-buffer-size=4096 --app.execution.buffer-size=4096 --app.mbo.buffer-size=4096 \
+        --server.port="$port" "$@" >app.log 2>&1) &
+    PIDS+=($!)
+}
+
+# $1 日志  $2 要等的内容  $3 超时秒数
+await_log() {
+    for _ in $(seq "$(($3 * 10))"); do
+        grep -q "$2" "$1" && return 0
+        sleep 0.1
+    done
+    fail "timed out waiting for '$2' in $1"
+}
+
+post() {
+    curl -s -X POST "http://localhost:$GATEWAY_PORT/api/$1" -H 'Content-Type: application/json' -d "$2" || echo "curl failed"
+}
+
+# $1 端口  $2 交易对：挂单总量（买卖两侧数量相加）；节点上没有这个交易对的订单簿（404）算 0
+resting() {
+    curl -s "http://localhost:$1/api/depth/$2?limit=1000" \
+        | { grep -o '\["[0-9.]*","[0-9.]*"\]' || true; } | sed 's/.*,"\([0-9.]*\)"\]/\1/' | awk '{s += $1} END {printf "%g\n", s}'
+}
+
+depth() {
+    curl -sf "http://localhost:$1/api/depth/$2?limit=1000"
+}
+
+start node1 8081 --app.cluster.role=NODE --app.cluster.node-id=1
+start node2 8082 --app.cluster.role=NODE --app.cluster.node-id=2
+await_log "$WORK/node1/app.log" "Started DisruptorMatchingEngineApplication" 120
+await_log "$WORK/node2/app.log" "Started DisruptorMatchingEngineApplication" 120
+start gateway "$GATEWAY_PORT" --app.cluster.role=GATEWAY
+await_log "$WORK/gateway/app.log" "Started DisruptorMatchingEngineApplication" 120
+
+# 两个交易对各挂一批不成交的单（买 < 1000 < 卖），记下每个交易对的挂单总量和最后一单
+declare -A expected=([BTCUSDT]=0 [ETHUSDT]=0) last_id=() last_qty=()
+for i in $(seq "$ORDERS"); do
+    symbol=$([ $((i % 2)) -eq 0 ] && echo BTCUSDT || echo ETHUSDT)
+    side=$([ $((i % 4)) -lt 2 ] && echo BUY || echo SELL)
+    price=$([ "$side" = BUY ] && echo $((990 + i % 9)) || echo $((1001 + i % 9)))
+    qty=$((1 + i % 3))
+    resp=$(post order '{"symbol":"'$symbol'","side":"'$side'","type":"LIMIT","price":'$price',"quantity":'$qty',"accountId":'$((1 + i % 5))'}')
+    case "$resp" in
+        "Order submitted: "*) ;;
+        *) fail "gateway rejected $symbol order $i: $resp" ;;
+    esac
+    expected[$symbol]=$((expected[$symbol] + qty))
+    last_id[$symbol]=${resp#Order submitted: }
+    last_qty[$symbol]=$qty
+done
+
+# 撤单也按订单号里的交易对转发
+resp=$(post cancel '{"orderId":"'"${last_id[BTCUSDT]}"'"}')
+expected[BTCUSDT]=$((expected[BTCUSDT] - last_qty[BTCUSDT]))
+sleep 1
+
+# $1 节点端口  $2 交易对  $3 期望挂单总量
+check() {
+    local got
+    got=$(resting "$1" "$2")
+    [ "$got" = "$3" ] || fail "node on port $1: $2 resting quantity $got, expected $3 (cancel: $resp)"
+}
+check 8081 BTCUSDT "${expected[BTCUSDT]}"
+check 8081 ETHUSDT 0
+check 8082 ETHUSDT "${expected[ETHUSDT]}"
+check 8082 BTCUSDT 0
+
+for symbol in BTCUSDT ETHUSDT; do
+    owner=$([ "$symbol" = BTCUSDT ] && echo 8081 || echo 8082)
+    [ "$(depth "$GATEWAY_PORT" "$symbol")" = "$(depth "$owner" "$symbol")" ] \
+        || fail "gateway depth for $symbol differs from node on port $owner"
+done
+
+echo "OK: $ORDERS orders and 1 cancel via gateway; BTCUSDT only on node 1 (${expected[BTCUSDT]} resting), \
+ETHUSDT only on node 2 (${expected[ETHUSDT]} resting); gateway depth matches owners"
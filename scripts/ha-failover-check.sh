@@ -0,0 +1,102 @@
+#!/usr/bin/env bash
+# 同机主备切换检查：两个 JVM 共用一个 HA 目录，主机挂单后 kill -9，确认备机接管、订单簿和主机一致、接管后能继续下单
+# 用法：scripts/ha-failover-check.sh [工作目录，默认临时目录]；需要 JDK 21、mvn（可离线）、curl
+set -euo pipefail
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=${1:-$(mktemp -d -t ha-check.XXXXXX)}
+PRIMARY_PORT=${PRIMARY_PORT:-18080}
+STANDBY_PORT=${STANDBY_PORT:-18081}
+SYMBOL=BTCUSDT
+ORDERS=${ORDERS:-200}
+# 两个 JVM 的撮合线程都是忙等，核数少的机器上心跳线程会被饿住，超时放宽些免得误切换
+FAILOVER_MILLIS=${FAILOVER_MILLIS:-3000}
+
+cd "$ROOT"
+mvn -B -q -o compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt >/dev/null
+CP="$ROOT/target/classes:$(cat target/classpath.txt)"
+mkdir -p "$WORK/primary" "$WORK/standby" "$WORK/ha"
+
+PIDS=()
+cleanup() {
+    for pid in "${PIDS[@]}"; do
+        kill -9 "$pid" 2>/dev/null || true
+    done
+}
+trap cleanup EXIT
+
+fail() {
+    echo "FAIL: $*" >&2
+    echo "logs: $WORK/primary/app.log $WORK/standby/app.log" >&2
+    exit 1
+}
+
+# $1 工作目录  $2 角色  $3 端口
+start() {
+    (cd "$WORK/$1" && exec "${JAVA_HOME:+$JAVA_HOME/bin/}java" -cp "$CP" com.matching.DisruptorMatchingEngineApplication \
+        --app.load-test.enabled=false --app.shard-count=1 --app.disruptor-buffer-size=4096 \
+        --app.execution.buffer-size=4096 --app.mbo.buffer-size=4096 \
+        --app.ha.role="$2" --app.ha.dir="$WORK/ha/" \
+        --app.ha.failover-timeout-millis="$FAILOVER_MILLIS" --server.port="$3" >app.log 2>&1) &
+    PIDS+=($!)
+}
+
+# $1 日志  $2 要等的内容  $3 超时秒数
+await_log() {
+    for _ in $(seq "$(($3 * 10))"); do
+        grep -q "$2" "$1" && return 0
+        sleep 0.1
+    done
+    fail "timed out waiting for '$2' in $1"
+}
+
+order() {
+    curl -s -X POST "http://localhost:$1/api/order" -H 'Content-Type: application/json' -d "$2" || echo "curl failed"
+}
+
+depth() {
+    curl -sf "http://localhost:$1/api/depth/$SYMBOL?limit=50" | sed 's/"\(version\|timestamp\|time\)":[0-9]*,\?//g'
+}
+
+start primary PRIMARY "$PRIMARY_PORT"
+await_log "$WORK/primary/app.log" "Started DisruptorMatchingEngineApplication" 120
+start standby STANDBY "$STANDBY_PORT"
+await_log "$WORK/standby/app.log" "Started DisruptorMatchingEngineApplication" 120
+await_log "$WORK/standby/app.log" "Standby replaying from epoch" 30
+
+# 备机不接入口指令
+resp=$(order "$STANDBY_PORT" '{"symbol":"'$SYMBOL'","side":"BUY","type":"LIMIT","price":100,"quantity":1,"accountId":1}')
+case "$resp" in
+    "Order submitted: "*) fail "standby accepted an order before failover: $resp" ;;
+esac
+
+# 买卖各挂一批（价格交叉的部分会成交），最后留一个不成交的订单簿
+for i in $(seq "$ORDERS"); do
+    side=$([ $((i % 2)) -eq 0 ] && echo BUY || echo SELL)
+    price=$([ "$side" = BUY ] && echo $((990 + i % 15)) || echo $((1000 + i % 15)))
+    resp=$(order "$PRIMARY_PORT" '{"symbol":"'$SYMBOL'","side":"'$side'","type":"LIMIT","price":'$price',"quantity":'$((1 + i % 5))',"accountId":'$((1 + i % 7))'}')
+    case "$resp" in
+        "Order submitted: "*) ;;
+        *) fail "primary rejected order $i: $resp" ;;
+    esac
+done
+sleep 1
+before=$(depth "$PRIMARY_PORT")
+[ -n "$before" ] || fail "empty depth from primary"
+
+kill -9 "${PIDS[0]}"
+await_log "$WORK/standby/app.log" "Promoted to primary" 30
+after=$(depth "$STANDBY_PORT")
+[ "$before" = "$after" ] || fail "depth differs after failover
+primary: $before
+standby: $after"
+
+resp=$(order "$STANDBY_PORT" '{"symbol":"'$SYMBOL'","side":"BUY","type":"LIMIT","price":900,"quantity":1,"accountId":1}')
+case "$resp" in
+    "Order submitted: "*) ;;
+    *) fail "promoted standby rejected a new order: $resp" ;;
+esac
+
+grep -m1 "Promoted to primary" "$WORK/standby/app.log"
+echo "depth: ${after:0:300}"
+echo "OK: standby took over after primary was killed; $ORDERS orders replayed, depth matches, new orders accepted"
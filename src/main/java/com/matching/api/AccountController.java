@@ -0,0 +1,49 @@
+package com.matching.api;
+
+import com.matching.core.account.AccountBook;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.engine.InstrumentRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class AccountController {
+    private final AccountBook accountBook;
+    private final InstrumentRegistry instruments;
+
+    /**
+     * 账户余额快照：每种资产的余额、冻结、可用（同一把锁内读出，互相一致），余额和冻结都为 0 的资产不列出
+     */
+    @GetMapping(value = "/balances/{accountId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> balances(@PathVariable long accountId) {
+        int assets = instruments.assetCount();
+        long[] balance = new long[assets];
+        long[] held = new long[assets];
+        int n = accountBook.snapshot(accountId, balance, held);
+        if (n < 0) {
+            return ResponseEntity.notFound().build();
+        }
+        StringBuilder sb = new StringBuilder(64 + n * 80);
+        sb.append("{\"accountId\":").append(accountId).append(",\"balances\":[");
+        boolean first = true;
+        for (int i = 0; i < n; i++) {
+            if (balance[i] == 0 && held[i] == 0) {
+                continue;
+            }
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"asset\":\"").append(instruments.assetName(i)).append("\",\"balance\":\"");
+            FixedPoint.append(sb, balance[i]).append("\",\"held\":\"");
+            FixedPoint.append(sb, held[i]).append("\",\"available\":\"");
+            FixedPoint.append(sb, balance[i] - held[i]).append("\"}");
+        }
+        return ResponseEntity.ok(sb.append("]}").toString());
+    }
+}
@@ -0,0 +1,78 @@
+package com.matching.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+
+/**
+ * 按账户的令牌桶限流（GCRA 形式，每个账户只存一个“理论到达时间”）
+ * 账户按 id 分散到多个分段，每段各自加锁，HTTP 线程之间只在同一分段上才会竞争
+ * 桶补满（理论到达时间已过）后再空闲一个补满周期的账户在分段里顺带清掉：和新建的桶等价，删掉不改变限流结果，
+ * 每段每个周期最多扫一遍，只来过一次的账户不会一直占着内存
+ */
+@Component
+@Slf4j
+public class AccountRateLimiter {
+    private static final int STRIPES = 64;   // 2 的幂，按位与取段
+
+    private final long intervalNanos;        // 每个令牌的间隔
+    private final long burstNanos;           // 可透支的时间（burst - 1 个令牌）
+    private final long idleNanos;            // 补满后再空闲这么久就清掉
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private static final class Stripe {
+        final HashMap<Long, long[]> tat = new HashMap<>();
+        long nextSweep;
+    }
+
+    public AccountRateLimiter(@Value("${app.admission.orders-per-second:0}") int ordersPerSecond,
+                              @Value("${app.admission.burst:0}") int burst) {
+        this.intervalNanos = ordersPerSecond > 0 ? 1_000_000_000L / ordersPerSecond : 0;
+        this.burstNanos = intervalNanos * Math.max(0, Math.max(burst, ordersPerSecond) - 1);
+        this.idleNanos = burstNanos + intervalNanos;
+        long start = System.nanoTime();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+            stripes[i].nextSweep = start + idleNanos;
+        }
+        log.info("Account rate limit: {}/s, burst {}", ordersPerSecond, Math.max(burst, ordersPerSecond));
+    }
+
+    /**
+     * 取一个令牌；限流关闭（orders-per-second = 0）时总是放行
+     */
+    public boolean tryAcquire(long accountId) {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        Stripe stripe = stripes[(int) (mix(accountId) & (STRIPES - 1))];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            if (now - stripe.nextSweep >= 0) {
+                evictIdle(stripe, now);
+            }
+            long[] slot = stripe.tat.computeIfAbsent(accountId, k -> new long[]{now});
+            long tat = Math.max(slot[0], now);
+            if (tat - now > burstNanos) {
+                return false;
+            }
+            slot[0] = tat + intervalNanos;
+            return true;
+        }
+    }
+
+    // 调用方持有 stripe 的锁
+    private void evictIdle(Stripe stripe, long now) {
+        stripe.tat.values().removeIf(slot -> now - slot[0] >= idleNanos);
+        stripe.nextSweep = now + idleNanos;
+    }
+
+    // 连续的账户 id 也要均匀分到各段
+    private static long mix(long id) {
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        return id ^ (id >>> 33);
+    }
+}
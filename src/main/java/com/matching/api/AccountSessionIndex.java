@@ -0,0 +1,105 @@
+package com.matching.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 账户 → 私有推送会话的索引，按账户哈希分成 partitions 份：第 k 份只由撮合输出上的第 k 个 PrivateStreamPublisher 读，
+ * 注册 / 注销在 Tomcat 线程上做（写时复制数组），推送路径上只有一次无锁的 get
+ * 会话的发送由共享的发送线程池执行，每个会话的积压上限 buffer-bytes
+ */
+@Component
+public class AccountSessionIndex {
+    private static final PrivateSession[] NONE = new PrivateSession[0];
+
+    private final boolean enabled;
+    private final int mask;
+    private final int bufferBytes;
+    private final List<ConcurrentHashMap<Long, PrivateSession[]>> partitions;
+    private final ExecutorService sender;
+
+    public AccountSessionIndex(@Value("${app.private-stream.enabled:false}") boolean enabled,
+                               @Value("${app.private-stream.partitions:1}") int partitions,
+                               @Value("${app.private-stream.senders:2}") int senders,
+                               @Value("${app.private-stream.buffer-bytes:1048576}") int bufferBytes) {
+        if (Integer.bitCount(partitions) != 1) {
+            throw new IllegalArgumentException("app.private-stream.partitions must be a power of two: " + partitions);
+        }
+        this.enabled = enabled;
+        this.mask = partitions - 1;
+        this.bufferBytes = bufferBytes;
+        this.partitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            this.partitions.add(new ConcurrentHashMap<>());
+        }
+        this.sender = enabled ? Executors.newFixedThreadPool(senders, Thread.ofPlatform().name("private-stream-", 0)
+                .daemon(true).factory()) : null;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    public int partitionOf(long accountId) {
+        return (int) (accountId ^ (accountId >>> 32)) & mask;
+    }
+
+    /**
+     * 推送路径：账户没有在线会话时返回 null（调用方据此跳过编码）
+     */
+    public PrivateSession[] sessions(int partition, long accountId) {
+        return partitions.get(partition).get(accountId);
+    }
+
+    // 同一条消息放进账户每个会话的发送队列
+    public void send(PrivateSession[] sessions, TextMessage message) {
+        for (PrivateSession session : sessions) {
+            session.offer(message);
+        }
+    }
+
+    PrivateSession register(WebSocketSession session, long accountId) {
+        PrivateSession ps = new PrivateSession(session, accountId, sender, bufferBytes);
+        partitions.get(partitionOf(accountId)).merge(accountId, new PrivateSession[]{ps}, (old, added) -> {
+            PrivateSession[] next = Arrays.copyOf(old, old.length + 1);
+            next[old.length] = ps;
+            return next;
+        });
+        return ps;
+    }
+
+    void unregister(PrivateSession ps) {
+        ps.markClosed();
+        partitions.get(partitionOf(ps.accountId)).computeIfPresent(ps.accountId, (k, old) -> {
+            PrivateSession[] next = NONE;
+            for (PrivateSession s : old) {
+                if (s != ps) {
+                    next = Arrays.copyOf(next, next.length + 1);
+                    next[next.length - 1] = s;
+                }
+            }
+            return next.length == 0 ? null : next;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+    }
+}
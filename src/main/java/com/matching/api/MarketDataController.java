@@ -0,0 +1,167 @@
+package com.matching.api;
+
+import com.matching.core.domain.BboSnapshot;
+import com.matching.core.domain.DepthSnapshot;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Instrument;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.core.engine.MatchingEngine;
+import com.matching.core.engine.MatchingEngineManager;
+import com.matching.core.kline.CandleAggregator;
+import com.matching.core.kline.CandleInterval;
+import com.matching.core.persistence.TradeStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+public class MarketDataController {
+    private static final int MAX_KLINES = 1000;
+    private static final int MAX_TRADES = 1000;
+
+    private final CandleAggregator candleAggregator;
+    private final TradeStore tradeStore;
+    private final InstrumentRegistry instruments;
+
+    // 每个 Tomcat 线程复用一份读取缓冲，读 BBO 本身不分配
+    private static final ThreadLocal<BboSnapshot> BBO_HOLDER = ThreadLocal.withInitial(BboSnapshot::new);
+    private static final ThreadLocal<StringBuilder> JSON_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    /**
+     * 最优买卖价：带 symbol 返回单个对象，不带返回全部交易对数组
+     */
+    @GetMapping(value = "/ticker/bbo", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> bbo(@RequestParam(required = false) String symbol) {
+        BboSnapshot snapshot = BBO_HOLDER.get();
+        StringBuilder sb = JSON_BUFFER.get();
+        sb.setLength(0);
+
+        if (symbol != null) {
+            MatchingEngine engine = MatchingEngineManager.findEngine(symbol);
+            if (engine != null) {
+                engine.getBbo().read(snapshot);
+            } else {
+                // 引擎在首笔委托时才建：已注册的交易对返回空盘口，未知交易对才 404
+                Instrument instrument = instruments.find(symbol);
+                if (instrument == null) {
+                    return ResponseEntity.notFound().build();
+                }
+                snapshot.clear(instrument.getSymbol());
+            }
+            return ResponseEntity.ok(snapshot.appendJson(sb).toString());
+        }
+
+        sb.append('[');
+        for (MatchingEngine engine : MatchingEngineManager.getEngines()) {
+            if (sb.length() > 1) sb.append(',');
+            engine.getBbo().read(snapshot);
+            snapshot.appendJson(sb);
+        }
+        return ResponseEntity.ok(sb.append(']').toString());
+    }
+
+    /**
+     * Top-N 深度：直接返回撮合线程发布的不可变视图
+     * 带 If-None-Match 且版本未变时返回 304，不编码不拷贝
+     */
+    @GetMapping(value = "/depth/{symbol}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> depth(@PathVariable String symbol,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        MatchingEngine engine = MatchingEngineManager.findEngine(symbol);
+        DepthSnapshot view;
+        if (engine != null) {
+            view = engine.getDepthSnapshot();
+        } else {
+            Instrument instrument = instruments.find(symbol);
+            if (instrument == null) {
+                return ResponseEntity.notFound().build();
+            }
+            view = DepthSnapshot.empty(instrument.getSymbol());
+        }
+        String etag = view.etag();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        byte[] body = limit == null ? view.toJsonBytes() : view.toJson(limit).getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.ok().eTag(etag).body(body);
+    }
+
+    /**
+     * K 线：GET /api/klines?symbol=BTCUSDT&interval=1m&limit=500[&endTime=]
+     */
+    @GetMapping(value = "/klines", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> klines(@RequestParam String symbol,
+                                         @RequestParam(defaultValue = "1m") String interval,
+                                         @RequestParam(defaultValue = "500") int limit,
+                                         @RequestParam(required = false) Long endTime) {
+        CandleInterval ci;
+        try {
+            ci = CandleInterval.of(interval);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("{\"error\":\"" + e.getMessage() + "\"}");
+        }
+        String json = candleAggregator.klines(symbol, ci,
+                endTime != null ? endTime : System.currentTimeMillis(), Math.max(1, Math.min(limit, MAX_KLINES)));
+        return ResponseEntity.ok(json != null ? json : "[]");
+    }
+
+    /**
+     * 24h 滚动行情：带 symbol 返回单个对象，不带返回全部
+     */
+    @GetMapping(value = "/ticker/24hr", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> ticker24h(@RequestParam(required = false) String symbol) {
+        if (symbol == null) {
+            return ResponseEntity.ok(candleAggregator.tickers24h());
+        }
+        String json = candleAggregator.ticker24h(symbol);
+        return json != null ? ResponseEntity.ok(json) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 成交历史：
+     *   GET /api/trades?symbol=BTCUSDT&limit=500                    最近成交
+     *   GET /api/trades?symbol=BTCUSDT&fromId=123&limit=500         从 tradeId 起
+     *   GET /api/trades?symbol=BTCUSDT&startTime=..&endTime=..      时间范围
+     * 直接从映射内存编码 JSON，中间不创建 Trade 对象
+     */
+    @GetMapping(value = "/trades", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> trades(@RequestParam String symbol,
+                                         @RequestParam(required = false) Long fromId,
+                                         @RequestParam(required = false) Long startTime,
+                                         @RequestParam(required = false) Long endTime,
+                                         @RequestParam(defaultValue = "500") int limit) {
+        int n = Math.max(1, Math.min(limit, MAX_TRADES));
+        StringBuilder sb = JSON_BUFFER.get();
+        sb.setLength(0);
+        sb.append('[');
+        TradeStore.TradeVisitor encoder = (id, ts, price, qty, takerBuy) -> {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"id\":").append(id).append(",\"price\":\"");
+            FixedPoint.append(sb, price).append("\",\"qty\":\"");
+            FixedPoint.append(sb, qty).append("\",\"time\":").append(ts)
+                    .append(",\"isBuyerMaker\":").append(!takerBuy).append('}');
+        };
+
+        if (fromId != null) {
+            tradeStore.scanFromId(symbol, fromId, n, encoder);
+        } else if (startTime != null || endTime != null) {
+            tradeStore.scanTimeRange(symbol, startTime != null ? startTime : 0L,
+                    endTime != null ? endTime : Long.MAX_VALUE, n, encoder);
+        } else {
+            tradeStore.scanRecent(symbol, n, encoder);
+        }
+        return ResponseEntity.ok(sb.append(']').toString());
+    }
+}
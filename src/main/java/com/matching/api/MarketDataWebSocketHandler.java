@@ -1,47 +1,89 @@
 package com.matching.api;
 
-import jakarta.websocket.OnClose;
-import jakarta.websocket.OnOpen;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @Slf4j
-public class MarketDataWebSocketHandler {
-    private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+public class MarketDataWebSocketHandler extends TextWebSocketHandler {
+    public static final String CHANNEL_DEPTH = "depth";
+    public static final String CHANNEL_MBO = "mbo";
+    public static final String CHANNEL_BBO = "bbo";
+    public static final String CHANNEL_KLINE = "kline";
 
-    @OnOpen
-    public void onOpen(WebSocketSession session) { sessions.add(session); }
+    // channel → 订阅该频道的会话（连接时通过 ?channel=depth,bbo,kline,mbo 指定，默认 depth）
+    private final Map<String, Set<WebSocketSession>> channels = new ConcurrentHashMap<>();
 
-    @OnClose
-    public void onClose(WebSocketSession session) { sessions.remove(session); }
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        for (String channel : requestedChannels(session.getUri())) {
+            channels.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(session);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        channels.values().forEach(s -> s.remove(session));
+    }
+
+    public boolean hasSubscribers(String channel) {
+        Set<WebSocketSession> s = channels.get(channel);
+        return s != null && !s.isEmpty();
+    }
 
     public void broadcast(String symbol,
                           TreeMap<BigDecimal, BigDecimal> bids,   // 降序
                           TreeMap<BigDecimal, BigDecimal> asks,   // 升序
                           int levels) {
-        String json = buildDepthJson(symbol, bids, asks, levels);
+        if (!hasSubscribers(CHANNEL_DEPTH)) {
+            return;
+        }
+        send(CHANNEL_DEPTH, buildDepthJson(symbol, bids, asks, levels));
+    }
+
+    // 推送已编码好的消息到指定频道（逐笔委托等）
+    public void send(String channel, String json) {
+        Set<WebSocketSession> targets = channels.get(channel);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
         TextMessage message = new TextMessage(json);
 
-        sessions.parallelStream().forEach(session -> {
+        targets.parallelStream().forEach(session -> {
             try {
                 if (session.isOpen()) {
-                    session.sendMessage(message);
+                    synchronized (session) { // WebSocketSession 不支持并发发送
+                        session.sendMessage(message);
+                    }
                 }
-            } catch (IOException e) {
-                log.warn("WebSocket 推送失败", e);
+            } catch (IOException | IllegalStateException e) {
+                // 检查 isOpen 之后对端仍可能断开（网关中继重连时常见），不能让异常打断行情消费线程
+                log.warn("WebSocket 推送失败: {}", e.toString());
             }
         });
     }
 
+    private static String[] requestedChannels(URI uri) {
+        if (uri == null) {
+            return new String[]{CHANNEL_DEPTH};
+        }
+        String param = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("channel");
+        return param == null || param.isBlank() ? new String[]{CHANNEL_DEPTH} : param.split(",");
+    }
+
     private String buildDepthJson(String symbol,
                                   TreeMap<BigDecimal, BigDecimal> bids,
                                   TreeMap<BigDecimal, BigDecimal> asks,
@@ -1,18 +1,29 @@
 package com.matching.api;
 
-import com.fasterxml.jackson.core.JsonParser;
+import com.matching.api.dto.AmendRequest;
+import com.matching.api.dto.CancelAllRequest;
 import com.matching.api.dto.CancelRequest;
 import com.matching.api.dto.OrderRequest;
+import com.matching.core.domain.Instrument;
 import com.matching.core.domain.Order;
+import com.matching.core.domain.OrderIds;
 import com.matching.core.domain.Side;
+import com.matching.core.engine.InstrumentRegistry;
 import com.matching.disruptor.OrderEvent;
 import com.matching.disruptor.OrderEventProducer;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/api")
@@ -22,34 +33,219 @@ public class OrderController {
     @Autowired
     private OrderEventProducer producer;
 
+    @Autowired
+    private InstrumentRegistry instruments;
+
+    @Autowired
+    private AccountRateLimiter rateLimiter;
+
+    // /v2/order：每个 Tomcat 线程复用解码器、待发布事件和应答缓冲
+    private static final ThreadLocal<OrderJsonDecoder> DECODER = ThreadLocal.withInitial(OrderJsonDecoder::new);
+    private static final ThreadLocal<OrderEvent> PENDING = ThreadLocal.withInitial(OrderEvent::new);
+    private static final ThreadLocal<byte[]> ACK_BUFFER = ThreadLocal.withInitial(() -> new byte[128]);
+    private static final byte[] ACK_PREFIX = "{\"orderId\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ACK_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    // 拒绝原因是有限集合，应答体编码一次后复用
+    private static final ConcurrentHashMap<String, byte[]> ERROR_BODIES = new ConcurrentHashMap<>();
+
+    // 分片繁忙或账户超限：429，客户端退避重试
+    private static ResponseEntity<String> tooManyRequests(String reason) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").body(reason);
+    }
+
     @PostMapping("/order")
     public ResponseEntity<String> submitOrder(@RequestBody OrderRequest req) {
+        // 入口按交易对规格校验，不合法的订单不占 RingBuffer 槽位
+        Instrument instrument = instruments.find(req.getSymbol());
+        if (instrument == null) {
+            return ResponseEntity.badRequest().body("unknown symbol");
+        }
+        if (req.getSide() == null || req.getType() == null) {
+            return ResponseEntity.badRequest().body("side and type required");
+        }
+        String invalid = instrument.validate(req.getType(), req.getPrice(), req.getStopPrice(), req.getQuantity());
+        if (invalid == null && req.getDisplayQuantity() != null) {
+            invalid = instrument.validateQty(req.getDisplayQuantity());
+        }
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(invalid);
+        }
+        if (!rateLimiter.tryAcquire(req.getAccountId())) {
+            return tooManyRequests("RATE_LIMITED");
+        }
         Order order = new Order();
         order.setSymbol(req.getSymbol());
         order.setSide(req.getSide());
         order.setType(req.getType());
         order.setPrice(req.getPrice());
+        order.setStopPrice(req.getStopPrice());
         order.setQuantity(req.getQuantity());
-        order.setOrderId(req.getOrderId() != null ? req.getOrderId() : order.getOrderId());
+        order.setHidden(req.isHidden());
+        order.setDisplayQuantity(req.getDisplayQuantity());
+        order.setAccountId(req.getAccountId());
+        order.setStpMode(req.getStpMode());
+        // 系统订单号在入口生成并自带 symbol，客户端自己的编号放 clientOrderId
+        order.setOrderId(OrderIds.next(req.getSymbol()));
+        order.setClientOrderId(req.getClientOrderId());
 
         OrderEvent event = new OrderEvent();
         event.setOrder(order);
         event.setAction("SUBMIT");
-        producer.publish(event);
+        event.setInstrumentId(instrument.getId());
+        if (!producer.publish(event)) {
+            return tooManyRequests("BUSY");
+        }
         return ResponseEntity.ok("Order submitted: " + order.getOrderId());
     }
 
+    /**
+     * 下单（流式解码版）：请求体字节直接解码进事件的定点字段，应答为预编码的小 JSON
+     * 成功 200 {"orderId":"..."}，失败 400 / 429 / 413 {"error":"REASON"}
+     */
+    @PostMapping("/v2/order")
+    public void submitOrderV2(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        OrderJsonDecoder decoder = DECODER.get();
+        if (!decoder.read(request.getInputStream())) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "BODY_TOO_LARGE");
+            return;
+        }
+        OrderEvent event = PENDING.get();
+        String invalid = decoder.decode(instruments, event);
+        if (invalid != null) {
+            writeError(response, HttpStatus.BAD_REQUEST, invalid);
+            return;
+        }
+        if (!rateLimiter.tryAcquire(event.getAccountId())) {
+            writeError(response, HttpStatus.TOO_MANY_REQUESTS, "RATE_LIMITED");
+            return;
+        }
+        event.setOrder(null);
+        event.setAction("SUBMIT");
+        event.setOrderSeq(OrderIds.nextSeq());
+        if (!producer.publish(event)) {
+            writeError(response, HttpStatus.TOO_MANY_REQUESTS, "BUSY");
+            return;
+        }
+        writeAck(response, instruments.get(event.getInstrumentId()).getSymbolBytes(), event.getOrderSeq());
+    }
+
+    // {"orderId":"BTCUSDT_123"}：前后缀预编码，中间直接写 symbol 字节和序号数字
+    private static void writeAck(HttpServletResponse response, byte[] symbol, long seq) throws IOException {
+        byte[] out = ACK_BUFFER.get();
+        if (out.length < ACK_PREFIX.length + symbol.length + 21 + ACK_SUFFIX.length) {
+            out = new byte[ACK_PREFIX.length + symbol.length + 21 + ACK_SUFFIX.length];
+            ACK_BUFFER.set(out);
+        }
+        int n = 0;
+        System.arraycopy(ACK_PREFIX, 0, out, n, ACK_PREFIX.length);
+        n += ACK_PREFIX.length;
+        System.arraycopy(symbol, 0, out, n, symbol.length);
+        n += symbol.length;
+        out[n++] = '_';
+        int digits = 1;
+        for (long v = seq; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = n + digits - 1; i >= n; i--, seq /= 10) {
+            out[i] = (byte) ('0' + seq % 10);
+        }
+        n += digits;
+        System.arraycopy(ACK_SUFFIX, 0, out, n, ACK_SUFFIX.length);
+        n += ACK_SUFFIX.length;
+        writeBody(response, HttpStatus.OK, out, n);
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String reason) throws IOException {
+        byte[] body = ERROR_BODIES.computeIfAbsent(reason,
+                r -> ("{\"error\":\"" + r + "\"}").getBytes(StandardCharsets.US_ASCII));
+        if (status == HttpStatus.TOO_MANY_REQUESTS) {
+            response.setHeader("Retry-After", "1");
+        }
+        writeBody(response, status, body, body.length);
+    }
+
+    private static void writeBody(HttpServletResponse response, HttpStatus status, byte[] body, int len) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(len);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body, 0, len);
+    }
+
     @PostMapping("/cancel")
     public ResponseEntity<String> cancelOrder(@RequestBody CancelRequest req) {
-        // 需查询 order 详情，这里简化
+        // 订单号自带 symbol，直接算出所在分片
+        Instrument instrument = instruments.find(OrderIds.symbolOf(req.getOrderId()));
+        if (instrument == null) {
+            return ResponseEntity.badRequest().body("invalid orderId");
+        }
         Order dummyOrder = new Order();
+        dummyOrder.setSymbol(instrument.getSymbol());
         dummyOrder.setOrderId(req.getOrderId());
 
         OrderEvent event = new OrderEvent();
         event.setOrder(dummyOrder);
         event.setAction("CANCEL");
+        event.setInstrumentId(instrument.getId());
 
-        producer.publish(event);
+        if (!producer.publish(event)) {
+            return tooManyRequests("BUSY");
+        }
         return ResponseEntity.ok("Cancel submitted: " + req.getOrderId());
     }
-}
\ No newline at end of file
+
+    /**
+     * 改单：同价减量保留排队位置，改价或加量重新排队；一次请求只占一个 RingBuffer 槽位
+     */
+    @PostMapping("/amend")
+    public ResponseEntity<String> amendOrder(@RequestBody AmendRequest req) {
+        Instrument instrument = instruments.find(OrderIds.symbolOf(req.getOrderId()));
+        if (instrument == null) {
+            return ResponseEntity.badRequest().body("invalid orderId");
+        }
+        String invalid = req.getPrice() == null ? null : instrument.validatePrice(req.getPrice());
+        if (invalid == null && req.getQuantity() != null) {
+            invalid = instrument.validateQty(req.getQuantity());
+        }
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(invalid);
+        }
+        Order amend = new Order();
+        amend.setSymbol(instrument.getSymbol());
+        amend.setOrderId(req.getOrderId());
+        amend.setAccountId(req.getAccountId());
+        amend.setPrice(req.getPrice());
+        amend.setQuantity(req.getQuantity());
+
+        OrderEvent event = new OrderEvent();
+        event.setOrder(amend);
+        event.setAction("AMEND");
+        event.setInstrumentId(instrument.getId());
+        if (!producer.publish(event)) {
+            return tooManyRequests("BUSY");
+        }
+        return ResponseEntity.ok("Amend submitted: " + req.getOrderId());
+    }
+
+    /**
+     * 按账户批量撤单（可限定 symbol / side），每个相关分片只发一条指令
+     */
+    @PostMapping("/cancelAll")
+    public ResponseEntity<String> cancelAll(@RequestBody CancelAllRequest req) {
+        if (req.getAccountId() == 0) {
+            return ResponseEntity.badRequest().body("accountId required");
+        }
+        int instrumentId = -1;
+        if (req.getSymbol() != null) {
+            Instrument instrument = instruments.find(req.getSymbol());
+            if (instrument == null) {
+                return ResponseEntity.badRequest().body("unknown symbol");
+            }
+            instrumentId = instrument.getId();
+        }
+        if (!producer.publishCancelAll(req.getAccountId(), instrumentId, req.getSide(), "MASS_CANCEL")) {
+            return tooManyRequests("BUSY");
+        }
+        return ResponseEntity.ok("Cancel-all submitted: " + req.getAccountId());
+    }
+}
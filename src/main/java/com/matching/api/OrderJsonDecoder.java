@@ -0,0 +1,408 @@
+package com.matching.api;
+
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Instrument;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.disruptor.OrderEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 下单请求的流式 JSON 解码器：直接扫描请求体字节，把字段写进 OrderEvent 的原始字段
+ * 价格 / 数量直接解析成定点 long（FixedPoint，放大 10^8），不经过 DTO、BigDecimal、String；
+ * symbol / side / type 按字节匹配，只有 clientOrderId 会建 String
+ * 每个 Tomcat 线程一个实例，缓冲区复用；只支持下单需要的 JSON 子集（字符串不支持转义）
+ */
+final class OrderJsonDecoder {
+    static final int MAX_BODY = 16 * 1024;
+
+    private static final byte[][] SIDES = names(Side.values());
+    private static final Side[] SIDE_VALUES = Side.values();
+    private static final byte[][] TYPES = names(OrderType.values());
+    private static final OrderType[] TYPE_VALUES = OrderType.values();
+    private static final byte[][] STP_MODES = names(StpMode.values());
+    private static final StpMode[] STP_VALUES = StpMode.values();
+
+    private static final byte[] K_SYMBOL = ascii("symbol");
+    private static final byte[] K_SIDE = ascii("side");
+    private static final byte[] K_TYPE = ascii("type");
+    private static final byte[] K_PRICE = ascii("price");
+    private static final byte[] K_STOP_PRICE = ascii("stopPrice");
+    private static final byte[] K_QUANTITY = ascii("quantity");
+    private static final byte[] K_DISPLAY_QUANTITY = ascii("displayQuantity");
+    private static final byte[] K_HIDDEN = ascii("hidden");
+    private static final byte[] K_ACCOUNT_ID = ascii("accountId");
+    private static final byte[] K_STP_MODE = ascii("stpMode");
+    private static final byte[] K_CLIENT_ORDER_ID = ascii("clientOrderId");
+
+    private static final DecodeException MALFORMED = new DecodeException("MALFORMED_JSON");
+    private static final DecodeException INVALID_NUMBER = new DecodeException("INVALID_NUMBER");
+    private static final DecodeException INVALID_ENUM = new DecodeException("INVALID_ENUM");
+
+    // 解码失败的原因，预分配、不带栈，失败路径也不分配
+    private static final class DecodeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        DecodeException(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    private byte[] buf = new byte[1024];
+    private int pos;
+    private int end;
+    private int strLen;         // 最近一次 readString 的长度
+
+    /**
+     * 读入整个请求体，超过 MAX_BODY 返回 false
+     */
+    boolean read(InputStream in) throws IOException {
+        end = 0;
+        int n;
+        while ((n = in.read(buf, end, buf.length - end)) > 0) {
+            end += n;
+            if (end == buf.length) {
+                if (buf.length >= MAX_BODY) {
+                    return in.read() < 0;
+                }
+                buf = Arrays.copyOf(buf, Math.min(buf.length * 2, MAX_BODY));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解码并做静态规格校验；成功返回 null 并设置 instrumentId，失败返回拒绝原因
+     */
+    String decode(InstrumentRegistry registry, OrderEvent out) {
+        out.clearWire();
+        Instrument instrument = null;
+        pos = 0;
+        try {
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                do {
+                    int key = readString();
+                    expect(':');
+                    instrument = field(key, strLen, registry, out, instrument);
+                } while (next(',', '}'));
+            }
+            if (skipWs() < end) {
+                throw MALFORMED;
+            }
+        } catch (DecodeException e) {
+            return e.getMessage();
+        }
+
+        if (instrument == null) {
+            return "UNKNOWN_SYMBOL";
+        }
+        if (out.getSide() == null || out.getType() == null) {
+            return "MISSING_SIDE_OR_TYPE";
+        }
+        String invalid = instrument.validate(out.getType(), out.getPrice(), out.getStopPrice(), out.getQuantity());
+        if (invalid == null && out.getDisplayQuantity() != 0) {
+            invalid = instrument.validateQty(out.getDisplayQuantity());
+        }
+        if (invalid != null) {
+            return invalid;
+        }
+        out.setInstrumentId(instrument.getId());
+        return null;
+    }
+
+    // 先按键长分派，每个字段最多比较两个键名
+    private Instrument field(int key, int len, InstrumentRegistry registry, OrderEvent out, Instrument instrument) {
+        switch (len) {
+            case 4 -> {
+                if (is(key, len, K_SIDE)) {
+                    out.setSide(SIDE_VALUES[readEnum(SIDES)]);
+                    return instrument;
+                }
+                if (is(key, len, K_TYPE)) {
+                    out.setType(TYPE_VALUES[readEnum(TYPES)]);
+                    return instrument;
+                }
+            }
+            case 5 -> {
+                if (is(key, len, K_PRICE)) {
+                    out.setPrice(readFixed());
+                    return instrument;
+                }
+            }
+            case 6 -> {
+                if (is(key, len, K_SYMBOL)) {
+                    int s = readString();
+                    return registry.find(buf, s, strLen);
+                }
+                if (is(key, len, K_HIDDEN)) {
+                    out.setHidden(readBoolean());
+                    return instrument;
+                }
+            }
+            case 7 -> {
+                if (is(key, len, K_STP_MODE)) {
+                    out.setStpMode(readNull() ? null : STP_VALUES[readEnum(STP_MODES)]);
+                    return instrument;
+                }
+            }
+            case 8 -> {
+                if (is(key, len, K_QUANTITY)) {
+                    out.setQuantity(readFixed());
+                    return instrument;
+                }
+            }
+            case 9 -> {
+                if (is(key, len, K_STOP_PRICE)) {
+                    out.setStopPrice(readFixed());
+                    return instrument;
+                }
+                if (is(key, len, K_ACCOUNT_ID)) {
+                    out.setAccountId(readLong());
+                    return instrument;
+                }
+            }
+            case 13 -> {
+                if (is(key, len, K_CLIENT_ORDER_ID)) {
+                    if (!readNull()) {
+                        int s = readString();
+                        out.setClientOrderId(new String(buf, s, strLen, StandardCharsets.US_ASCII));
+                    }
+                    return instrument;
+                }
+            }
+            case 15 -> {
+                if (is(key, len, K_DISPLAY_QUANTITY)) {
+                    out.setDisplayQuantity(readFixed());
+                    return instrument;
+                }
+            }
+            default -> {
+            }
+        }
+        skipValue();
+        return instrument;
+    }
+
+    // ==================== 词法 ====================
+
+    private int skipWs() {
+        while (pos < end && (buf[pos] == ' ' || buf[pos] == '\t' || buf[pos] == '\n' || buf[pos] == '\r')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private byte peek() {
+        if (skipWs() >= end) {
+            throw MALFORMED;
+        }
+        return buf[pos];
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw MALFORMED;
+        }
+        pos++;
+    }
+
+    // 读到 more 返回 true，读到 close 返回 false
+    private boolean next(char more, char close) {
+        byte c = peek();
+        pos++;
+        if (c == more) {
+            return true;
+        }
+        if (c == close) {
+            return false;
+        }
+        throw MALFORMED;
+    }
+
+    // 返回字符串内容起点，长度放 strLen
+    private int readString() {
+        expect('"');
+        int start = pos;
+        while (pos < end && buf[pos] != '"') {
+            if (buf[pos] == '\\') {
+                throw MALFORMED;
+            }
+            pos++;
+        }
+        if (pos >= end) {
+            throw MALFORMED;
+        }
+        strLen = pos - start;
+        pos++;
+        return start;
+    }
+
+    private boolean readNull() {
+        if (peek() == 'n' && literal("null")) {
+            return true;
+        }
+        return false;
+    }
+
+    private boolean readBoolean() {
+        if (peek() == 't' && literal("true")) {
+            return true;
+        }
+        if (buf[pos] == 'f' && literal("false")) {
+            return false;
+        }
+        throw MALFORMED;
+    }
+
+    private boolean literal(String word) {
+        if (end - pos < word.length()) {
+            throw MALFORMED;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (buf[pos + i] != word.charAt(i)) {
+                throw MALFORMED;
+            }
+        }
+        pos += word.length();
+        return true;
+    }
+
+    private int readEnum(byte[][] names) {
+        int s = readString();
+        for (int i = 0; i < names.length; i++) {
+            if (is(s, strLen, names[i])) {
+                return i;
+            }
+        }
+        throw INVALID_ENUM;
+    }
+
+    private long readLong() {
+        peek();
+        long v = 0;
+        int start = pos;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            if (v > (Long.MAX_VALUE - 9) / 10) {
+                throw INVALID_NUMBER;
+            }
+            v = v * 10 + (buf[pos++] - '0');
+        }
+        if (pos == start) {
+            throw INVALID_NUMBER;
+        }
+        return v;
+    }
+
+    /**
+     * 十进制数（可带引号）直接转成放大 10^8 的 long；null 视为未传（0）
+     * 负数、指数形式、超过 8 位的非零小数一律拒绝，不做舍入
+     */
+    private long readFixed() {
+        if (readNull()) {
+            return 0;
+        }
+        boolean quoted = buf[pos] == '"';
+        if (quoted) {
+            pos++;
+        }
+        long intPart = readLong();
+        long frac = 0;
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            long unit = FixedPoint.ONE;
+            int start = pos;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                unit /= 10;
+                if (unit == 0) {
+                    if (buf[pos] != '0') {
+                        throw INVALID_NUMBER;
+                    }
+                } else {
+                    frac += (buf[pos] - '0') * unit;
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw INVALID_NUMBER;
+            }
+        }
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            throw INVALID_NUMBER;
+        }
+        if (quoted) {
+            if (pos >= end || buf[pos] != '"') {
+                throw INVALID_NUMBER;
+            }
+            pos++;
+        }
+        if (intPart > Long.MAX_VALUE / FixedPoint.ONE - 1) {
+            throw INVALID_NUMBER;
+        }
+        return intPart * FixedPoint.ONE + frac;
+    }
+
+    // 跳过不认识的字段值（含嵌套对象 / 数组）
+    private void skipValue() {
+        byte c = peek();
+        if (c == '"') {
+            readString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = buf[pos];
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                pos++;
+            } while (depth > 0 && skipWs() < end);
+            if (depth > 0) {
+                throw MALFORMED;
+            }
+        } else {
+            while (pos < end && buf[pos] != ',' && buf[pos] != '}' && buf[pos] != ']'
+                    && buf[pos] != ' ' && buf[pos] != '\n' && buf[pos] != '\r' && buf[pos] != '\t') {
+                pos++;
+            }
+        }
+    }
+
+    // 键名、枚举名都很短，逐字节比较比 Arrays.equals 的范围检查更便宜
+    private boolean is(int start, int len, byte[] name) {
+        if (len != name.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (buf[start + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = ascii(values[i].name());
+        }
+        return names;
+    }
+}
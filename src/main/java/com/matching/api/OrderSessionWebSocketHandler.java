@@ -0,0 +1,88 @@
+package com.matching.api;
+
+import com.matching.disruptor.OrderEventProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易网关会话：ws://host:8080/ws/session?accountId=123[&cancelOnDisconnect=false]
+ * 客户端保持连接并定期发 ping；账户的最后一个会话断开时自动对该账户批量撤单（默认开启）
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderSessionWebSocketHandler extends TextWebSocketHandler {
+    private static final String ATTR_ACCOUNT = "accountId";
+    private static final String ATTR_COD = "cancelOnDisconnect";
+
+    private final OrderEventProducer producer;
+
+    // accountId → 开启了断线撤单的在线会话数
+    private final ConcurrentHashMap<Long, Integer> liveSessions = new ConcurrentHashMap<>();
+
+    // 分片繁忙时断线撤单不能丢，交给后台线程重试直到进入 RingBuffer
+    private final ScheduledExecutorService retrier = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cod-retry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        var params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        long accountId;
+        try {
+            accountId = Long.parseLong(params.getFirst("accountId"));
+        } catch (NumberFormatException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("accountId required"));
+            return;
+        }
+        boolean cod = !"false".equalsIgnoreCase(params.getFirst("cancelOnDisconnect"));
+        session.getAttributes().put(ATTR_ACCOUNT, accountId);
+        session.getAttributes().put(ATTR_COD, cod);
+        if (cod) {
+            liveSessions.merge(accountId, 1, Integer::sum);
+        }
+        log.info("Gateway session {} opened: account={} cancelOnDisconnect={}", session.getId(), accountId, cod);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        if ("ping".equals(message.getPayload())) {
+            session.sendMessage(new TextMessage("pong"));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Long accountId = (Long) session.getAttributes().get(ATTR_ACCOUNT);
+        if (accountId == null || !Boolean.TRUE.equals(session.getAttributes().get(ATTR_COD))) {
+            return;
+        }
+        // 原子地减一，减到 0 时移除并撤单；同账户还有其他会话在线则不撤
+        boolean last = liveSessions.computeIfPresent(accountId, (k, n) -> n > 1 ? n - 1 : null) == null;
+        if (last) {
+            log.warn("Gateway session {} dropped ({}), cancel-all for account {}", session.getId(), status, accountId);
+            cancelOnDisconnect(accountId);
+        }
+    }
+
+    private void cancelOnDisconnect(long accountId) {
+        if (!producer.publishCancelAll(accountId, -1, null, "DISCONNECT")) {
+            log.warn("Shards busy, retrying cancel-all for account {}", accountId);
+            retrier.schedule(() -> cancelOnDisconnect(accountId), 10, TimeUnit.MILLISECONDS);
+        }
+    }
+}
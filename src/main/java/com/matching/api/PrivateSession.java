@@ -0,0 +1,102 @@
+package com.matching.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * 私有推送的一个会话：撮合输出线程只把编码好的消息放进有界发送队列，真正写 socket 的是发送线程池，
+ * 同一会话同时只有一个发送任务（保证顺序），慢客户端不会拖住撮合输出
+ * 积压超过 maxBytes（按字符数计）直接断开（SESSION_NOT_RELIABLE），客户端重连后按 REST 查询补齐状态
+ */
+@Slf4j
+public final class PrivateSession {
+    private static final int DRAIN_BATCH = 64;      // 一次发送任务最多连发这么多条，之后让出线程
+
+    final WebSocketSession session;
+    final long accountId;
+    private final Executor sender;
+    private final int maxBytes;
+    private final ArrayDeque<TextMessage> queue = new ArrayDeque<>();
+    private int queuedBytes;
+    private boolean draining;
+    private boolean closed;
+
+    PrivateSession(WebSocketSession session, long accountId, Executor sender, int maxBytes) {
+        this.session = session;
+        this.accountId = accountId;
+        this.sender = sender;
+        this.maxBytes = maxBytes;
+    }
+
+    void offer(TextMessage message) {
+        boolean schedule = false;
+        boolean overflow = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queuedBytes + message.getPayloadLength() > maxBytes) {
+                closed = overflow = true;
+                queue.clear();
+            } else {
+                queue.add(message);
+                queuedBytes += message.getPayloadLength();
+                schedule = !draining;
+                draining = true;
+            }
+        }
+        if (overflow) {
+            log.warn("Private stream {} for account {} overflowed, closing", session.getId(), accountId);
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+        } else if (schedule) {
+            sender.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            TextMessage message;
+            synchronized (this) {
+                message = queue.poll();
+                if (message == null) {
+                    draining = false;
+                    return;
+                }
+                queuedBytes -= message.getPayloadLength();
+            }
+            try {
+                session.sendMessage(message);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Private stream {} send failed: {}", session.getId(), e.toString());
+                synchronized (this) {
+                    closed = true;
+                    queue.clear();
+                    draining = false;
+                }
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+        }
+        sender.execute(this::drain);
+    }
+
+    void markClosed() {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    private void close(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ignored) {
+        }
+    }
+}
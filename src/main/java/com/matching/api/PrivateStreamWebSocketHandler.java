@@ -0,0 +1,126 @@
+package com.matching.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * 私有推送：ws://host:8080/ws/private?accountId=123&timestamp={毫秒}&signature={hex}
+ * signature = HMAC-SHA256(app.private-stream.secret, "accountId=123&timestamp=...")，由登录服务签发给客户端，
+ * 时间戳偏差超过 max-skew-millis 的拒绝（握手直接回 401，不升级）
+ * 连上后收到本账户的成交（fill）和订单回报（report），推送由 PrivateStreamPublisher 从撮合输出送来
+ */
+@Slf4j
+@Component
+public class PrivateStreamWebSocketHandler extends TextWebSocketHandler implements HandshakeInterceptor {
+    private static final String ATTR_ACCOUNT = "accountId";
+    private static final String ATTR_SESSION = "privateSession";
+    // Tomcat 阻塞发送的超时：发送线程最多被一个卡住的客户端占这么久
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    private static final TextMessage PONG = new TextMessage("pong");
+
+    private final AccountSessionIndex index;
+    private final byte[] secret;
+    private final long maxSkewMillis;
+    private final long sendTimeLimitMillis;
+
+    public PrivateStreamWebSocketHandler(AccountSessionIndex index,
+                                         @Value("${app.private-stream.secret:}") String secret,
+                                         @Value("${app.private-stream.max-skew-millis:30000}") long maxSkewMillis,
+                                         @Value("${app.private-stream.send-time-limit-millis:5000}") long sendTimeLimitMillis) {
+        if (index.enabled() && secret.isBlank()) {
+            throw new IllegalArgumentException("app.private-stream.secret required when the private stream is enabled");
+        }
+        this.index = index;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.maxSkewMillis = maxSkewMillis;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+                                   Map<String, Object> attributes) {
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+        String account = params.getFirst("accountId");
+        String timestamp = params.getFirst("timestamp");
+        String signature = params.getFirst("signature");
+        long accountId;
+        long ts;
+        try {
+            accountId = Long.parseLong(account);
+            ts = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+        if (signature == null || Math.abs(System.currentTimeMillis() - ts) > maxSkewMillis
+                || !MessageDigest.isEqual(sign("accountId=" + account + "&timestamp=" + timestamp),
+                signature.toLowerCase().getBytes(StandardCharsets.US_ASCII))) {
+            log.warn("Private stream handshake rejected for account {} from {}", accountId, request.getRemoteAddress());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        attributes.put(ATTR_ACCOUNT, accountId);
+        attributes.put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+                               Exception exception) {
+    }
+
+    // 十六进制小写的签名字节
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)))
+                    .getBytes(StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        long accountId = (Long) session.getAttributes().get(ATTR_ACCOUNT);
+        session.getAttributes().put(ATTR_SESSION, index.register(session, accountId));
+        log.info("Private stream {} opened: account={}", session.getId(), accountId);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        PrivateSession ps = (PrivateSession) session.getAttributes().get(ATTR_SESSION);
+        if (ps != null && "ping".equals(message.getPayload())) {
+            ps.offer(PONG);         // 经发送队列回复，和推送不并发写
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        PrivateSession ps = (PrivateSession) session.getAttributes().get(ATTR_SESSION);
+        if (ps != null) {
+            index.unregister(ps);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.matching.api.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class AmendRequest {
+    private String orderId;
+    private long accountId;        // 订单所属账户：开启事前风控时必填，撮合核对不一致的改单拒掉
+    private BigDecimal price;      // 可选，不传不改价
+    private BigDecimal quantity;   // 可选，新的订单总量（含已成交）
+}
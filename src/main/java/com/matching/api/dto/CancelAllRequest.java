@@ -0,0 +1,11 @@
+package com.matching.api.dto;
+
+import com.matching.core.domain.Side;
+import lombok.Data;
+
+@Data
+public class CancelAllRequest {
+    private long accountId;
+    private String symbol;   // 可选，不传撤所有交易对
+    private Side side;       // 可选，不传撤两侧
+}
@@ -2,17 +2,23 @@ package com.matching.api.dto;
 
 import com.matching.core.domain.OrderType;
 import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
 import lombok.Data;
 
 import java.math.BigDecimal;
 
 @Data
 public class OrderRequest {
-    private String orderId;
+    private String clientOrderId;   // 客户端自定义编号，系统订单号由服务端生成
     private String symbol;
     private Side side;
     private OrderType type;
     private BigDecimal price;
+    private BigDecimal stopPrice;   // 条件单触发价（STOP_* / TAKE_PROFIT*）
     private BigDecimal quantity;
+    private boolean hidden;             // 隐藏单：不进深度，同价位排在显示单之后
+    private BigDecimal displayQuantity; // 冰山单每次显示的数量
+    private long accountId;
+    private StpMode stpMode;            // 自成交预防模式，不传用默认
 
 }
\ No newline at end of file
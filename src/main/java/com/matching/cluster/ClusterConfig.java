@@ -0,0 +1,107 @@
+package com.matching.cluster;
+
+import com.matching.core.domain.Instrument;
+import com.matching.core.engine.InstrumentRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分区配置：app.cluster.nodes 列出每个撮合节点的地址和负责的交易对（静态文件，所有进程共用一份）
+ * 交易对 → 节点：显式列出的按配置，没列出的（如运行中上新的）按交易对 id 对节点数取模，和分片规则一致
+ */
+@Slf4j
+@Component
+public class ClusterConfig {
+
+    @Data
+    public static class Node {
+        private int id;
+        private String host = "127.0.0.1";
+        private int port;               // 接收网关指令的二进制端口
+        private int httpPort;           // HTTP / WebSocket 端口，网关转发行情查询、订阅行情推送
+        private List<String> symbols = List.of();
+    }
+
+    @Getter
+    private final ClusterRole role;
+    @Getter
+    private final List<Node> nodes;
+    private final int nodeId;
+    private final InstrumentRegistry instruments;
+    private final Map<String, Integer> owners = new HashMap<>();     // symbol → nodes 下标，构造后只读
+
+    public ClusterConfig(Environment env, InstrumentRegistry instruments,
+                         @Value("${app.cluster.role:STANDALONE}") ClusterRole role,
+                         @Value("${app.cluster.node-id:0}") int nodeId) {
+        this.role = role;
+        this.nodeId = nodeId;
+        this.instruments = instruments;
+        this.nodes = Binder.get(env).bind("app.cluster.nodes", Bindable.listOf(Node.class)).orElse(List.of());
+        if (role == ClusterRole.STANDALONE) {
+            return;
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("app.cluster.nodes required for role " + role);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            for (String symbol : nodes.get(i).getSymbols()) {
+                if (instruments.find(symbol) == null) {
+                    throw new IllegalStateException("Unknown symbol " + symbol + " assigned to node " + nodes.get(i).getId());
+                }
+                Integer previous = owners.put(symbol, i);
+                if (previous != null) {
+                    throw new IllegalStateException(symbol + " assigned to both node " + nodes.get(previous).getId()
+                            + " and node " + nodes.get(i).getId());
+                }
+            }
+        }
+    }
+
+    // 构造完成后再核对本节点在不在 nodes 里
+    @PostConstruct
+    public void announce() {
+        if (role == ClusterRole.NODE) {
+            Node self = self();
+            log.info("Cluster node {}: symbols {}, listening on {}", nodeId, self.getSymbols(), self.getPort());
+        } else if (role == ClusterRole.GATEWAY) {
+            log.info("Cluster gateway: {} nodes", nodes.size());
+        }
+    }
+
+    /**
+     * 本节点（role = NODE）的配置
+     */
+    public Node self() {
+        for (Node node : nodes) {
+            if (node.getId() == nodeId) {
+                return node;
+            }
+        }
+        throw new IllegalStateException("app.cluster.node-id " + nodeId + " not in app.cluster.nodes");
+    }
+
+    /**
+     * 交易对所在节点在 nodes 里的下标
+     */
+    public int ownerOf(int instrumentId) {
+        Instrument instrument = instruments.get(instrumentId);
+        Integer owner = instrument == null ? null : owners.get(instrument.getSymbol());
+        return owner != null ? owner : instrumentId % nodes.size();
+    }
+
+    public int ownerOf(String symbol) {
+        Instrument instrument = instruments.find(symbol);
+        return instrument == null ? -1 : ownerOf(instrument.getId());
+    }
+}
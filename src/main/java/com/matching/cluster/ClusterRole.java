@@ -0,0 +1,10 @@
+package com.matching.cluster;
+
+/**
+ * 多进程分区中本进程的角色
+ */
+public enum ClusterRole {
+    STANDALONE,     // 单进程：所有交易对都在本地撮合（默认）
+    GATEWAY,        // 网关：接 HTTP / WebSocket 入口，按交易对转发到撮合节点，汇总节点行情
+    NODE            // 撮合节点：只撮合分给自己的交易对，指令从网关的二进制连接进来
+}
@@ -0,0 +1,114 @@
+package com.matching.cluster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 网关的行情查询：订单簿和成交都在撮合节点上，/api/ticker、/api/depth、/api/klines、/api/trades 按 symbol 转发给所在节点；
+ * 不带 symbol 的 /api/ticker/* 并发查所有节点，把各节点返回的数组拼成一个
+ * 节点只为收到过指令的交易对建引擎，各节点的数组不会重复
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cluster", name = "role", havingValue = "GATEWAY")
+public class MarketDataProxyFilter extends OncePerRequestFilter {
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final ClusterConfig cluster;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+
+    public MarketDataProxyFilter(ClusterConfig cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !"GET".equals(request.getMethod()) || !(path.startsWith("/api/ticker/") || path.startsWith("/api/depth/")
+                || path.equals("/api/klines") || path.equals("/api/trades"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        String query = request.getQueryString();
+        String symbol = path.startsWith("/api/depth/") ? path.substring("/api/depth/".length()) : request.getParameter("symbol");
+        String target = query == null ? path : path + '?' + query;
+        try {
+            if (symbol == null) {
+                fanOut(target, response);
+                return;
+            }
+            int owner = cluster.ownerOf(symbol);
+            if (owner < 0) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            HttpRequest.Builder forward = HttpRequest.newBuilder(uri(cluster.getNodes().get(owner), target)).timeout(TIMEOUT);
+            String ifNoneMatch = request.getHeader("If-None-Match");
+            if (ifNoneMatch != null) {
+                forward.header("If-None-Match", ifNoneMatch);
+            }
+            HttpResponse<byte[]> reply = client.send(forward.build(), HttpResponse.BodyHandlers.ofByteArray());
+            response.setStatus(reply.statusCode());
+            reply.headers().firstValue("ETag").ifPresent(etag -> response.setHeader("ETag", etag));
+            reply.headers().firstValue("Content-Type").ifPresent(response::setContentType);
+            response.getOutputStream().write(reply.body());
+        } catch (IOException e) {
+            log.warn("Proxy {} failed: {}", target, e.toString());
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // 所有节点并发查询，拼接各自返回的 JSON 数组；查不到的节点跳过
+    private void fanOut(String target, HttpServletResponse response) throws IOException {
+        List<CompletableFuture<HttpResponse<String>>> replies = new ArrayList<>();
+        for (ClusterConfig.Node node : cluster.getNodes()) {
+            replies.add(client.sendAsync(HttpRequest.newBuilder(uri(node, target)).timeout(TIMEOUT).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        StringBuilder sb = new StringBuilder(1024).append('[');
+        for (int i = 0; i < replies.size(); i++) {
+            String body;
+            try {
+                HttpResponse<String> reply = replies.get(i).join();
+                body = reply.statusCode() == 200 ? reply.body().trim() : null;
+            } catch (RuntimeException e) {
+                log.warn("Node {} unreachable for {}: {}", cluster.getNodes().get(i).getId(), target, e.toString());
+                continue;
+            }
+            if (body != null && body.length() > 2 && body.charAt(0) == '[') {
+                if (sb.length() > 1) sb.append(',');
+                sb.append(body, 1, body.length() - 1);
+            }
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(sb.append(']').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static URI uri(ClusterConfig.Node node, String target) {
+        return URI.create("http://" + node.getHost() + ':' + node.getHttpPort() + target);
+    }
+}
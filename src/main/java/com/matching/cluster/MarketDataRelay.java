@@ -0,0 +1,127 @@
+package com.matching.cluster;
+
+import com.matching.api.MarketDataWebSocketHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关的行情推送：按频道订阅每个撮合节点的 /ws/market，收到的消息原样转给网关上订阅该频道的客户端，
+ * 客户端只连网关就能收到所有交易对的行情；节点断开后定时重连，断开期间该节点的推送丢失（客户端按快照补）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cluster", name = "role", havingValue = "GATEWAY")
+public class MarketDataRelay {
+    private static final String[] CHANNELS = {
+            MarketDataWebSocketHandler.CHANNEL_DEPTH, MarketDataWebSocketHandler.CHANNEL_BBO,
+            MarketDataWebSocketHandler.CHANNEL_KLINE, MarketDataWebSocketHandler.CHANNEL_MBO};
+    private static final long RECONNECT_SECONDS = 2;
+
+    private final ClusterConfig cluster;
+    private final MarketDataWebSocketHandler handler;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ScheduledExecutorService reconnect = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "market-data-relay");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean running = true;
+
+    public MarketDataRelay(ClusterConfig cluster, MarketDataWebSocketHandler handler) {
+        this.cluster = cluster;
+        this.handler = handler;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (ClusterConfig.Node node : cluster.getNodes()) {
+            for (String channel : CHANNELS) {
+                connect(node, channel);
+            }
+        }
+    }
+
+    // 每个节点每个频道一条连接，收到的消息不用解析就知道该转到哪个频道
+    private void connect(ClusterConfig.Node node, String channel) {
+        if (!running) {
+            return;
+        }
+        URI uri = URI.create("ws://" + node.getHost() + ':' + node.getHttpPort() + "/ws/market?channel=" + channel);
+        client.newWebSocketBuilder().connectTimeout(Duration.ofSeconds(2))
+                .buildAsync(uri, new Listener(node, channel))
+                .whenComplete((ws, e) -> {
+                    if (e != null) {
+                        log.debug("Market data from node {} ({}) unavailable: {}", node.getId(), channel, e.toString());
+                        retry(node, channel);
+                    }
+                });
+    }
+
+    private void retry(ClusterConfig.Node node, String channel) {
+        if (running) {
+            reconnect.schedule(() -> connect(node, channel), RECONNECT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private class Listener implements WebSocket.Listener {
+        private final ClusterConfig.Node node;
+        private final String channel;
+        private final StringBuilder partial = new StringBuilder();
+
+        Listener(ClusterConfig.Node node, String channel) {
+            this.node = node;
+            this.channel = channel;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            log.info("Relaying {} from node {}", channel, node.getId());
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            if (!last) {
+                partial.append(data);
+            } else if (partial.isEmpty()) {
+                handler.send(channel, data.toString());
+            } else {
+                handler.send(channel, partial.append(data).toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            log.warn("Market data from node {} ({}) closed: {}", node.getId(), channel, statusCode);
+            retry(node, channel);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            log.warn("Market data from node {} ({}) failed: {}", node.getId(), channel, error.toString());
+            retry(node, channel);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reconnect.shutdownNow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.matching.cluster;
+
+import com.matching.disruptor.OrderEvent;
+import com.matching.wal.JournalCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 网关到一个撮合节点的指令连接：入口线程在锁内把指令编码进写缓冲（输入日志格式），
+ * 发送线程交换双缓冲后整块写出，一次 write 带走一批指令
+ * 断线期间 send 直接返回 false（入口回 BUSY），发送线程按退避重连；断线时缓冲里还没写出的指令丢弃，
+ * 已写进 socket 但节点没来得及读的也会丢（没有应答确认）
+ */
+@Slf4j
+class PartitionLink implements Runnable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MAX_BACKOFF_MS = 2_000;
+    private static final long WRITE_PARK_NANOS = 10_000;
+
+    private final ClusterConfig.Node node;
+    private final Object lock = new Object();
+    private ByteBuffer filling = ByteBuffer.allocateDirect(BUFFER_SIZE);     // 入口线程写，受 lock 保护
+    private ByteBuffer draining = ByteBuffer.allocateDirect(BUFFER_SIZE);    // 只由发送线程使用
+    private final Thread thread;
+    private volatile boolean connected;
+    private volatile boolean running = true;
+    private SocketChannel channel;
+    private final ByteBuffer probe = ByteBuffer.allocate(1);
+
+    PartitionLink(ClusterConfig.Node node) {
+        this.node = node;
+        this.thread = new Thread(this, "partition-link-" + node.getId());
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * @return false 表示未连上节点或写缓冲已满，指令没有发出
+     */
+    boolean send(OrderEvent event) {
+        if (!connected) {
+            return false;
+        }
+        synchronized (lock) {
+            boolean wasEmpty = filling.position() == 0;
+            if (!JournalCodec.encode(event, filling)) {
+                return false;
+            }
+            if (wasEmpty) {
+                lock.notify();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        long backoff = 50;
+        while (running) {
+            if (channel == null) {
+                try {
+                    SocketChannel opened = SocketChannel.open(new InetSocketAddress(node.getHost(), node.getPort()));
+                    opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    opened.configureBlocking(false);
+                    channel = opened;
+                    connected = true;
+                    backoff = 50;
+                    log.info("Connected to node {} at {}:{}", node.getId(), node.getHost(), node.getPort());
+                } catch (IOException e) {
+                    log.debug("Node {} unreachable: {}", node.getId(), e.getMessage());
+                    sleep(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+                    continue;
+                }
+            }
+            ByteBuffer out = null;
+            try {
+                synchronized (lock) {
+                    if (filling.position() == 0) {
+                        lock.wait(100);
+                    }
+                }
+                if (!alive()) {
+                    throw new IOException("closed by node");
+                }
+                synchronized (lock) {
+                    if (filling.position() == 0) {
+                        continue;
+                    }
+                    out = filling;
+                    filling = draining;
+                    draining = out;
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    if (channel.write(out) == 0) {
+                        LockSupport.parkNanos(WRITE_PARK_NANOS);     // 节点读不过来，TCP 窗口满
+                    }
+                }
+                out.clear();
+            } catch (IOException e) {
+                disconnect(e, out == null ? 0 : out.remaining());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // 节点不会往回写，读到 EOF 说明对端已关闭：发下一批之前先发现，少丢一批
+    private boolean alive() throws IOException {
+        probe.clear();
+        return channel.read(probe) >= 0;
+    }
+
+    private void disconnect(IOException cause, int unsent) {
+        connected = false;
+        int lost;
+        synchronized (lock) {
+            lost = filling.position() + unsent;
+            filling.clear();
+        }
+        draining.clear();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+        log.warn("Lost node {} ({}), dropped {} bytes of unsent commands", node.getId(), cause.getMessage(), lost);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
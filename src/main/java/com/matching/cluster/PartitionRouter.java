@@ -0,0 +1,74 @@
+package com.matching.cluster;
+
+import com.matching.core.domain.Side;
+import com.matching.disruptor.OrderEvent;
+import com.matching.disruptor.OrderEventProducer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 网关：把 OrderEventProducer 的分片规则延伸到远端分区 —— 交易对 → 所在节点 → 该节点的指令连接
+ * 批量撤单不指定交易对时发给每个节点（账户的挂单可能分布在所有节点上）
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cluster", name = "role", havingValue = "GATEWAY")
+public class PartitionRouter implements OrderEventProducer.Remote {
+
+    private final ClusterConfig cluster;
+    private final OrderEventProducer producer;
+    private final PartitionLink[] links;
+
+    public PartitionRouter(ClusterConfig cluster, OrderEventProducer producer) {
+        this.cluster = cluster;
+        this.producer = producer;
+        List<ClusterConfig.Node> nodes = cluster.getNodes();
+        this.links = new PartitionLink[nodes.size()];
+        for (int i = 0; i < links.length; i++) {
+            links[i] = new PartitionLink(nodes.get(i));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (PartitionLink link : links) {
+            link.start();
+        }
+        producer.setRemote(this);
+    }
+
+    @Override
+    public boolean publish(OrderEvent event) {
+        return links[cluster.ownerOf(event.getInstrumentId())].send(event);
+    }
+
+    @Override
+    public boolean publishCancelAll(long accountId, int instrumentId, Side side, String reason) {
+        OrderEvent event = new OrderEvent();
+        event.setAction("CANCEL_ALL");
+        event.setInstrumentId(instrumentId);
+        event.setAccountId(accountId);
+        event.setSide(side);
+        event.setReason(reason);
+        if (instrumentId >= 0) {
+            return links[cluster.ownerOf(instrumentId)].send(event);
+        }
+        // 部分节点没收到时仍回 false，客户端重试；已收到的节点重复撤一次没有副作用
+        boolean sent = true;
+        for (PartitionLink link : links) {
+            sent &= link.send(event);
+        }
+        return sent;
+    }
+
+    @PreDestroy
+    public void stop() {
+        producer.setRemote(null);
+        for (PartitionLink link : links) {
+            link.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.matching.cluster;
+
+import com.matching.disruptor.OrderEvent;
+import com.matching.disruptor.OrderEventProducer;
+import com.matching.wal.JournalCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 撮合节点：在 app.cluster.nodes 里本节点的 port 上接收网关转发的指令，解码后照常写进本地定序器
+ * （打序号、风控、写日志、分片都在节点上做）；定序器满时读线程原地重试，不再读 socket，
+ * 背压经 TCP 窗口传回网关，网关写缓冲满后入口回 BUSY
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cluster", name = "role", havingValue = "NODE")
+public class PartitionServer {
+    private static final long RETRY_PARK_NANOS = 10_000;
+
+    private final ClusterConfig.Node self;
+    private final OrderEventProducer producer;
+    private ServerSocketChannel server;
+    private volatile boolean running = true;
+
+    public PartitionServer(ClusterConfig cluster, OrderEventProducer producer) {
+        this.self = cluster.self();
+        this.producer = producer;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(self.getPort()));
+        Thread acceptor = new Thread(this::accept, "partition-server-" + self.getId());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                log.info("Gateway connected from {}", channel.getRemoteAddress());
+                Thread reader = new Thread(() -> read(channel), "partition-reader-" + self.getId());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Partition server accept failed", e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void read(SocketChannel channel) {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 20);      // 解码字符串要用堆内数组
+        OrderEvent event = new OrderEvent();
+        long commands = 0;
+        try (channel) {
+            while (running && channel.read(buf) >= 0) {
+                buf.flip();
+                while (JournalCodec.decode(buf, event) >= 0) {
+                    publish(event);
+                    commands++;
+                }
+                buf.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                log.warn("Gateway connection closed: {}", e.toString());
+            }
+        }
+        log.info("Gateway disconnected after {} commands", commands);
+    }
+
+    private void publish(OrderEvent event) {
+        while (running) {
+            boolean accepted = "CANCEL_ALL".equals(event.getAction())
+                    ? producer.publishCancelAll(event.getAccountId(), event.getInstrumentId(), event.getSide(), event.getReason())
+                    : producer.publish(event);
+            if (accepted) {
+                return;
+            }
+            LockSupport.parkNanos(RETRY_PARK_NANOS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        server.close();
+    }
+}
@@ -4,9 +4,18 @@ package com.matching.config;
 import com.lmax.disruptor.BusySpinWaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
+import com.matching.core.account.AccountBook;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.disruptor.AdmissionPolicy;
+import com.matching.disruptor.BacklogWaitStrategy;
+import com.matching.disruptor.ExecutionPublisher;
+import com.matching.disruptor.InputSequencer;
 import com.matching.disruptor.OrderEvent;
 import com.matching.disruptor.OrderEventHandler;
 import com.matching.disruptor.OrderEventProducer;
+import com.matching.disruptor.RiskCheckHandler;
+import com.matching.disruptor.ShardRouter;
+import com.matching.wal.Journal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +23,7 @@ import org.springframework.context.annotation.Configuration;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @Slf4j
@@ -25,9 +35,23 @@ public class DisruptorConfig {
     @Value("${app.disruptor-buffer-size:131072}")
     private int bufferSize;
 
+    @Value("${app.shard-overflow-capacity:8192}")
+    private int overflowCapacity;
+
     @Value("${app.wal-dir:./wal/}")
     private String walDir;
 
+    @Value("${app.admission.policy:BOUNDED_WAIT}")
+    private AdmissionPolicy admissionPolicy;
+
+    @Value("${app.admission.max-wait-micros:5000}")
+    private long maxWaitMicros;
+
+    @Value("${app.admission.shed-threshold:0.75}")
+    private double shedThreshold;
+
+    @Value("${app.risk.market-buffer-bps:500}")
+    private long marketBufferBps;
 
 
 
@@ -42,11 +66,11 @@ public class DisruptorConfig {
                     OrderEvent.EVENT_FACTORY,           // 静态 EventFactory
                     bufferSize,
                     threadFactory,
-                    ProducerType.SINGLE,
+                    ProducerType.MULTI,                 // HTTP 线程和会话回调都会写入
                     new BusySpinWaitStrategy()
             );
 
-            disruptor.handleEventsWith(new OrderEventHandler());
+            disruptor.handleEventsWith(new OrderEventHandler(i, shardCount));
             disruptor.start();
 
             disruptors[i] = disruptor;
@@ -56,8 +80,50 @@ public class DisruptorConfig {
 
 
     @Bean
-    public OrderEventProducer orderEventProducer(Disruptor<OrderEvent>[] disruptors) {
-        return new OrderEventProducer(disruptors);
+    public ShardRouter shardRouter(Disruptor<OrderEvent>[] disruptors) {
+        return new ShardRouter(disruptors, overflowCapacity);
+    }
+
+    @Bean
+    public InputSequencer inputSequencer(ShardRouter shardRouter, Journal journal, RiskCheckHandler riskCheckHandler,
+                                         AccountBook accountBook) {
+        return new InputSequencer(shardRouter, journal.enabled() ? journal.writer() : null,
+                accountBook.riskEnabled() ? riskCheckHandler : null);
+    }
+
+    @Bean
+    public RiskCheckHandler riskCheckHandler(AccountBook accountBook, InstrumentRegistry instruments,
+                                             ExecutionPublisher executionPublisher) {
+        return new RiskCheckHandler(accountBook, instruments, executionPublisher, marketBufferBps);
+    }
+
+    @Bean
+    public OrderEventProducer orderEventProducer(Disruptor<OrderEvent>[] disruptors, ShardRouter shardRouter,
+                                                 InputSequencer inputSequencer, RiskCheckHandler riskCheckHandler,
+                                                 AccountBook accountBook) {
+        return new OrderEventProducer(sequencer(shardRouter, inputSequencer, accountBook.riskEnabled() ? riskCheckHandler : null),
+                disruptors, shardRouter, admissionPolicy, TimeUnit.MICROSECONDS.toNanos(maxWaitMicros), shedThreshold);
+    }
+
+    // 定序器：所有入口指令先在这里排成一个全局顺序（单线程打序号、时间，写输入日志），再转发到分片
+    // 开启事前风控时风控排在定序之前：拒掉的指令不写日志、不进分片，撮合线程不用等风控
+    // 不注册成 bean，免得按类型注入 Disruptor<OrderEvent>[] 时被收集进分片数组
+    // 分片溢出队列有积压时等待策略抛超时，定序器空闲也会去补发
+    private Disruptor<OrderEvent> sequencer(ShardRouter router, InputSequencer inputSequencer, RiskCheckHandler risk) {
+        Disruptor<OrderEvent> disruptor = new Disruptor<>(
+                OrderEvent.EVENT_FACTORY,
+                bufferSize,
+                Executors.defaultThreadFactory(),
+                ProducerType.MULTI,
+                new BacklogWaitStrategy(router)
+        );
+        if (risk != null) {
+            disruptor.handleEventsWith(risk).then(inputSequencer);
+        } else {
+            disruptor.handleEventsWith(inputSequencer);
+        }
+        disruptor.start();
+        return disruptor;
     }
 
 
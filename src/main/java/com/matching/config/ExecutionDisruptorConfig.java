@@ -0,0 +1,70 @@
+package com.matching.config;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.matching.api.AccountSessionIndex;
+import com.matching.core.account.AccountBook;
+import com.matching.core.account.SettlementLedger;
+import com.matching.core.kline.CandleAggregator;
+import com.matching.core.persistence.TradeStore;
+import com.matching.disruptor.ExecutionEvent;
+import com.matching.disruptor.ExecutionPublisher;
+import com.matching.disruptor.PrivateStreamPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 撮合输出（成交）RingBuffer：所有分片的撮合线程写入，下游消费者（成交落盘、K 线、结算、私有推送）各占一个线程并行消费
+ */
+@Configuration
+public class ExecutionDisruptorConfig {
+
+    @Value("${app.execution.buffer-size:131072}")
+    private int bufferSize;
+
+    @Bean
+    public Disruptor<ExecutionEvent> executionDisruptor(TradeStore tradeStore, CandleAggregator candleAggregator,
+                                                        AccountBook accountBook, SettlementLedger ledger,
+                                                        AccountSessionIndex sessions) {
+        Disruptor<ExecutionEvent> disruptor = new Disruptor<>(
+                ExecutionEvent::new,
+                bufferSize,
+                Thread.ofPlatform().name("execution-", 0).factory(),
+                ProducerType.MULTI,
+                new YieldingWaitStrategy()
+        );
+
+        List<EventHandler<ExecutionEvent>> handlers = new ArrayList<>(List.of(tradeStore, candleAggregator));
+        if (ledger.enabled() || accountBook.riskEnabled()) {
+            handlers.add(ledger);       // 结算记账，释放事前风控的冻结
+        }
+        if (sessions.enabled()) {
+            for (int i = 0; i < sessions.partitionCount(); i++) {
+                handlers.add(new PrivateStreamPublisher(sessions, i));     // 按账户哈希分片的私有推送
+            }
+        }
+        disruptor.handleEventsWith(toArray(handlers));
+        disruptor.start();
+        return disruptor;
+    }
+
+    // 泛型数组只能按擦除后的类型创建，元素都来自 List<EventHandler<ExecutionEvent>>，转换是安全的
+    private static EventHandler<ExecutionEvent>[] toArray(List<EventHandler<ExecutionEvent>> handlers) {
+        @SuppressWarnings("unchecked")
+        EventHandler<ExecutionEvent>[] array = (EventHandler<ExecutionEvent>[]) Array.newInstance(EventHandler.class,
+                handlers.size());
+        return handlers.toArray(array);
+    }
+
+    @Bean
+    public ExecutionPublisher executionPublisher(Disruptor<ExecutionEvent> executionDisruptor) {
+        return new ExecutionPublisher(executionDisruptor);
+    }
+}
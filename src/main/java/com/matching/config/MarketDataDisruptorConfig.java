@@ -5,6 +5,7 @@ import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.matching.api.MarketDataWebSocketHandler;
 import com.matching.disruptor.*;
+import com.matching.feed.MarketDataFeedWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,7 +17,7 @@ public class MarketDataDisruptorConfig {
     private final MarketDataWebSocketHandler wsHandler;
 
     @Bean
-    public Disruptor<MarketDataEvent> marketDataDisruptor() {
+    public Disruptor<MarketDataEvent> marketDataDisruptor(MarketDataFeedWriter feedWriter) {
         Disruptor<MarketDataEvent> disruptor = new Disruptor<>(
                 MarketDataEvent::new,
                 131072,
@@ -25,7 +26,11 @@ public class MarketDataDisruptorConfig {
                 new YieldingWaitStrategy()
         );
 
-        disruptor.handleEventsWith(new DepthBatcher(wsHandler));
+        if (feedWriter.enabled()) {
+            disruptor.handleEventsWith(new DepthBatcher(wsHandler), feedWriter);   // 同机进程读的共享内存行情环
+        } else {
+            disruptor.handleEventsWith(new DepthBatcher(wsHandler));
+        }
         disruptor.start();
         return disruptor;
     }
@@ -0,0 +1,44 @@
+package com.matching.config;
+
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.matching.api.MarketDataWebSocketHandler;
+import com.matching.disruptor.MboBroadcaster;
+import com.matching.disruptor.MboEvent;
+import com.matching.disruptor.MboPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 逐笔委托（MBO）行情，默认关闭：app.mbo.enabled=true 开启
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.mbo", name = "enabled", havingValue = "true")
+public class MboDisruptorConfig {
+
+    @Value("${app.mbo.buffer-size:131072}")
+    private int bufferSize;
+
+    @Bean
+    public Disruptor<MboEvent> mboDisruptor(MarketDataWebSocketHandler wsHandler) {
+        Disruptor<MboEvent> disruptor = new Disruptor<>(
+                MboEvent::new,
+                bufferSize,
+                Thread.ofPlatform().name("mbo-", 0).factory(),
+                ProducerType.MULTI,
+                new YieldingWaitStrategy()
+        );
+
+        disruptor.handleEventsWith(new MboBroadcaster(wsHandler));
+        disruptor.start();
+        return disruptor;
+    }
+
+    @Bean
+    public MboPublisher mboPublisher(Disruptor<MboEvent> mboDisruptor) {
+        return new MboPublisher(mboDisruptor);
+    }
+}
@@ -0,0 +1,35 @@
+package com.matching.config;
+
+import com.matching.api.AccountSessionIndex;
+import com.matching.api.MarketDataWebSocketHandler;
+import com.matching.api.OrderSessionWebSocketHandler;
+import com.matching.api.PrivateStreamWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final MarketDataWebSocketHandler marketDataHandler;
+    private final OrderSessionWebSocketHandler orderSessionHandler;
+    private final PrivateStreamWebSocketHandler privateStreamHandler;
+    private final AccountSessionIndex accountSessions;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // ws://host:8080/ws/market?channel=depth,bbo,kline,mbo
+        registry.addHandler(marketDataHandler, "/ws/market").setAllowedOrigins("*");
+        // ws://host:8080/ws/session?accountId=123 交易会话，断线自动撤单
+        registry.addHandler(orderSessionHandler, "/ws/session").setAllowedOrigins("*");
+        if (accountSessions.enabled()) {
+            // ws://host:8080/ws/private?accountId=123&timestamp=..&signature=.. 本账户的成交和订单回报
+            registry.addHandler(privateStreamHandler, "/ws/private").addInterceptors(privateStreamHandler)
+                    .setAllowedOrigins("*");
+        }
+    }
+}
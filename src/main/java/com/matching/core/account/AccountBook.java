@@ -0,0 +1,419 @@
+package com.matching.core.account;
+
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.core.engine.LongIntMap;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 账户资产：每个账户每种资产一个余额和一个冻结额（可用 = 余额 - 冻结），全部是定点 long
+ * 按账户 id 分段加锁：风控阶段下单时冻结，结算线程（SettlementLedger）按成交 / 回报释放冻结、记账，
+ * 只有落在同一分段的账户才会互相等锁；撮合线程不碰这里
+ * 每笔在途订单一条冻结记录，按订单序号索引：冻结的资产、单价（卖单为 0，冻结的就是数量）、
+ * 订单总量、未成交量和冻结金额，未成交量变化时按 单价 × 未成交量 重算冻结金额，多出的部分释放
+ */
+@Slf4j
+@Component
+public class AccountBook {
+
+    @Data
+    public static class Deposit {
+        private long accountId;
+        private String asset;
+        private BigDecimal amount;
+    }
+
+    private final InstrumentRegistry instruments;
+    private final Environment env;
+    private final boolean riskEnabled;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public AccountBook(InstrumentRegistry instruments, Environment env,
+                       @Value("${app.risk.enabled:false}") boolean riskEnabled,
+                       @Value("${app.risk.stripes:64}") int stripes) {
+        this.instruments = instruments;
+        this.env = env;
+        this.riskEnabled = riskEnabled;
+        int n = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = n - 1;
+    }
+
+    // 配置里的初始余额在构造完成后入账
+    @PostConstruct
+    public void seed() {
+        List<Deposit> deposits = Binder.get(env).bind("app.risk.deposits", Bindable.listOf(Deposit.class)).orElse(List.of());
+        for (Deposit d : deposits) {
+            int asset = instruments.findAsset(d.getAsset());
+            if (asset < 0) {
+                throw new IllegalArgumentException("Unknown asset in app.risk.deposits: " + d.getAsset());
+            }
+            deposit(d.getAccountId(), asset, FixedPoint.toLong(d.getAmount()));
+        }
+        if (riskEnabled) {
+            log.info("Pre-trade risk enabled: {} stripes, {} seeded balances", stripes.length, deposits.size());
+        }
+    }
+
+    // 事前风控是否开启
+    public boolean riskEnabled() {
+        return riskEnabled;
+    }
+
+    private Stripe stripe(long accountId) {
+        return stripes[stripeOf(accountId)];
+    }
+
+    // 卖单冻结数量本身，买单冻结 单价 × 数量（向上取整）
+    private static long amountOf(long price, long qty) {
+        return price == 0 ? qty : FixedPoint.mulCeil(price, qty);
+    }
+
+    public void deposit(long accountId, int asset, long amount) {
+        if (accountId == 0) {
+            throw new IllegalArgumentException("accountId required");
+        }
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            s.balance[s.slot(s.row(accountId, true), asset)] += amount;
+        }
+    }
+
+    public long balance(long accountId, int asset) {
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            int row = s.row(accountId, false);
+            return row < 0 || asset >= s.width ? 0 : s.balance[row * s.width + asset];
+        }
+    }
+
+    public long held(long accountId, int asset) {
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            int row = s.row(accountId, false);
+            return row < 0 || asset >= s.width ? 0 : s.held[row * s.width + asset];
+        }
+    }
+
+    /**
+     * 下单冻结：price 为买单的冻结单价（卖单传 0），qty 为订单数量
+     * force 时不检查可用（备机回放主机已经放行的订单）
+     * @return false 表示可用不足（或金额超出定点范围），订单不能进撮合
+     */
+    public boolean hold(long accountId, long orderSeq, int asset, long price, long qty, boolean force) {
+        if (accountId == 0) {
+            return false;
+        }
+        long amount;
+        try {
+            amount = amountOf(price, qty);
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            int row = s.row(accountId, force);
+            if (row < 0) {
+                return false;
+            }
+            int slot = s.slot(row, asset);
+            if (!force && s.balance[slot] - s.held[slot] < amount) {
+                return false;
+            }
+            if (s.holds.get(orderSeq) != LongIntMap.MISSING) {
+                return true;                // 同一订单已冻结过
+            }
+            s.held[slot] += amount;
+            s.addHold(orderSeq, row, asset, price, qty, amount);
+            return true;
+        }
+    }
+
+    /**
+     * 改单前追加冻结：price / qty 为新单价（买单）和新的订单总量，0 表示不改
+     * 只加不减 —— 改单结果以撮合回报为准：AMENDED 确认新单价，AMEND_REJECTED 退回改单前的单价和未成交量，
+     * 再按回报的未成交量把多冻的释放掉
+     * 改单指令带着订单所属账户，只锁这个账户的分段；账户对不上（冻结记录不属于它）按没有冻结记录处理，
+     * 撮合会以 ACCOUNT_MISMATCH 拒掉这笔改单
+     * @return false 表示可用不足；订单已经了结（没有冻结记录）时返回 true，由撮合决定
+     */
+    public boolean raise(long accountId, long orderSeq, long price, long qty, boolean force) {
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            int h = s.holdOf(accountId, orderSeq);
+            return h == LongIntMap.MISSING || raise(s, h, price, qty, force);
+        }
+    }
+
+    /**
+     * 追加过冻结的改单没有进撮合（定序器日志被隔离丢弃）：按改单被拒退回追加的冻结
+     */
+    public void cancelRaise(long accountId, long orderSeq) {
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            int h = s.holdOf(accountId, orderSeq);
+            if (h != LongIntMap.MISSING) {
+                s.settleAmend(orderSeq, h, false, -1);
+            }
+        }
+    }
+
+    // 调用方持有 s 的锁
+    private static boolean raise(Stripe s, int h, long price, long qty, boolean force) {
+        long oldPrice = s.holdPrice[h];
+        long newPrice = oldPrice == 0 || price <= oldPrice ? oldPrice : price;
+        long filled = s.holdQty[h] - s.holdOpen[h];        // 已知的成交量，只会少算
+        long open = Math.max(s.holdOpen[h], qty == 0 ? 0 : qty - filled);
+        long amount;
+        try {
+            amount = amountOf(newPrice, open);
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        long extra = amount - s.holdAmount[h];
+        if (extra > 0) {
+            int slot = s.holdRow[h] * s.width + s.holdAsset[h];
+            if (!force && s.balance[slot] - s.held[slot] < extra) {
+                return false;
+            }
+            s.held[slot] += extra;
+            s.holdAmount[h] = amount;
+        }
+        if (s.holdPending[h]++ == 0) {
+            s.holdBasePrice[h] = oldPrice;       // 改单前的单价和未成交量，改单被拒时退回
+            s.holdBaseOpen[h] = s.holdOpen[h];
+        }
+        s.holdPrice[h] = newPrice;
+        s.holdOpen[h] = open;
+        return true;
+    }
+
+    /**
+     * 结算线程批尾调用：每个涉及的分段加一次锁，依次执行段内的释放冻结和入账 / 扣账
+     * 同一账户的冻结释放和余额扣减在同一把锁内完成，风控看不到“冻结已放、钱还没扣”的中间状态
+     */
+    void apply(LedgerBatch batch) {
+        for (int t = 0; t < batch.touchedCount; t++) {
+            int stripe = batch.touched[t];
+            Stripe s = stripes[stripe];
+            synchronized (s) {
+                for (int i = batch.head[stripe]; i >= 0; i = batch.next[i]) {
+                    long accountId = batch.account[i];
+                    switch (batch.kind[i]) {
+                        case LedgerBatch.FILL -> {
+                            int h = s.holds.get(batch.a[i]);
+                            if (h != LongIntMap.MISSING) {
+                                s.holdBaseOpen[h] -= batch.b[i];
+                                s.setOpen(batch.a[i], h, s.holdOpen[h] - batch.b[i]);
+                            }
+                        }
+                        case LedgerBatch.LEAVES -> {
+                            int h = s.holds.get(batch.a[i]);
+                            if (h != LongIntMap.MISSING) {
+                                if (batch.b[i] > 0) {
+                                    s.holdQty[h] = batch.b[i];
+                                    s.settleAmend(batch.a[i], h, true, batch.c[i]);
+                                } else {
+                                    s.holdBaseOpen[h] -= s.holdOpen[h] - batch.c[i];
+                                    s.setOpen(batch.a[i], h, batch.c[i]);
+                                }
+                            }
+                        }
+                        case LedgerBatch.AMEND_REJECTED -> {
+                            int h = s.holds.get(batch.a[i]);
+                            if (h != LongIntMap.MISSING) {
+                                s.settleAmend(batch.a[i], h, false, batch.c[i]);
+                            }
+                        }
+                        default -> s.balance[s.slot(s.row(accountId, true), (int) batch.a[i])] += batch.b[i];
+                    }
+                }
+            }
+        }
+    }
+
+    int stripeOf(long accountId) {
+        return (int) (accountId ^ (accountId >>> 32)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * 一个账户全部资产的余额和冻结（同一把锁内读出，互相一致），按资产 id 写进 out 数组，返回资产数；账户不存在返回 -1
+     */
+    public int snapshot(long accountId, long[] balanceOut, long[] heldOut) {
+        Stripe s = stripe(accountId);
+        synchronized (s) {
+            int row = s.row(accountId, false);
+            if (row < 0) {
+                return -1;
+            }
+            int n = Math.min(s.width, balanceOut.length);
+            System.arraycopy(s.balance, row * s.width, balanceOut, 0, n);
+            System.arraycopy(s.held, row * s.width, heldOut, 0, n);
+            return n;
+        }
+    }
+
+    public int holdCount() {
+        int count = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                count += s.holds.size();
+            }
+        }
+        return count;
+    }
+
+    private static final class Stripe {
+        // 账户：行号 × width + 资产 id 为余额 / 冻结数组下标，资产变多时整体加宽
+        private final LongIntMap rows = new LongIntMap(64);
+        private int rowCount;
+        private int width = 4;
+        private long[] balance = new long[64 * 4];
+        private long[] held = new long[64 * 4];
+
+        // 冻结记录：订单序号 → 记录下标，空闲下标串成链表复用
+        private final LongIntMap holds = new LongIntMap(256);
+        private int[] holdRow = new int[256];
+        private int[] holdAsset = new int[256];
+        private long[] holdPrice = new long[256];
+        private long[] holdQty = new long[256];
+        private long[] holdOpen = new long[256];
+        private long[] holdAmount = new long[256];
+        // 在途改单：追加冻结前的单价和未成交量（期间的成交照样扣减），以及还没有回报的改单数
+        private long[] holdBasePrice = new long[256];
+        private long[] holdBaseOpen = new long[256];
+        private int[] holdPending = new int[256];
+        private int[] freeNext = new int[256];
+        private int freeHead = -1;
+        private int holdTop;
+
+        // 没有且不创建时返回 -1
+        int row(long accountId, boolean create) {
+            int row = rows.get(accountId);
+            if (row != LongIntMap.MISSING || !create) {
+                return row;
+            }
+            row = rowCount++;
+            if (rowCount * width > balance.length) {
+                balance = Arrays.copyOf(balance, balance.length * 2);
+                held = Arrays.copyOf(held, held.length * 2);
+            }
+            rows.put(accountId, row);
+            return row;
+        }
+
+        int slot(int row, int asset) {
+            if (asset >= width) {
+                widen(Math.max(asset + 1, width * 2));
+            }
+            return row * width + asset;
+        }
+
+        private void widen(int newWidth) {
+            int capacity = Math.max(balance.length / width, rowCount) * newWidth;
+            long[] newBalance = new long[capacity];
+            long[] newHeld = new long[capacity];
+            for (int r = 0; r < rowCount; r++) {
+                System.arraycopy(balance, r * width, newBalance, r * newWidth, width);
+                System.arraycopy(held, r * width, newHeld, r * newWidth, width);
+            }
+            balance = newBalance;
+            held = newHeld;
+            width = newWidth;
+        }
+
+        // 该账户这笔订单的冻结记录下标，没有（或记录属于同段的别的账户）返回 MISSING
+        int holdOf(long accountId, long orderSeq) {
+            int h = holds.get(orderSeq);
+            return h != LongIntMap.MISSING && holdRow[h] == rows.get(accountId) ? h : LongIntMap.MISSING;
+        }
+
+        void addHold(long orderSeq, int row, int asset, long price, long qty, long amount) {
+            int h = freeHead;
+            if (h >= 0) {
+                freeHead = freeNext[h];
+            } else {
+                h = holdTop++;
+                if (h == holdRow.length) {
+                    int n = h * 2;
+                    holdRow = Arrays.copyOf(holdRow, n);
+                    holdAsset = Arrays.copyOf(holdAsset, n);
+                    holdPrice = Arrays.copyOf(holdPrice, n);
+                    holdQty = Arrays.copyOf(holdQty, n);
+                    holdOpen = Arrays.copyOf(holdOpen, n);
+                    holdAmount = Arrays.copyOf(holdAmount, n);
+                    holdBasePrice = Arrays.copyOf(holdBasePrice, n);
+                    holdBaseOpen = Arrays.copyOf(holdBaseOpen, n);
+                    holdPending = Arrays.copyOf(holdPending, n);
+                    freeNext = Arrays.copyOf(freeNext, n);
+                }
+            }
+            holdRow[h] = row;
+            holdAsset[h] = asset;
+            holdPrice[h] = price;
+            holdQty[h] = qty;
+            holdOpen[h] = qty;
+            holdAmount[h] = amount;
+            holdBasePrice[h] = price;
+            holdBaseOpen[h] = qty;
+            holdPending[h] = 0;
+            holds.put(orderSeq, h);
+        }
+
+        /**
+         * 改单有了结果：成交确认新单价；被拒时，没有别的在途改单就退回改单前的单价，
+         * 未成交量取回报里的剩余量（leaves < 0 表示没有回报，按改单前的未成交量）
+         * 还有在途改单时被拒先不退，等最后一笔改单有结果（多冻不少冻）
+         */
+        void settleAmend(long orderSeq, int h, boolean accepted, long leaves) {
+            if (holdPending[h] > 0) {
+                holdPending[h]--;
+            }
+            if (accepted) {
+                setOpen(orderSeq, h, leaves);
+                if (holds.get(orderSeq) == h) {
+                    holdBasePrice[h] = holdPrice[h];
+                    holdBaseOpen[h] = holdOpen[h];
+                }
+            } else if (holdPending[h] == 0) {
+                holdPrice[h] = holdBasePrice[h];
+                setOpen(orderSeq, h, leaves < 0 ? holdBaseOpen[h] : leaves);
+            }
+        }
+
+        // 按新的未成交量重算冻结金额，只释放不追加；未成交量到 0 删掉记录
+        void setOpen(long orderSeq, int h, long open) {
+            int slot = holdRow[h] * width + holdAsset[h];
+            if (open <= 0) {
+                held[slot] -= holdAmount[h];
+                holds.remove(orderSeq);
+                freeNext[h] = freeHead;
+                freeHead = h;
+                return;
+            }
+            long amount = Math.min(holdAmount[h], amountOf(holdPrice[h], open));
+            held[slot] -= holdAmount[h] - amount;
+            holdAmount[h] = amount;
+            holdOpen[h] = open;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.matching.core.account;
+
+import java.util.Arrays;
+
+/**
+ * 一个 Disruptor 批次内攒下的账户变动（原始类型数组），按账户分段串成链表：
+ * 批尾 AccountBook.apply 每个涉及的分段只加一次锁，段内按到达顺序执行
+ * 只由结算线程使用
+ */
+final class LedgerBatch {
+    static final byte FILL = 1;       // a = 订单序号，b = 成交量
+    static final byte LEAVES = 2;     // a = 订单序号，b = 订单总量（改单成功时，否则 0），c = 剩余量
+    static final byte CREDIT = 3;     // a = 资产 id，b = 金额（负数为扣减）
+    static final byte AMEND_REJECTED = 4;   // a = 订单序号，c = 剩余量；退回改单前追加的冻结
+
+    byte[] kind = new byte[1024];
+    long[] account = new long[1024];
+    long[] a = new long[1024];
+    long[] b = new long[1024];
+    long[] c = new long[1024];
+    int[] next = new int[1024];
+    int size;
+
+    final int[] head;
+    final int[] tail;
+    final int[] touched;               // 本批涉及的分段
+    int touchedCount;
+
+    LedgerBatch(int stripes) {
+        head = new int[stripes];
+        tail = new int[stripes];
+        touched = new int[stripes];
+        Arrays.fill(head, -1);
+    }
+
+    void add(int stripe, byte kind, long account, long a, long b, long c) {
+        if (size == next.length) {
+            int n = size * 2;
+            this.kind = Arrays.copyOf(this.kind, n);
+            this.account = Arrays.copyOf(this.account, n);
+            this.a = Arrays.copyOf(this.a, n);
+            this.b = Arrays.copyOf(this.b, n);
+            this.c = Arrays.copyOf(this.c, n);
+            this.next = Arrays.copyOf(this.next, n);
+        }
+        int i = size++;
+        this.kind[i] = kind;
+        this.account[i] = account;
+        this.a[i] = a;
+        this.b[i] = b;
+        this.c[i] = c;
+        this.next[i] = -1;
+        if (head[stripe] < 0) {
+            head[stripe] = i;
+            touched[touchedCount++] = stripe;
+        } else {
+            next[tail[stripe]] = i;
+        }
+        tail[stripe] = i;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            head[touched[i]] = -1;
+        }
+        touchedCount = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,257 @@
+package com.matching.core.account;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.core.domain.ExecType;
+import com.matching.core.domain.ExecutionReport;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Instrument;
+import com.matching.core.domain.OrderIds;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.Trade;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.disruptor.ExecutionEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 成交结算：消费撮合输出，按成交给双方记账（买方付计价资产、收基础资产，卖方反之，手续费从收到的资产里扣，记给手续费账户），
+ * 同时按成交和回报释放事前风控的冻结
+ * 一个 Disruptor 批次内的变动先攒进 LedgerBatch，批尾整批写一次账本日志，再按账户分段各加一次锁入账
+ * 账本日志 {dir}/ledger.journal：每批一帧 [int 条数][条数 × (long 账户, int 资产 id, long 金额)]，
+ * 启动时回放（末尾不完整的一帧截掉）；资产 id 按交易对配置顺序分配，交易对列表只能往后加
+ * 无账户（0）的一方不记账；开启事前风控时必须开启结算（只放冻结不扣余额会让同一笔资金反复使用）
+ */
+@Slf4j
+@Component
+public class SettlementLedger implements EventHandler<ExecutionEvent> {
+    private static final int FILE_MAGIC = 0x4D4C4447;    // "MLDG"
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_HEADER = 16;           // magic、版本、保留
+    private static final int RECORD = 20;
+
+    private final AccountBook accounts;
+    private final InstrumentRegistry instruments;
+    private final boolean enabled;
+    private final long makerFeeBps;
+    private final long takerFeeBps;
+    private final long feeAccountId;
+    private final boolean fsync;
+    private final LedgerBatch batch;
+    private final FileChannel channel;
+    private ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+
+    public SettlementLedger(AccountBook accounts, InstrumentRegistry instruments,
+                            @Value("${app.settlement.enabled:false}") boolean enabled,
+                            @Value("${app.settlement.dir:./ledger/}") String dir,
+                            @Value("${app.settlement.maker-fee-bps:0}") long makerFeeBps,
+                            @Value("${app.settlement.taker-fee-bps:0}") long takerFeeBps,
+                            @Value("${app.settlement.fee-account-id:0}") long feeAccountId,
+                            @Value("${app.settlement.fsync:false}") boolean fsync) throws IOException {
+        this.accounts = accounts;
+        this.instruments = instruments;
+        this.enabled = enabled;
+        this.makerFeeBps = makerFeeBps;
+        this.takerFeeBps = takerFeeBps;
+        this.feeAccountId = feeAccountId;
+        this.fsync = fsync;
+        this.batch = new LedgerBatch(accounts.stripeCount());
+        // 冻结按成交释放，余额却不扣，同一笔钱可以反复下单：开风控必须同时开结算
+        if (accounts.riskEnabled() && !enabled) {
+            throw new IllegalArgumentException("app.settlement.enabled required when app.risk.enabled");
+        }
+        if (!enabled) {
+            channel = null;
+            return;
+        }
+        if ((makerFeeBps != 0 || takerFeeBps != 0) && feeAccountId == 0) {
+            throw new IllegalArgumentException("app.settlement.fee-account-id required when fees are charged");
+        }
+        Path path = Paths.get(dir).resolve("ledger.journal");
+        Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long frames = recover(path);
+        log.info("Settlement ledger {}: replayed {} batches", path.toAbsolutePath(), frames);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onEvent(ExecutionEvent event, long sequence, boolean endOfBatch) throws IOException {
+        Trade t = event.trade;
+        if (t != null) {
+            settle(t);
+        } else if (event.report != null) {
+            ExecutionReport r = event.report;
+            // 风控拒掉的改单不带剩余量，原单的冻结不变
+            if (r.getLeavesQty() != null && r.getAccountId() != 0) {
+                long seq = OrderIds.seqOf(r.getSymbol(), r.getOrderId());
+                long leaves = FixedPoint.toLong(r.getLeavesQty());
+                if (r.getExecType() == ExecType.AMEND_REJECTED) {
+                    // 撮合拒掉的改单：退回风控阶段追加的冻结
+                    batch.add(accounts.stripeOf(r.getAccountId()), LedgerBatch.AMEND_REJECTED, r.getAccountId(),
+                            seq, 0, leaves);
+                } else {
+                    // 改单成功时 quantity 是新的订单总量
+                    long quantity = r.getExecType() == ExecType.AMENDED ? FixedPoint.toLong(r.getQuantity()) : 0;
+                    batch.add(accounts.stripeOf(r.getAccountId()), LedgerBatch.LEAVES, r.getAccountId(),
+                            seq, quantity, leaves);
+                }
+            }
+        }
+        if (endOfBatch && !batch.isEmpty()) {
+            if (enabled) {
+                journal();
+            }
+            accounts.apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void settle(Trade t) {
+        long qty = FixedPoint.toLong(t.getQuantity());
+        long buyer = t.getBuyAccountId();
+        long seller = t.getSellAccountId();
+        if (buyer != 0) {
+            batch.add(accounts.stripeOf(buyer), LedgerBatch.FILL, buyer, OrderIds.seqOf(t.getSymbol(), t.getBuyOrderId()), qty, 0);
+        }
+        if (seller != 0) {
+            batch.add(accounts.stripeOf(seller), LedgerBatch.FILL, seller, OrderIds.seqOf(t.getSymbol(), t.getSellOrderId()), qty, 0);
+        }
+        Instrument instrument;
+        if (!enabled || (instrument = instruments.find(t.getSymbol())) == null) {
+            return;
+        }
+        int base = instrument.getBaseAssetId();
+        int quote = instrument.getQuoteAssetId();
+        long notional = FixedPoint.mulCeil(FixedPoint.toLong(t.getPrice()), qty);
+        boolean takerBuys = t.getSide() == Side.BUY;
+        long buyFee = fee(qty, takerBuys ? takerFeeBps : makerFeeBps);
+        long sellFee = fee(notional, takerBuys ? makerFeeBps : takerFeeBps);
+        if (buyer != 0) {
+            credit(buyer, quote, -notional);
+            credit(buyer, base, qty - buyFee);
+            credit(feeAccountId, base, buyFee);
+        }
+        if (seller != 0) {
+            credit(seller, base, -qty);
+            credit(seller, quote, notional - sellFee);
+            credit(feeAccountId, quote, sellFee);
+        }
+    }
+
+    // 费率万分之 bps，折成定点费率（1bp = 10^4）后向上取整
+    private static long fee(long amount, long bps) {
+        return bps == 0 ? 0 : FixedPoint.mulCeil(amount, bps * 10_000L);
+    }
+
+    private void credit(long accountId, int asset, long amount) {
+        if (amount != 0) {
+            batch.add(accounts.stripeOf(accountId), LedgerBatch.CREDIT, accountId, asset, amount, 0);
+        }
+    }
+
+    // 本批的入账 / 扣账编码成一帧，一次 write
+    private void journal() throws IOException {
+        int count = 0;
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.kind[i] == LedgerBatch.CREDIT) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        int frame = 4 + count * RECORD;
+        if (buf.capacity() < frame) {
+            buf = ByteBuffer.allocateDirect(Integer.highestOneBit(frame) << 1);
+        }
+        buf.clear();
+        buf.putInt(count);
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.kind[i] == LedgerBatch.CREDIT) {
+                buf.putLong(batch.account[i]).putInt((int) batch.a[i]).putLong(batch.b[i]);
+            }
+        }
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    // 回放已有日志入账，返回帧数；之后从最后一个完整帧末尾继续追加
+    private long recover(Path path) throws IOException {
+        if (channel.size() < FILE_HEADER) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            header.putInt(FILE_MAGIC).putInt(FILE_VERSION).rewind();    // 含保留字节
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.position(FILE_HEADER);
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        channel.read(header, 0);
+        header.flip();
+        if (header.getInt() != FILE_MAGIC || header.getInt() != FILE_VERSION) {
+            throw new IllegalStateException("Bad ledger journal header: " + path);
+        }
+        long position = FILE_HEADER;
+        long frames = 0;
+        ByteBuffer in = ByteBuffer.allocate(1 << 20);
+        in.limit(0);
+        long readPos = FILE_HEADER;
+        while (true) {
+            if (in.remaining() < 4 || in.remaining() < 4 + (long) in.getInt(in.position()) * RECORD) {
+                int need = in.remaining() < 4 ? 4 : 4 + in.getInt(in.position()) * RECORD;
+                in.compact();
+                if (in.capacity() < need) {
+                    in = ByteBuffer.allocate(Integer.highestOneBit(need) << 1).put(in.flip());
+                }
+                int n = channel.read(in, readPos);
+                in.flip();
+                if (n <= 0) {
+                    break;
+                }
+                readPos += n;
+                continue;
+            }
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                long accountId = in.getLong();
+                int asset = in.getInt();
+                batch.add(accounts.stripeOf(accountId), LedgerBatch.CREDIT, accountId, asset, in.getLong(), 0);
+            }
+            accounts.apply(batch);
+            batch.clear();
+            position += 4 + (long) count * RECORD;
+            frames++;
+        }
+        if (position < channel.size()) {
+            log.warn("Ledger journal {}: dropping {} bytes of incomplete batch", path, channel.size() - position);
+            channel.truncate(position);
+        }
+        channel.position(position);
+        return frames;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
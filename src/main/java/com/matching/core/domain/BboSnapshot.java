@@ -0,0 +1,57 @@
+package com.matching.core.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 最优买卖价（BBO）读取结果
+ * 调用方自行持有并复用（如 ThreadLocal），读取过程只复制字段，不分配对象
+ */
+@Data
+public class BboSnapshot {
+    private String symbol;
+    private BigDecimal bidPrice;       // 无买盘为 null
+    private BigDecimal bidQty;
+    private int bidOrders;
+    private BigDecimal askPrice;       // 无卖盘为 null
+    private BigDecimal askQty;
+    private int askOrders;
+    private BigDecimal lastPrice;      // 最新成交价，尚无成交为 null
+    private BigDecimal lastQty;
+    private long lastTradeTime;
+    private long sequence;             // BBO 版本号，每次变化递增
+    private long timestamp;            // 最近一次变化的时间（毫秒）
+
+    /**
+     * 已上线但还没有引擎（尚无委托）的交易对：两边无盘口、无成交
+     */
+    public BboSnapshot clear(String symbol) {
+        this.symbol = symbol;
+        bidPrice = bidQty = askPrice = askQty = lastPrice = lastQty = null;
+        bidOrders = askOrders = 0;
+        lastTradeTime = sequence = timestamp = 0;
+        return this;
+    }
+
+    public StringBuilder appendJson(StringBuilder sb) {
+        sb.append("{\"symbol\":\"").append(symbol)
+                .append("\",\"seq\":").append(sequence)
+                .append(",\"ts\":").append(timestamp)
+                .append(",\"bid\":");
+        appendDecimal(sb, bidPrice).append(",\"bidQty\":");
+        appendDecimal(sb, bidQty).append(",\"bidOrders\":").append(bidOrders)
+                .append(",\"ask\":");
+        appendDecimal(sb, askPrice).append(",\"askQty\":");
+        appendDecimal(sb, askQty).append(",\"askOrders\":").append(askOrders)
+                .append(",\"last\":");
+        appendDecimal(sb, lastPrice).append(",\"lastQty\":");
+        appendDecimal(sb, lastQty).append(",\"lastTs\":").append(lastTradeTime)
+                .append('}');
+        return sb;
+    }
+
+    private static StringBuilder appendDecimal(StringBuilder sb, BigDecimal v) {
+        return v == null ? sb.append("null") : sb.append('"').append(v.stripTrailingZeros().toPlainString()).append('"');
+    }
+}
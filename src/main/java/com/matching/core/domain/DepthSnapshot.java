@@ -0,0 +1,72 @@
+package com.matching.core.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Top-N 深度只读视图（不可变，带版本号）
+ * 撮合线程只在深度变化时生成新实例，查询线程直接拿引用，不触碰撮合结构
+ */
+public final class DepthSnapshot {
+    private final String symbol;
+    private final long version;          // 视图版本号，用作 ETag
+    private final long timestamp;
+    private final List<DepthLevel> bids; // 价格降序
+    private final List<DepthLevel> asks; // 价格升序
+    private final String etag;
+    private volatile byte[] json;        // 首次查询时编码并缓存，同一版本只编码一次
+
+    public DepthSnapshot(String symbol, long version, long timestamp, List<DepthLevel> bids, List<DepthLevel> asks) {
+        this.symbol = symbol;
+        this.version = version;
+        this.timestamp = timestamp;
+        this.bids = List.copyOf(bids);
+        this.asks = List.copyOf(asks);
+        this.etag = "\"" + version + "\"";
+    }
+
+    public static DepthSnapshot empty(String symbol) {
+        return new DepthSnapshot(symbol, 0, System.currentTimeMillis(), List.of(), List.of());
+    }
+
+    public String getSymbol() { return symbol; }
+    public long getVersion() { return version; }
+    public long getTimestamp() { return timestamp; }
+    public List<DepthLevel> getBids() { return bids; }
+    public List<DepthLevel> getAsks() { return asks; }
+
+    public String etag() {
+        return etag;
+    }
+
+    public byte[] toJsonBytes() {
+        byte[] bytes = json;
+        if (bytes == null) {
+            bytes = toJson(Integer.MAX_VALUE).getBytes(StandardCharsets.UTF_8);
+            json = bytes;
+        }
+        return bytes;
+    }
+
+    public String toJson(int levels) {
+        StringBuilder sb = new StringBuilder(64 + 48 * (bids.size() + asks.size()));
+        sb.append("{\"symbol\":\"").append(symbol)
+                .append("\",\"version\":").append(version)
+                .append(",\"ts\":").append(timestamp)
+                .append(",\"bids\":");
+        appendLevels(sb, bids, levels).append(",\"asks\":");
+        appendLevels(sb, asks, levels).append('}');
+        return sb.toString();
+    }
+
+    private static StringBuilder appendLevels(StringBuilder sb, List<DepthLevel> side, int levels) {
+        sb.append('[');
+        int n = Math.min(levels, side.size());
+        for (int i = 0; i < n; i++) {
+            String[] pq = side.get(i).toBinanceArray();
+            if (i > 0) sb.append(',');
+            sb.append("[\"").append(pq[0]).append("\",\"").append(pq[1]).append("\"]");
+        }
+        return sb.append(']');
+    }
+}
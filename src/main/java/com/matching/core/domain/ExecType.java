@@ -0,0 +1,10 @@
+package com.matching.core.domain;
+
+public enum ExecType {
+    CANCELED,       // 撤销（剩余数量全部撤掉）
+    DECREMENTED,    // 数量被递减（自成交预防 DECREMENT）
+    AMENDED,        // 改单成功，quantity 为新的订单总量
+    AMEND_REJECTED, // 改单被拒，原单保持不变
+    REJECTED,       // 下单被撮合拒绝，或市价单吃完对手盘后剩余部分作废；quantity 为作废的数量
+    EXPIRED         // FOK 不能全部成交整单作废
+}
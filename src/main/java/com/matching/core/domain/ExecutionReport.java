@@ -0,0 +1,23 @@
+package com.matching.core.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 非成交类的订单状态变化回报（撤销、自成交预防递减等），与成交一起走撮合输出 RingBuffer
+ */
+@Data
+@AllArgsConstructor
+public class ExecutionReport {
+    private String symbol;
+    private String orderId;
+    private long accountId;
+    private Side side;
+    private ExecType execType;
+    private String reason;           // 如 STP_CANCEL_NEWEST
+    private BigDecimal quantity;     // 本次撤销 / 递减的数量
+    private BigDecimal leavesQty;    // 之后剩余的挂单数量
+    private long timestamp;          // 毫秒
+}
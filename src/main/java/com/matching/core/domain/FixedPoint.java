@@ -0,0 +1,73 @@
+package com.matching.core.domain;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * 定点数工具：价格、数量统一放大 10^8 存成 long
+ * 用于行情聚合、落盘等需要原始类型 / 固定长度记录的地方
+ */
+public final class FixedPoint {
+    public static final int SCALE = 8;
+    public static final long ONE = 100_000_000L;
+
+    private FixedPoint() {
+    }
+
+    public static long toLong(BigDecimal value) {
+        return value == null ? 0L : value.setScale(SCALE, RoundingMode.DOWN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    /**
+     * 价格 × 数量（都是定点）得到定点金额，向上取整（冻结资金宁多勿少）
+     * 乘积先按 128 位算，结果超出 long 时抛 ArithmeticException
+     */
+    public static long mulCeil(long price, long qty) {
+        long hi = Math.multiplyHigh(price, qty);
+        long lo = price * qty;
+        if (hi == 0 && lo >= 0) {
+            return lo / ONE + (lo % ONE == 0 ? 0 : 1);
+        }
+        BigInteger[] qr = BigInteger.valueOf(price).multiply(BigInteger.valueOf(qty))
+                .divideAndRemainder(BigInteger.valueOf(ONE));
+        return qr[0].add(qr[1].signum() > 0 ? BigInteger.ONE : BigInteger.ZERO).longValueExact();
+    }
+
+    /**
+     * 直接按十进制写入，去掉末尾多余的 0，不经过 BigDecimal
+     */
+    public static StringBuilder append(StringBuilder sb, long value) {
+        if (value < 0) {
+            sb.append('-');
+            value = -value;
+        }
+        long intPart = value / ONE;
+        long frac = value % ONE;
+        sb.append(intPart);
+        if (frac != 0) {
+            sb.append('.');
+            long div = ONE / 10;
+            while (frac != 0) {
+                sb.append((char) ('0' + frac / div));
+                frac %= div;
+                div /= 10;
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * 浮点累计值（如成交额）按 SCALE 位小数输出，超出定点范围时只保留整数部分
+     */
+    public static StringBuilder append(StringBuilder sb, double value) {
+        if (Math.abs(value) < (double) Long.MAX_VALUE / ONE) {
+            return append(sb, Math.round(value * ONE));
+        }
+        return sb.append(Math.round(value));
+    }
+}
@@ -0,0 +1,134 @@
+package com.matching.core.domain;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 交易对规格：稠密整型 id + 价格 / 数量约束，入口、RingBuffer、撮合引擎共用同一份
+ */
+@Getter
+public final class Instrument {
+    private final int id;                   // 0..n-1，引擎数组下标、分片依据
+    private final String symbol;
+    private final BigDecimal tickSize;      // 价格步长
+    private final BigDecimal lotSize;       // 数量步长
+    private final BigDecimal minQty;
+    private final BigDecimal maxQty;
+    private final int priceBandBps;         // 限价偏离最新成交价的上限（万分之），0 = 不限，由撮合引擎检查
+    private final String baseAsset;         // 买入得到 / 卖出付出的资产，如 BTC
+    private final String quoteAsset;        // 计价资产，如 USDT
+    private final int baseAssetId;          // 资产的稠密 id（账户余额数组下标），由注册表分配
+    private final int quoteAssetId;
+
+    // 同一份规格的定点形式（FixedPoint，放大 10^8），给不经过 BigDecimal 的入口用；0 = 不限
+    private final long tickUnits;
+    private final long lotUnits;
+    private final long minQtyUnits;
+    private final long maxQtyUnits;
+    private final byte[] symbolBytes;       // ASCII，入口按字节匹配 symbol、拼应答
+
+    public Instrument(int id, String symbol, BigDecimal tickSize, BigDecimal lotSize,
+                      BigDecimal minQty, BigDecimal maxQty, int priceBandBps,
+                      String baseAsset, int baseAssetId, String quoteAsset, int quoteAssetId) {
+        this.id = id;
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.lotSize = lotSize;
+        this.minQty = minQty;
+        this.maxQty = maxQty;
+        this.priceBandBps = priceBandBps;
+        this.baseAsset = baseAsset;
+        this.baseAssetId = baseAssetId;
+        this.quoteAsset = quoteAsset;
+        this.quoteAssetId = quoteAssetId;
+        this.tickUnits = FixedPoint.toLong(tickSize);
+        this.lotUnits = FixedPoint.toLong(lotSize);
+        this.minQtyUnits = FixedPoint.toLong(minQty);
+        this.maxQtyUnits = FixedPoint.toLong(maxQty);
+        this.symbolBytes = symbol.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 静态规格校验（入口调用，不合法的订单不占 RingBuffer 槽位），通过返回 null，否则返回拒绝原因
+     */
+    public String validate(OrderType type, BigDecimal price, BigDecimal stopPrice, BigDecimal qty) {
+        String reason = validateQty(qty);
+        if (reason != null) {
+            return reason;
+        }
+        boolean limitPrice = type == OrderType.LIMIT || type == OrderType.STOP_LIMIT || type == OrderType.TAKE_PROFIT;
+        if (limitPrice && (reason = validatePrice(price)) != null) {
+            return reason;
+        }
+        boolean conditional = type != OrderType.LIMIT && type != OrderType.MARKET;
+        if (conditional && (reason = validatePrice(stopPrice)) != null) {
+            return "STOP_" + reason;
+        }
+        return null;
+    }
+
+    public String validatePrice(BigDecimal price) {
+        if (price == null || price.signum() <= 0) {
+            return "INVALID_PRICE";
+        }
+        return isMultiple(price, tickSize) ? null : "INVALID_TICK_SIZE";
+    }
+
+    public String validateQty(BigDecimal qty) {
+        if (qty == null || qty.signum() <= 0) {
+            return "INVALID_QUANTITY";
+        }
+        if (minQty != null && qty.compareTo(minQty) < 0) {
+            return "QTY_TOO_SMALL";
+        }
+        if (maxQty != null && qty.compareTo(maxQty) > 0) {
+            return "QTY_TOO_LARGE";
+        }
+        return isMultiple(qty, lotSize) ? null : "INVALID_LOT_SIZE";
+    }
+
+    /**
+     * 定点版本的 validate，规则同上，拒绝原因一致；0 表示字段未传
+     */
+    public String validate(OrderType type, long price, long stopPrice, long qty) {
+        String reason = validateQty(qty);
+        if (reason != null) {
+            return reason;
+        }
+        boolean limitPrice = type == OrderType.LIMIT || type == OrderType.STOP_LIMIT || type == OrderType.TAKE_PROFIT;
+        if (limitPrice && (reason = validatePrice(price)) != null) {
+            return reason;
+        }
+        boolean conditional = type != OrderType.LIMIT && type != OrderType.MARKET;
+        if (conditional && (reason = validatePrice(stopPrice)) != null) {
+            return "STOP_" + reason;
+        }
+        return null;
+    }
+
+    public String validatePrice(long price) {
+        if (price <= 0) {
+            return "INVALID_PRICE";
+        }
+        return tickUnits <= 0 || price % tickUnits == 0 ? null : "INVALID_TICK_SIZE";
+    }
+
+    public String validateQty(long qty) {
+        if (qty <= 0) {
+            return "INVALID_QUANTITY";
+        }
+        if (minQtyUnits > 0 && qty < minQtyUnits) {
+            return "QTY_TOO_SMALL";
+        }
+        if (maxQtyUnits > 0 && qty > maxQtyUnits) {
+            return "QTY_TOO_LARGE";
+        }
+        return lotUnits <= 0 || qty % lotUnits == 0 ? null : "INVALID_LOT_SIZE";
+    }
+
+    private static boolean isMultiple(BigDecimal value, BigDecimal step) {
+        return step == null || step.signum() <= 0 || value.remainder(step).signum() == 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.matching.core.domain;
+
+/**
+ * 逐笔委托（L3 / Market-By-Order）事件类型
+ */
+public enum MboEventType {
+    ADD,        // 新挂单进入队尾
+    REDUCE,     // 挂单数量减少（保留队列位置）
+    EXECUTE,    // 挂单被成交，quantity 为剩余量，剩余为 0 即出队（不再单独发 DELETE）
+    DELETE      // 挂单被撤销出队
+}
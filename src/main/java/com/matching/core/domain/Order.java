@@ -21,13 +21,14 @@ public class Order {
     private BigDecimal remainingQuantity;      // 剩余未成交（方便快速判断）
 
 
-    private long timestamp;                    // 纳秒级时间戳，用于价格时间优先级排序（关键！）
+    private long timestamp;                    // 入口时间（纳秒，定序器统一打），排队优先级看挂单句柄
     private Instant createTime;                // 可读时间，用于日志/审计
     private Instant updateTime;
 
 
     private String userId;                     // 用户ID，必备！用于自成交预防、费率、限仓
-    private String accountId;                  // 子账户（可选）
+    private long accountId;                    // 账户ID（整型），自成交预防按它比较，0 = 未指定
+    private StpMode stpMode;                   // 自成交预防模式，null = 引擎默认
 
     // ==================== 高级订单类型支持 ====================
     private TimeInForce timeInForce = TimeInForce.GTC;  // GTC, IOC, FOK, POST_ONLY
@@ -73,7 +74,7 @@ public class Order {
     }
 
     public boolean isMarketOrder() {
-        return type == OrderType.MARKET;
+        return type == OrderType.MARKET || type == OrderType.STOP_MARKET || type == OrderType.TAKE_PROFIT_MARKET;
     }
 
 
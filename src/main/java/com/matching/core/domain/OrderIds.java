@@ -0,0 +1,73 @@
+package com.matching.core.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 系统订单号：{symbol}_{序号}，在入口统一生成
+ * 订单号自带 symbol，撤单 / 改单只凭订单号就能算出分片，不需要查表、不需要广播
+ * 序号以启动时刻（毫秒 × 10^6）为起点，重启后不会与之前的订单号重复
+ */
+public final class OrderIds {
+    private static final AtomicLong SEQ = new AtomicLong(System.currentTimeMillis() * 1_000_000L);
+
+    private OrderIds() {
+    }
+
+    public static String next(String symbol) {
+        return format(symbol, nextSeq());
+    }
+
+    // 只取序号：入口直接把序号写进 RingBuffer 槽位和应答，订单号字符串留给撮合线程拼
+    public static long nextSeq() {
+        return SEQ.incrementAndGet();
+    }
+
+    // 备机回放主机的订单号时调用，接管后新发的序号一定比主机发过的大
+    public static void observe(long seq) {
+        SEQ.accumulateAndGet(seq, Math::max);
+    }
+
+    public static String format(String symbol, long seq) {
+        return symbol + '_' + seq;
+    }
+
+    /**
+     * 订单号是 {symbol}_{序号} 时返回序号，否则返回 -1（订单簿按序号索引挂单）
+     */
+    public static long seqOf(String symbol, String orderId) {
+        int sep = symbol.length();
+        if (orderId == null || orderId.length() <= sep + 1 || orderId.length() > sep + 20
+                || orderId.charAt(sep) != '_' || !orderId.startsWith(symbol)) {
+            return -1;
+        }
+        long seq = 0;
+        for (int i = sep + 1; i < orderId.length(); i++) {
+            char c = orderId.charAt(i);
+            if (c < '0' || c > '9' || seq > (Long.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            seq = seq * 10 + (c - '0');
+        }
+        return seq > 0 ? seq : -1;
+    }
+
+    /**
+     * 从订单号解析 symbol，格式不对返回 null
+     */
+    public static String symbolOf(String orderId) {
+        if (orderId == null) {
+            return null;
+        }
+        int sep = orderId.lastIndexOf('_');
+        if (sep <= 0 || sep == orderId.length() - 1) {
+            return null;
+        }
+        for (int i = sep + 1; i < orderId.length(); i++) {
+            char c = orderId.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        return orderId.substring(0, sep);
+    }
+}
@@ -0,0 +1,12 @@
+package com.matching.core.domain;
+
+/**
+ * 自成交预防模式：吃单方（新单）与同账户挂单（旧单）相遇时的处理方式，以吃单方的设置为准
+ */
+public enum StpMode {
+    NONE,           // 不预防，照常成交
+    CANCEL_NEWEST,  // 撤新单：吃单方剩余部分撤销
+    CANCEL_OLDEST,  // 撤旧单：挂单撤销，吃单方继续撮合
+    CANCEL_BOTH,    // 两边都撤
+    DECREMENT       // 双方同时减去较小的数量，不产生成交
+}
@@ -6,23 +6,30 @@ import java.math.BigDecimal;
 
 @Data
 public class Trade {
-    private String tradeId;
+    private long tradeId;            // 每个 symbol 内单调递增（从 1 开始）
     private String symbol;
     private Side side;
     private BigDecimal price;
     private BigDecimal quantity;
     private String buyOrderId;
     private String sellOrderId;
+    private long buyAccountId;       // 下游释放冻结、结算按账户记账用
+    private long sellAccountId;
+    private long timestamp;          // 成交时间（毫秒）
 
     // 构造函数、getter/setter 省略
-    public Trade(String symbol, Side side, BigDecimal price, BigDecimal quantity, String buyOrderId, String sellOrderId) {
-        this.tradeId = java.util.UUID.randomUUID().toString();
+    public Trade(long tradeId, String symbol, Side side, BigDecimal price, BigDecimal quantity, String buyOrderId, String sellOrderId,
+                 long buyAccountId, long sellAccountId, long timestamp) {
+        this.tradeId = tradeId;
         this.symbol = symbol;
         this.side = side;
         this.price = price;
         this.quantity = quantity;
         this.buyOrderId = buyOrderId;
         this.sellOrderId = sellOrderId;
+        this.buyAccountId = buyAccountId;
+        this.sellAccountId = sellAccountId;
+        this.timestamp = timestamp;
     }
 
 }
\ No newline at end of file
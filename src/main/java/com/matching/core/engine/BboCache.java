@@ -0,0 +1,116 @@
+package com.matching.core.engine;
+
+import com.matching.core.domain.BboSnapshot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+
+/**
+ * 单个 symbol 的最优买卖价缓存（seqlock）
+ * 写：只有撮合线程在每条指令结束时原地更新
+ * 读：任意线程无锁读取，版本号为奇数或前后不一致时重读，保证读到完整的一份盘口
+ */
+public final class BboCache {
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(BboCache.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String symbol;
+
+    @SuppressWarnings("unused") // 通过 VERSION 访问
+    private volatile long version;
+
+    private BigDecimal bidPrice;
+    private BigDecimal bidQty;
+    private int bidOrders;
+    private BigDecimal askPrice;
+    private BigDecimal askQty;
+    private int askOrders;
+    private BigDecimal lastPrice;
+    private BigDecimal lastQty;
+    private long lastTradeTime;
+    private long sequence;
+    private long timestamp;
+
+    public BboCache(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * 撮合线程调用；盘口和最新成交都没变化时直接返回，不推进版本号
+     */
+    void update(BigDecimal bidPrice, BigDecimal bidQty, int bidOrders,
+                BigDecimal askPrice, BigDecimal askQty, int askOrders,
+                BigDecimal lastPrice, BigDecimal lastQty, long lastTradeTime, long timestamp) {
+        if (bidOrders == this.bidOrders && askOrders == this.askOrders && lastTradeTime == this.lastTradeTime
+                && same(bidPrice, this.bidPrice) && same(bidQty, this.bidQty)
+                && same(askPrice, this.askPrice) && same(askQty, this.askQty)
+                && lastPrice == this.lastPrice && lastQty == this.lastQty) {
+            return;
+        }
+
+        long v = (long) VERSION.getOpaque(this);
+        VERSION.setOpaque(this, v + 1);          // 奇数：写入中
+        VarHandle.storeStoreFence();
+
+        this.bidPrice = bidPrice;
+        this.bidQty = bidQty;
+        this.bidOrders = bidOrders;
+        this.askPrice = askPrice;
+        this.askQty = askQty;
+        this.askOrders = askOrders;
+        this.lastPrice = lastPrice;
+        this.lastQty = lastQty;
+        this.lastTradeTime = lastTradeTime;
+        this.sequence++;
+        this.timestamp = timestamp;
+
+        VERSION.setRelease(this, v + 2);         // 偶数：写入完成
+    }
+
+    /**
+     * 任意线程调用，把当前 BBO 复制到 out，返回读到的版本号
+     */
+    public long read(BboSnapshot out) {
+        while (true) {
+            long v1 = (long) VERSION.getAcquire(this);
+            if ((v1 & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            out.setSymbol(symbol);
+            out.setBidPrice(bidPrice);
+            out.setBidQty(bidQty);
+            out.setBidOrders(bidOrders);
+            out.setAskPrice(askPrice);
+            out.setAskQty(askQty);
+            out.setAskOrders(askOrders);
+            out.setLastPrice(lastPrice);
+            out.setLastQty(lastQty);
+            out.setLastTradeTime(lastTradeTime);
+            out.setSequence(sequence);
+            out.setTimestamp(timestamp);
+
+            VarHandle.loadLoadFence();
+            if ((long) VERSION.getOpaque(this) == v1) {
+                return v1;
+            }
+        }
+    }
+
+    public long version() {
+        return (long) VERSION.getAcquire(this);
+    }
+
+    private static boolean same(BigDecimal a, BigDecimal b) {
+        return a == b || (a != null && b != null && a.compareTo(b) == 0);
+    }
+}
@@ -0,0 +1,156 @@
+package com.matching.core.engine;
+
+import com.matching.core.domain.DepthLevel;
+import com.matching.core.domain.DepthSnapshot;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+/**
+ * 物化的 Top-N 深度视图，只由撮合线程维护
+ * 每次档位变化增量更新（二分定位 + 数组平移），档位被删时从订单簿补齐第 N 档；
+ * 指令结束时若有变化才生成新的 {@link DepthSnapshot} 发布给查询线程
+ */
+final class DepthView<L> {
+
+    private final String symbol;
+    private final int capacity;
+    private final Function<L, BigDecimal> levelQty;
+    private final Ladder bids;
+    private final Ladder asks;
+    private long version;
+    private boolean dirty;
+    private volatile DepthSnapshot published;
+
+    DepthView(String symbol, int capacity, NavigableMap<BigDecimal, L> bidBook, NavigableMap<BigDecimal, L> askBook,
+              Function<L, BigDecimal> levelQty) {
+        this.symbol = symbol;
+        this.capacity = capacity;
+        this.levelQty = levelQty;
+        this.bids = new Ladder(Comparator.reverseOrder(), bidBook);
+        this.asks = new Ladder(Comparator.naturalOrder(), askBook);
+        this.published = DepthSnapshot.empty(symbol);
+    }
+
+    /**
+     * 档位数量变化，qty 为 0 表示档位删除
+     */
+    void onLevel(boolean isBid, BigDecimal price, BigDecimal qty) {
+        if ((isBid ? bids : asks).apply(price, qty)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * 指令结束时调用：没有变化直接返回，不分配
+     */
+    void publish(long timestamp) {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        published = new DepthSnapshot(symbol, ++version, timestamp, bids.toLevels(), asks.toLevels());
+    }
+
+    /**
+     * 停放的订单簿调回后调用：档位已经逐档 onLevel 过，沿用停放前的版本号发布，查询方持有的 ETag 仍然有效
+     */
+    void restore(long version, long timestamp) {
+        this.version = version - 1;
+        dirty = true;
+        publish(timestamp);
+    }
+
+    DepthSnapshot snapshot() {
+        return published;
+    }
+
+    private final class Ladder {
+        private final Comparator<BigDecimal> order;
+        private final NavigableMap<BigDecimal, L> book;   // 该侧完整订单簿，用于补档
+        private final BigDecimal[] prices = new BigDecimal[capacity];
+        private final BigDecimal[] qtys = new BigDecimal[capacity];
+        private int size;
+
+        Ladder(Comparator<BigDecimal> order, NavigableMap<BigDecimal, L> book) {
+            this.order = order;
+            this.book = book;
+        }
+
+        boolean apply(BigDecimal price, BigDecimal qty) {
+            int idx = search(price);
+            if (idx >= 0) {
+                if (qty.signum() > 0) {
+                    if (qtys[idx].compareTo(qty) == 0) return false;
+                    qtys[idx] = qty;
+                    return true;
+                }
+                remove(idx);
+                backfill();
+                return true;
+            }
+            if (qty.signum() <= 0) {
+                return false;
+            }
+            int ins = -idx - 1;
+            if (ins >= capacity) {
+                return false;   // 在 Top-N 之外
+            }
+            int tail = Math.min(size, capacity - 1);
+            System.arraycopy(prices, ins, prices, ins + 1, tail - ins);
+            System.arraycopy(qtys, ins, qtys, ins + 1, tail - ins);
+            prices[ins] = price;
+            qtys[ins] = qty;
+            size = tail + 1;
+            return true;
+        }
+
+        private void remove(int idx) {
+            System.arraycopy(prices, idx + 1, prices, idx, size - idx - 1);
+            System.arraycopy(qtys, idx + 1, qtys, idx, size - idx - 1);
+            size--;
+            prices[size] = null;
+            qtys[size] = null;
+        }
+
+        // 视图不满时，从订单簿取当前末档之后的第一个非空档补上
+        private void backfill() {
+            BigDecimal from = size == 0 ? null : prices[size - 1];
+            var tail = from == null ? book : book.tailMap(from, false);
+            for (var e : tail.entrySet()) {
+                if (size == capacity) return;
+                BigDecimal q = levelQty.apply(e.getValue());
+                if (q != null && q.signum() > 0 && search(e.getKey()) < 0) {
+                    prices[size] = e.getKey();
+                    qtys[size] = q;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        private int search(BigDecimal price) {
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = order.compare(prices[mid], price);
+                if (c < 0) lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        List<DepthLevel> toLevels() {
+            List<DepthLevel> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(new DepthLevel(prices[i], qtys[i]));
+            }
+            return list;
+        }
+    }
+}
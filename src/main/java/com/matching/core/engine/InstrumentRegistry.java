@@ -0,0 +1,169 @@
+package com.matching.core.engine;
+
+import com.matching.core.domain.Instrument;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交易对注册表：启动时从 app.instruments 加载，按配置顺序分配稠密 id
+ * 读（入口校验、分片、引擎数组下标）完全无锁；上新交易对走 register，写时复制
+ */
+@Component
+@Slf4j
+public final class InstrumentRegistry {
+
+    @Data
+    public static class Spec {
+        private String symbol;
+        private BigDecimal tickSize;
+        private BigDecimal lotSize;
+        private BigDecimal minQty;
+        private BigDecimal maxQty;
+        private int priceBandBps;
+        private String baseAsset;      // 不配时按常见计价资产后缀从 symbol 拆出
+        private String quoteAsset;
+    }
+
+    private static final String[] QUOTE_SUFFIXES = {"USDT", "USDC", "FDUSD", "BUSD", "USD", "BTC", "ETH"};
+
+    private volatile Instrument[] byId = new Instrument[0];
+    private final ConcurrentHashMap<String, Instrument> bySymbol = new ConcurrentHashMap<>();
+    // 按 symbol 字节哈希的开放寻址表，入口直接拿请求体里的字节查，不建 String
+    private volatile Instrument[] byBytes = new Instrument[0];
+    // 资产：首次出现时分配稠密 id，账户余额按它做数组下标
+    private volatile String[] assets = new String[0];
+    private final ConcurrentHashMap<String, Integer> assetIds = new ConcurrentHashMap<>();
+
+    public InstrumentRegistry(Environment env) {
+        List<Spec> specs = Binder.get(env).bind("app.instruments", Bindable.listOf(Spec.class)).orElse(List.of());
+        for (Spec spec : specs) {
+            register(spec);
+        }
+        log.info("Loaded {} instruments", byId.length);
+    }
+
+    /**
+     * 上新交易对；已存在则返回原规格
+     */
+    public synchronized Instrument register(Spec spec) {
+        Instrument existing = bySymbol.get(spec.getSymbol());
+        if (existing != null) {
+            return existing;
+        }
+        String quote = spec.getQuoteAsset() != null ? spec.getQuoteAsset() : quoteOf(spec.getSymbol());
+        String base = spec.getBaseAsset() != null ? spec.getBaseAsset()
+                : spec.getSymbol().substring(0, spec.getSymbol().length() - quote.length());
+        if (base.isEmpty()) {
+            throw new IllegalArgumentException("Cannot derive base asset of " + spec.getSymbol());
+        }
+        Instrument[] current = byId;
+        Instrument instrument = new Instrument(current.length, spec.getSymbol(), spec.getTickSize(), spec.getLotSize(),
+                spec.getMinQty(), spec.getMaxQty(), spec.getPriceBandBps(),
+                base, assetId(base), quote, assetId(quote));
+        Instrument[] next = Arrays.copyOf(current, current.length + 1);
+        next[instrument.getId()] = instrument;
+        byId = next;
+        bySymbol.put(instrument.getSymbol(), instrument);
+        byBytes = buildByteTable(next);
+        return instrument;
+    }
+
+    private static String quoteOf(String symbol) {
+        for (String suffix : QUOTE_SUFFIXES) {
+            if (symbol.endsWith(suffix)) {
+                return suffix;
+            }
+        }
+        throw new IllegalArgumentException("Cannot derive quote asset of " + symbol + ", set quote-asset");
+    }
+
+    // 只在 register 里调用（已持有锁）
+    private int assetId(String asset) {
+        Integer id = assetIds.get(asset);
+        if (id != null) {
+            return id;
+        }
+        String[] next = Arrays.copyOf(assets, assets.length + 1);
+        next[assets.length] = asset;
+        assets = next;
+        assetIds.put(asset, assets.length - 1);
+        return assets.length - 1;
+    }
+
+    /**
+     * 资产名 → 稠密 id，没有返回 -1
+     */
+    public int findAsset(String asset) {
+        Integer id = asset == null ? null : assetIds.get(asset);
+        return id == null ? -1 : id;
+    }
+
+    public String assetName(int id) {
+        return assets[id];
+    }
+
+    public int assetCount() {
+        return assets.length;
+    }
+
+    public Instrument find(String symbol) {
+        return symbol == null ? null : bySymbol.get(symbol);
+    }
+
+    /**
+     * 按 ASCII 字节查交易对，找不到返回 null
+     */
+    public Instrument find(byte[] buf, int off, int len) {
+        Instrument[] table = byBytes;
+        if (table.length == 0) {
+            return null;
+        }
+        int mask = table.length - 1;
+        for (int i = hash(buf, off, len) & mask; table[i] != null; i = (i + 1) & mask) {
+            if (Arrays.equals(table[i].getSymbolBytes(), 0, table[i].getSymbolBytes().length, buf, off, off + len)) {
+                return table[i];
+            }
+        }
+        return null;
+    }
+
+    private static Instrument[] buildByteTable(Instrument[] instruments) {
+        Instrument[] table = new Instrument[Integer.highestOneBit(Math.max(1, instruments.length) * 2) << 1];
+        int mask = table.length - 1;
+        for (Instrument instrument : instruments) {
+            byte[] b = instrument.getSymbolBytes();
+            int i = hash(b, 0, b.length) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = instrument;
+        }
+        return table;
+    }
+
+    private static int hash(byte[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    public Instrument get(int id) {
+        Instrument[] current = byId;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return byId.length;
+    }
+}
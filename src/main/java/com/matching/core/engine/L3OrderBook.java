@@ -2,280 +2,1125 @@
 package com.matching.core.engine;
 
 import com.matching.core.domain.*;
+import com.matching.disruptor.ExecutionPublisher;
 import com.matching.disruptor.MarketDataPublisher;
+import com.matching.disruptor.MboPublisher;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.atomic.AtomicLong;
+
+import static com.matching.core.engine.OrderStore.NIL;
 
 @Slf4j
 public final class L3OrderBook {
 
     private final String symbol;
     private final MarketDataPublisher publisher;
-    private final AtomicLong seq = new AtomicLong(0);
+    private final MboPublisher mboPublisher;   // 逐笔委托行情，未开启时为 null
+    private final ExecutionPublisher executionPublisher; // 撮合输出（成交），可为 null
+    private long handleSeq;                    // 对外挂单句柄分配器（仅撮合线程访问）
+    private long mboSeq;                       // 逐笔委托序号（仅撮合线程访问）
+    private long tradeSeq;                     // 成交号，从成交历史的最大 id 续号（仅撮合线程访问）
+    private volatile long changeCount;         // 已处理的指令数，快照线程据此跳过没有变化的订单簿
+
+    private final BboCache bbo;
+    private final DepthView<PriceLevel> depthView;
+    private BigDecimal lastPrice;
+    private BigDecimal lastQty;
+    private long lastTradeTime;
+    private long commandTime;                  // 当前指令的入口时间（纳秒，定序器打的，回放时不变）
 
     private final ConcurrentSkipListMap<BigDecimal, PriceLevel> bids = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
     private final ConcurrentSkipListMap<BigDecimal, PriceLevel> asks = new ConcurrentSkipListMap<>(Comparator.naturalOrder());
-    private final ConcurrentHashMap<String, OrderEntry> orderIndex = new ConcurrentHashMap<>();
+    // 挂单放在固定布局的槽位里（堆内块或直接内存），以下索引都只存 int 槽位号（仅撮合线程访问）
+    private final OrderStore store;
+    private final LongIntMap orderIndex = new LongIntMap(1024);      // 订单号序号 → 槽位
+    // 账户 → 该账户在本簿挂单链表的表头槽位（侵入式双向链表），批量撤单不扫全簿
+    private final LongIntMap accountOrders = new LongIntMap(64);
+    private final ArrayList<PriceLevel> levelsById = new ArrayList<>();  // 档位 id → 档位，槽位里只存 id
+    private int[] freeLevelIds = new int[16];
+    private int freeLevelCount;
+    private final ArrayList<PriceLevel> touchedLevels = new ArrayList<>();   // 本条指令待推送的档位
+
+    // 止损 / 止盈条件单，成交后按本条指令的成交价区间激活（仅撮合线程访问）
+    private final TriggerBook triggers = new TriggerBook();
+    private final ArrayDeque<Order> activated = new ArrayDeque<>();
+    private BigDecimal cmdLow;                 // 本条指令内尚未用于触发的成交价区间
+    private BigDecimal cmdHigh;
+
+    // 带保护价的市价买单还能花的成交额（定点），NO_BUDGET 表示不限，EXHAUSTED 表示下一笔已经超出
+    private static final long NO_BUDGET = -1;
+    private static final long EXHAUSTED = -2;
+    private long budget = NO_BUDGET;
 
-    private volatile boolean fiveLevelProtection = true;
-    private static final int MAX_LEVELS = 5;
+    // 累计流动性索引（随档位变化维护），撮合前的 FOK / 档位 / 滑点检查都是 O(log n)
+    private final LiquidityIndex bidLiquidity = new LiquidityIndex(Comparator.reverseOrder());
+    private final LiquidityIndex askLiquidity = new LiquidityIndex(Comparator.naturalOrder());
+
+    public static final int DEFAULT_MAX_LEVELS = 5;
+    private volatile int maxLevels = DEFAULT_MAX_LEVELS;   // 单笔最多吃几档，0 = 不限
+    private volatile int maxSlippageBps;                   // 相对对手最优价的最大滑点（万分之），0 = 不限
+    private volatile int priceBandBps;                     // 限价偏离最新成交价的上限（万分之），0 = 不限
+    private volatile StpMode defaultStpMode = StpMode.CANCEL_NEWEST;   // 订单未指定时的自成交预防模式
+    private static final int VIEW_LEVELS = 50;   // 物化深度视图档数（REST 查询上限）
 
     public L3OrderBook(String symbol, MarketDataPublisher publisher) {
+        this(symbol, publisher, null, null);
+    }
+
+    public L3OrderBook(String symbol, MarketDataPublisher publisher, MboPublisher mboPublisher,
+                       ExecutionPublisher executionPublisher) {
+        this(symbol, publisher, mboPublisher, executionPublisher, false);
+    }
+
+    /**
+     * @param offHeapOrders 挂单槽位放直接内存（超大订单簿用，GC 与簿深无关），否则放堆内大块
+     */
+    public L3OrderBook(String symbol, MarketDataPublisher publisher, MboPublisher mboPublisher,
+                       ExecutionPublisher executionPublisher, boolean offHeapOrders) {
+        this(symbol, publisher, mboPublisher, executionPublisher, offHeapOrders, new BboCache(symbol));
+    }
+
+    // 停放的订单簿调回内存时沿用原来的 BBO 缓存，读方拿到的引用和版本号都不变
+    L3OrderBook(String symbol, MarketDataPublisher publisher, MboPublisher mboPublisher,
+                ExecutionPublisher executionPublisher, boolean offHeapOrders, BboCache bbo) {
         this.symbol = symbol;
         this.publisher = publisher;
-        log.info("L3OrderBook 初始化完成: {}", symbol);
+        this.mboPublisher = mboPublisher;
+        this.executionPublisher = executionPublisher;
+        this.store = offHeapOrders ? OrderStore.offHeap() : OrderStore.heap();
+        this.bbo = bbo;
+        this.depthView = new DepthView<>(symbol, VIEW_LEVELS, bids, asks, PriceLevel::shownQty);
+        log.info("L3OrderBook 初始化完成: {} (orders {})", symbol, offHeapOrders ? "off-heap" : "heap");
+    }
+
+    // 档位变化的唯一出口：行情和深度视图只看显示量，流动性索引记总量（隐藏量同样可成交）
+    // level 为空表示档位已删除；显示量没变（如只成交了隐藏量）不推行情
+    private void fireDepthUpdate(BigDecimal price, PriceLevel level, Side side) {
+        if (price == null || side == null) {
+            return;
+        }
+        boolean isBid = side == Side.BUY;
+        boolean gone = level == null || level.isEmpty();
+        BigDecimal shown = gone ? BigDecimal.ZERO : level.shownQty();
+        (isBid ? bidLiquidity : askLiquidity).update(price, gone ? 0 : level.totalQty());
+        if (level != null) {
+            long units = gone ? 0 : level.displayedQty;
+            if (level.publishedQty == units) {
+                return;
+            }
+            level.publishedQty = units;
+        }
+        depthView.onLevel(isBid, price, shown);
+        if (publisher != null) {
+            publisher.publishUpdate(symbol, price, shown, isBid);
+        }
+    }
+
+    // 每条指令结束时发布读模型：深度视图有变化才生成新版本，BBO 原地更新
+    private void endCommand() {
+        changeCount++;   // 只有撮合线程写
+        flushTouched();
+        depthView.publish(commandMillis());
+        refreshBbo();
+    }
+
+    private long commandMillis() {
+        return commandTime / 1_000_000;
+    }
+
+    // 标记档位有变化，指令结束时每档只推一次（撤单、批量撤单、改单）
+    private void touch(PriceLevel level) {
+        if (!level.touched) {
+            level.touched = true;
+            touchedLevels.add(level);
+        }
+    }
+
+    // 空档位在这里才从订单簿摘掉：同一指令内先出后进（同价加量改单）不会删了又建
+    private void flushTouched() {
+        for (int i = 0; i < touchedLevels.size(); i++) {
+            PriceLevel level = touchedLevels.get(i);
+            level.touched = false;
+            if (level.isEmpty() && (level.side == Side.BUY ? bids : asks).remove(level.price, level)) {
+                releaseLevel(level);
+            }
+            fireDepthUpdate(level.price, level, level.side);
+        }
+        touchedLevels.clear();
+    }
+
+    // 两侧第一个有显示量的档位（全隐藏的档位不对外展示）
+    private void refreshBbo() {
+        var bid = firstVisible(bids);
+        var ask = firstVisible(asks);
+        bbo.update(bid == null ? null : bid.getKey(), bid == null ? null : bid.getValue().shownQty(),
+                bid == null ? 0 : bid.getValue().visibleCount,
+                ask == null ? null : ask.getKey(), ask == null ? null : ask.getValue().shownQty(),
+                ask == null ? 0 : ask.getValue().visibleCount,
+                lastPrice, lastQty, lastTradeTime, commandMillis());
+    }
+
+    private static Map.Entry<BigDecimal, PriceLevel> firstVisible(NavigableMap<BigDecimal, PriceLevel> book) {
+        for (var e : book.entrySet()) {
+            if (e.getValue().displayedQty > 0) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    // 生成成交：买卖方订单号按方向归位，更新最新成交并发布到撮合输出
+    private Trade recordTrade(Order taker, int maker, BigDecimal price, BigDecimal fill) {
+        boolean takerBuys = taker.getSide() == Side.BUY;
+        String makerOrderId = orderId(maker);
+        long makerAccount = store.accountId(maker);
+        Trade trade = new Trade(++tradeSeq, symbol, taker.getSide(), price, fill,
+                takerBuys ? taker.getOrderId() : makerOrderId,
+                takerBuys ? makerOrderId : taker.getOrderId(),
+                takerBuys ? taker.getAccountId() : makerAccount,
+                takerBuys ? makerAccount : taker.getAccountId(), commandMillis());
+        lastPrice = price;
+        lastQty = fill;
+        if (cmdHigh == null) {
+            cmdLow = cmdHigh = price;
+        } else {
+            cmdLow = cmdLow.min(price);
+            cmdHigh = cmdHigh.max(price);
+        }
+        lastTradeTime = trade.getTimestamp();
+        if (executionPublisher != null) {
+            executionPublisher.publishTrade(trade);
+        }
+        return trade;
     }
 
-    // 安全推送（防 NPE 终极版）
-    private void fireDepthUpdate(BigDecimal price, BigDecimal newQty, Side side) {
-        if (publisher != null && price != null && side != null) {
-            boolean isBid = side == Side.BUY;
-            BigDecimal qty = (newQty == null || newQty.signum() < 0) ? BigDecimal.ZERO : newQty;
-            publisher.publishUpdate(symbol, price, qty, isBid);
+    // 逐笔委托只暴露显示部分：隐藏单不出现，冰山单只报当前切片；价格 / 数量按定点 long 发布，撮合线程不分配
+    private void fireMbo(MboEventType type, int e, long execQty) {
+        if (mboPublisher != null && !store.hidden(e)) {
+            mboPublisher.publish(type, symbol, ++mboSeq, store.handle(e), store.side(e),
+                    store.price(e), store.display(e), execQty);
         }
     }
 
-    private static class PriceLevel {
-        final TreeMap<Long, OrderEntry> orders = new TreeMap<>();
-        BigDecimal totalQty = BigDecimal.ZERO;
+    // 槽位里只存序号，订单号按 {symbol}_{序号} 还原（只在成交 / 回报时才拼）
+    private String orderId(int e) {
+        return OrderIds.format(symbol, store.orderSeq(e));
     }
 
-    private static class OrderEntry {
-        final Order order;
-        final long ts;
+    private PriceLevel levelOf(int e) {
+        return levelsById.get(store.level(e));
+    }
+
+    private PriceLevel newLevel(BigDecimal price, Side side) {
+        int id;
+        if (freeLevelCount > 0) {
+            id = freeLevelIds[--freeLevelCount];
+        } else {
+            id = levelsById.size();
+            levelsById.add(null);
+        }
+        PriceLevel level = new PriceLevel(id, price, side);
+        levelsById.set(id, level);
+        return level;
+    }
+
+    // 档位从订单簿摘掉后回收 id
+    private void releaseLevel(PriceLevel level) {
+        levelsById.set(level.id, null);
+        if (freeLevelCount == freeLevelIds.length) {
+            freeLevelIds = Arrays.copyOf(freeLevelIds, freeLevelCount * 2);
+        }
+        freeLevelIds[freeLevelCount++] = level.id;
+    }
+
+    /**
+     * 价位档：两条侵入式双向链表（槽位号串起来），显示队列在前、隐藏队列在后（同价位隐藏单优先级更低）
+     * 显示量 / 隐藏量为定点 long，随每笔变化增量维护，推送行情不需要重新求和
+     */
+    private static final class PriceLevel {
+        final int id;
         final BigDecimal price;
-        BigDecimal remain;
-        PriceLevel level;
+        final Side side;
+        int head = NIL, tail = NIL;                 // 显示队列：普通单、冰山单当前切片
+        int hiddenHead = NIL, hiddenTail = NIL;     // 隐藏队列：全隐藏单
+        int visibleCount;
+        long displayedQty;
+        long hiddenQty;                             // 隐藏单 + 冰山单储备
+        long publishedQty;                          // 上次推出去的显示量
+        boolean touched;                            // 已在 touchedLevels 中
+        private BigDecimal shown = BigDecimal.ZERO; // displayedQty 的 BigDecimal 形式，变化时才重建
+        private long shownUnits;
+
+        PriceLevel(int id, BigDecimal price, Side side) {
+            this.id = id;
+            this.price = price;
+            this.side = side;
+        }
+
+        boolean isEmpty() {
+            return head == NIL && hiddenHead == NIL;
+        }
+
+        long totalQty() {
+            return displayedQty + hiddenQty;
+        }
 
-        OrderEntry(Order order, long ts) {
-            this.order = order;
-            this.ts = ts;
-            this.price = order.getPrice();
-            this.remain = order.getQuantity();
+        BigDecimal shownQty() {
+            if (shownUnits != displayedQty) {
+                shownUnits = displayedQty;
+                shown = FixedPoint.toBigDecimal(displayedQty);
+            }
+            return shown;
+        }
+
+        void append(OrderStore s, int e) {
+            s.next(e, NIL);
+            if (s.hidden(e)) {
+                s.prev(e, hiddenTail);
+                if (hiddenTail == NIL) hiddenHead = e; else s.next(hiddenTail, e);
+                hiddenTail = e;
+            } else {
+                s.prev(e, tail);
+                if (tail == NIL) head = e; else s.next(tail, e);
+                tail = e;
+                visibleCount++;
+            }
+        }
+
+        void unlink(OrderStore s, int e) {
+            boolean hidden = s.hidden(e);
+            int prev = s.prev(e);
+            int next = s.next(e);
+            if (prev != NIL) s.next(prev, next);
+            else if (hidden) hiddenHead = next;
+            else head = next;
+            if (next != NIL) s.prev(next, prev);
+            else if (hidden) hiddenTail = prev;
+            else tail = prev;
+            s.prev(e, NIL);
+            s.next(e, NIL);
+            if (!hidden) visibleCount--;
         }
     }
 
+    /**
+     * 处理一条下单指令，返回本条指令产生的全部成交（含级联激活的条件单成交）
+     */
     public List<Trade> processOrder(Order order) {
+        order.setSymbol(symbol);
+        commandTime = order.getTimestamp();
         if (order.getQuantity() == null || order.getQuantity().signum() <= 0) {
-            order.setStatus(OrderStatus.REJECTED);
-            order.setRejectReason("INVALID_QUANTITY");
-            log.warn("Reject order {}: invalid quantity", order.getOrderId());
+            reject(order, OrderStatus.REJECTED, "INVALID_QUANTITY");
+            return List.of();
+        }
+        if (order.getDisplayQuantity() != null && order.getDisplayQuantity().signum() <= 0) {
+            reject(order, OrderStatus.REJECTED, "INVALID_DISPLAY_QUANTITY");
+            return List.of();
+        }
+        if (OrderIds.seqOf(symbol, order.getOrderId()) < 0) {
+            reject(order, OrderStatus.REJECTED, "INVALID_ORDER_ID");   // 挂单按序号索引，订单号必须是本交易对的系统订单号
             return List.of();
         }
 
-        order.setSymbol(symbol);
-        order.setOrderId(order.getOrderId() == null ? symbol + "_" + seq.incrementAndGet() : order.getOrderId());
-        order.setTimestamp(System.nanoTime());
+        cmdLow = cmdHigh = null;
+        try {
+            if (TriggerBook.isConditional(order)) {
+                acceptConditional(order);
+                return List.of();
+            }
+            List<Trade> trades = new ArrayList<>(execute(order));
+            activateTriggers(trades);
+            return trades;
+        } finally {
+            endCommand();
+        }
+    }
 
+    // 单笔订单进入撮合：前置检查 + 市价/限价撮合，异常只影响这一笔
+    private List<Trade> execute(Order order) {
         try {
+            if (!passesPreTradeChecks(order)) {
+                reportRejected(order);
+                return List.of();
+            }
             return order.isMarketOrder() ? matchMarket(order) : matchLimit(order);
         } catch (Exception e) {
             log.error("Unexpected error processing order {}", order.getOrderId(), e);
             order.setStatus(OrderStatus.REJECTED);
             order.setRejectReason("SYSTEM_ERROR");
+            reportRejected(order);
             return List.of();
         }
     }
 
+    // 条件单挂入触发簿；按最新价已满足触发条件的直接拒绝（与 Binance 一致）
+    private void acceptConditional(Order order) {
+        BigDecimal stopPrice = order.getStopPrice();
+        if (stopPrice == null || stopPrice.signum() <= 0) {
+            reject(order, OrderStatus.REJECTED, "INVALID_STOP_PRICE");
+        } else if (!order.isMarketOrder() && (order.getPrice() == null || order.getPrice().signum() <= 0)) {
+            reject(order, OrderStatus.REJECTED, "INVALID_PRICE");
+        } else if (lastPrice != null && TriggerBook.isCrossed(order, lastPrice)) {
+            reject(order, OrderStatus.REJECTED, "WOULD_IMMEDIATELY_TRIGGER");
+        } else if (orderIndex.get(OrderIds.seqOf(symbol, order.getOrderId())) != LongIntMap.MISSING
+                || triggers.contains(order.getOrderId())) {
+            reject(order, OrderStatus.REJECTED, "DUPLICATE_ORDER_ID");
+        } else {
+            triggers.add(order);
+            order.setStatus(OrderStatus.NEW);
+        }
+    }
+
+    /**
+     * 级联激活：被越过的条件单进入 FIFO 工作队列逐笔撮合，
+     * 它们的成交再扩展价格区间、继续激活，直到没有新的条件单被越过。
+     * 用队列而不是递归，强平连环触发时不会爆栈
+     */
+    private void activateTriggers(List<Trade> trades) {
+        drainTriggers();
+        Order next;
+        while ((next = activated.poll()) != null) {
+            next.setTimestamp(commandTime);
+            trades.addAll(execute(next));
+            drainTriggers();
+        }
+    }
+
+    private void drainTriggers() {
+        if (cmdHigh != null && triggers.size() > 0) {
+            triggers.drainCrossed(cmdLow, cmdHigh, activated);
+        }
+        cmdLow = cmdHigh = null;
+    }
+
     private List<Trade> matchMarket(Order mo) {
         List<Trade> trades = new ArrayList<>();
-        BigDecimal remain = mo.getQuantity();
+        long remain = FixedPoint.toLong(mo.getQuantity().subtract(mo.getFilledQuantity()));
         var opposite = mo.getSide() == Side.BUY ? asks : bids;
         Side makerSide = mo.getSide() == Side.BUY ? Side.SELL : Side.BUY;
 
-        int level = 0;
-        var iter = mo.getSide() == Side.BUY ? opposite.keySet().iterator() : opposite.descendingKeySet().iterator();
+        // 市价买单带保护价（开风控时是风控冻结用的估价）：累计成交额不超过 保护价 × 数量，也就是冻结的金额
+        long cap = mo.getSide() == Side.BUY ? FixedPoint.toLong(mo.getPrice()) : 0;
+        budget = cap > 0 ? FixedPoint.mulCeil(cap, remain) : NO_BUDGET;
 
-        while (iter.hasNext() && remain.signum() > 0) {
-            if (fiveLevelProtection && ++level > MAX_LEVELS) {
-                log.warn("Market order {} rejected: exceed 5 levels", mo.getOrderId());
-                mo.setStatus(OrderStatus.REJECTED);
-                mo.setRejectReason("EXCEED_FIVE_LEVELS");
-                break;
-            }
+        // 两侧订单簿都按优先顺序排列（买盘降序、卖盘升序），正序遍历即从最优价开始
+        var iter = opposite.entrySet().iterator();
 
-            BigDecimal price = iter.next();
-            PriceLevel levelData = opposite.get(price);
-            if (levelData == null || levelData.orders.isEmpty()) {
-                iter.remove();
-                fireDepthUpdate(price, BigDecimal.ZERO, makerSide);
-                continue;
-            }
-
-            var orderIter = levelData.orders.values().iterator();
-
-            while (orderIter.hasNext() && remain.signum() > 0) {
-                OrderEntry maker = orderIter.next();
-                BigDecimal fill = remain.min(maker.remain);
-
-                trades.add(new Trade(symbol, mo.getSide(), price, fill, mo.getOrderId(), maker.order.getOrderId()));
-                remain = remain.subtract(fill);
-                maker.remain = maker.remain.subtract(fill);
-                maker.order.addFilledQuantity(fill);
-                mo.addFilledQuantity(fill);
-
-                if (maker.remain.signum() == 0) {
-                    orderIter.remove();
-                    orderIndex.remove(maker.order.getOrderId());
+        boolean capped;
+        try {
+            while (iter.hasNext() && remain > 0 && budget != EXHAUSTED) {
+                var e = iter.next();
+                remain = matchLevel(mo, e.getValue(), remain, trades);
+                if (e.getValue().isEmpty()) {
+                    iter.remove();
+                    releaseLevel(e.getValue());
                 }
+                fireDepthUpdate(e.getKey(), e.getValue(), makerSide);
             }
+            capped = budget == EXHAUSTED;
+        } finally {
+            budget = NO_BUDGET;
+        }
 
-            levelData.totalQty = levelData.orders.values().stream()
-                    .map(e -> e.remain)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            fireDepthUpdate(price, levelData.totalQty, makerSide);
-
-            if (levelData.orders.isEmpty()) {
-                iter.remove();
-                fireDepthUpdate(price, BigDecimal.ZERO, makerSide);
+        if (mo.getStatus() != OrderStatus.CANCELED) {
+            mo.setStatus(remain > 0 ? OrderStatus.REJECTED : OrderStatus.FILLED);
+            if (remain > 0) {
+                // 对手盘吃完或成交额到了保护价上限，剩余部分作废
+                report(mo, ExecType.REJECTED, capped ? "PROTECTION_PRICE_EXCEEDED" : "NO_LIQUIDITY",
+                        FixedPoint.toBigDecimal(remain), BigDecimal.ZERO);
             }
         }
-
-        mo.setStatus(remain.signum() > 0 ? OrderStatus.REJECTED : OrderStatus.FILLED);
         return trades;
     }
 
     private List<Trade> matchLimit(Order lo) {
         List<Trade> trades = new ArrayList<>();
-        BigDecimal remain = lo.getQuantity();
+        long remain = FixedPoint.toLong(lo.getQuantity().subtract(lo.getFilledQuantity()));
         Side side = lo.getSide();
         Side makerSide = side == Side.BUY ? Side.SELL : Side.BUY;
         BigDecimal limit = lo.getPrice();
         var opposite = side == Side.BUY ? asks : bids;
 
-        if (fiveLevelProtection && wouldSweepFiveLevels(remain, side, limit)) {
-            log.warn("Limit order {} rejected: would sweep 5 levels", lo.getOrderId());
-            lo.setStatus(OrderStatus.REJECTED);
-            lo.setRejectReason("SWEEP_FIVE_LEVELS");
-            return trades;
-        }
+        var iter = opposite.entrySet().iterator();
 
-        var iter = side == Side.BUY ? opposite.keySet().iterator() : opposite.descendingKeySet().iterator();
-
-        while (iter.hasNext() && remain.signum() > 0) {
-            BigDecimal price = iter.next();
+        while (iter.hasNext() && remain > 0) {
+            var e = iter.next();
+            BigDecimal price = e.getKey();
             if (side == Side.BUY && price.compareTo(limit) > 0) break;
             if (side == Side.SELL && price.compareTo(limit) < 0) break;
 
-            PriceLevel level = opposite.get(price);
-            if (level == null || level.orders.isEmpty()) {
+            remain = matchLevel(lo, e.getValue(), remain, trades);
+            if (e.getValue().isEmpty()) {
                 iter.remove();
-                fireDepthUpdate(price, BigDecimal.ZERO, makerSide);
-                continue;
+                releaseLevel(e.getValue());
             }
+            fireDepthUpdate(price, e.getValue(), makerSide);
+        }
 
-            var orderIter = level.orders.values().iterator();
-
-            while (orderIter.hasNext() && remain.signum() > 0) {
-                OrderEntry maker = orderIter.next();
-                if (maker.order.getUserId() != null && maker.order.getUserId().equals(lo.getUserId())) {
-                    continue;
-                }
-
-                BigDecimal fill = remain.min(maker.remain);
-                trades.add(new Trade(symbol, lo.getSide(), price, fill, lo.getOrderId(), maker.order.getOrderId()));
+        if (lo.getStatus() == OrderStatus.CANCELED) {
+            return trades;   // 自成交预防撤掉了吃单方剩余部分
+        }
+        if (remain > 0) {
+            PriceLevel level = addToBook(lo, remain);
+            lo.setStatus(lo.getFilledQuantity().signum() > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.NEW);
+            fireDepthUpdate(lo.getPrice(), level, side);
+        } else {
+            lo.setStatus(OrderStatus.FILLED);
+        }
 
-                remain = remain.subtract(fill);
-                maker.remain = maker.remain.subtract(fill);
-                maker.order.addFilledQuantity(fill);
-                lo.addFilledQuantity(fill);
+        return trades;
+    }
 
-                if (maker.remain.signum() == 0) {
-                    orderIter.remove();
-                    orderIndex.remove(maker.order.getOrderId());
+    /**
+     * 在一个价位内撮合：先显示队列，再隐藏队列，返回吃单方剩余数量。
+     * 每一步都作用在队首：成交 / 递减把队首吃完出簿或补单移到队尾，撤旧单直接出簿，
+     * 撤新单结束吃单方 —— 同账户挂单不会被跳过后反复扫描，循环次数只与成交和 STP 事件数相关
+     */
+    private long matchLevel(Order taker, PriceLevel level, long remain, List<Trade> trades) {
+        long account = taker.getAccountId();
+        StpMode mode = taker.getStpMode() != null ? taker.getStpMode() : defaultStpMode;
+        int maker;
+        while (remain > 0 && (maker = level.head != NIL ? level.head : level.hiddenHead) != NIL) {
+            long available = store.hidden(maker) ? store.remain(maker) : store.display(maker);
+            if (account == 0 || store.accountId(maker) != account || mode == StpMode.NONE) {
+                long fill = Math.min(remain, available);
+                if (budget >= 0 && !spend(store.price(maker), fill)) {
+                    return remain;
+                }
+                remain -= fill;
+                BigDecimal fillQty = FixedPoint.toBigDecimal(fill);
+                trades.add(recordTrade(taker, maker, level.price, fillQty));
+                store.filled(maker, store.filled(maker) + fill);
+                taker.addFilledQuantity(fillQty);
+                reduce(level, maker, fill, MboEventType.EXECUTE);
+                continue;
+            }
+            switch (mode) {
+                case CANCEL_OLDEST -> stpCancelMaker(maker, mode);
+                case CANCEL_BOTH -> {
+                    stpCancelMaker(maker, mode);
+                    return stpCancelTaker(taker, remain, mode);
+                }
+                case DECREMENT -> {
+                    long dec = Math.min(remain, available);
+                    remain -= dec;
+                    // 扣完的挂单槽位会被回收，回报先发；递减的部分从双方订单总量里扣掉，总量 - 已成交 = 剩余
+                    report(maker, ExecType.DECREMENTED, mode.name(), dec, store.remain(maker) - dec);
+                    store.quantity(maker, store.quantity(maker) - dec);
+                    reduce(level, maker, dec, MboEventType.REDUCE);
+                    BigDecimal decQty = FixedPoint.toBigDecimal(dec);
+                    taker.setQuantity(taker.getQuantity().subtract(decQty));
+                    report(taker, ExecType.DECREMENTED, mode.name(), decQty, FixedPoint.toBigDecimal(remain));
+                    if (remain == 0) {
+                        taker.setStatus(OrderStatus.CANCELED);
+                    }
+                }
+                default -> {
+                    return stpCancelTaker(taker, remain, mode);
                 }
             }
+        }
+        return remain;
+    }
 
-            level.totalQty = level.orders.values().stream().map(e -> e.remain).reduce(BigDecimal.ZERO, BigDecimal::add);
-            fireDepthUpdate(price, level.totalQty, makerSide);
+    // 按结算同样的取整（价格 × 数量向上取整）扣成交额；超出时整笔不成交，标记预算用完
+    private boolean spend(long price, long fill) {
+        long cost;
+        try {
+            cost = FixedPoint.mulCeil(price, fill);
+        } catch (ArithmeticException e) {
+            cost = Long.MAX_VALUE;
+        }
+        if (cost > budget) {
+            budget = EXHAUSTED;
+            return false;
+        }
+        budget -= cost;
+        return true;
+    }
 
-            if (level.orders.isEmpty()) {
-                iter.remove();
-                fireDepthUpdate(price, BigDecimal.ZERO, makerSide);
-            }
+    // 从挂单扣减 qty（成交或 STP 递减），维护档位显示 / 隐藏量；扣完出簿，冰山切片用完则补单
+    private void reduce(PriceLevel level, int maker, long qty, MboEventType mboType) {
+        boolean hidden = store.hidden(maker);
+        // 递减扣完整单或冰山切片（随后换新句柄补单）时对旧句柄发 DELETE，数量为撤出的显示量，下游不会留下数量为 0 的挂单
+        boolean deleted = mboType == MboEventType.REDUCE && !hidden && store.display(maker) == qty;
+        if (deleted) {
+            fireMbo(MboEventType.DELETE, maker, 0);
+        }
+        long remain = store.remain(maker) - qty;
+        store.remain(maker, remain);
+        if (hidden) {
+            level.hiddenQty -= qty;
+        } else {
+            store.display(maker, store.display(maker) - qty);
+            level.displayedQty -= qty;
         }
+        if (!deleted) {
+            fireMbo(mboType, maker, qty);
+        }
+        if (remain == 0) {
+            level.unlink(store, maker);
+            detach(maker);
+            store.free(maker);
+        } else if (!hidden && store.display(maker) == 0) {
+            replenish(level, maker);
+        }
+    }
 
-        if (remain.signum() > 0) {
-            addToBook(lo, remain);
-            lo.setStatus(lo.getFilledQuantity().signum() > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.NEW);
-            // 挂单成功也推一次
-            fireDepthUpdate(lo.getPrice(), remain, lo.getSide());
+    // 整笔移出订单簿并回收槽位（撤单、STP 撤旧单），档位为空时由调用方删档并推行情
+    private void removeEntry(int e) {
+        PriceLevel level = levelOf(e);
+        level.unlink(store, e);
+        level.displayedQty -= store.display(e);
+        level.hiddenQty -= store.reserve(e);
+        fireMbo(MboEventType.DELETE, e, 0);
+        detach(e);
+        store.free(e);
+    }
+
+    private void attach(int e) {
+        orderIndex.put(store.orderSeq(e), e);
+        long account = store.accountId(e);
+        if (account != 0) {
+            int head = accountOrders.put(account, e);
+            store.acctNext(e, head);
+            if (head != NIL) store.acctPrev(head, e);
+        }
+    }
+
+    // 出簿时从订单索引和账户链表摘除
+    private void detach(int e) {
+        orderIndex.remove(store.orderSeq(e));
+        long account = store.accountId(e);
+        if (account == 0) {
+            return;
+        }
+        int prev = store.acctPrev(e);
+        int next = store.acctNext(e);
+        if (prev != NIL) {
+            store.acctNext(prev, next);
+        } else if (next != NIL) {
+            accountOrders.put(account, next);
         } else {
-            lo.setStatus(OrderStatus.FILLED);
+            accountOrders.remove(account);
         }
+        if (next != NIL) store.acctPrev(next, prev);
+        store.acctPrev(e, NIL);
+        store.acctNext(e, NIL);
+    }
 
-        return trades;
+    private void stpCancelMaker(int maker, StpMode mode) {
+        report(maker, ExecType.CANCELED, "STP_" + mode.name(), store.remain(maker), 0);
+        removeEntry(maker);
+    }
+
+    private long stpCancelTaker(Order taker, long remain, StpMode mode) {
+        taker.setStatus(OrderStatus.CANCELED);
+        taker.setRejectReason("STP_" + mode.name());
+        report(taker, ExecType.CANCELED, "STP_" + mode.name(), FixedPoint.toBigDecimal(remain), BigDecimal.ZERO);
+        return 0;
+    }
+
+    private void report(Order order, ExecType type, String reason, BigDecimal qty, BigDecimal leaves) {
+        if (executionPublisher != null) {
+            executionPublisher.publishReport(new ExecutionReport(symbol, order.getOrderId(), order.getAccountId(),
+                    order.getSide(), type, reason, qty, leaves, commandMillis()));
+        }
     }
 
-    private boolean wouldSweepFiveLevels(BigDecimal qty, Side side, BigDecimal limit) {
-        var book = side == Side.BUY ? asks : bids;
-        BigDecimal acc = BigDecimal.ZERO;
-        int count = 0;
-        for (BigDecimal p : side == Side.BUY ? book.keySet() : book.descendingKeySet()) {
-            if (count++ >= MAX_LEVELS) break;
-            if (side == Side.BUY && p.compareTo(limit) > 0) break;
-            if (side == Side.SELL && p.compareTo(limit) < 0) break;
-            acc = acc.add(book.get(p).totalQty);
-            if (acc.compareTo(qty) >= 0) return false;
+    // 挂单的回报直接从槽位取字段（需在槽位回收前调用）
+    private void report(int e, ExecType type, String reason, long qty, long leaves) {
+        if (executionPublisher != null) {
+            executionPublisher.publishReport(new ExecutionReport(symbol, orderId(e), store.accountId(e),
+                    store.side(e), type, reason, FixedPoint.toBigDecimal(qty), FixedPoint.toBigDecimal(leaves),
+                    commandMillis()));
+        }
+    }
+
+    // 冰山单补单：从储备切出新切片，换新句柄排到队尾
+    private void replenish(PriceLevel level, int e) {
+        long slice = Math.min(store.peak(e), store.remain(e));
+        store.display(e, slice);
+        level.hiddenQty -= slice;
+        level.displayedQty += slice;
+        level.unlink(store, e);
+        level.append(store, e);
+        store.handle(e, ++handleSeq);
+        fireMbo(MboEventType.ADD, e, 0);
+    }
+
+    /**
+     * 撮合前检查：全部基于累计流动性索引，O(log n)，不遍历也不改动订单簿
+     * 不通过时直接设置订单状态并返回 false
+     */
+    private boolean passesPreTradeChecks(Order order) {
+        Side side = order.getSide();
+        LiquidityIndex opposite = side == Side.BUY ? askLiquidity : bidLiquidity;
+        long qty = FixedPoint.toLong(order.getQuantity()) - FixedPoint.toLong(order.getFilledQuantity());
+        BigDecimal limit = order.isMarketOrder() ? null : order.getPrice();
+        long reachable = opposite.sumUpTo(limit);
+
+        // 价格带：限价不能偏离最新成交价太远（防乌龙指）
+        int band = priceBandBps;
+        if (band > 0 && limit != null && lastPrice != null) {
+            BigDecimal offset = lastPrice.multiply(BigDecimal.valueOf(band, 4));
+            if (limit.compareTo(lastPrice.add(offset)) > 0 || limit.compareTo(lastPrice.subtract(offset)) < 0) {
+                return refuse(order, OrderStatus.REJECTED, "PRICE_OUT_OF_BAND");
+            }
+        }
+
+        // FOK：限价内可成交量不足则整单作废
+        if (order.getTimeInForce() == TimeInForce.FOK && reachable < qty) {
+            return refuse(order, OrderStatus.EXPIRED, "FOK_NOT_FILLABLE");
+        }
+
+        // 档位保护：可成交部分需要吃穿的档位数
+        int levels = maxLevels;
+        if (levels > 0 && Math.min(opposite.levelsUpTo(limit), opposite.levelsToFill(qty)) > levels) {
+            return refuse(order, OrderStatus.REJECTED, "EXCEED_MAX_LEVELS");
+        }
+
+        // 滑点保护：成交价不能偏离对手最优价超过 maxSlippageBps
+        int bps = maxSlippageBps;
+        if (bps > 0 && opposite.levels() > 0) {
+            BigDecimal best = (side == Side.BUY ? asks : bids).firstKey();
+            BigDecimal ratio = BigDecimal.valueOf(side == Side.BUY ? 10_000 + bps : 10_000 - bps, 4);
+            BigDecimal bound = best.multiply(ratio);
+            if (Math.min(qty, reachable) > opposite.sumUpTo(bound)) {
+                return refuse(order, OrderStatus.REJECTED, "EXCEED_MAX_SLIPPAGE");
+            }
         }
         return true;
     }
 
-    private void addToBook(Order order, BigDecimal qty) {
-        var book = order.getSide() == Side.BUY ? bids : asks;
-        PriceLevel level = book.computeIfAbsent(order.getPrice(), k -> new PriceLevel());
-        long ts = System.nanoTime();
+    private boolean refuse(Order order, OrderStatus status, String reason) {
+        log.warn("Order {} {}: {}", order.getOrderId(), status, reason);
+        order.setStatus(status);
+        order.setRejectReason(reason);
+        return false;
+    }
 
-        OrderEntry entry = new OrderEntry(order, ts);
-        entry.remain = qty;
-        entry.level = level;
+    // 下单被拒 / 作废：除了设置状态，再发一条回报，下游（释放冻结等）据此了结这笔订单
+    private void reject(Order order, OrderStatus status, String reason) {
+        refuse(order, status, reason);
+        reportRejected(order);
+    }
 
-        level.orders.put(ts, entry);
-        level.totalQty = level.totalQty.add(qty);
-        orderIndex.put(order.getOrderId(), entry);
+    private void reportRejected(Order order) {
+        BigDecimal qty = order.getQuantity() == null ? null : order.getQuantity().subtract(order.getFilledQuantity());
+        report(order, order.getStatus() == OrderStatus.EXPIRED ? ExecType.EXPIRED : ExecType.REJECTED,
+                order.getRejectReason(), qty, BigDecimal.ZERO);
     }
 
-    public boolean cancelOrder(String orderId) {
-        OrderEntry e = orderIndex.remove(orderId);
-        if (e == null || e.remain.signum() <= 0) return false;
+    public void setPriceBand(int bps) {
+        this.priceBandBps = Math.max(0, bps);
+    }
 
-        e.level.orders.remove(e.ts);
-        e.level.totalQty = e.level.totalQty.subtract(e.remain);
+    public void setDefaultStpMode(StpMode mode) {
+        this.defaultStpMode = mode == null ? StpMode.CANCEL_NEWEST : mode;
+    }
 
-        fireDepthUpdate(e.price, e.level.totalQty, e.order.getSide());
+    /**
+     * 档位 / 滑点保护参数，0 表示关闭
+     */
+    public void setProtection(int maxLevels, int maxSlippageBps) {
+        this.maxLevels = Math.max(0, maxLevels);
+        this.maxSlippageBps = Math.max(0, Math.min(maxSlippageBps, 9_999));
+    }
 
-        if (e.level.orders.isEmpty()) {
-            (e.order.getSide() == Side.BUY ? bids : asks).remove(e.price);
-            fireDepthUpdate(e.price, BigDecimal.ZERO, e.order.getSide());
+    // 剩余数量挂入订单簿，返回所在档位
+    private PriceLevel addToBook(Order order, long qty) {
+        Side side = order.getSide();
+        var book = side == Side.BUY ? bids : asks;
+        PriceLevel level = book.get(order.getPrice());
+        if (level == null) {
+            level = newLevel(order.getPrice(), side);
+            book.put(order.getPrice(), level);
         }
+
+        boolean hidden = order.isHidden();
+        long dq = FixedPoint.toLong(order.getDisplayQuantity());
+        long peak = !hidden && dq > 0 && dq < qty ? dq : 0;
+        long display = hidden ? 0 : peak != 0 ? peak : qty;
+        int e = store.allocate();
+        store.init(e, OrderIds.seqOf(symbol, order.getOrderId()), ++handleSeq, FixedPoint.toLong(order.getPrice()),
+                FixedPoint.toLong(order.getQuantity()), FixedPoint.toLong(order.getFilledQuantity()), qty,
+                display, peak, order.getAccountId(), level.id, side, hidden, order.getStpMode());
+        level.append(store, e);
+        level.displayedQty += display;
+        level.hiddenQty += qty - display;
+        attach(e);
+        fireMbo(MboEventType.ADD, e, 0);
+        return level;
+    }
+
+    // 从槽位还原订单（改价 / 加量重新撮合时用）
+    private Order toOrder(int e) {
+        Order order = new Order();
+        order.setOrderId(orderId(e));
+        order.setSymbol(symbol);
+        order.setSide(store.side(e));
+        order.setType(OrderType.LIMIT);
+        order.setPrice(FixedPoint.toBigDecimal(store.price(e)));
+        order.setQuantity(FixedPoint.toBigDecimal(store.quantity(e)));
+        order.setFilledQuantity(FixedPoint.toBigDecimal(store.filled(e)));
+        order.setHidden(store.hidden(e));
+        order.setDisplayQuantity(store.peak(e) == 0 ? null : FixedPoint.toBigDecimal(store.peak(e)));
+        order.setAccountId(store.accountId(e));
+        order.setStpMode(store.stpMode(e));
+        order.setStatus(store.filled(e) > 0 ? OrderStatus.PARTIALLY_FILLED : OrderStatus.NEW);
+        return order;
+    }
+
+    // 改单目标不在簿上：未触发的条件单不支持改单（回报带账户和剩余量，风控追加的冻结据此退回），其余按未知订单拒
+    private void rejectAmend(String orderId) {
+        Order trigger = triggers.get(orderId);
+        if (trigger != null) {
+            report(trigger, ExecType.AMEND_REJECTED, "ORDER_NOT_RESTING", BigDecimal.ZERO, trigger.getQuantity());
+        } else if (executionPublisher != null) {
+            executionPublisher.publishReport(new ExecutionReport(symbol, orderId, 0, null, ExecType.AMEND_REJECTED,
+                    "UNKNOWN_ORDER", BigDecimal.ZERO, null, commandMillis()));
+        }
+    }
+
+    private int findResting(String orderId) {
+        long seq = OrderIds.seqOf(symbol, orderId);
+        return seq < 0 ? NIL : orderIndex.get(seq);
+    }
+
+    public boolean cancelOrder(String orderId, long time) {
+        commandTime = time;
+        Order trigger = triggers.remove(orderId);
+        if (trigger != null) {
+            trigger.setStatus(OrderStatus.CANCELED);
+            report(trigger, ExecType.CANCELED, "USER", trigger.getQuantity(), BigDecimal.ZERO);
+            endCommand();       // 条件单也在快照里：变更计数要加，停放 / 快照才看得到
+            return true;
+        }
+        int e = findResting(orderId);
+        if (e == NIL) return false;
+
+        report(e, ExecType.CANCELED, "USER", store.remain(e), 0);
+        touch(levelOf(e));
+        removeEntry(e);
+        endCommand();
         return true;
     }
 
-    // getDepth、snapshot 方法保持不变...
+    /**
+     * 改单（cancel-replace 语义，一条指令内完成）：
+     *  - 价格不变且数量减少：原地扣减剩余量和档位量，保留时间优先级
+     *  - 改价或加量：按新参数做前置检查，通过后出簿并按新价格重新撮合 / 排队（失去时间优先级）
+     * newPrice 为 null 表示不改价；newQty 为新的订单总量（含已成交），不大于已成交量时撤掉剩余部分。
+     * accountId 不为 0 时必须是订单所属账户（风控按它冻结，对不上的改单不能生效）。
+     * 返回本条指令产生的成交（含级联激活的条件单成交）；time 为指令的入口时间（纳秒）
+     */
+    public List<Trade> amendOrder(String orderId, long accountId, BigDecimal newPrice, BigDecimal newQty, long time) {
+        commandTime = time;
+        int e = findResting(orderId);
+        if (e == NIL) {
+            rejectAmend(orderId);
+            return List.of();
+        }
+        long remain = store.remain(e);
+        if (accountId != 0 && accountId != store.accountId(e)) {
+            report(e, ExecType.AMEND_REJECTED, "ACCOUNT_MISMATCH", 0, remain);
+            return List.of();
+        }
+        if ((newPrice != null && newPrice.signum() <= 0) || (newQty != null && newQty.signum() <= 0)) {
+            report(e, ExecType.AMEND_REJECTED, "INVALID_AMEND", 0, remain);
+            return List.of();
+        }
+        long price = newPrice == null ? store.price(e) : FixedPoint.toLong(newPrice);
+        long qty = newQty == null ? store.quantity(e) : FixedPoint.toLong(newQty);
+        long leaves = qty - store.filled(e);
+
+        cmdLow = cmdHigh = null;
+        try {
+            if (leaves <= 0) {
+                store.quantity(e, qty);
+                report(e, ExecType.CANCELED, "AMEND_BELOW_FILLED", remain, 0);
+                touch(levelOf(e));
+                removeEntry(e);
+                return List.of();
+            }
+            if (price == store.price(e) && leaves <= remain) {
+                shrink(e, remain - leaves);
+                store.quantity(e, qty);
+                report(e, ExecType.AMENDED, null, qty, leaves);
+                return List.of();
+            }
+
+            Order order = toOrder(e);
+            order.setPrice(FixedPoint.toBigDecimal(price));
+            order.setQuantity(FixedPoint.toBigDecimal(qty));
+            if (!passesPreTradeChecks(order)) {
+                report(e, ExecType.AMEND_REJECTED, order.getRejectReason(), 0, remain);
+                return List.of();
+            }
+            touch(levelOf(e));
+            removeEntry(e);
+            report(order, ExecType.AMENDED, null, order.getQuantity(), FixedPoint.toBigDecimal(leaves));
+            List<Trade> trades = new ArrayList<>(matchLimit(order));
+            activateTriggers(trades);
+            return trades;
+        } finally {
+            endCommand();
+        }
+    }
+
+    // 改单减量：先扣隐藏储备再扣显示量，队列位置不变
+    private void shrink(int e, long cut) {
+        PriceLevel level = levelOf(e);
+        long fromReserve = Math.min(cut, store.reserve(e));
+        long fromDisplay = cut - fromReserve;
+        store.remain(e, store.remain(e) - cut);
+        store.display(e, store.display(e) - fromDisplay);
+        level.hiddenQty -= fromReserve;
+        level.displayedQty -= fromDisplay;
+        if (fromDisplay > 0) {
+            fireMbo(MboEventType.REDUCE, e, fromDisplay);
+        }
+        touch(level);
+    }
+
+    /**
+     * 批量撤单：沿账户链表撤掉该账户在本簿的挂单（side 为 null 表示两侧）以及未触发的条件单。
+     * 每个受影响的档位只推一次行情，整批只发布一次读模型；返回撤掉的订单数
+     */
+    public int cancelAll(long accountId, Side side, String reason, long time) {
+        commandTime = time;
+        if (accountId == 0) {
+            return 0;
+        }
+        int canceled = 0;
+        int e = accountOrders.get(accountId);
+        while (e != NIL) {
+            int next = store.acctNext(e);
+            if (side == null || store.side(e) == side) {
+                report(e, ExecType.CANCELED, reason, store.remain(e), 0);
+                touch(levelOf(e));
+                removeEntry(e);
+                canceled++;
+            }
+            e = next;
+        }
+
+        for (Order order : triggers.removeAccount(accountId, side)) {
+            order.setStatus(OrderStatus.CANCELED);
+            report(order, ExecType.CANCELED, reason, order.getQuantity(), BigDecimal.ZERO);
+            canceled++;
+        }
+        if (canceled > 0) {
+            log.info("{} cancel-all account={} side={} reason={}: {} orders", symbol, accountId, side, reason, canceled);
+        }
+        endCommand();
+        return canceled;
+    }
+
+    /**
+     * 簿中挂单数
+     */
+    public int restingOrderCount() {
+        return store.size();
+    }
+
+    /**
+     * 未触发的条件单数量
+     */
+    public int pendingTriggerCount() {
+        return triggers.size();
+    }
+
+    public BboCache getBbo() {
+        return bbo;
+    }
+
+    /**
+     * 订单簿变更计数（每条指令 +1），任意线程可读
+     */
+    public long changeCount() {
+        return changeCount;
+    }
+
+    /**
+     * 启动时用已落盘的最大成交号续号，保证 tradeId 单调递增
+     */
+    public void seedTradeId(long lastTradeId) {
+        this.tradeSeq = Math.max(tradeSeq, lastTradeId);
+    }
+
+    /**
+     * 最新发布的 Top-N 深度视图（不可变），任意线程可读，不遍历订单簿
+     */
+    public DepthSnapshot getDepthSnapshot() {
+        return depthView.snapshot();
+    }
+
+    // 买盘在前、卖盘在后，各取前 levels 档（最多 VIEW_LEVELS 档）
     public List<DepthLevel> getDepth(int levels) {
+        DepthSnapshot view = depthView.snapshot();
         List<DepthLevel> list = new ArrayList<>();
-        int c = 0;
-        for (var e : bids.entrySet()) { if (++c > levels) break; list.add(new DepthLevel(e.getKey(), e.getValue().totalQty)); }
-        c = 0;
-        for (var e : asks.entrySet()) { if (++c > levels) break; list.add(new DepthLevel(e.getKey(), e.getValue().totalQty)); }
+        list.addAll(view.getBids().subList(0, Math.min(levels, view.getBids().size())));
+        list.addAll(view.getAsks().subList(0, Math.min(levels, view.getAsks().size())));
         return list;
     }
 
+    // ==================== 停放（冷门交易对换出内存）====================
+    // 只由撮合线程调用；编码的是完整 L3 状态（每档显示队列、隐藏队列按原顺序），调回后撮合结果与未停放时一致
+
+    private static final int PARK_MAGIC = 0x50524B32;   // "PRK2"
+    private static final int PARK_ORDER_BYTES = 8 * Long.BYTES + 2;
+    private static final StpMode[] STP_MODES = StpMode.values();
+
+    /**
+     * 把整个订单簿编码成紧凑的二进制（每个挂单 66 字节），返回已 flip 的缓冲
+     * 有未触发条件单的订单簿不停放，调用方需先检查 pendingTriggerCount() == 0
+     */
+    public ByteBuffer park() {
+        if (triggers.size() > 0) {
+            throw new IllegalStateException("Cannot park " + symbol + " with pending triggers");
+        }
+        int bytes = 128 + (bids.size() + asks.size()) * 24 + store.size() * PARK_ORDER_BYTES;
+        ByteBuffer buf = ByteBuffer.allocate(bytes);
+        buf.putInt(PARK_MAGIC);
+        buf.putLong(handleSeq).putLong(mboSeq).putLong(tradeSeq).putLong(changeCount).putLong(lastTradeTime)
+                .putLong(commandTime);
+        buf.putLong(depthView.snapshot().getVersion());
+        putDecimal(buf, lastPrice);
+        putDecimal(buf, lastQty);
+        buf.putInt(maxLevels).putInt(maxSlippageBps).putInt(priceBandBps).put((byte) defaultStpMode.ordinal());
+        parkSide(buf, bids);
+        parkSide(buf, asks);
+        return buf.flip();
+    }
+
+    private void parkSide(ByteBuffer buf, NavigableMap<BigDecimal, PriceLevel> book) {
+        buf.putInt(book.size());
+        for (PriceLevel level : book.values()) {
+            putDecimal(buf, level.price);
+            int countAt = buf.position();
+            buf.putInt(0);
+            int n = parkQueue(buf, level.head) + parkQueue(buf, level.hiddenHead);
+            buf.putInt(countAt, n);
+        }
+    }
+
+    private int parkQueue(ByteBuffer buf, int e) {
+        int n = 0;
+        for (; e != NIL; e = store.next(e), n++) {
+            buf.putLong(store.orderSeq(e)).putLong(store.handle(e)).putLong(store.quantity(e))
+                    .putLong(store.filled(e)).putLong(store.remain(e)).putLong(store.display(e))
+                    .putLong(store.peak(e)).putLong(store.accountId(e));
+            StpMode stp = store.stpMode(e);
+            buf.put((byte) (store.hidden(e) ? 1 : 0)).put((byte) (stp == null ? 0 : stp.ordinal() + 1));
+        }
+        return n;
+    }
+
+    /**
+     * 从 park() 的编码恢复到这个新建的空订单簿：不推行情、不发逐笔委托，深度视图沿用停放前的版本号
+     */
+    public void restore(ByteBuffer buf) {
+        if (buf.getInt() != PARK_MAGIC) {
+            throw new IllegalStateException("Bad parked book image for " + symbol);
+        }
+        handleSeq = buf.getLong();
+        mboSeq = buf.getLong();
+        tradeSeq = buf.getLong();
+        changeCount = buf.getLong();
+        lastTradeTime = buf.getLong();
+        commandTime = buf.getLong();
+        long depthVersion = buf.getLong();
+        lastPrice = getDecimal(buf);
+        lastQty = getDecimal(buf);
+        maxLevels = buf.getInt();
+        maxSlippageBps = buf.getInt();
+        priceBandBps = buf.getInt();
+        defaultStpMode = STP_MODES[buf.get()];
+        restoreSide(buf, Side.BUY);
+        restoreSide(buf, Side.SELL);
+        depthView.restore(depthVersion, commandMillis());
+        refreshBbo();
+    }
+
+    private void restoreSide(ByteBuffer buf, Side side) {
+        boolean isBid = side == Side.BUY;
+        var book = isBid ? bids : asks;
+        for (int levels = buf.getInt(); levels > 0; levels--) {
+            BigDecimal price = getDecimal(buf);
+            long priceUnits = FixedPoint.toLong(price);
+            PriceLevel level = newLevel(price, side);
+            book.put(price, level);
+            for (int n = buf.getInt(); n > 0; n--) {
+                long seq = buf.getLong(), handle = buf.getLong(), qty = buf.getLong(), filled = buf.getLong();
+                long remain = buf.getLong(), display = buf.getLong(), peak = buf.getLong(), account = buf.getLong();
+                boolean hidden = buf.get() != 0;
+                int stp = buf.get();
+                int e = store.allocate();
+                store.init(e, seq, handle, priceUnits, qty, filled, remain, display, peak, account, level.id, side,
+                        hidden, stp == 0 ? null : STP_MODES[stp - 1]);
+                level.append(store, e);
+                level.displayedQty += display;
+                level.hiddenQty += remain - display;
+                attach(e);
+            }
+            level.publishedQty = level.displayedQty;
+            (isBid ? bidLiquidity : askLiquidity).update(price, level.totalQty());
+            depthView.onLevel(isBid, price, level.shownQty());
+        }
+    }
+
+    /**
+     * 簿中有挂单的账户（升序去重），停放期间据此判断批量撤单是否需要调回订单簿
+     */
+    public long[] restingAccounts() {
+        long[] accounts = new long[store.size()];
+        int n = 0;
+        for (var book : List.of(bids, asks)) {
+            for (PriceLevel level : book.values()) {
+                for (int e = level.head; e != NIL; e = store.next(e)) accounts[n++] = store.accountId(e);
+                for (int e = level.hiddenHead; e != NIL; e = store.next(e)) accounts[n++] = store.accountId(e);
+            }
+        }
+        Arrays.sort(accounts, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (accounts[i] != 0 && (distinct == 0 || accounts[distinct - 1] != accounts[i])) {
+                accounts[distinct++] = accounts[i];
+            }
+        }
+        return Arrays.copyOf(accounts, distinct);
+    }
+
+    // 价格按原始 scale 保存（档位键对外展示时保持下单时的写法），null 用 scale = MIN_VALUE 表示
+    private static void putDecimal(ByteBuffer buf, BigDecimal value) {
+        if (value == null) {
+            buf.putInt(Integer.MIN_VALUE).putLong(0);
+        } else {
+            buf.putInt(value.scale()).putLong(value.unscaledValue().longValueExact());
+        }
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buf) {
+        int scale = buf.getInt();
+        long unscaled = buf.getLong();
+        return scale == Integer.MIN_VALUE ? null : BigDecimal.valueOf(unscaled, scale);
+    }
+
     public List<Map.Entry<BigDecimal, BigDecimal>> getBidsForSnapshot() {
         return bids.entrySet().stream()
-                .map(e -> Map.entry(e.getKey(), e.getValue().totalQty))
+                .map(e -> Map.entry(e.getKey(), FixedPoint.toBigDecimal(e.getValue().totalQty())))
                 .toList();
     }
 
     public List<Map.Entry<BigDecimal, BigDecimal>> getAsksForSnapshot() {
         return asks.entrySet().stream()
-                .map(e -> Map.entry(e.getKey(), e.getValue().totalQty))
+                .map(e -> Map.entry(e.getKey(), FixedPoint.toBigDecimal(e.getValue().totalQty())))
                 .toList();
     }
 }
\ No newline at end of file
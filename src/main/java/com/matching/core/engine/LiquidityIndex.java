@@ -0,0 +1,202 @@
+package com.matching.core.engine;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * 单侧订单簿的累计流动性索引（带子树和的 Treap，按该侧优先顺序排序：买盘降序、卖盘升序）
+ * 每次档位数量变化 O(log n) 更新，以下查询均为 O(log n)，不遍历也不修改订单簿：
+ * <ul>
+ *   <li>{@link #sumUpTo}：价格不劣于 X 的累计数量（FOK、滑点保护）</li>
+ *   <li>{@link #levelsUpTo}：价格不劣于 X 的档位数</li>
+ *   <li>{@link #levelsToFill}：吃完 qty 需要的最少档位数（档位保护）</li>
+ * </ul>
+ * 数量全部是定点 long（FixedPoint），更新和查询路径上不分配 BigDecimal
+ * 只由撮合线程访问
+ */
+final class LiquidityIndex {
+
+    private static final class Node {
+        final BigDecimal price;
+        final int priority;
+        long qty;
+        long sum;           // 子树数量和
+        int size;           // 子树档位数
+        Node left;
+        Node right;
+
+        Node(BigDecimal price, long qty, int priority) {
+            this.price = price;
+            this.qty = qty;
+            this.sum = qty;
+            this.size = 1;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<BigDecimal> order;
+    private Node root;
+    private int seed = 0x9E3779B9;
+
+    LiquidityIndex(Comparator<BigDecimal> order) {
+        this.order = order;
+    }
+
+    /**
+     * 设置某档的总数量，qty 为 0 时删除该档
+     */
+    void update(BigDecimal price, long qty) {
+        if (qty <= 0) {
+            root = remove(root, price);
+        } else {
+            root = upsert(root, price, qty);
+        }
+    }
+
+    long total() {
+        return root == null ? 0 : root.sum;
+    }
+
+    int levels() {
+        return size(root);
+    }
+
+    /**
+     * 价格不劣于 limit 的累计数量（limit 为 null 表示不限价）
+     */
+    long sumUpTo(BigDecimal limit) {
+        if (limit == null) return total();
+        long acc = 0;
+        Node n = root;
+        while (n != null) {
+            if (order.compare(n.price, limit) <= 0) {
+                acc += sum(n.left) + n.qty;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return acc;
+    }
+
+    /**
+     * 价格不劣于 limit 的档位数（limit 为 null 表示全部）
+     */
+    int levelsUpTo(BigDecimal limit) {
+        if (limit == null) return levels();
+        int acc = 0;
+        Node n = root;
+        while (n != null) {
+            if (order.compare(n.price, limit) <= 0) {
+                acc += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return acc;
+    }
+
+    /**
+     * 从最优档开始吃完 qty 需要的档位数；全簿都不够时返回 levels() + 1
+     */
+    int levelsToFill(long qty) {
+        if (total() < qty) return levels() + 1;
+        int acc = 0;
+        long need = qty;
+        Node n = root;
+        while (n != null) {
+            long leftSum = sum(n.left);
+            if (leftSum >= need) {
+                n = n.left;
+                continue;
+            }
+            need -= leftSum;
+            acc += size(n.left) + 1;
+            if (n.qty >= need) {
+                return acc;
+            }
+            need -= n.qty;
+            n = n.right;
+        }
+        return acc;
+    }
+
+    // ==================== Treap 维护 ====================
+
+    private Node upsert(Node n, BigDecimal price, long qty) {
+        if (n == null) return new Node(price, qty, nextPriority());
+        int c = order.compare(price, n.price);
+        if (c == 0) {
+            n.qty = qty;
+        } else if (c < 0) {
+            n.left = upsert(n.left, price, qty);
+            if (n.left.priority > n.priority) n = rotateRight(n);
+        } else {
+            n.right = upsert(n.right, price, qty);
+            if (n.right.priority > n.priority) n = rotateLeft(n);
+        }
+        return pull(n);
+    }
+
+    private Node remove(Node n, BigDecimal price) {
+        if (n == null) return null;
+        int c = order.compare(price, n.price);
+        if (c < 0) {
+            n.left = remove(n.left, price);
+        } else if (c > 0) {
+            n.right = remove(n.right, price);
+        } else {
+            return merge(n.left, n.right);
+        }
+        return pull(n);
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            return pull(a);
+        }
+        b.left = merge(a, b.left);
+        return pull(b);
+    }
+
+    private Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = pull(n);
+        return l;
+    }
+
+    private Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = pull(n);
+        return r;
+    }
+
+    private static Node pull(Node n) {
+        n.size = size(n.left) + size(n.right) + 1;
+        n.sum = sum(n.left) + sum(n.right) + n.qty;
+        return n;
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static long sum(Node n) {
+        return n == null ? 0 : n.sum;
+    }
+
+    private int nextPriority() {
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+}
@@ -1,56 +1,114 @@
 package com.matching.core.engine;
 
 import com.matching.core.domain.DepthLevel;
+import com.matching.core.domain.DepthSnapshot;
 import com.matching.core.domain.Order;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
 import com.matching.core.domain.Trade;
+import com.matching.core.persistence.CheckpointScheduler;
 import com.matching.core.persistence.OrderBookPersistence;
+import com.matching.core.persistence.ParkedBookStore;
+import com.matching.disruptor.ExecutionPublisher;
 import com.matching.disruptor.MarketDataPublisher;
+import com.matching.disruptor.MboPublisher;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Slf4j
 public class MatchingEngine {
     @Getter
     private final String symbol;                    // 关键：这个引擎只管这个 symbol
-    private final L3OrderBook orderBook;
-    private final OrderBookPersistence persistence;
     private final MarketDataPublisher publisher;
+    private final MboPublisher mboPublisher;
+    private final ExecutionPublisher executionPublisher;
+    private final boolean offHeapOrders;
+    private final CheckpointScheduler checkpoints;
+    private final BboCache bbo;                     // 停放 / 调回都沿用同一个，读方不感知
+
+    // 停放时置 null，订单簿只留在磁盘上；只有撮合线程写
+    private volatile L3OrderBook orderBook;
+    private OrderBookPersistence persistence;
+    // 停放期间的只读状态：订单簿不再变化，深度视图 / 变更计数 / 有挂单的账户都停在停放那一刻
+    private volatile DepthSnapshot parkedDepth;
+    private volatile long parkedChangeCount;
+    private long[] parkedAccounts;
 
 
     public MatchingEngine(String symbol,MarketDataPublisher publisher) throws IOException {
+        this(symbol, publisher, null, null);
+    }
+
+    public MatchingEngine(String symbol, MarketDataPublisher publisher, MboPublisher mboPublisher,
+                          ExecutionPublisher executionPublisher) throws IOException {
+        this(symbol, publisher, mboPublisher, executionPublisher, false);
+    }
+
+    public MatchingEngine(String symbol, MarketDataPublisher publisher, MboPublisher mboPublisher,
+                          ExecutionPublisher executionPublisher, boolean offHeapOrders) throws IOException {
+        this(symbol, publisher, mboPublisher, executionPublisher, offHeapOrders, CheckpointScheduler.standalone());
+    }
+
+    public MatchingEngine(String symbol, MarketDataPublisher publisher, MboPublisher mboPublisher,
+                          ExecutionPublisher executionPublisher, boolean offHeapOrders,
+                          CheckpointScheduler checkpoints) throws IOException {
         this.symbol = symbol;
-        this.orderBook = new L3OrderBook(symbol,publisher);
-        this.persistence = new OrderBookPersistence(orderBook, symbol);
         this.publisher = publisher;
+        this.mboPublisher = mboPublisher;
+        this.executionPublisher = executionPublisher;
+        this.offHeapOrders = offHeapOrders;
+        this.checkpoints = checkpoints;
+        this.bbo = new BboCache(symbol);
+        this.orderBook = new L3OrderBook(symbol, publisher, mboPublisher, executionPublisher, offHeapOrders, bbo);
+        this.persistence = new OrderBookPersistence(orderBook, symbol, checkpoints);
     }
 
-
+    // 所有会改动订单簿的入口都经过这里：停放中就先从磁盘调回
+    private L3OrderBook book() {
+        L3OrderBook book = orderBook;
+        return book != null ? book : faultIn();
+    }
 
     /**
      * 提交订单（统一入口）
+     * 订单号和时间戳都由入口 / 定序器给定（order.timestamp 为入口时间，纳秒），撮合线程不取号、不读时钟，回放结果一致
      */
     public List<Trade> submitOrder(Order order) {
         // 强制绑定 symbol，防止用户传错
         order.setSymbol(symbol);
-        if (order.getOrderId() == null || order.getOrderId().isBlank()) {
-            order.setOrderId(symbol + "_" + System.nanoTime());
-        }
+        return book().processOrder(order);
+    }
 
-        // 自动打时间戳（价格时间优先级关键！）
-        order.setTimestamp(System.nanoTime());
+    /**
+     * 撤单（推荐用 orderId 撤单，这是生产唯一正确方式）
+     */
+    public boolean cancelOrder(String orderId, long time) {
+        return book().cancelOrder(orderId, time);
+    }
 
-        return orderBook.processOrder(order);
+    /**
+     * 改单：同价减量保留时间优先级，改价 / 加量在同一指令内出簿重排；accountId 为 0 时不核对账户
+     */
+    public List<Trade> amendOrder(String orderId, long accountId, BigDecimal newPrice, BigDecimal newQty, long time) {
+        return book().amendOrder(orderId, accountId, newPrice, newQty, time);
     }
 
     /**
-     * 撤单（推荐用 orderId 撤单，这是生产唯一正确方式）
+     * 批量撤单：撤该账户在本交易对的全部挂单和条件单，side 为 null 表示两侧
      */
-    public boolean cancelOrder(String orderId) {
-        return orderBook.cancelOrder(orderId);
+    public int cancelAll(long accountId, Side side, String reason, long time) {
+        // 停放的订单簿没有条件单；该账户在簿中没有挂单就不必调回（断线批量撤单会扫到大量冷门交易对）
+        if (orderBook == null && Arrays.binarySearch(parkedAccounts, accountId) < 0) {
+            return 0;
+        }
+        return book().cancelAll(accountId, side, reason, time);
     }
 
     /**
@@ -63,7 +121,123 @@ public class MatchingEngine {
 
     // ==================== 行情接口（给 WebSocket 推送）===================
     public List<DepthLevel> getDepth(int levels) {
-        return orderBook.getDepth(levels);
+        L3OrderBook book = orderBook;
+        if (book != null) {
+            return book.getDepth(levels);
+        }
+        DepthSnapshot view = parkedDepth;
+        List<DepthLevel> list = new ArrayList<>(view.getBids().subList(0, Math.min(levels, view.getBids().size())));
+        list.addAll(view.getAsks().subList(0, Math.min(levels, view.getAsks().size())));
+        return list;
+    }
+
+    /**
+     * 带版本号的 Top-N 深度视图，REST 查询用
+     */
+    public DepthSnapshot getDepthSnapshot() {
+        L3OrderBook book = orderBook;
+        return book != null ? book.getDepthSnapshot() : parkedDepth;
+    }
+
+    public void setProtection(int maxLevels, int maxSlippageBps) {
+        book().setProtection(maxLevels, maxSlippageBps);
+    }
+
+    public void setPriceBand(int bps) {
+        book().setPriceBand(bps);
+    }
+
+    public void setDefaultStpMode(StpMode mode) {
+        book().setDefaultStpMode(mode);
+    }
+
+    public void seedTradeId(long lastTradeId) {
+        book().seedTradeId(lastTradeId);
+    }
+
+    /**
+     * 最优买卖价缓存，任意线程可无锁读取
+     */
+    public BboCache getBbo() {
+        return bbo;
+    }
+
+    /**
+     * 订单簿变更计数，任意线程可读；停放期间返回停放时的值
+     */
+    public long changeCount() {
+        L3OrderBook book = orderBook;
+        return book != null ? book.changeCount() : parkedChangeCount;
+    }
+
+    public int restingOrderCount() {
+        L3OrderBook book = orderBook;
+        return book != null ? book.restingOrderCount() : 0;
+    }
+
+    public boolean isParked() {
+        return orderBook == null;
+    }
+
+    /**
+     * 停放：把订单簿写到磁盘并释放内存，只在撮合线程调用
+     * 从发起停放到执行之间订单簿有变化（expectedChangeCount 对不上）或有未触发条件单时不停放
+     */
+    public boolean park(long expectedChangeCount) {
+        L3OrderBook book = orderBook;
+        if (book == null || book.changeCount() != expectedChangeCount || book.pendingTriggerCount() > 0) {
+            return false;
+        }
+        int orders = book.restingOrderCount();
+        try {
+            ParkedBookStore.write(symbol, book.park());
+        } catch (IOException e) {
+            log.warn("Park {} failed, keeping book in memory: {}", symbol, e.toString());
+            return false;
+        }
+        persistence.shutdown();
+        persistence = null;
+        parkedAccounts = book.restingAccounts();
+        parkedChangeCount = book.changeCount();
+        parkedDepth = book.getDepthSnapshot();
+        orderBook = null;
+        MatchingEngineManager.recordPark();
+        log.info("Parked {} ({} resting orders)", symbol, orders);
+        return true;
+    }
+
+    // 调回：读停放文件重建订单簿，耗时与挂单数成正比（停放时按挂单数设了上限）
+    private L3OrderBook faultIn() {
+        long start = System.nanoTime();
+        try {
+            L3OrderBook book = new L3OrderBook(symbol, publisher, mboPublisher, executionPublisher, offHeapOrders, bbo);
+            book.restore(ParkedBookStore.read(symbol));
+            persistence = new OrderBookPersistence(book, symbol, checkpoints);
+            ParkedBookStore.delete(symbol);
+            orderBook = book;
+            parkedDepth = null;
+            parkedAccounts = null;
+            long nanos = System.nanoTime() - start;
+            MatchingEngineManager.recordFaultIn(nanos);
+            log.info("Faulted in {} ({} resting orders) in {} µs", symbol, book.restingOrderCount(), nanos / 1_000);
+            return book;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to fault in parked book " + symbol, e);
+        }
+    }
+
+    /**
+     * 下架时调用：取消快照任务、关闭 WAL，删掉停放文件
+     */
+    public void shutdown() {
+        if (persistence != null) {
+            persistence.shutdown();
+        }
+        try {
+            ParkedBookStore.delete(symbol);
+        } catch (IOException e) {
+            log.warn("Failed to delete parked book {}: {}", symbol, e.toString());
+        }
     }
 
 }
\ No newline at end of file
@@ -1,57 +1,171 @@
 package com.matching.core.engine;
 
+import com.matching.core.domain.Instrument;
+import com.matching.core.domain.StpMode;
+import com.matching.core.persistence.CheckpointScheduler;
+import com.matching.core.persistence.TradeStore;
+import com.matching.disruptor.ExecutionPublisher;
 import com.matching.disruptor.MarketDataPublisher;
+import com.matching.disruptor.MboPublisher;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 @RequiredArgsConstructor
 public class MatchingEngineManager {
 
-    private static final ConcurrentHashMap<String, MatchingEngine> engines = new ConcurrentHashMap<>();
+    // 按交易对 id 下标的扁平数组，撮合热路径只做一次数组访问；只有注册过的交易对才会建引擎
+    private static volatile MatchingEngine[] engines = new MatchingEngine[0];
+
+    // 冷门订单簿停放 / 调回统计（调回发生在撮合线程上，耗时直接计入那条指令的延迟）
+    private static final LongAdder parks = new LongAdder();
+    private static final LongAdder faultIns = new LongAdder();
+    private static final LongAdder faultInNanos = new LongAdder();
+    private static final AtomicLong maxFaultInNanos = new AtomicLong();
 
     private static ApplicationContext context;
+    private static InstrumentRegistry registry;
 
     @Autowired
     public void setApplicationContext(ApplicationContext ctx) {
         context = ctx;
     }
 
+    @Autowired
+    public void setInstrumentRegistry(InstrumentRegistry instrumentRegistry) {
+        registry = instrumentRegistry;
+    }
 
-    public static MatchingEngine getEngine(String symbol) {
-        return engines.computeIfAbsent(symbol, s -> {
-            try {
-                MarketDataPublisher publisher = context.getBean(MarketDataPublisher.class);
-                return new MatchingEngine(s, publisher);
-            } catch (Exception e) {  // 捕获所有异常
-                throw new RuntimeException("Failed to create engine for " + s, e);
+
+    public static MatchingEngine getEngine(int instrumentId) {
+        MatchingEngine[] current = engines;
+        MatchingEngine engine = instrumentId < current.length ? current[instrumentId] : null;
+        return engine != null ? engine : createEngine(instrumentId);
+    }
+
+    // 只查询不创建（行情查询用，避免随便一个 symbol 就建出引擎）
+    public static MatchingEngine findEngine(String symbol) {
+        Instrument instrument = registry == null ? null : registry.find(symbol);
+        return instrument == null ? null : findEngine(instrument.getId());
+    }
+
+    public static MatchingEngine findEngine(int instrumentId) {
+        MatchingEngine[] current = engines;
+        return instrumentId >= 0 && instrumentId < current.length ? current[instrumentId] : null;
+    }
+
+    // 引擎数组长度（按 id 遍历用）
+    public static int engineSlots() {
+        return engines.length;
+    }
+
+    public static Collection<MatchingEngine> getEngines() {
+        List<MatchingEngine> list = new ArrayList<>();
+        for (MatchingEngine engine : engines) {
+            if (engine != null) {
+                list.add(engine);
             }
-        });
+        }
+        return list;
     }
 
-    // 上新交易对时调用
+    // 上新交易对时调用（交易对需已在 InstrumentRegistry 注册）
 
     public static MatchingEngine createEngine(String symbol) {
-        return engines.computeIfAbsent(symbol, s -> {
-            try {
-                MarketDataPublisher publisher = context.getBean(MarketDataPublisher.class);
-                return new MatchingEngine(s, publisher);
-            } catch (Exception e) {  // 捕获所有异常
-                throw new RuntimeException("Failed to create engine for " + s, e);
-            }
-        });
+        Instrument instrument = registry.find(symbol);
+        if (instrument == null) {
+            throw new IllegalArgumentException("Unknown symbol: " + symbol);
+        }
+        return getEngine(instrument.getId());
+    }
+
+    // 建引擎很少发生，加锁后写时复制数组，读路径不受影响
+    private static synchronized MatchingEngine createEngine(int instrumentId) {
+        MatchingEngine[] current = engines;
+        if (instrumentId < current.length && current[instrumentId] != null) {
+            return current[instrumentId];
+        }
+        Instrument instrument = registry.get(instrumentId);
+        if (instrument == null) {
+            throw new IllegalArgumentException("Unknown instrument id: " + instrumentId);
+        }
+        MatchingEngine engine = newEngine(instrument);
+        MatchingEngine[] next = Arrays.copyOf(current, Math.max(current.length, registry.size()));
+        next[instrumentId] = engine;
+        engines = next;
+        return engine;
     }
 
+    private static MatchingEngine newEngine(Instrument instrument) {
+        String symbol = instrument.getSymbol();
+        try {
+            MarketDataPublisher publisher = context.getBean(MarketDataPublisher.class);
+            MboPublisher mboPublisher = context.getBeanProvider(MboPublisher.class).getIfAvailable();
+            ExecutionPublisher executionPublisher = context.getBean(ExecutionPublisher.class);
+            boolean offHeapOrders = context.getEnvironment().getProperty("app.book.off-heap", Boolean.class, false);
+            MatchingEngine engine = new MatchingEngine(symbol, publisher, mboPublisher, executionPublisher, offHeapOrders,
+                    context.getBean(CheckpointScheduler.class));
+            engine.seedTradeId(context.getBean(TradeStore.class).lastTradeId(symbol));
+            engine.setProtection(
+                    context.getEnvironment().getProperty("app.protection.max-levels", Integer.class, L3OrderBook.DEFAULT_MAX_LEVELS),
+                    context.getEnvironment().getProperty("app.protection.max-slippage-bps", Integer.class, 0));
+            engine.setDefaultStpMode(
+                    context.getEnvironment().getProperty("app.stp.default-mode", StpMode.class, StpMode.CANCEL_NEWEST));
+            engine.setPriceBand(instrument.getPriceBandBps());
+            return engine;
+        } catch (Exception e) {  // 捕获所有异常
+            throw new RuntimeException("Failed to create engine for " + symbol, e);
+        }
+    }
+
+    static void recordPark() {
+        parks.increment();
+    }
+
+    static void recordFaultIn(long nanos) {
+        faultIns.increment();
+        faultInNanos.add(nanos);
+        maxFaultInNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public static long parkCount() {
+        return parks.sum();
+    }
+
+    public static long faultInCount() {
+        return faultIns.sum();
+    }
+
+    public static long faultInAvgMicros() {
+        long n = faultIns.sum();
+        return n == 0 ? 0 : faultInNanos.sum() / n / 1_000;
+    }
+
+    public static long faultInMaxMicros() {
+        return maxFaultInNanos.get() / 1_000;
+    }
 
     // 下架交易对时调用
-    public static void removeEngine(String symbol) {
-        MatchingEngine engine = engines.remove(symbol);
-        if (engine != null) {
-            engines.remove(symbol);
+    public static synchronized void removeEngine(String symbol) {
+        Instrument instrument = registry.find(symbol);
+        if (instrument == null || instrument.getId() >= engines.length) {
+            return;
+        }
+        MatchingEngine[] next = engines.clone();
+        MatchingEngine removed = next[instrument.getId()];
+        next[instrument.getId()] = null;
+        engines = next;
+        if (removed != null) {
+            removed.shutdown();
         }
     }
 }
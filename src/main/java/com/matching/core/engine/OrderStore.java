@@ -0,0 +1,262 @@
+package com.matching.core.engine;
+
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 挂单槽位存储：每个挂单占一个固定布局的 96 字节槽位，堆上只留 int 槽位号
+ * 槽位按块分配（每块 16384 个），块可以是堆内 byte[]（heap）或直接内存（off-heap），
+ * 两种后端布局完全相同 —— 订单再多，GC 看到的也只是几十个大块，标记时间不随簿深增长；
+ * 块内连续，后续做快照可以整块写盘
+ * 空闲槽位用 NEXT 字段串成侵入式空闲链表，分配 / 释放 O(1)
+ * 只由撮合线程访问
+ */
+final class OrderStore {
+    static final int NIL = -1;
+
+    // ==================== 槽位布局（字节偏移）====================
+    private static final int ORDER_SEQ = 0;    // 订单号序号，订单号 = {symbol}_{序号}
+    private static final int HANDLE = 8;       // 对外挂单句柄（冰山补单换新）
+    private static final int PRICE = 16;       // 以下数量 / 价格均为 FixedPoint 定点
+    private static final int QUANTITY = 24;    // 订单总量（含已成交）
+    private static final int FILLED = 32;
+    private static final int REMAIN = 40;      // 簿中剩余总量
+    private static final int DISPLAY = 48;     // 当前显示量，隐藏单恒为 0
+    private static final int PEAK = 56;        // 冰山单每次显示的数量，0 表示非冰山
+    private static final int ACCOUNT = 64;
+    private static final int PREV = 72;        // 档位队列
+    private static final int NEXT = 76;
+    private static final int ACCT_PREV = 80;   // 同账户挂单链表
+    private static final int ACCT_NEXT = 84;
+    private static final int LEVEL = 88;       // 所在档位 id
+    private static final int FLAGS = 92;       // bit0 卖单，bit1 隐藏单，bit8~15 自成交预防模式（序号 + 1，0 = 默认）
+    static final int SLOT_SIZE = 96;
+
+    private static final int FLAG_SELL = 1;
+    private static final int FLAG_HIDDEN = 2;
+    private static final int STP_SHIFT = 8;
+    private static final StpMode[] STP_MODES = StpMode.values();
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+
+    private final boolean direct;
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private int chunkCount;
+    private int highWater;          // 从未分配过的第一个槽位
+    private int freeHead = NIL;
+    private int live;
+
+    private OrderStore(boolean direct) {
+        this.direct = direct;
+    }
+
+    static OrderStore heap() {
+        return new OrderStore(false);
+    }
+
+    static OrderStore offHeap() {
+        return new OrderStore(true);
+    }
+
+    boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 取一个空槽位（内容未清零，调用方负责写全字段）
+     */
+    int allocate() {
+        live++;
+        int slot = freeHead;
+        if (slot != NIL) {
+            freeHead = getInt(slot, NEXT);
+            return slot;
+        }
+        if (highWater == chunkCount << CHUNK_SHIFT) {
+            addChunk();
+        }
+        return highWater++;
+    }
+
+    void free(int slot) {
+        live--;
+        putInt(slot, NEXT, freeHead);
+        freeHead = slot;
+    }
+
+    // 在用槽位数
+    int size() {
+        return live;
+    }
+
+    // 已申请的内存（字节）
+    long reservedBytes() {
+        return (long) chunkCount * CHUNK_SLOTS * SLOT_SIZE;
+    }
+
+    private void addChunk() {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        int bytes = CHUNK_SLOTS * SLOT_SIZE;
+        ByteBuffer chunk = direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        chunks[chunkCount++] = chunk.order(ByteOrder.nativeOrder());
+    }
+
+    private long getLong(int slot, int field) {
+        return chunks[slot >>> CHUNK_SHIFT].getLong((slot & CHUNK_MASK) * SLOT_SIZE + field);
+    }
+
+    private void putLong(int slot, int field, long value) {
+        chunks[slot >>> CHUNK_SHIFT].putLong((slot & CHUNK_MASK) * SLOT_SIZE + field, value);
+    }
+
+    private int getInt(int slot, int field) {
+        return chunks[slot >>> CHUNK_SHIFT].getInt((slot & CHUNK_MASK) * SLOT_SIZE + field);
+    }
+
+    private void putInt(int slot, int field, int value) {
+        chunks[slot >>> CHUNK_SHIFT].putInt((slot & CHUNK_MASK) * SLOT_SIZE + field, value);
+    }
+
+    /**
+     * 写入一个新挂单的全部字段，队列 / 账户链表指针置空
+     */
+    void init(int slot, long orderSeq, long handle, long price, long quantity, long filled, long remain,
+              long display, long peak, long accountId, int level, Side side, boolean hidden, StpMode stpMode) {
+        putLong(slot, ORDER_SEQ, orderSeq);
+        putLong(slot, HANDLE, handle);
+        putLong(slot, PRICE, price);
+        putLong(slot, QUANTITY, quantity);
+        putLong(slot, FILLED, filled);
+        putLong(slot, REMAIN, remain);
+        putLong(slot, DISPLAY, display);
+        putLong(slot, PEAK, peak);
+        putLong(slot, ACCOUNT, accountId);
+        putInt(slot, PREV, NIL);
+        putInt(slot, NEXT, NIL);
+        putInt(slot, ACCT_PREV, NIL);
+        putInt(slot, ACCT_NEXT, NIL);
+        putInt(slot, LEVEL, level);
+        int flags = (side == Side.SELL ? FLAG_SELL : 0) | (hidden ? FLAG_HIDDEN : 0)
+                | (stpMode == null ? 0 : (stpMode.ordinal() + 1) << STP_SHIFT);
+        putInt(slot, FLAGS, flags);
+    }
+
+    // ==================== 字段访问 ====================
+
+    long orderSeq(int slot) {
+        return getLong(slot, ORDER_SEQ);
+    }
+
+    long handle(int slot) {
+        return getLong(slot, HANDLE);
+    }
+
+    void handle(int slot, long handle) {
+        putLong(slot, HANDLE, handle);
+    }
+
+    long price(int slot) {
+        return getLong(slot, PRICE);
+    }
+
+    long quantity(int slot) {
+        return getLong(slot, QUANTITY);
+    }
+
+    void quantity(int slot, long quantity) {
+        putLong(slot, QUANTITY, quantity);
+    }
+
+    long filled(int slot) {
+        return getLong(slot, FILLED);
+    }
+
+    void filled(int slot, long filled) {
+        putLong(slot, FILLED, filled);
+    }
+
+    long remain(int slot) {
+        return getLong(slot, REMAIN);
+    }
+
+    void remain(int slot, long remain) {
+        putLong(slot, REMAIN, remain);
+    }
+
+    long display(int slot) {
+        return getLong(slot, DISPLAY);
+    }
+
+    void display(int slot, long display) {
+        putLong(slot, DISPLAY, display);
+    }
+
+    long peak(int slot) {
+        return getLong(slot, PEAK);
+    }
+
+    long reserve(int slot) {
+        return remain(slot) - display(slot);
+    }
+
+    long accountId(int slot) {
+        return getLong(slot, ACCOUNT);
+    }
+
+    int prev(int slot) {
+        return getInt(slot, PREV);
+    }
+
+    void prev(int slot, int prev) {
+        putInt(slot, PREV, prev);
+    }
+
+    int next(int slot) {
+        return getInt(slot, NEXT);
+    }
+
+    void next(int slot, int next) {
+        putInt(slot, NEXT, next);
+    }
+
+    int acctPrev(int slot) {
+        return getInt(slot, ACCT_PREV);
+    }
+
+    void acctPrev(int slot, int prev) {
+        putInt(slot, ACCT_PREV, prev);
+    }
+
+    int acctNext(int slot) {
+        return getInt(slot, ACCT_NEXT);
+    }
+
+    void acctNext(int slot, int next) {
+        putInt(slot, ACCT_NEXT, next);
+    }
+
+    int level(int slot) {
+        return getInt(slot, LEVEL);
+    }
+
+    Side side(int slot) {
+        return (getInt(slot, FLAGS) & FLAG_SELL) != 0 ? Side.SELL : Side.BUY;
+    }
+
+    boolean hidden(int slot) {
+        return (getInt(slot, FLAGS) & FLAG_HIDDEN) != 0;
+    }
+
+    StpMode stpMode(int slot) {
+        int mode = (getInt(slot, FLAGS) >>> STP_SHIFT) & 0xFF;
+        return mode == 0 ? null : STP_MODES[mode - 1];
+    }
+}
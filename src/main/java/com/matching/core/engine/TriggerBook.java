@@ -0,0 +1,126 @@
+package com.matching.core.engine;
+
+import com.matching.core.domain.Order;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 条件单簿（止损 / 止盈），每个 symbol 一个，只在撮合线程访问
+ *
+ * 按触发方向分两棵树，键为触发价：
+ *   rising  —— 成交价 >= 触发价时激活（买入止损、卖出止盈），升序
+ *   falling —— 成交价 <= 触发价时激活（卖出止损、买入止盈），降序
+ * 被越过的条件单总是树头部连续的一段，激活时只从头部逐档弹出，
+ * 代价 O(k log n)，与挂着多少未触发的条件单无关；同一触发价内按提交顺序激活
+ */
+final class TriggerBook {
+
+    private final TreeMap<BigDecimal, LinkedHashMap<String, Order>> rising = new TreeMap<>(Comparator.naturalOrder());
+    private final TreeMap<BigDecimal, LinkedHashMap<String, Order>> falling = new TreeMap<>(Comparator.reverseOrder());
+    private final HashMap<String, Order> index = new HashMap<>();
+    private final HashMap<Long, LinkedHashSet<String>> byAccount = new HashMap<>();   // 批量撤单用
+
+    static boolean isConditional(Order order) {
+        OrderType type = order.getType();
+        return type == OrderType.STOP_LIMIT || type == OrderType.STOP_MARKET
+                || type == OrderType.TAKE_PROFIT || type == OrderType.TAKE_PROFIT_MARKET;
+    }
+
+    // 买入止损 / 卖出止盈在价格上涨时触发，其余在价格下跌时触发
+    static boolean triggersOnRise(Order order) {
+        boolean stop = order.getType() == OrderType.STOP_LIMIT || order.getType() == OrderType.STOP_MARKET;
+        return stop == (order.getSide() == Side.BUY);
+    }
+
+    static boolean isCrossed(Order order, BigDecimal price) {
+        int c = price.compareTo(order.getStopPrice());
+        return triggersOnRise(order) ? c >= 0 : c <= 0;
+    }
+
+    void add(Order order) {
+        var tree = triggersOnRise(order) ? rising : falling;
+        tree.computeIfAbsent(order.getStopPrice(), k -> new LinkedHashMap<>()).put(order.getOrderId(), order);
+        index.put(order.getOrderId(), order);
+        if (order.getAccountId() != 0) {
+            byAccount.computeIfAbsent(order.getAccountId(), k -> new LinkedHashSet<>()).add(order.getOrderId());
+        }
+    }
+
+    Order remove(String orderId) {
+        Order order = index.remove(orderId);
+        if (order == null) {
+            return null;
+        }
+        forgetAccount(order);
+        var tree = triggersOnRise(order) ? rising : falling;
+        var bucket = tree.get(order.getStopPrice());
+        if (bucket != null) {
+            bucket.remove(orderId);
+            if (bucket.isEmpty()) {
+                tree.remove(order.getStopPrice());
+            }
+        }
+        return order;
+    }
+
+    /**
+     * 撤掉某账户的条件单（side 为 null 表示两侧），返回被撤的订单
+     */
+    List<Order> removeAccount(long accountId, Side side) {
+        var ids = byAccount.get(accountId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<Order> removed = new ArrayList<>();
+        for (String id : ids.toArray(new String[0])) {
+            Order order = index.get(id);
+            if (order != null && (side == null || order.getSide() == side)) {
+                removed.add(remove(id));
+            }
+        }
+        return removed;
+    }
+
+    private void forgetAccount(Order order) {
+        var ids = byAccount.get(order.getAccountId());
+        if (ids != null && ids.remove(order.getOrderId()) && ids.isEmpty()) {
+            byAccount.remove(order.getAccountId());
+        }
+    }
+
+    Order get(String orderId) {
+        return index.get(orderId);
+    }
+
+    boolean contains(String orderId) {
+        return index.containsKey(orderId);
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * 把成交价区间 [low, high] 越过的条件单按触发价顺序弹出，追加到 out
+     */
+    void drainCrossed(BigDecimal low, BigDecimal high, Collection<Order> out) {
+        drain(rising, high, out);
+        drain(falling, low, out);
+    }
+
+    private void drain(TreeMap<BigDecimal, LinkedHashMap<String, Order>> tree, BigDecimal price, Collection<Order> out) {
+        Comparator<? super BigDecimal> cmp = tree.comparator();
+        Map.Entry<BigDecimal, LinkedHashMap<String, Order>> head;
+        while ((head = tree.firstEntry()) != null && cmp.compare(head.getKey(), price) <= 0) {
+            tree.pollFirstEntry();
+            for (Order order : head.getValue().values()) {
+                index.remove(order.getOrderId());
+                forgetAccount(order);
+                out.add(order);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.matching.core.kline;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.api.MarketDataWebSocketHandler;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Trade;
+import com.matching.core.persistence.TradeStore;
+import com.matching.disruptor.ExecutionEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K 线 / 24h 行情聚合：消费撮合输出的成交，逐笔增量更新，不再需要下游批量重算
+ * 有变化的 symbol 每 250ms 合并推送一次到 kline 频道
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandleAggregator implements EventHandler<ExecutionEvent> {
+    private static final long PUSH_INTERVAL_MS = 250;
+    private static final long REBUILD_WINDOW_MS = CandleInterval.D1.capacity() * CandleInterval.D1.millis();
+
+    private final MarketDataWebSocketHandler wsHandler;
+    private final TradeStore tradeStore;
+
+    private final ConcurrentHashMap<String, SymbolCandles> candles = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            r -> {
+                Thread t = new Thread(r, "kline-pusher");
+                t.setDaemon(true);
+                return t;
+            }
+    );
+
+    @PostConstruct
+    public void init() throws IOException {
+        rebuild();
+        scheduler.scheduleAtFixedRate(this::pushDirty, PUSH_INTERVAL_MS, PUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public void onEvent(ExecutionEvent event, long sequence, boolean endOfBatch) {
+        Trade trade = event.trade;
+        if (trade != null) {
+            apply(trade);
+            dirty.add(trade.getSymbol());
+        }
+    }
+
+    /**
+     * 启动时从成交历史重建（只回放最长周期保留范围内的成交，直接读映射内存）
+     */
+    private void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        long from = start - REBUILD_WINDOW_MS;
+        long total = 0;
+        for (String symbol : tradeStore.symbols()) {
+            total += tradeStore.scanTimeRange(symbol, from, Long.MAX_VALUE, Integer.MAX_VALUE,
+                    (id, ts, price, qty, takerBuy) -> apply(symbol, ts, price, qty));
+        }
+        log.info("K 线重建完成，回放成交 {} 笔，耗时 {}ms", total, System.currentTimeMillis() - start);
+    }
+
+    private void apply(Trade trade) {
+        apply(trade.getSymbol(), trade.getTimestamp(), FixedPoint.toLong(trade.getPrice()), FixedPoint.toLong(trade.getQuantity()));
+    }
+
+    private void apply(String symbol, long ts, long price, long qty) {
+        SymbolCandles sc = candles.computeIfAbsent(symbol, SymbolCandles::new);
+        long stamp = sc.lock.writeLock();
+        try {
+            sc.onTrade(ts, price, qty);
+        } finally {
+            sc.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * K 线数组（Binance 格式），symbol 无成交返回 null
+     */
+    public String klines(String symbol, CandleInterval interval, long endTime, int limit) {
+        SymbolCandles sc = candles.get(symbol);
+        if (sc == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(128 + limit * 128);
+        long stamp = sc.lock.readLock();
+        try {
+            sc.appendCandles(sb, interval, endTime, limit);
+        } finally {
+            sc.lock.unlockRead(stamp);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 24h 滚动行情，symbol 无成交返回 null
+     */
+    public String ticker24h(String symbol) {
+        SymbolCandles sc = candles.get(symbol);
+        if (sc == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(256);
+        appendTicker(sc, sb, System.currentTimeMillis());
+        return sb.toString();
+    }
+
+    public String tickers24h() {
+        StringBuilder sb = new StringBuilder(256 * Math.max(1, candles.size())).append('[');
+        long now = System.currentTimeMillis();
+        for (SymbolCandles sc : candles.values()) {
+            if (sb.length() > 1) sb.append(',');
+            appendTicker(sc, sb, now);
+        }
+        return sb.append(']').toString();
+    }
+
+    // 查询时也要把过期分钟桶滑出窗口，所以拿写锁
+    private void appendTicker(SymbolCandles sc, StringBuilder sb, long now) {
+        long stamp = sc.lock.writeLock();
+        try {
+            sc.expire(now);
+            sc.appendTicker(sb, now);
+        } finally {
+            sc.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void pushDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        boolean subscribed = wsHandler.hasSubscribers(MarketDataWebSocketHandler.CHANNEL_KLINE);
+        long now = System.currentTimeMillis();
+        for (String symbol : dirty) {
+            dirty.remove(symbol);
+            if (!subscribed) {
+                continue;
+            }
+            SymbolCandles sc = candles.get(symbol);
+            StringBuilder sb = new StringBuilder(1024);
+            sb.append("{\"symbol\":\"").append(symbol).append("\",\"klines\":{");
+            long stamp = sc.lock.readLock();
+            try {
+                for (CandleInterval interval : CandleInterval.values()) {
+                    if (interval.ordinal() > 0) sb.append(',');
+                    sb.append('"').append(interval.code()).append("\":");
+                    sc.appendCandles(sb, interval, now, 1);
+                }
+            } finally {
+                sc.lock.unlockRead(stamp);
+            }
+            wsHandler.send(MarketDataWebSocketHandler.CHANNEL_KLINE, sb.append("}}").toString());
+        }
+    }
+}
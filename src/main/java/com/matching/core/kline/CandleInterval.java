@@ -0,0 +1,37 @@
+package com.matching.core.kline;
+
+/**
+ * K 线周期及各自保留的根数（环形缓冲区容量）
+ */
+public enum CandleInterval {
+    S1("1s", 1_000L, 3_600),              // 保留 1 小时
+    M1("1m", 60_000L, 1_440),             // 保留 1 天（24h 行情统计也基于它）
+    M5("5m", 300_000L, 2_016),            // 保留 1 周
+    H1("1h", 3_600_000L, 720),            // 保留 30 天
+    D1("1d", 86_400_000L, 365);           // 保留 1 年
+
+    private final String code;
+    private final long millis;
+    private final int capacity;
+
+    CandleInterval(String code, long millis, int capacity) {
+        this.code = code;
+        this.millis = millis;
+        this.capacity = capacity;
+    }
+
+    public String code() { return code; }
+    public long millis() { return millis; }
+    public int capacity() { return capacity; }
+
+    public long openTime(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, millis);
+    }
+
+    public static CandleInterval of(String code) {
+        for (CandleInterval i : values()) {
+            if (i.code.equals(code)) return i;
+        }
+        throw new IllegalArgumentException("Unsupported interval: " + code);
+    }
+}
@@ -0,0 +1,102 @@
+package com.matching.core.kline;
+
+import com.matching.core.domain.FixedPoint;
+
+/**
+ * 单个 symbol、单个周期的 K 线环形缓冲区
+ * 全部用原始类型数组，槽位 = (openTime / 周期) % 容量，跨周期时原地覆盖旧 K 线；
+ * 价格 / 成交量为 {@link FixedPoint} 定点数
+ */
+final class CandleSeries {
+    private final CandleInterval interval;
+    private final int capacity;
+    private final long[] openTime;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+    private final double[] quoteVolume;
+    private final int[] count;
+    private long latestOpenTime = Long.MIN_VALUE;
+
+    CandleSeries(CandleInterval interval) {
+        this.interval = interval;
+        this.capacity = interval.capacity();
+        this.openTime = new long[capacity];
+        this.open = new long[capacity];
+        this.high = new long[capacity];
+        this.low = new long[capacity];
+        this.close = new long[capacity];
+        this.volume = new long[capacity];
+        this.quoteVolume = new double[capacity];
+        this.count = new int[capacity];
+        java.util.Arrays.fill(openTime, Long.MIN_VALUE);
+    }
+
+    void onTrade(long ts, long price, long qty, double quote) {
+        long ot = interval.openTime(ts);
+        int i = slot(ot);
+        if (openTime[i] != ot) {
+            if (openTime[i] > ot) {
+                return;   // 比缓冲区里保留的更老，丢弃
+            }
+            openTime[i] = ot;
+            open[i] = high[i] = low[i] = close[i] = price;
+            volume[i] = 0;
+            quoteVolume[i] = 0;
+            count[i] = 0;
+        } else {
+            if (price > high[i]) high[i] = price;
+            if (price < low[i]) low[i] = price;
+            close[i] = price;
+        }
+        volume[i] += qty;
+        quoteVolume[i] += quote;
+        count[i]++;
+        if (ot > latestOpenTime) latestOpenTime = ot;
+    }
+
+    /**
+     * 从 endTime 所在周期往前取最多 limit 根（没有成交的周期不返回），按时间升序写成 JSON 数组
+     */
+    int appendJson(StringBuilder sb, long endTime, int limit) {
+        long to = Math.min(interval.openTime(endTime), latestOpenTime);
+        int n = 0;
+        int[] picked = new int[Math.min(limit, capacity)];
+        for (long ot = to; n < picked.length && ot > to - (long) capacity * interval.millis(); ot -= interval.millis()) {
+            int i = slot(ot);
+            if (openTime[i] == ot) picked[n++] = i;
+        }
+        sb.append('[');
+        for (int k = n - 1; k >= 0; k--) {
+            int i = picked[k];
+            if (k != n - 1) sb.append(',');
+            sb.append('[').append(openTime[i]).append(",\"");
+            FixedPoint.append(sb, open[i]).append("\",\"");
+            FixedPoint.append(sb, high[i]).append("\",\"");
+            FixedPoint.append(sb, low[i]).append("\",\"");
+            FixedPoint.append(sb, close[i]).append("\",\"");
+            FixedPoint.append(sb, volume[i]).append("\",")
+                    .append(openTime[i] + interval.millis() - 1).append(",\"");
+            FixedPoint.append(sb, quoteVolume[i]).append("\",")
+                    .append(count[i]).append(']');
+        }
+        sb.append(']');
+        return n;
+    }
+
+    // ===== 24h 滚动统计按 openTime 读取单根 K 线 =====
+    boolean has(long ot) { return openTime[slot(ot)] == ot; }
+    long open(long ot) { return open[slot(ot)]; }
+    long high(long ot) { return high[slot(ot)]; }
+    long low(long ot) { return low[slot(ot)]; }
+    long volume(long ot) { return volume[slot(ot)]; }
+    double quoteVolume(long ot) { return quoteVolume[slot(ot)]; }
+    int count(long ot) { return count[slot(ot)]; }
+    long latestOpenTime() { return latestOpenTime; }
+
+    private int slot(long ot) {
+        return (int) Math.floorMod(ot / interval.millis(), (long) capacity);
+    }
+}
@@ -0,0 +1,170 @@
+package com.matching.core.kline;
+
+import com.matching.core.domain.FixedPoint;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 单个 symbol 的全部周期 K 线 + 24h 滚动行情
+ * 写入只来自撮合输出消费线程；查询线程通过 lock 读取
+ * 24h 统计增量维护：成交时累加，分钟桶滑出窗口时扣减，最高 / 最低价用单调队列
+ */
+final class SymbolCandles {
+    private static final long WINDOW = 86_400_000L;
+    private static final long MINUTE = CandleInterval.M1.millis();
+    private static final int WINDOW_MINUTES = (int) (WINDOW / MINUTE);
+
+    final String symbol;
+    final StampedLock lock = new StampedLock();
+    private final CandleSeries[] series = new CandleSeries[CandleInterval.values().length];
+    private final CandleSeries m1;
+
+    // ===== 24h 滚动窗口 =====
+    private long first = Long.MIN_VALUE;    // 窗口内最早一根有成交的 M1 openTime，MIN_VALUE 表示窗口为空
+    private long volume;
+    private double quoteVolume;
+    private long count;
+    private long lastPrice;
+    private long lastTime;
+    private final MinuteDeque highs = new MinuteDeque(true);
+    private final MinuteDeque lows = new MinuteDeque(false);
+
+    SymbolCandles(String symbol) {
+        this.symbol = symbol;
+        for (CandleInterval i : CandleInterval.values()) {
+            series[i.ordinal()] = new CandleSeries(i);
+        }
+        this.m1 = series[CandleInterval.M1.ordinal()];
+    }
+
+    void onTrade(long ts, long price, long qty) {
+        double quote = (double) price / FixedPoint.ONE * qty / FixedPoint.ONE;
+        expire(ts);   // 先扣掉滑出窗口的分钟桶，再写入（环形缓冲区恰好保留 24h，会覆盖最老的桶）
+        for (CandleSeries s : series) {
+            s.onTrade(ts, price, qty, quote);
+        }
+
+        if (ts < lastTime) {
+            return;   // 时钟回拨的乱序成交只进 K 线，不进滚动窗口（单调队列要求时间递增）
+        }
+        long ot = CandleInterval.M1.openTime(ts);
+        if (first == Long.MIN_VALUE) {
+            first = ot;
+        }
+        volume += qty;
+        quoteVolume += quote;
+        count++;
+        lastTime = ts;
+        lastPrice = price;
+        highs.offer(ot);
+        lows.offer(ot);
+    }
+
+    /**
+     * 把早于窗口起点的分钟桶从滚动统计中扣除，first 只会单调前移，均摊 O(1)
+     */
+    void expire(long now) {
+        long cutoff = windowStart(now);
+        long latest = m1.latestOpenTime();
+        while (first != Long.MIN_VALUE && first < cutoff) {
+            if (m1.has(first)) {
+                volume -= m1.volume(first);
+                quoteVolume -= m1.quoteVolume(first);
+                count -= m1.count(first);
+            }
+            long next = first + MINUTE;
+            while (next <= latest && !m1.has(next)) {
+                next += MINUTE;
+            }
+            first = next <= latest ? next : Long.MIN_VALUE;
+        }
+        if (first == Long.MIN_VALUE) {
+            volume = 0;
+            quoteVolume = 0;
+            count = 0;
+        }
+        highs.expire(cutoff);
+        lows.expire(cutoff);
+    }
+
+    int appendCandles(StringBuilder sb, CandleInterval interval, long endTime, int limit) {
+        return series[interval.ordinal()].appendJson(sb, endTime, limit);
+    }
+
+    void appendTicker(StringBuilder sb, long now) {
+        sb.append("{\"symbol\":\"").append(symbol).append('"');
+        if (first == Long.MIN_VALUE) {
+            sb.append(",\"count\":0}");
+            return;
+        }
+        long open = m1.open(first);
+        sb.append(",\"openTime\":").append(first)
+                .append(",\"closeTime\":").append(lastTime)
+                .append(",\"open\":\"");
+        FixedPoint.append(sb, open).append("\",\"high\":\"");
+        FixedPoint.append(sb, m1.high(highs.head())).append("\",\"low\":\"");
+        FixedPoint.append(sb, m1.low(lows.head())).append("\",\"last\":\"");
+        FixedPoint.append(sb, lastPrice).append("\",\"priceChange\":\"");
+        FixedPoint.append(sb, lastPrice - open).append("\",\"priceChangePercent\":\"")
+                .append(open == 0 ? 0 : Math.round((lastPrice - open) * 10000.0 / open) / 100.0)
+                .append("\",\"volume\":\"");
+        FixedPoint.append(sb, volume).append("\",\"quoteVolume\":\"");
+        FixedPoint.append(sb, quoteVolume).append("\",\"count\":").append(count).append('}');
+    }
+
+    private static long windowStart(long now) {
+        return CandleInterval.M1.openTime(now) - WINDOW + MINUTE;
+    }
+
+    /**
+     * 分钟桶 openTime 的单调队列（环形数组），队首即窗口内最高 / 最低价所在的桶
+     */
+    private final class MinuteDeque {
+        private final boolean max;
+        private final long[] buf = new long[WINDOW_MINUTES + 1];
+        private int head;
+        private int size;
+
+        MinuteDeque(boolean max) {
+            this.max = max;
+        }
+
+        void offer(long ot) {
+            if (size > 0 && last() == ot) {
+                size--;   // 当前分钟桶的值变了，先拿出来重新比较
+            }
+            while (size > 0 && !dominates(last(), ot)) {
+                size--;
+            }
+            if (size == buf.length) {
+                pollFirst();
+            }
+            buf[(head + size) % buf.length] = ot;
+            size++;
+        }
+
+        void expire(long cutoff) {
+            while (size > 0 && buf[head] < cutoff) {
+                pollFirst();
+            }
+        }
+
+        long head() {
+            return buf[head];
+        }
+
+        private long last() {
+            return buf[(head + size - 1) % buf.length];
+        }
+
+        private void pollFirst() {
+            head = (head + 1) % buf.length;
+            size--;
+        }
+
+        // 较早的桶只有在值严格更优时才需要保留
+        private boolean dominates(long older, long newer) {
+            return max ? m1.high(older) > m1.high(newer) : m1.low(older) < m1.low(newer);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.matching.core.persistence;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全部交易对共用的快照调度器：固定几个线程，不随交易对数量增长
+ * 每个交易对注册时按黄金分割错开首次触发时间，上万个交易对的快照均匀摊在整个周期里，不会同一时刻扎堆
+ */
+@Slf4j
+@Component
+public class CheckpointScheduler {
+    private static final double GOLDEN = 0.6180339887498949;
+    private static volatile CheckpointScheduler standalone;
+
+    private final ScheduledExecutorService executor;
+    private final long intervalMillis;
+    private final AtomicLong registrations = new AtomicLong();
+
+    public CheckpointScheduler(@Value("${app.persistence.checkpoint-threads:2}") int threads,
+                               @Value("${app.persistence.snapshot-interval-seconds:10}") int intervalSeconds) {
+        AtomicInteger n = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "checkpoint-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, threads), factory);
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(Math.max(1, intervalSeconds));
+        log.info("Checkpoint scheduler: {} threads, interval {}s", Math.max(1, threads), intervalSeconds);
+    }
+
+    /**
+     * 不经过 Spring 直接 new 引擎时使用的默认调度器（单线程，10 秒）
+     */
+    public static CheckpointScheduler standalone() {
+        CheckpointScheduler s = standalone;
+        if (s == null) {
+            synchronized (CheckpointScheduler.class) {
+                if ((s = standalone) == null) {
+                    standalone = s = new CheckpointScheduler(1, 10);
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 注册周期任务；固定延迟执行，上一轮没写完不会叠加
+     */
+    public ScheduledFuture<?> register(Runnable checkpoint) {
+        long offset = (long) ((registrations.incrementAndGet() * GOLDEN) % 1.0 * intervalMillis);
+        return executor.scheduleWithFixedDelay(checkpoint, offset, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
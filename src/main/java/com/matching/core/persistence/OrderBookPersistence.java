@@ -1,32 +1,41 @@
 // 新增文件：OrderBookPersistence.java
 package com.matching.core.persistence;
 
-import com.matching.core.domain.*;
 import com.matching.core.engine.L3OrderBook;
 
 import java.io.*;
 import java.math.BigDecimal;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 单个交易对的快照 / WAL
+ * 不再自带线程：快照任务挂在共享的 {@link CheckpointScheduler} 上；
+ * 文件都是用到时才创建 —— 订单簿从没变过的长尾交易对不占文件、不占映射内存
+ * 快照按实际大小写临时文件再原子改名，文件大小随订单簿增减
+ */
 public class OrderBookPersistence {
-    private static final int SNAPSHOT_INTERVAL_SECONDS = 10;  // 每10秒一次快照
     private static final String SNAPSHOT_DIR = "snapshots/";
     private static final String WAL_DIR = "wal/";
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long EOF_MARKER = 0xDEADBEEF;
+
+    // 每个调度线程复用一个编码缓冲，按需翻倍
+    private static final ThreadLocal<ByteBuffer> SNAPSHOT_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(64 * 1024));
 
     private final L3OrderBook orderBook;
     private final String symbol;
-    private final FileChannel snapshotChannel;
-    private final MappedByteBuffer snapshotBuffer;
-    private final RandomAccessFile walFile;
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Path snapshotPath;
+    private final Path snapshotTmpPath;
+    private final ScheduledFuture<?> checkpointTask;
+    private RandomAccessFile walFile;          // 第一次写 WAL 时才打开
+    private long checkpointedVersion;          // 上次快照时订单簿的变更计数
 
     static {
         try {
@@ -38,77 +47,93 @@ public class OrderBookPersistence {
     }
 
     public OrderBookPersistence(L3OrderBook orderBook, String symbol) throws IOException {
+        this(orderBook, symbol, CheckpointScheduler.standalone());
+    }
+
+    public OrderBookPersistence(L3OrderBook orderBook, String symbol, CheckpointScheduler scheduler) throws IOException {
         this.orderBook = orderBook;
         this.symbol = symbol;
+        this.snapshotPath = Paths.get(SNAPSHOT_DIR + symbol + ".snapshot");
+        this.snapshotTmpPath = Paths.get(SNAPSHOT_DIR + symbol + ".snapshot.tmp");
 
-        // 1. 初始化快照文件（100MB 足够支持 10万+ 档位）
-        Path snapshotPath = Paths.get(SNAPSHOT_DIR + symbol + ".snapshot");
-        snapshotChannel = FileChannel.open(snapshotPath,
-                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
-        snapshotBuffer = snapshotChannel.map(FileChannel.MapMode.READ_WRITE, 0, 100L * 1024 * 1024);
-
-        // 2. 初始化 WAL 文件（追加模式）
-        walFile = new RandomAccessFile(WAL_DIR + symbol + ".wal", "rw");
-        long length = walFile.length();
-        if (length > 0) {
-            walFile.seek(length);
-        }
-
-        // 3. 启动定时快照任务
-        scheduler.scheduleAtFixedRate(this::takeSnapshot,
-                SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
-
-        // 4. 启动时尝试恢复（如果有快照）
+        // 启动时尝试恢复（如果有快照）
         recoverIfPossible();
+
+        this.checkpointTask = scheduler.register(this::takeSnapshot);
     }
 
-    // 每10秒做一次全量快照
+    // 由共享调度器周期调用；订单簿自上次快照后没有变化就什么都不做
     private void takeSnapshot() {
+        long version = orderBook.changeCount();
+        if (version == checkpointedVersion) {
+            return;
+        }
         try {
-            snapshotBuffer.rewind();
-            snapshotBuffer.putInt(1); // version
-            snapshotBuffer.putLong(Instant.now().toEpochMilli()); // timestamp
-
-            // 写入 bids
-            var bids = orderBook.getClass()
-                    .getDeclaredField("bids")
-                    .getDeclaredAnnotation(null); // 通过反射获取私有字段（实际用 Unsafe 或封装方法）
-            // 下面用封装方式（推荐！在 L3OrderBook 加两个 getter）
-
-            // 为了演示，先留空，实际你需要暴露 bids/asks 的 snapshot 方法
-            writeBookSnapshot(snapshotBuffer, orderBook.getBidsForSnapshot());
-            writeBookSnapshot(snapshotBuffer, orderBook.getAsksForSnapshot());
-
-            snapshotBuffer.putLong(0xDEADBEEF); // EOF marker
-            snapshotBuffer.force(); // 强制刷盘
+            ByteBuffer buf = SNAPSHOT_BUFFER.get();
+            buf.clear();
+            buf.putInt(SNAPSHOT_VERSION);
+            buf.putLong(Instant.now().toEpochMilli());
+            buf = writeBookSnapshot(buf, orderBook.getBidsForSnapshot());
+            buf = writeBookSnapshot(buf, orderBook.getAsksForSnapshot());
+            buf = ensure(buf, Long.BYTES);
+            buf.putLong(EOF_MARKER);
+            buf.flip();
+
+            try (FileChannel ch = FileChannel.open(snapshotTmpPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+                ch.force(false);
+            }
+            Files.move(snapshotTmpPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointedVersion = version;
 
             // 快照成功后，截断 WAL（可选，节省磁盘）
             truncateWalAfterSnapshot();
-
-            System.out.println("[" + symbol + "] Snapshot saved at " + Instant.now());
         } catch (Exception e) {
             System.err.println("Snapshot failed for " + symbol + ": " + e);
             e.printStackTrace();
         }
     }
 
-    private void writeBookSnapshot(MappedByteBuffer buf, List<Map.Entry<BigDecimal, BigDecimal>> levels) {
+    private ByteBuffer writeBookSnapshot(ByteBuffer buf, List<Map.Entry<BigDecimal, BigDecimal>> levels) {
+        buf = ensure(buf, Integer.BYTES);
         buf.putInt(levels.size());
         for (var e : levels) {
-            writeString(buf, e.getKey().toPlainString());
-            writeString(buf, e.getValue().toPlainString());
+            buf = writeString(buf, e.getKey().toPlainString());
+            buf = writeString(buf, e.getValue().toPlainString());
         }
+        return buf;
     }
 
-    private void writeString(MappedByteBuffer buf, String s) {
-        byte[] bytes = s.getBytes();
+    private ByteBuffer writeString(ByteBuffer buf, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        buf = ensure(buf, Integer.BYTES + bytes.length);
         buf.putInt(bytes.length);
         buf.put(bytes);
+        return buf;
+    }
+
+    // 空间不够时换一个翻倍的缓冲（保留已写内容）
+    private static ByteBuffer ensure(ByteBuffer buf, int bytes) {
+        if (buf.remaining() >= bytes) {
+            return buf;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+        buf.flip();
+        bigger.put(buf);
+        SNAPSHOT_BUFFER.set(bigger);
+        return bigger;
     }
 
     // WAL 追加（每笔订单、撤单、成交都必须写）
-    public void appendWal(String logLine) {
+    public synchronized void appendWal(String logLine) {
         try {
+            if (walFile == null) {
+                walFile = new RandomAccessFile(WAL_DIR + symbol + ".wal", "rw");
+                walFile.seek(walFile.length());
+            }
             walFile.write((logLine + "\n").getBytes());
             // 不 force 太频繁，依赖系统 crash-safe
         } catch (Exception e) {
@@ -116,20 +141,27 @@ public class OrderBookPersistence {
         }
     }
 
-    private void truncateWalAfterSnapshot() throws IOException {
-        walFile.setLength(0); // 简单粗暴截断（生产可用 log rotate）
-        walFile.seek(0);
+    private synchronized void truncateWalAfterSnapshot() throws IOException {
+        if (walFile != null) {
+            walFile.setLength(0); // 简单粗暴截断（生产可用 log rotate）
+            walFile.seek(0);
+        }
     }
 
     private void recoverIfPossible() throws IOException {
-        // 1. 先加载最新快照
-        if (snapshotChannel.size() > 0) {
-            snapshotBuffer.rewind();
-            int version = snapshotBuffer.getInt();
-            if (version == 1) {
-                long ts = snapshotBuffer.getLong();
-                System.out.println("[" + symbol + "] Loading snapshot from " + Instant.ofEpochMilli(ts));
-                // 恢复 bids/asks（需要 L3OrderBook 提供 restore 方法）
+        // 1. 先加载最新快照（只读头部，不映射整个文件）
+        if (Files.exists(snapshotPath)) {
+            try (FileChannel ch = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+                if (ch.read(header) == header.capacity()) {
+                    header.flip();
+                    int version = header.getInt();
+                    if (version == SNAPSHOT_VERSION) {
+                        long ts = header.getLong();
+                        System.out.println("[" + symbol + "] Loading snapshot from " + Instant.ofEpochMilli(ts));
+                        // 恢复 bids/asks（需要 L3OrderBook 提供 restore 方法）
+                    }
+                }
             }
         }
 
@@ -139,14 +171,19 @@ public class OrderBookPersistence {
 
     private void replayWal() throws IOException {
         // 简化实现，实际要从文件逐行解析 ORDER/CANCEL/TRADE
-        System.out.println("[" + symbol + "] WAL replay skipped in demo");
+        if (Files.exists(Paths.get(WAL_DIR + symbol + ".wal"))) {
+            System.out.println("[" + symbol + "] WAL replay skipped in demo");
+        }
     }
 
     public void shutdown() {
-        scheduler.shutdownNow();
-        try {
-            snapshotChannel.close();
-            walFile.close();
-        } catch (Exception ignored) {}
+        checkpointTask.cancel(false);
+        synchronized (this) {
+            try {
+                if (walFile != null) {
+                    walFile.close();
+                }
+            } catch (Exception ignored) {}
+        }
     }
-}
\ No newline at end of file
+}
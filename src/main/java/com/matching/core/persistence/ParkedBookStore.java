@@ -0,0 +1,62 @@
+package com.matching.core.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 停放订单簿的落盘文件：每个交易对一个 parked/{symbol}.book，内容就是 L3OrderBook.park() 的编码
+ * 写临时文件 + force + 原子改名，调回时整文件读入后删除
+ */
+public final class ParkedBookStore {
+    private static final String PARKED_DIR = "parked/";
+
+    static {
+        try {
+            Files.createDirectories(Paths.get(PARKED_DIR));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create parked book dir", e);
+        }
+    }
+
+    private ParkedBookStore() {
+    }
+
+    public static void write(String symbol, ByteBuffer image) throws IOException {
+        Path tmp = Paths.get(PARKED_DIR + symbol + ".book.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (image.hasRemaining()) {
+                ch.write(image);
+            }
+            ch.force(false);
+        }
+        Files.move(tmp, path(symbol), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ByteBuffer read(String symbol) throws IOException {
+        try (FileChannel ch = FileChannel.open(path(symbol), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate((int) ch.size());
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) {
+                    throw new EOFException("Truncated parked book: " + symbol);
+                }
+            }
+            return buf.flip();
+        }
+    }
+
+    public static void delete(String symbol) throws IOException {
+        Files.deleteIfExists(path(symbol));
+    }
+
+    private static Path path(String symbol) {
+        return Paths.get(PARKED_DIR + symbol + ".book");
+    }
+}
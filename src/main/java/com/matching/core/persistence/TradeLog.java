@@ -0,0 +1,226 @@
+package com.matching.core.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * 单个 symbol 的成交历史：只追加、定长记录、按段内存映射
+ * <pre>
+ * 记录（40 字节）: tradeId(8) | timestamp(8) | price(8) | quantity(8) | flags(4) | reserved(4)
+ * 段文件: {首笔 tradeId}.seg，每段固定 segmentRecords 条，tradeId 在段内连续，按 id 直接算偏移
+ * </pre>
+ * 单线程写（撮合输出消费线程），多线程读：记录写完后再推进 volatile 的 count，读方只看已提交部分
+ */
+@Slf4j
+final class TradeLog {
+    static final int RECORD_SIZE = 40;
+    static final int FLAG_TAKER_BUY = 1;
+    private static final int INDEX_STRIDE = 1024;   // 稀疏时间索引：每 1024 笔记一个点
+
+    private final String symbol;
+    private final Path dir;
+    private final int segmentRecords;
+    private volatile Segment[] segments = new Segment[0];
+
+    // 稀疏时间索引（只追加；entries 在写入数据之后再推进）
+    private long[] indexTime = new long[64];
+    private long[] indexId = new long[64];
+    private volatile int indexEntries;
+
+    TradeLog(String symbol, Path dir, int segmentRecords) throws IOException {
+        this.symbol = symbol;
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    private void load() throws IOException {
+        long[] starts;
+        try (Stream<Path> files = Files.list(dir)) {
+            starts = files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(".seg"))
+                    .mapToLong(n -> Long.parseLong(n.substring(0, n.length() - 4)))
+                    .sorted().toArray();
+        }
+        Segment[] loaded = new Segment[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            Segment seg = new Segment(starts[i], i == starts.length - 1);
+            // 找到第一条未写入的记录（tradeId 从 1 开始，0 即空槽）
+            int n = 0;
+            while (n < seg.capacity && seg.buf.getLong(n * RECORD_SIZE) != 0) {
+                if (n % INDEX_STRIDE == 0) {
+                    addIndex(seg.buf.getLong(n * RECORD_SIZE + 8), starts[i] + n);
+                }
+                n++;
+            }
+            seg.count = n;
+            loaded[i] = seg;
+        }
+        segments = loaded;
+        if (loaded.length > 0) {
+            log.info("[{}] 成交历史加载完成，{} 段，最新 tradeId={}", symbol, loaded.length, lastTradeId());
+        }
+    }
+
+    long lastTradeId() {
+        Segment[] segs = segments;
+        if (segs.length == 0) return 0;
+        Segment last = segs[segs.length - 1];
+        return last.firstId + last.count - 1;
+    }
+
+    void append(long tradeId, long timestamp, long price, long qty, boolean takerBuy) throws IOException {
+        Segment[] segs = segments;
+        Segment tail = segs.length == 0 ? null : segs[segs.length - 1];
+        // id 不连续（如崩溃丢失尾部）或段已满时开新段，保证段内 id 连续
+        if (tail == null || tail.count == tail.capacity || tradeId != tail.firstId + tail.count) {
+            if (tradeId <= lastTradeId()) {
+                log.warn("[{}] 忽略重复成交 tradeId={}", symbol, tradeId);
+                return;
+            }
+            if (tail != null) {
+                tail.seal();
+            }
+            tail = new Segment(tradeId, true);
+            Segment[] grown = Arrays.copyOf(segs, segs.length + 1);
+            grown[segs.length] = tail;
+            segments = grown;
+        }
+
+        int n = tail.count;
+        int off = n * RECORD_SIZE;
+        tail.buf.putLong(off + 8, timestamp);
+        tail.buf.putLong(off + 16, price);
+        tail.buf.putLong(off + 24, qty);
+        tail.buf.putInt(off + 32, takerBuy ? FLAG_TAKER_BUY : 0);
+        tail.buf.putLong(off, tradeId);   // id 最后写，重启时以 id 非 0 判定记录完整
+        if (n % INDEX_STRIDE == 0) {
+            addIndex(timestamp, tradeId);
+        }
+        tail.count = n + 1;
+    }
+
+    /**
+     * 从 fromId 起（含）按 id 升序访问最多 limit 笔；直接读映射内存，不创建对象
+     */
+    int scanFromId(long fromId, int limit, TradeStore.TradeVisitor visitor) {
+        return scan(fromId, Long.MIN_VALUE, Long.MAX_VALUE, limit, visitor);
+    }
+
+    /**
+     * [startTime, endTime] 内按时间升序访问最多 limit 笔：稀疏索引定位起点，再顺序扫描
+     */
+    int scanTimeRange(long startTime, long endTime, int limit, TradeStore.TradeVisitor visitor) {
+        long fromId = firstIdAtOrAfter(startTime);
+        return fromId < 0 ? 0 : scan(fromId, startTime, endTime, limit, visitor);
+    }
+
+    private int scan(long fromId, long startTime, long endTime, int limit, TradeStore.TradeVisitor visitor) {
+        Segment[] segs = segments;
+        int visited = 0;
+        for (int si = findSegment(segs, fromId); si < segs.length; si++) {
+            Segment seg = segs[si];
+            ByteBuffer b = seg.buf;
+            int count = seg.count;
+            for (int n = (int) Math.max(0, fromId - seg.firstId); n < count; n++) {
+                if (visited >= limit) return visited;
+                int off = n * RECORD_SIZE;
+                long ts = b.getLong(off + 8);
+                if (ts < startTime) continue;
+                if (ts > endTime) return visited;   // 时间有序，后面都超出范围
+                visitor.visit(b.getLong(off), ts, b.getLong(off + 16), b.getLong(off + 24),
+                        (b.getInt(off + 32) & FLAG_TAKER_BUY) != 0);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    // 稀疏索引里最后一个时间 < startTime 的点作为扫描起点
+    private long firstIdAtOrAfter(long startTime) {
+        Segment[] segs = segments;
+        if (segs.length == 0) return -1;
+        int entries = indexEntries;
+        long[] times = indexTime;
+        long[] ids = indexId;
+        int lo = 0, hi = entries - 1, pos = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < startTime) {
+                pos = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return pos < 0 ? segs[0].firstId : ids[pos];
+    }
+
+    private void addIndex(long ts, long id) {
+        int n = indexEntries;
+        if (n == indexTime.length) {
+            // 扩容时先写新数组再替换引用，读方拿到旧数组也只会读到已提交的前 n 项
+            indexTime = Arrays.copyOf(indexTime, n * 2);
+            indexId = Arrays.copyOf(indexId, n * 2);
+        }
+        indexTime[n] = ts;
+        indexId[n] = id;
+        indexEntries = n + 1;
+    }
+
+    private static int findSegment(Segment[] segs, long id) {
+        int lo = 0, hi = segs.length - 1, pos = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (segs[mid].firstId <= id) {
+                pos = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return pos;
+    }
+
+    void force() {
+        Segment[] segs = segments;
+        if (segs.length > 0) {
+            segs[segs.length - 1].buf.force();
+        }
+    }
+
+    private final class Segment {
+        final long firstId;
+        final MappedByteBuffer buf;
+        final int capacity;
+        volatile int count;
+
+        Segment(long firstId, boolean writable) throws IOException {
+            this.firstId = firstId;
+            Path path = dir.resolve(String.format("%020d.seg", firstId));
+            try (FileChannel ch = writable
+                    ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.READ)) {
+                // 映射在 channel 关闭后依然有效；写段按满段映射（稀疏文件，不实际占盘）
+                this.buf = writable
+                        ? ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE)
+                        : ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            this.capacity = buf.capacity() / RECORD_SIZE;
+        }
+
+        void seal() {
+            buf.force();
+        }
+    }
+}
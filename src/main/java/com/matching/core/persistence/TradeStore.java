@@ -0,0 +1,128 @@
+package com.matching.core.persistence;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.Trade;
+import com.matching.disruptor.ExecutionEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 成交历史存储：消费撮合输出，按 symbol 追加写入内存映射段文件
+ * 查询直接读映射内存（零拷贝），供 /api/trades 和启动时 K 线重建使用
+ */
+@Slf4j
+@Component
+public class TradeStore implements EventHandler<ExecutionEvent> {
+
+    /**
+     * 原始字段访问器：价格 / 数量为 {@link FixedPoint} 定点数
+     */
+    public interface TradeVisitor {
+        void visit(long tradeId, long timestamp, long price, long quantity, boolean takerBuy);
+    }
+
+    private final Path baseDir;
+    private final int segmentRecords;
+    private final ConcurrentHashMap<String, TradeLog> logs = new ConcurrentHashMap<>();
+
+    public TradeStore(@Value("${app.trade-store.dir:./trades/}") String dir,
+                      @Value("${app.trade-store.segment-records:262144}") int segmentRecords) throws IOException {
+        this.baseDir = Paths.get(dir);
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(baseDir);
+    }
+
+    @Override
+    public void onEvent(ExecutionEvent event, long sequence, boolean endOfBatch) throws Exception {
+        Trade t = event.trade;
+        if (t == null) {
+            return;
+        }
+        log(t.getSymbol()).append(t.getTradeId(), t.getTimestamp(),
+                FixedPoint.toLong(t.getPrice()), FixedPoint.toLong(t.getQuantity()), t.getSide() == Side.BUY);
+    }
+
+    /**
+     * 该 symbol 已落盘的最大 tradeId，撮合引擎据此续号（没有历史返回 0）
+     */
+    public long lastTradeId(String symbol) {
+        return log(symbol).lastTradeId();
+    }
+
+    public int scanFromId(String symbol, long fromId, int limit, TradeVisitor visitor) {
+        TradeLog l = existing(symbol);
+        return l == null ? 0 : l.scanFromId(fromId, limit, visitor);
+    }
+
+    /**
+     * 最近 limit 笔（按 id 升序）
+     */
+    public int scanRecent(String symbol, int limit, TradeVisitor visitor) {
+        TradeLog l = existing(symbol);
+        return l == null ? 0 : l.scanFromId(Math.max(1, l.lastTradeId() - limit + 1), limit, visitor);
+    }
+
+    public int scanTimeRange(String symbol, long startTime, long endTime, int limit, TradeVisitor visitor) {
+        TradeLog l = existing(symbol);
+        return l == null ? 0 : l.scanTimeRange(startTime, endTime, limit, visitor);
+    }
+
+    /**
+     * 磁盘上有成交历史的全部 symbol
+     */
+    public List<String> symbols() throws IOException {
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            return dirs.filter(Files::isDirectory).map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logs.values().forEach(TradeLog::force);
+    }
+
+    private TradeLog existing(String symbol) {
+        if (!isSafeName(symbol)) return null;
+        TradeLog l = logs.get(symbol);
+        if (l == null && Files.isDirectory(baseDir.resolve(symbol))) {
+            l = log(symbol);
+        }
+        return l;
+    }
+
+    private TradeLog log(String symbol) {
+        if (!isSafeName(symbol)) {
+            throw new IllegalArgumentException("Illegal symbol for trade store: " + symbol);
+        }
+        return logs.computeIfAbsent(symbol, s -> {
+            try {
+                return new TradeLog(s, baseDir.resolve(s), segmentRecords);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open trade log for " + s, e);
+            }
+        });
+    }
+
+    // symbol 直接作为目录名，只允许字母数字和 - _
+    private static boolean isSafeName(String symbol) {
+        if (symbol == null || symbol.isEmpty()) return false;
+        for (int i = 0; i < symbol.length(); i++) {
+            char c = symbol.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_') return false;
+        }
+        return true;
+    }
+}
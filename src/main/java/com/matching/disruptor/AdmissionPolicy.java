@@ -0,0 +1,10 @@
+package com.matching.disruptor;
+
+/**
+ * 分片 RingBuffer 满（或接近满）时的准入策略
+ */
+public enum AdmissionPolicy {
+    REJECT,             // tryNext 一次，没有空位立即返回 BUSY
+    BOUNDED_WAIT,       // 最多等 max-wait，超时返回 BUSY
+    SHED_LOW_PRIORITY   // 占用率超过阈值时丢弃新单，撤单 / 改单仍按有限等待进入
+}
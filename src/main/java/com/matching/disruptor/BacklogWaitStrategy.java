@@ -0,0 +1,38 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * 定序器 RingBuffer 的等待策略：和 BusySpinWaitStrategy 一样忙等，
+ * 但分片溢出队列里还有指令时抛超时，让空闲的定序器线程回到 InputSequencer.onTimeout 去补发，
+ * 不用等下一条入口指令进来才把停着的指令送进分片
+ */
+public class BacklogWaitStrategy implements WaitStrategy {
+    private final ShardRouter router;
+
+    public BacklogWaitStrategy(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+            throws AlertException, TimeoutException {
+        long availableSequence;
+        while ((availableSequence = dependentSequence.get()) < sequence) {
+            barrier.checkAlert();
+            if (router.hasBacklog()) {
+                throw TimeoutException.INSTANCE;
+            }
+            Thread.onSpinWait();
+        }
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
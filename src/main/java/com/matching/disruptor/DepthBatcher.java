@@ -1,6 +1,9 @@
 package com.matching.disruptor;
 
 import com.matching.api.MarketDataWebSocketHandler;
+import com.matching.core.domain.BboSnapshot;
+import com.matching.core.engine.MatchingEngine;
+import com.matching.core.engine.MatchingEngineManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -15,6 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 行情防抖合并神器（50ms 合并一次）
@@ -33,6 +37,9 @@ public class DepthBatcher implements EventHandler<MarketDataEvent> {
     // symbol → 卖盘缓冲区（价格升序）
     private final ConcurrentHashMap<String, TreeMap<BigDecimal, BigDecimal>> askBuffers = new ConcurrentHashMap<>();
 
+    // symbol → 已推送过的 BBO 版本号（BBO 没变就不重复推）
+    private final ConcurrentHashMap<String, AtomicLong> pushedBbo = new ConcurrentHashMap<>();
+
     // 防抖定时器（50ms 合并一次）
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
             r -> {
@@ -123,5 +130,25 @@ public class DepthBatcher implements EventHandler<MarketDataEvent> {
                 hasAsk ? asks : new TreeMap<>(),
                 20
         );
+        pushBbo(symbol);
+    }
+
+    // BBO 频道：盘口变化必然伴随深度变化，这里顺带推送，直接读 seqlock 缓存
+    private void pushBbo(String symbol) {
+        if (!wsHandler.hasSubscribers(MarketDataWebSocketHandler.CHANNEL_BBO)) {
+            return;
+        }
+        MatchingEngine engine = MatchingEngineManager.findEngine(symbol);
+        if (engine == null) {
+            return;
+        }
+        BboSnapshot snapshot = new BboSnapshot();
+        long version = engine.getBbo().read(snapshot);
+        AtomicLong pushed = pushedBbo.computeIfAbsent(symbol, k -> new AtomicLong(-1));
+        long prev = pushed.get();
+        if (prev == version || !pushed.compareAndSet(prev, version)) {
+            return;
+        }
+        wsHandler.send(MarketDataWebSocketHandler.CHANNEL_BBO, snapshot.appendJson(new StringBuilder(256)).toString());
     }
 }
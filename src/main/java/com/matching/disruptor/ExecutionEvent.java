@@ -0,0 +1,15 @@
+package com.matching.disruptor;
+
+import com.matching.core.domain.ExecutionReport;
+import com.matching.core.domain.Trade;
+import lombok.Data;
+
+/**
+ * 撮合输出 RingBuffer 槽位：撮合线程发布成交或订单回报（二者只有一个非空），下游（K 线、落盘等）在各自线程消费
+ */
+@Data
+public class ExecutionEvent {
+    public Trade trade;
+    public ExecutionReport report;
+    public long sequence;
+}
@@ -0,0 +1,38 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.matching.core.domain.ExecutionReport;
+import com.matching.core.domain.Trade;
+
+public class ExecutionPublisher {
+    private final RingBuffer<ExecutionEvent> ringBuffer;
+
+    public ExecutionPublisher(Disruptor<ExecutionEvent> executionDisruptor) {
+        this.ringBuffer = executionDisruptor.getRingBuffer();
+    }
+
+    public void publishTrade(Trade trade) {
+        long seq = ringBuffer.next();
+        try {
+            ExecutionEvent e = ringBuffer.get(seq);
+            e.trade = trade;
+            e.report = null;
+            e.sequence = seq;
+        } finally {
+            ringBuffer.publish(seq);
+        }
+    }
+
+    public void publishReport(ExecutionReport report) {
+        long seq = ringBuffer.next();
+        try {
+            ExecutionEvent e = ringBuffer.get(seq);
+            e.trade = null;
+            e.report = report;
+            e.sequence = seq;
+        } finally {
+            ringBuffer.publish(seq);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.matching.disruptor;
+
+import com.matching.core.engine.MatchingEngine;
+import com.matching.core.engine.MatchingEngineManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷门交易对停放：定期扫描所有引擎，变更计数连续 idle-seconds 没动过的订单簿发一条 PARK 到所在分片，
+ * 由撮合线程写盘并释放内存；之后该交易对来了下单 / 撤单 / 改单再由撮合线程调回
+ * 堆占用随活跃交易对数量增长，而不是随上架交易对数量增长
+ * 挂单数超过 max-orders 的订单簿不停放，调回耗时因此有上限
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdleBookSweeper {
+
+    private final OrderEventProducer producer;
+
+    @Value("${app.parking.idle-seconds:0}")
+    private int idleSeconds;               // 0 = 不停放
+
+    @Value("${app.parking.max-orders:10000}")
+    private int maxOrders;
+
+    @Value("${app.parking.sweep-seconds:10}")
+    private int sweepSeconds;
+
+    // 按交易对 id 记录上次看到的变更计数和它变化的时刻（只有扫描线程访问）
+    private long[] seenChange = new long[0];
+    private long[] changedAt = new long[0];
+    private long reportedParks;
+    private long reportedFaultIns;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "idle-book-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (idleSeconds <= 0) {
+            log.info("Idle book parking disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+        log.info("Idle book parking: idle {}s, max {} orders, sweep every {}s", idleSeconds, maxOrders, sweepSeconds);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private void sweep() {
+        try {
+            int slots = MatchingEngineManager.engineSlots();
+            if (seenChange.length < slots) {
+                seenChange = Arrays.copyOf(seenChange, slots);
+                changedAt = Arrays.copyOf(changedAt, slots);
+            }
+            long now = System.currentTimeMillis();
+            long idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+            int resident = 0, parked = 0, requested = 0;
+            for (int id = 0; id < slots; id++) {
+                MatchingEngine engine = MatchingEngineManager.findEngine(id);
+                if (engine == null) {
+                    continue;
+                }
+                if (engine.isParked()) {
+                    parked++;
+                    continue;
+                }
+                resident++;
+                long change = engine.changeCount();
+                if (change != seenChange[id] || changedAt[id] == 0) {
+                    seenChange[id] = change;
+                    changedAt[id] = now;
+                } else if (now - changedAt[id] >= idleMillis && engine.restingOrderCount() <= maxOrders) {
+                    // 不论撮合线程最终是否停放（期间有新指令 / 有条件单），都重新计时，不每轮重发
+                    changedAt[id] = now;
+                    if (producer.publishPark(id, change)) {
+                        requested++;
+                    }
+                }
+            }
+            long parks = MatchingEngineManager.parkCount();
+            long faultIns = MatchingEngineManager.faultInCount();
+            if (requested > 0 || parks != reportedParks || faultIns != reportedFaultIns) {
+                reportedParks = parks;
+                reportedFaultIns = faultIns;
+                log.info("Books resident={} parked={} parking={}; total parks={} fault-ins={} (avg {} µs, max {} µs)",
+                        resident, parked, requested, parks, faultIns,
+                        MatchingEngineManager.faultInAvgMicros(), MatchingEngineManager.faultInMaxMicros());
+            }
+        } catch (Exception e) {
+            log.warn("Idle book sweep failed: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.wal.JournalWriter;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * 定序器：所有入口指令先进同一个 RingBuffer，由这一个线程打全局序号和入口时间、写输入日志，
+ * 批尾日志落到页缓存后再按交易对转发到分片 RingBuffer
+ * 撮合只用这里打的序号和时间，同一份日志回放出同样的订单簿和成交
+ * 入口时间取墙钟（纳秒），保证严格递增：时钟回拨时按上一条 + 1ns
+ * 开启事前风控时排在 RiskCheckHandler 之后，只给风控放行的指令定序
+ * 分片满了不等：ShardRouter 把指令停在分片溢出队列里，批首和空闲超时时补发
+ */
+public class InputSequencer implements EventHandler<OrderEvent> {
+    public static final String JOURNAL_FENCED = "JOURNAL_FENCED";
+
+    private final ShardRouter router;
+    private final JournalWriter journal;      // 不开主备时为 null
+    private final RiskCheckHandler risk;      // 不开事前风控时为 null
+    private OrderEvent[] batch = new OrderEvent[256];
+    private int batchSize;
+    private long lastSequence;
+    private long lastTime;
+
+    public InputSequencer(ShardRouter router, JournalWriter journal, RiskCheckHandler risk) {
+        this.router = router;
+        this.journal = journal;
+        this.risk = risk;
+    }
+
+    @Override
+    public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) throws Exception {
+        if (event.getRejectReason() == null) {     // 风控拒掉的指令不占序号
+            event.setSequence(++lastSequence);
+            event.setIngressTime(nextTime());
+            if (journal == null || journal.append(event)) {
+                if (batchSize == batch.length) {
+                    batch = Arrays.copyOf(batch, batchSize * 2);
+                }
+                batch[batchSize++] = event;    // 本批结束前槽位不会被复用
+            } else if (risk != null) {
+                risk.release(event, JOURNAL_FENCED);     // 日志被隔离丢掉的指令不进撮合，风控冻结要还回去
+            }
+        }
+        if (endOfBatch) {
+            if (journal != null) {
+                journal.flush();
+            }
+            router.drain();
+            for (int i = 0; i < batchSize; i++) {
+                router.route(batch[i]);
+                batch[i] = null;
+            }
+            batchSize = 0;
+        }
+    }
+
+    // 没有新指令但分片溢出队列里还有指令（BacklogWaitStrategy 抛超时）
+    @Override
+    public void onTimeout(long sequence) {
+        router.drain();
+    }
+
+    /**
+     * 备机接管时调用（此时入口还没放开，定序器空闲）：序号和时间接着主机日志的最后一条往下打
+     * 之后入口放开（volatile 写）再经 RingBuffer 发布，定序器线程能看到这里写的值
+     */
+    public void resume(long sequence, long time) {
+        lastSequence = Math.max(lastSequence, sequence);
+        lastTime = Math.max(lastTime, time);
+    }
+
+    private long nextTime() {
+        Instant now = Instant.now();
+        long nanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        lastTime = nanos > lastTime ? nanos : lastTime + 1;
+        return lastTime;
+    }
+}
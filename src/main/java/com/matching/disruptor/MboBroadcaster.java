@@ -0,0 +1,50 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.api.MarketDataWebSocketHandler;
+import com.matching.core.domain.FixedPoint;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 逐笔委托推送：一个 Disruptor 批次编码成一条 JSON 数组消息，降低 WebSocket 帧数
+ * 槽位里的定点价格 / 数量在这里直接按十进制写进 JSON
+ */
+@RequiredArgsConstructor
+public class MboBroadcaster implements EventHandler<MboEvent> {
+    private static final int MAX_BATCH_EVENTS = 512;
+
+    private final MarketDataWebSocketHandler wsHandler;
+    private final StringBuilder batch = new StringBuilder(64 * 1024);
+    private int batchSize;
+
+    @Override
+    public void onEvent(MboEvent event, long sequence, boolean endOfBatch) {
+        if (wsHandler.hasSubscribers(MarketDataWebSocketHandler.CHANNEL_MBO)) {
+            append(event);
+        }
+        event.reset();
+
+        if (batchSize > 0 && (endOfBatch || batchSize >= MAX_BATCH_EVENTS)) {
+            batch.append(']');
+            wsHandler.send(MarketDataWebSocketHandler.CHANNEL_MBO, batch.toString());
+            batch.setLength(0);
+            batchSize = 0;
+        }
+    }
+
+    private void append(MboEvent e) {
+        batch.append(batchSize++ == 0 ? '[' : ',');
+        batch.append("{\"e\":\"").append(e.type)
+                .append("\",\"s\":\"").append(e.symbol)
+                .append("\",\"seq\":").append(e.sequence)
+                .append(",\"id\":").append(e.orderHandle)
+                .append(",\"side\":\"").append(e.side)
+                .append("\",\"p\":\"");
+        FixedPoint.append(batch, e.price).append("\",\"q\":\"");
+        FixedPoint.append(batch, e.quantity).append('"');
+        if (e.execQuantity != 0) {
+            FixedPoint.append(batch.append(",\"x\":\""), e.execQuantity).append('"');
+        }
+        batch.append(",\"ts\":").append(e.timestamp).append('}');
+    }
+}
@@ -0,0 +1,34 @@
+package com.matching.disruptor;
+
+import com.matching.core.domain.MboEventType;
+import com.matching.core.domain.Side;
+import lombok.Data;
+
+/**
+ * 逐笔委托 RingBuffer 槽位：预分配、原地覆写，发布过程零分配
+ * 价格、数量是定点 long（FixedPoint，放大 10^8），撮合线程不建 BigDecimal，由消费者编码时再转
+ */
+@Data
+public class MboEvent {
+    public MboEventType type;
+    public String symbol;
+    public long sequence;          // 每个 symbol 独立递增，消费者据此检测丢包
+    public long orderHandle;       // 对外公开的挂单句柄（不暴露内部 orderId / 用户信息）
+    public Side side;
+    public long price;
+    public long quantity;          // 事件发生后的剩余挂单量（DELETE 时为被撤出的数量）
+    public long execQuantity;      // EXECUTE / REDUCE 时的本次成交 / 扣减量，其它类型为 0
+    public long timestamp;
+
+    public void reset() {
+        type = null;
+        symbol = null;
+        sequence = 0;
+        orderHandle = 0;
+        side = null;
+        price = 0;
+        quantity = 0;
+        execQuantity = 0;
+        timestamp = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.matching.core.domain.MboEventType;
+import com.matching.core.domain.Side;
+
+public class MboPublisher {
+    private final RingBuffer<MboEvent> ringBuffer;
+
+    public MboPublisher(Disruptor<MboEvent> mboDisruptor) {
+        this.ringBuffer = mboDisruptor.getRingBuffer();
+    }
+
+    public void publish(MboEventType type, String symbol, long sequence, long orderHandle,
+                        Side side, long price, long quantity, long execQuantity) {
+        long seq = ringBuffer.next();
+        try {
+            MboEvent e = ringBuffer.get(seq);
+            e.type = type;
+            e.symbol = symbol;
+            e.sequence = sequence;
+            e.orderHandle = orderHandle;
+            e.side = side;
+            e.price = price;
+            e.quantity = quantity;
+            e.execQuantity = execQuantity;
+            e.timestamp = System.currentTimeMillis();
+        } finally {
+            ringBuffer.publish(seq);
+        }
+    }
+}
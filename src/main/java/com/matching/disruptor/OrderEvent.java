@@ -1,14 +1,101 @@
 package com.matching.disruptor;
 
 import com.lmax.disruptor.EventFactory;
+import com.matching.core.domain.FixedPoint;
 import com.matching.core.domain.Order;
+import com.matching.core.domain.OrderIds;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
 import lombok.Data;
 
 @Data
 public class OrderEvent {
     private Order order;
     private String action;
+    private int instrumentId;          // 入口解析好的交易对 id，撮合线程直接按下标取引擎；CANCEL_ALL 时 -1 表示全部
 
+    // 定序器打的全局序号和入口时间（纳秒），撮合只用这两个值，回放日志得到同样的结果
+    private long sequence;
+    private long ingressTime;
+
+    // 事前风控拒绝的原因（定序器 RingBuffer 上由 RiskCheckHandler 写），非 null 时定序器丢弃这条指令
+    private String rejectReason;
+
+    // CANCEL_ALL：按账户批量撤单，side 为 null 表示两侧
+    private long accountId;
+    private Side side;
+    private String reason;
+
+    // SUBMIT 且 order 为 null：流式入口直接写进槽位的原始字段（定点 long，0 = 未传），
+    // 由撮合线程 toOrder 组装，HTTP 线程不建 Order / BigDecimal
+    // PARK（IdleBookSweeper 发起）借用 orderSeq 带扫描时看到的变更计数，撮合线程核对没变才写进 ParkedBookStore
+    private long orderSeq;
+    private OrderType type;
+    private long price;
+    private long stopPrice;
+    private long quantity;
+    private long displayQuantity;
+    private boolean hidden;
+    private StpMode stpMode;
+    private String clientOrderId;
+
+    public Order toOrder(String symbol) {
+        Order o = new Order();
+        o.setOrderId(OrderIds.format(symbol, orderSeq));
+        o.setClientOrderId(clientOrderId);
+        o.setSymbol(symbol);
+        o.setSide(side);
+        o.setType(type);
+        o.setPrice(price == 0 ? null : FixedPoint.toBigDecimal(price));
+        o.setStopPrice(stopPrice == 0 ? null : FixedPoint.toBigDecimal(stopPrice));
+        o.setQuantity(FixedPoint.toBigDecimal(quantity));
+        o.setDisplayQuantity(displayQuantity == 0 ? null : FixedPoint.toBigDecimal(displayQuantity));
+        o.setHidden(hidden);
+        o.setAccountId(accountId);
+        o.setStpMode(stpMode);
+        return o;
+    }
+
+    // 入口复用同一个 OrderEvent 解码前清掉上一单的字段
+    public void clearWire() {
+        orderSeq = 0;
+        type = null;
+        price = 0;
+        stopPrice = 0;
+        quantity = 0;
+        displayQuantity = 0;
+        hidden = false;
+        stpMode = null;
+        clientOrderId = null;
+        accountId = 0;
+        side = null;
+    }
+
+    // 整条指令拷进另一个槽位（定序器转发到分片、备机回放）
+    public void copyFrom(OrderEvent src) {
+        order = src.order;
+        action = src.action;
+        instrumentId = src.instrumentId;
+        sequence = src.sequence;
+        ingressTime = src.ingressTime;
+        rejectReason = null;
+        accountId = src.accountId;
+        side = src.side;
+        reason = src.reason;
+        if (src.order == null) {
+            // 流式入口：只拷原始字段
+            orderSeq = src.orderSeq;
+            type = src.type;
+            price = src.price;
+            stopPrice = src.stopPrice;
+            quantity = src.quantity;
+            displayQuantity = src.displayQuantity;
+            hidden = src.hidden;
+            stpMode = src.stpMode;
+            clientOrderId = src.clientOrderId;
+        }
+    }
 
     public static final EventFactory<OrderEvent> EVENT_FACTORY = OrderEvent::new;
-}
\ No newline at end of file
+}
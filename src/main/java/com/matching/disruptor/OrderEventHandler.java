@@ -1,7 +1,9 @@
 package com.matching.disruptor;
 
 import com.lmax.disruptor.EventHandler;
+import com.matching.core.domain.Order;
 import com.matching.core.domain.Trade;
+import com.matching.core.engine.MatchingEngine;
 import com.matching.core.engine.MatchingEngineManager;
 import lombok.extern.slf4j.Slf4j;
 
@@ -10,22 +12,57 @@ import java.util.List;
 @Slf4j
 public class OrderEventHandler implements EventHandler<OrderEvent> {
 
+    private final int shardId;
+    private final int shardCount;
 
+    public OrderEventHandler(int shardId, int shardCount) {
+        this.shardId = shardId;
+        this.shardCount = shardCount;
+    }
 
     @Override
     public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) throws Exception {
-        // WAL 先写（写前日志）
-        var engine = MatchingEngineManager.getEngine(event.getOrder().getSymbol());
-        List<Trade> trades = null;
-        if ("SUBMIT".equals(event.getAction())) {
-            trades = engine.submitOrder(event.getOrder());
-            log.info("success publish to " + event.getOrder().getOrderId());
-            if (trades != null) {
-                log.info("Trade: success");
+        if ("CANCEL_ALL".equals(event.getAction())) {
+            cancelAll(event);
+            return;
+        }
+        if ("PARK".equals(event.getAction())) {
+            MatchingEngine engine = MatchingEngineManager.findEngine(event.getInstrumentId());
+            if (engine != null) {
+                engine.park(event.getOrderSeq());
             }
+            return;
+        }
+        // 指令已由定序器打好序号、写进输入日志，这里只撮合；交易对 id 在入口已校验，按数组下标取引擎
+        var engine = MatchingEngineManager.getEngine(event.getInstrumentId());
+        if ("SUBMIT".equals(event.getAction())) {
+            Order order = event.getOrder() != null ? event.getOrder() : event.toOrder(engine.getSymbol());
+            order.setTimestamp(event.getIngressTime());
+            List<Trade> trades = engine.submitOrder(order);
+            log.debug("Order {} matched: {} trades", order.getOrderId(), trades == null ? 0 : trades.size());
         } else if ("CANCEL".equals(event.getAction())) {
-            // 撤单：需实现 OrderId -> price/qty 映射，这里简化
-            engine.cancelOrder(event.getOrder().getOrderId());
+            engine.cancelOrder(event.getOrder().getOrderId(), event.getIngressTime());
+        } else if ("AMEND".equals(event.getAction())) {
+            Order order = event.getOrder();
+            engine.amendOrder(order.getOrderId(), order.getAccountId(), order.getPrice(), order.getQuantity(),
+                    event.getIngressTime());
+        }
+    }
+
+    // 指定交易对只撤该交易对；否则撤本分片负责的所有交易对
+    private void cancelAll(OrderEvent event) {
+        if (event.getInstrumentId() >= 0) {
+            MatchingEngine engine = MatchingEngineManager.findEngine(event.getInstrumentId());
+            if (engine != null) {
+                engine.cancelAll(event.getAccountId(), event.getSide(), event.getReason(), event.getIngressTime());
+            }
+            return;
+        }
+        for (int id = shardId; id < MatchingEngineManager.engineSlots(); id += shardCount) {
+            MatchingEngine engine = MatchingEngineManager.findEngine(id);
+            if (engine != null) {
+                engine.cancelAll(event.getAccountId(), event.getSide(), event.getReason(), event.getIngressTime());
+            }
         }
     }
-}
\ No newline at end of file
+}
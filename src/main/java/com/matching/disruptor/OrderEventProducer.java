@@ -1,32 +1,255 @@
 package com.matching.disruptor;
 
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
-
-
+import com.matching.core.domain.Side;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 入口指令写进定序器 RingBuffer（由 InputSequencer 打序号、写日志后转发到分片），只用 tryNext，
+ * 不会把 HTTP 线程无限期卡住；拿不到槽位时按 AdmissionPolicy 处理，返回 false 由调用方回 BUSY
+ * 目标分片的积压 = 分片 RingBuffer 占用 + ShardRouter 溢出环里等待的指令：到上限（两者容量之和）时
+ * 和定序器满一样按策略拒绝 / 等待，丢新单的水位也按这个积压判断
+ * 多进程分区的网关上设置了 remote 时，下单 / 撤单 / 改单 / 批量撤单改发给交易对所在的撮合节点，本地定序器不再使用
+ */
 @Slf4j
 public class OrderEventProducer {
+    private static final long WAIT_PARK_NANOS = 1_000;
+    private static final int EVERY_SHARD = -1;      // 广播的批量撤单：每个分片都要有余量
+    private static final int NO_SHARD = -2;         // 直接发到分片的停放指令：只看分片 RingBuffer 本身
+
+    private final Disruptor<OrderEvent> sequencer;
     private final Disruptor<OrderEvent>[] disruptors;
+    private final ShardRouter router;
+    private final AdmissionPolicy policy;
+    private final long maxWaitNanos;
+    private final long[] shardLimit;          // 每个分片积压的上限：RingBuffer 容量 + 溢出环容量
+    private final long[] shedWatermark;       // 每个分片积压超过它就丢新单
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean accepting = true;      // 备机 / 被隔离的旧主机不接入口指令
+    private volatile boolean shedSubmits;           // 备机复制延迟超限：暂停新单，撤单照收
+    private volatile Remote remote;
+
+    /**
+     * 远端分区：按交易对把指令转发到别的进程，返回 false 与本地分片繁忙同样处理
+     */
+    public interface Remote {
+        boolean publish(OrderEvent event);
+
+        boolean publishCancelAll(long accountId, int instrumentId, Side side, String reason);
+    }
+
+    public OrderEventProducer(Disruptor<OrderEvent> sequencer, Disruptor<OrderEvent>[] disruptors, ShardRouter router) {
+        this(sequencer, disruptors, router, AdmissionPolicy.BOUNDED_WAIT, TimeUnit.MILLISECONDS.toNanos(5), 0.75);
+    }
 
-    @SuppressWarnings("unchecked")
-    public OrderEventProducer(Disruptor<OrderEvent>[] disruptors) {
+    public OrderEventProducer(Disruptor<OrderEvent> sequencer, Disruptor<OrderEvent>[] disruptors, ShardRouter router,
+                              AdmissionPolicy policy, long maxWaitNanos, double shedThreshold) {
+        this.sequencer = sequencer;
         this.disruptors = disruptors;
+        this.router = router;
+        this.policy = policy;
+        this.maxWaitNanos = maxWaitNanos;
+        this.shardLimit = new long[disruptors.length];
+        this.shedWatermark = new long[disruptors.length];
+        for (int i = 0; i < disruptors.length; i++) {
+            int size = disruptors[i].getRingBuffer().getBufferSize();
+            shardLimit[i] = size + router.overflowCapacity();
+            shedWatermark[i] = (long) (size * shedThreshold);
+        }
+    }
+
+    // 交易对 id → 分片（取模，不再逐次哈希字符串），撮合线程按同一规则认领自己负责的交易对
+    public static int shardOf(int instrumentId, int shardCount) {
+        return instrumentId % shardCount;
+    }
 
+    /**
+     * @return false 表示分片繁忙未被接收（调用方回 429），订单没有进入撮合
+     */
+    public boolean publish(OrderEvent event) {
+        Remote remote = this.remote;
+        if (remote != null) {
+            return accepted(remote.publish(event));
+        }
+        int shardId = shardOf(event.getInstrumentId(), disruptors.length);
+        // 新单是低优先级：分片已经积压时先丢新单，给撤单 / 改单留出槽位
+        boolean lowPriority = "SUBMIT".equals(event.getAction());
+        if (!accepting || (lowPriority && (shedSubmits || (policy == AdmissionPolicy.SHED_LOW_PRIORITY
+                && pending(shardId) >= shedWatermark[shardId])))) {
+            rejected.increment();
+            return false;
+        }
+        RingBuffer<OrderEvent> ringBuffer = sequencer.getRingBuffer();
+        long sequence = claim(ringBuffer, shardId);
+        if (sequence < 0) {
+            return false;
+        }
+        try {
+            ringBuffer.get(sequence).copyFrom(event);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        return true;
     }
 
-    public void publish(OrderEvent event) {
+    /**
+     * 批量撤单：只占定序器一个槽位；指定交易对（instrumentId >= 0）时只转发给所在分片，否则每个分片一条，
+     * 由分片线程撤掉该账户在本分片所有交易对上的挂单 —— 不论撤多少单，每个分片只占一个槽位
+     */
+    public boolean publishCancelAll(long accountId, int instrumentId, Side side, String reason) {
+        Remote remote = this.remote;
+        if (remote != null) {
+            return accepted(remote.publishCancelAll(accountId, instrumentId, side, reason));
+        }
+        if (!accepting) {
+            rejected.increment();
+            return false;
+        }
+        RingBuffer<OrderEvent> ringBuffer = sequencer.getRingBuffer();
+        long sequence = claim(ringBuffer, instrumentId < 0 ? EVERY_SHARD : shardOf(instrumentId, disruptors.length));
+        if (sequence < 0) {
+            return false;
+        }
+        try {
+            OrderEvent slot = ringBuffer.get(sequence);
+            slot.setOrder(null);
+            slot.setAction("CANCEL_ALL");
+            slot.setInstrumentId(instrumentId);
+            slot.setAccountId(accountId);
+            slot.setSide(side);
+            slot.setReason(reason);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
 
-        String symbol = event.getOrder().getSymbol();
-        int shardId = Math.abs(symbol.hashCode() % disruptors.length);
-        RingBuffer<OrderEvent> ringBuffer = disruptors[shardId].getRingBuffer();
-        long sequence = ringBuffer.next();
+    /**
+     * 停放空闲订单簿：直接发到所在分片（不改变撮合结果，不经定序器、不写日志），
+     * 由撮合线程在两条指令之间执行，停放和撮合不并发
+     */
+    public boolean publishPark(int instrumentId, long changeCount) {
+        RingBuffer<OrderEvent> ringBuffer = disruptors[shardOf(instrumentId, disruptors.length)].getRingBuffer();
+        long sequence = claim(ringBuffer, NO_SHARD);
+        if (sequence < 0) {
+            return false;
+        }
         try {
-            ringBuffer.get(sequence).setOrder(event.getOrder());
-            ringBuffer.get(sequence).setAction(event.getAction());
+            OrderEvent slot = ringBuffer.get(sequence);
+            slot.setOrder(null);
+            slot.setAction("PARK");
+            slot.setInstrumentId(instrumentId);
+            slot.setOrderSeq(changeCount);
         } finally {
             ringBuffer.publish(sequence);
         }
+        return true;
+    }
+
+    // 申请槽位：目标分片积压到上限或 RingBuffer 满时，REJECT 只试一次，其余策略最多等 maxWaitNanos；失败返回 -1
+    private long claim(RingBuffer<OrderEvent> ringBuffer, int shardId) {
+        long deadline = 0;
+        while (true) {
+            if (hasRoom(shardId)) {
+                try {
+                    return ringBuffer.tryNext();
+                } catch (InsufficientCapacityException ignored) {
+                    // 按策略等待
+                }
+            }
+            if (policy == AdmissionPolicy.REJECT) {
+                break;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + maxWaitNanos;
+            } else if (now - deadline >= 0) {
+                break;
+            }
+            LockSupport.parkNanos(WAIT_PARK_NANOS);
+        }
+        rejected.increment();
+        return -1;
+    }
+
+    private boolean hasRoom(int shardId) {
+        if (shardId == NO_SHARD) {
+            return true;
+        }
+        if (shardId != EVERY_SHARD) {
+            return pending(shardId) < shardLimit[shardId];
+        }
+        for (int i = 0; i < disruptors.length; i++) {
+            if (pending(i) >= shardLimit[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 分片积压：RingBuffer 里没撮合的加上溢出环里还没进 RingBuffer 的
+    private long pending(int shardId) {
+        return occupied(disruptors[shardId].getRingBuffer()) + router.backlog(shardId);
+    }
+
+    private boolean accepted(boolean accepted) {
+        if (!accepted) {
+            rejected.increment();
+        }
+        return accepted;
+    }
+
+    private static long occupied(RingBuffer<OrderEvent> ringBuffer) {
+        return ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
+    }
+
+    // 分片积压占上限的比例（0~1，含溢出环），监控和限流用
+    public double occupancy(int shardId) {
+        return (double) pending(shardId) / shardLimit[shardId];
+    }
+
+    public void setAccepting(boolean accepting) {
+        this.accepting = accepting;
+    }
+
+    public void setShedSubmits(boolean shedSubmits) {
+        this.shedSubmits = shedSubmits;
+    }
+
+    public void setRemote(Remote remote) {
+        this.remote = remote;
+    }
+
+    /**
+     * 等定序器和所有分片把已发布的指令处理完（备机接管前用）
+     */
+    public void awaitDrained() {
+        awaitDrained(sequencer.getRingBuffer());
+        while (router.hasBacklog()) {
+            LockSupport.parkNanos(WAIT_PARK_NANOS);
+        }
+        for (Disruptor<OrderEvent> disruptor : disruptors) {
+            awaitDrained(disruptor.getRingBuffer());
+        }
+    }
+
+    private static void awaitDrained(RingBuffer<OrderEvent> ringBuffer) {
+        while (occupied(ringBuffer) > 0) {
+            LockSupport.parkNanos(WAIT_PARK_NANOS);
+        }
+    }
+
+    public int shardCount() {
+        return disruptors.length;
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
     }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.api.AccountSessionIndex;
+import com.matching.api.PrivateSession;
+import com.matching.core.domain.ExecutionReport;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.Trade;
+import org.springframework.web.socket.TextMessage;
+
+import java.math.BigDecimal;
+
+/**
+ * 撮合输出上的私有推送消费者：共 partitions 个，第 k 个只处理账户哈希落在第 k 份的账户，
+ * 查 AccountSessionIndex 得到该账户的在线会话，有会话才编码 —— 每个账户的每条事件只编码一次，同一个 TextMessage 发给它的所有会话
+ * 成交给买卖双方各推一条 fill（side 为本方方向，liquidity 区分 MAKER / TAKER），回报推给下单账户
+ */
+public class PrivateStreamPublisher implements EventHandler<ExecutionEvent> {
+    private final AccountSessionIndex index;
+    private final int partition;
+    private final StringBuilder sb = new StringBuilder(256);
+
+    public PrivateStreamPublisher(AccountSessionIndex index, int partition) {
+        this.index = index;
+        this.partition = partition;
+    }
+
+    @Override
+    public void onEvent(ExecutionEvent event, long sequence, boolean endOfBatch) {
+        Trade t = event.trade;
+        if (t != null) {
+            fill(t, t.getBuyAccountId(), Side.BUY, t.getBuyOrderId());
+            fill(t, t.getSellAccountId(), Side.SELL, t.getSellOrderId());
+        } else if (event.report != null) {
+            report(event.report);
+        }
+    }
+
+    private void fill(Trade t, long accountId, Side side, String orderId) {
+        if (!mine(accountId)) {
+            return;
+        }
+        PrivateSession[] sessions = index.sessions(partition, accountId);
+        if (sessions == null) {
+            return;
+        }
+        sb.setLength(0);
+        sb.append("{\"e\":\"fill\",\"symbol\":\"").append(t.getSymbol())
+                .append("\",\"orderId\":\"").append(orderId)
+                .append("\",\"tradeId\":").append(t.getTradeId())
+                .append(",\"side\":\"").append(side)
+                .append("\",\"price\":\"").append(plain(t.getPrice()))
+                .append("\",\"qty\":\"").append(plain(t.getQuantity()))
+                .append("\",\"liquidity\":\"").append(t.getSide() == side ? "TAKER" : "MAKER")
+                .append("\",\"ts\":").append(t.getTimestamp()).append('}');
+        index.send(sessions, new TextMessage(sb.toString()));
+    }
+
+    private void report(ExecutionReport r) {
+        if (r.getAccountId() == 0 || !mine(r.getAccountId())) {
+            return;         // 风控拒掉的改单不带账户
+        }
+        PrivateSession[] sessions = index.sessions(partition, r.getAccountId());
+        if (sessions == null) {
+            return;
+        }
+        sb.setLength(0);
+        sb.append("{\"e\":\"report\",\"symbol\":\"").append(r.getSymbol())
+                .append("\",\"orderId\":\"").append(r.getOrderId())
+                .append("\",\"side\":").append(r.getSide() == null ? "null" : "\"" + r.getSide() + "\"")
+                .append(",\"execType\":\"").append(r.getExecType())
+                .append("\",\"reason\":").append(r.getReason() == null ? "null" : "\"" + r.getReason() + "\"")
+                .append(",\"qty\":\"").append(plain(r.getQuantity()))
+                .append("\",\"leavesQty\":").append(r.getLeavesQty() == null ? "null" : "\"" + plain(r.getLeavesQty()) + "\"")
+                .append(",\"ts\":").append(r.getTimestamp()).append('}');
+        index.send(sessions, new TextMessage(sb.toString()));
+    }
+
+    private boolean mine(long accountId) {
+        return accountId != 0 && index.partitionOf(accountId) == partition;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+}
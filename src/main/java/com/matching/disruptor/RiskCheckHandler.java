@@ -0,0 +1,180 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.core.account.AccountBook;
+import com.matching.core.domain.BboSnapshot;
+import com.matching.core.domain.ExecType;
+import com.matching.core.domain.ExecutionReport;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Instrument;
+import com.matching.core.domain.Order;
+import com.matching.core.domain.OrderIds;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.core.engine.MatchingEngine;
+import com.matching.core.engine.MatchingEngineManager;
+
+import java.math.BigDecimal;
+
+/**
+ * 事前风控：定序器 RingBuffer 上排在 InputSequencer 前面的消费者，按账户可用余额冻结下单资金
+ * 买单冻结计价资产（限价 × 数量，市价单按对手最优价上浮 market-buffer-bps 估算），卖单冻结基础资产；
+ * 市价买单的估价写回指令的 price 作为保护价（随指令写进日志），撮合按 保护价 × 数量 限制累计成交额，扫穿估价的部分作废
+ * 可用不足的下单 / 加价加量的改单在这里拒掉（回报 REJECTED / AMEND_REJECTED），不打序号、不写日志、不进撮合
+ * 冻结在撮合输出线程上按成交和回报释放（SettlementLedger），撮合线程不等风控，也不碰账户
+ */
+public class RiskCheckHandler implements EventHandler<OrderEvent> {
+    public static final String INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
+    public static final String ACCOUNT_REQUIRED = "ACCOUNT_REQUIRED";
+
+    private final AccountBook accounts;
+    private final InstrumentRegistry instruments;
+    private final ExecutionPublisher executionPublisher;
+    private final long marketBufferBps;
+    private final BboSnapshot bbo = new BboSnapshot();
+
+    public RiskCheckHandler(AccountBook accounts, InstrumentRegistry instruments, ExecutionPublisher executionPublisher,
+                            long marketBufferBps) {
+        this.accounts = accounts;
+        this.instruments = instruments;
+        this.executionPublisher = executionPublisher;
+        this.marketBufferBps = marketBufferBps;
+    }
+
+    @Override
+    public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) {
+        String reason = check(event, false);
+        event.setRejectReason(reason);
+        if (reason != null) {
+            reject(event, reason);
+        }
+    }
+
+    /**
+     * 备机回放主机已经放行的指令：照样冻结但不检查可用，接管后冻结和挂单对得上
+     */
+    public void replay(OrderEvent event) {
+        if (accounts.riskEnabled()) {
+            check(event, true);
+        }
+    }
+
+    /**
+     * 风控放行后没能进撮合的指令（定序器日志被隔离丢弃）：按拒单回报释放下单冻结（剩余量 0），
+     * 改单退回追加的冻结；在定序器线程上调用
+     */
+    public void release(OrderEvent event, String reason) {
+        Instrument instrument = instruments.get(event.getInstrumentId());
+        if (instrument == null || (!"SUBMIT".equals(event.getAction()) && !"AMEND".equals(event.getAction()))) {
+            return;
+        }
+        if ("AMEND".equals(event.getAction())) {
+            Order order = event.getOrder();
+            long seq = OrderIds.seqOf(instrument.getSymbol(), order.getOrderId());
+            if (seq >= 0 && order.getAccountId() != 0) {
+                accounts.cancelRaise(order.getAccountId(), seq);
+            }
+        }
+        reject(event, reason);
+    }
+
+    // 通过返回 null，否则返回拒绝原因
+    private String check(OrderEvent event, boolean force) {
+        boolean submit = "SUBMIT".equals(event.getAction());
+        if (!submit && !"AMEND".equals(event.getAction())) {
+            return null;
+        }
+        Instrument instrument = instruments.get(event.getInstrumentId());
+        if (instrument == null) {
+            return null;        // 入口已校验；上新前残留的指令交给撮合处理
+        }
+        Order order = event.getOrder();
+        if (!submit) {
+            // 改单按所属账户只查一个分段；不带账户的改单没法追加冻结，不放行（回放旧日志时照旧交给撮合）
+            if (order.getAccountId() == 0) {
+                return force ? null : ACCOUNT_REQUIRED;
+            }
+            long seq = OrderIds.seqOf(instrument.getSymbol(), order.getOrderId());
+            return seq < 0 || accounts.raise(order.getAccountId(), seq, FixedPoint.toLong(order.getPrice()),
+                    FixedPoint.toLong(order.getQuantity()), force) ? null : INSUFFICIENT_FUNDS;
+        }
+
+        long accountId;
+        long seq;
+        Side side;
+        OrderType type;
+        long price;
+        long stopPrice;
+        long qty;
+        if (order != null) {
+            accountId = order.getAccountId();
+            seq = OrderIds.seqOf(instrument.getSymbol(), order.getOrderId());
+            side = order.getSide();
+            type = order.getType();
+            price = FixedPoint.toLong(order.getPrice());
+            stopPrice = FixedPoint.toLong(order.getStopPrice());
+            qty = FixedPoint.toLong(order.getQuantity());
+        } else {
+            accountId = event.getAccountId();
+            seq = event.getOrderSeq();
+            side = event.getSide();
+            type = event.getType();
+            price = event.getPrice();
+            stopPrice = event.getStopPrice();
+            qty = event.getQuantity();
+        }
+        if (seq < 0) {
+            return null;        // 订单号不合法，撮合会拒
+        }
+        if (side == Side.SELL) {
+            return accounts.hold(accountId, seq, instrument.getBaseAssetId(), 0, qty, force) ? null : INSUFFICIENT_FUNDS;
+        }
+        boolean market = type == OrderType.MARKET || type == OrderType.STOP_MARKET || type == OrderType.TAKE_PROFIT_MARKET;
+        if (market && price == 0) {
+            // 已带保护价（客户端指定，或回放日志里主机风控写的）就按它冻结
+            price = referencePrice(instrument, stopPrice);
+            if (price == 0 && !force) {
+                return "NO_REFERENCE_PRICE";
+            }
+            price += price / 10_000 * marketBufferBps + price % 10_000 * marketBufferBps / 10_000;
+            if (order != null) {
+                order.setPrice(FixedPoint.toBigDecimal(price));
+            } else {
+                event.setPrice(price);
+            }
+        }
+        return accounts.hold(accountId, seq, instrument.getQuoteAssetId(), price, qty, force) ? null : INSUFFICIENT_FUNDS;
+    }
+
+    // 市价买单的估价：条件单用触发价，否则取卖一，没有卖盘取最新成交价；都没有返回 0
+    private long referencePrice(Instrument instrument, long stopPrice) {
+        MatchingEngine engine = MatchingEngineManager.findEngine(instrument.getId());
+        BigDecimal reference = null;
+        if (engine != null) {
+            engine.getBbo().read(bbo);
+            reference = bbo.getAskPrice() != null ? bbo.getAskPrice() : bbo.getLastPrice();
+        }
+        long price = FixedPoint.toLong(reference);
+        return Math.max(price, stopPrice);
+    }
+
+    private void reject(OrderEvent event, String reason) {
+        Instrument instrument = instruments.get(event.getInstrumentId());
+        Order order = event.getOrder();
+        long now = System.currentTimeMillis();
+        if ("AMEND".equals(event.getAction())) {
+            // 改单指令不带剩余量，原单保持不变
+            executionPublisher.publishReport(new ExecutionReport(instrument.getSymbol(), order.getOrderId(),
+                    order.getAccountId(), null, ExecType.AMEND_REJECTED, reason, BigDecimal.ZERO, null, now));
+        } else if (order != null) {
+            executionPublisher.publishReport(new ExecutionReport(instrument.getSymbol(), order.getOrderId(),
+                    order.getAccountId(), order.getSide(), ExecType.REJECTED, reason, order.getQuantity(),
+                    BigDecimal.ZERO, now));
+        } else {
+            executionPublisher.publishReport(new ExecutionReport(instrument.getSymbol(),
+                    OrderIds.format(instrument.getSymbol(), event.getOrderSeq()), event.getAccountId(), event.getSide(),
+                    ExecType.REJECTED, reason, FixedPoint.toBigDecimal(event.getQuantity()), BigDecimal.ZERO, now));
+        }
+    }
+}
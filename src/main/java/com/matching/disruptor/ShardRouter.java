@@ -0,0 +1,199 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 已定序的指令按交易对 id 转发到分片 RingBuffer
+ * 定序器线程只用 tryNext：某个分片满了，指令拷进该分片自己的溢出环里按序等待，
+ * 其他分片照常转发，一个慢分片不会卡住定序器；已写日志的指令不能丢，否则日志和撮合不一致
+ * 溢出环有固定容量、槽位复用：满了定序器才在这个分片上等，定序器 RingBuffer 随之积压，
+ * 入口按准入策略拒绝 / 等待（OrderEventProducer 把分片占用和溢出积压一起算），堆不会随慢分片增长
+ * 溢出环在批首和定序器空闲超时（BacklogWaitStrategy → InputSequencer.onTimeout）时补发
+ * 备机回放走 replay：回放线程只有它一个生产者，定序器此时没有指令，分片满了就等
+ */
+public class ShardRouter {
+    private final Disruptor<OrderEvent>[] shards;
+    private final Overflow[] overflow;                  // 只有定序器线程读写
+    private final AtomicIntegerArray parked;            // 每个分片溢出环里的指令数，入口准入时读
+    private final int overflowCapacity;
+    private volatile int backlog;                       // 所有分片溢出环里的指令数
+
+    /**
+     * @param overflowCapacity 每个分片溢出环的容量，向上取 2 的幂
+     */
+    public ShardRouter(Disruptor<OrderEvent>[] shards, int overflowCapacity) {
+        this.shards = shards;
+        this.overflowCapacity = Integer.highestOneBit(Math.max(1, overflowCapacity) * 2 - 1);
+        this.overflow = new Overflow[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            overflow[i] = new Overflow(this.overflowCapacity);
+        }
+        this.parked = new AtomicIntegerArray(shards.length);
+    }
+
+    public void route(OrderEvent event) {
+        if (broadcast(event)) {
+            // 不指定交易对：每个分片一条，各自撤本分片负责的交易对
+            for (int i = 0; i < shards.length; i++) {
+                offer(i, event);
+            }
+            return;
+        }
+        offer(shardOf(event), event);
+    }
+
+    /**
+     * 备机回放线程调用：分片满了就等
+     */
+    public void replay(OrderEvent event) {
+        if (broadcast(event)) {
+            for (Disruptor<OrderEvent> shard : shards) {
+                publish(shard.getRingBuffer(), event);
+            }
+            return;
+        }
+        publish(shards[shardOf(event)].getRingBuffer(), event);
+    }
+
+    /**
+     * 把溢出环里的指令按序补发到分片，发到分片再满为止（定序器线程调用）
+     */
+    public void drain() {
+        if (backlog == 0) {
+            return;
+        }
+        int left = 0;
+        for (int i = 0; i < shards.length; i++) {
+            Overflow queue = overflow[i];
+            if (queue.isEmpty()) {
+                continue;
+            }
+            RingBuffer<OrderEvent> ringBuffer = shards[i].getRingBuffer();
+            while (!queue.isEmpty() && tryPublish(ringBuffer, queue.peek())) {
+                queue.poll();
+            }
+            parked.lazySet(i, queue.size());
+            left += queue.size();
+        }
+        backlog = left;
+    }
+
+    public boolean hasBacklog() {
+        return backlog != 0;
+    }
+
+    public int backlog() {
+        return backlog;
+    }
+
+    /**
+     * 某个分片溢出环里等待的指令数（任意线程可读）
+     */
+    public int backlog(int shardId) {
+        return parked.get(shardId);
+    }
+
+    public int overflowCapacity() {
+        return overflowCapacity;
+    }
+
+    // 该分片前面还有溢出的指令时排到队尾，保证同一分片内按定序顺序撮合
+    private void offer(int shardId, OrderEvent event) {
+        Overflow queue = overflow[shardId];
+        RingBuffer<OrderEvent> ringBuffer = shards[shardId].getRingBuffer();
+        if (queue.isEmpty() && tryPublish(ringBuffer, event)) {
+            return;
+        }
+        if (queue.isFull()) {
+            // 溢出环也满了：定序器在这个分片上等出一个空位，期间入口指令积压在定序器 RingBuffer 里
+            publish(ringBuffer, queue.peek());
+            queue.poll();
+            backlog--;
+        }
+        queue.add(event);                   // 定序器槽位会被复用，停放的指令拷进溢出环自己的槽位
+        parked.lazySet(shardId, queue.size());
+        backlog++;
+    }
+
+    private int shardOf(OrderEvent event) {
+        return OrderEventProducer.shardOf(event.getInstrumentId(), shards.length);
+    }
+
+    private static boolean broadcast(OrderEvent event) {
+        return "CANCEL_ALL".equals(event.getAction()) && event.getInstrumentId() < 0;
+    }
+
+    private static boolean tryPublish(RingBuffer<OrderEvent> ringBuffer, OrderEvent event) {
+        long sequence;
+        try {
+            sequence = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return false;
+        }
+        try {
+            ringBuffer.get(sequence).copyFrom(event);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    private static void publish(RingBuffer<OrderEvent> ringBuffer, OrderEvent event) {
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).copyFrom(event);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * 单个分片的溢出环：容量固定，槽位第一次用到时才建、之后一直复用
+     */
+    private static final class Overflow {
+        private final OrderEvent[] slots;
+        private final int mask;
+        private long head;
+        private long tail;
+
+        Overflow(int capacity) {
+            this.slots = new OrderEvent[capacity];
+            this.mask = capacity - 1;
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        boolean isFull() {
+            return tail - head == slots.length;
+        }
+
+        int size() {
+            return (int) (tail - head);
+        }
+
+        OrderEvent peek() {
+            return slots[(int) head & mask];
+        }
+
+        void add(OrderEvent event) {
+            int i = (int) tail & mask;
+            if (slots[i] == null) {
+                slots[i] = new OrderEvent();
+            }
+            slots[i].copyFrom(event);
+            tail++;
+        }
+
+        // 出队时放掉指令引用的 Order，停着的槽位不拖住已撮合的订单
+        void poll() {
+            slots[(int) head & mask].setOrder(null);
+            head++;
+        }
+    }
+}
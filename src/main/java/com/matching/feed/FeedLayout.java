@@ -0,0 +1,70 @@
+package com.matching.feed;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 共享内存行情环的文件格式（小端，写端和读端共用这些常量）：
+ * <pre>
+ * [0, 128)          文件头：magic、版本、记录长度、槽位数、交易对表容量、写端任期（每次启动不同）；
+ *                   偏移 64 处是写游标（下一条记录的序号），独占一个缓存行
+ * [128, +SYMBOLS)   交易对表：按交易对 id 每项 32 字节 [int 长度][28 字节 ASCII 名]，长度最后写，0 表示还没登记
+ * 之后              记录环：槽位数（2 的幂）× 64 字节，序号 seq 的记录在 seq & (槽位数 - 1)
+ * </pre>
+ * 每条记录 64 字节：
+ * <pre>
+ *   0  long  stamp    记录序号；写入中为 -1（seqlock：先置 -1，写正文，最后 release 写回序号）
+ *   8  byte  type     DEPTH / BBO
+ *   9  byte  side     DEPTH：0 买 1 卖
+ *   12 int   交易对 id
+ *   DEPTH：16 价格  24 数量（0 = 删档）  32 时间（毫秒）  40 行情序号
+ *   BBO：  16 买一价 24 买一量 32 卖一价 40 卖一量 48 最新成交价 56 时间（毫秒）；没有的价量为 0
+ * </pre>
+ * 价格、数量都是 FixedPoint 定点 long（8 位小数）
+ * 单写多读：读端不反压写端，落后超过一圈的读端按游标跳到最新并报告丢失的条数
+ */
+public final class FeedLayout {
+    public static final int MAGIC = 0x4D445242;         // "MDRB"
+    public static final int VERSION = 1;
+
+    public static final int HEADER = 128;
+    public static final int H_MAGIC = 0;
+    public static final int H_VERSION = 4;
+    public static final int H_RECORD_SIZE = 8;
+    public static final int H_CAPACITY = 12;
+    public static final int H_SYMBOLS = 16;
+    public static final int H_EPOCH = 24;
+    public static final int H_CURSOR = 64;
+
+    public static final int SYMBOL_ENTRY = 32;
+    public static final int SYMBOL_MAX_LENGTH = SYMBOL_ENTRY - 4;
+
+    public static final int RECORD = 64;
+    public static final int R_STAMP = 0;
+    public static final int R_TYPE = 8;
+    public static final int R_SIDE = 9;
+    public static final int R_INSTRUMENT = 12;
+    public static final int R_FIELDS = 16;
+
+    public static final byte DEPTH = 1;
+    public static final byte BBO = 2;
+
+    public static final byte BID = 0;
+    public static final byte ASK = 1;
+
+    // 映射内存上的 long 按对齐地址做 acquire / release 读写
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private FeedLayout() {
+    }
+
+    static long fileSize(int capacity, int symbols) {
+        return HEADER + (long) symbols * SYMBOL_ENTRY + (long) capacity * RECORD;
+    }
+
+    static int records(int symbols) {
+        return HEADER + symbols * SYMBOL_ENTRY;
+    }
+}
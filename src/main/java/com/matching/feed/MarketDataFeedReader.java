@@ -0,0 +1,189 @@
+package com.matching.feed;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.matching.feed.FeedLayout.*;
+
+/**
+ * 共享内存行情环的读端（只依赖 JDK，可以单独拷给同机的其他进程用）：
+ * <pre>
+ *   try (MarketDataFeedReader reader = MarketDataFeedReader.open(Path.of("./feed/market-data.ring"))) {
+ *       while (running) {
+ *           if (reader.poll(listener, 256) == 0) Thread.onSpinWait();
+ *       }
+ *   }
+ * </pre>
+ * 每个读端各自维护读到的序号，互不影响，也不影响写端；一个实例只能由一个线程使用
+ * 打开时从最新位置开始读（只要之后的变化），需要先拿全量深度的走 REST /api/depth 快照
+ */
+public final class MarketDataFeedReader implements AutoCloseable {
+
+    /**
+     * 回调在 poll 的线程上执行；价格、数量为 FixedPoint 定点 long（8 位小数），没有的价量为 0
+     */
+    public interface Listener {
+        void onDepth(int instrumentId, boolean bid, long price, long qty, long timestamp);
+
+        void onBbo(int instrumentId, long bidPrice, long bidQty, long askPrice, long askQty, long lastPrice, long timestamp);
+
+        /**
+         * 落后超过一圈被写端覆盖，丢了 lost 条；之后的增量接不上之前的状态，应重新取快照
+         */
+        default void onGap(long lost) {
+        }
+
+        /**
+         * 写端重启（环已清空），之前的状态作废
+         */
+        default void onReset() {
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buf;
+    private final int capacity;
+    private final int symbols;
+    private final int records;
+    private final long mask;
+    private final String[] names;
+    private long epoch;
+    private long next;
+
+    private MarketDataFeedReader(FileChannel channel, ByteBuffer buf) {
+        this.channel = channel;
+        this.buf = buf;
+        if (buf.getInt(H_MAGIC) != MAGIC || buf.getInt(H_VERSION) != VERSION || buf.getInt(H_RECORD_SIZE) != RECORD) {
+            throw new IllegalStateException("Not a market data feed (or unsupported version)");
+        }
+        this.capacity = buf.getInt(H_CAPACITY);
+        this.symbols = buf.getInt(H_SYMBOLS);
+        this.records = FeedLayout.records(symbols);
+        this.mask = capacity - 1;
+        this.names = new String[symbols];
+        this.epoch = (long) LONGS.getAcquire(buf, H_EPOCH);
+        this.next = (long) LONGS.getAcquire(buf, H_CURSOR);
+    }
+
+    /**
+     * 只读映射写端的文件（写端需先启动）
+     */
+    public static MarketDataFeedReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            long size = FeedLayout.fileSize(header.getInt(H_CAPACITY), header.getInt(H_SYMBOLS));
+            if (header.getInt(H_MAGIC) != MAGIC || channel.size() < size) {
+                throw new IllegalStateException("Not a market data feed: " + path);
+            }
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            return new MarketDataFeedReader(channel, buf);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读出已发布的记录交给 listener，最多 limit 条，返回本次读到的条数（没有新记录返回 0，不阻塞）
+     */
+    public int poll(Listener listener, int limit) {
+        long e = (long) LONGS.getAcquire(buf, H_EPOCH);
+        if (e != epoch) {
+            if (e == 0) {
+                return 0;               // 写端正在初始化
+            }
+            if (buf.getInt(H_CAPACITY) != capacity || buf.getInt(H_SYMBOLS) != symbols) {
+                throw new IllegalStateException("Market data feed restarted with a different layout, reopen it");
+            }
+            epoch = e;
+            next = 0;
+            Arrays.fill(names, null);
+            listener.onReset();
+        }
+        int count = 0;
+        while (count < limit) {
+            int at = records + (int) (next & mask) * RECORD;
+            long stamp = (long) LONGS.getAcquire(buf, at + R_STAMP);
+            if (stamp != next) {
+                if (stamp < next && (long) LONGS.getAcquire(buf, H_CURSOR) <= next) {
+                    break;              // 还没写到 / 正在写这一条
+                }
+                // 这一条已经发布过：stamp 变回 next 说明刚才读的时候还没发布完，重读；否则已被下一圈覆盖
+                if ((long) LONGS.getAcquire(buf, at + R_STAMP) != next) {
+                    lapped(listener);
+                }
+                continue;
+            }
+            byte type = buf.get(at + R_TYPE);
+            byte side = buf.get(at + R_SIDE);
+            int id = buf.getInt(at + R_INSTRUMENT);
+            long f0 = buf.getLong(at + R_FIELDS);
+            long f1 = buf.getLong(at + R_FIELDS + 8);
+            long f2 = buf.getLong(at + R_FIELDS + 16);
+            long f3 = buf.getLong(at + R_FIELDS + 24);
+            long f4 = buf.getLong(at + R_FIELDS + 32);
+            long f5 = buf.getLong(at + R_FIELDS + 40);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(buf, at + R_STAMP) != next) {
+                lapped(listener);       // 读的过程中被覆盖
+                continue;
+            }
+            next++;
+            count++;
+            if (type == DEPTH) {
+                listener.onDepth(id, side == BID, f0, f1, f2);
+            } else if (type == BBO) {
+                listener.onBbo(id, f0, f1, f2, f3, f4, f5);
+            }
+        }
+        return count;
+    }
+
+    // 跳到写游标处重新跟上
+    private void lapped(Listener listener) {
+        long cursor = (long) LONGS.getAcquire(buf, H_CURSOR);
+        listener.onGap(cursor - next);
+        next = cursor;
+    }
+
+    /**
+     * 交易对 id → symbol；写端还没登记（或名字太长没登记）返回 null
+     */
+    public String symbol(int instrumentId) {
+        if (instrumentId < 0 || instrumentId >= symbols) {
+            return null;
+        }
+        String name = names[instrumentId];
+        if (name == null) {
+            int at = HEADER + instrumentId * SYMBOL_ENTRY;
+            int len = (int) INTS.getAcquire(buf, at);
+            if (len <= 0 || len > SYMBOL_MAX_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[len];
+            buf.get(at + 4, bytes);
+            names[instrumentId] = name = new String(bytes, StandardCharsets.US_ASCII);
+        }
+        return name;
+    }
+
+    /**
+     * 写端已发布、本读端还没读的记录数
+     */
+    public long lag() {
+        return (long) LONGS.getAcquire(buf, H_CURSOR) - next;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,219 @@
+package com.matching.feed;
+
+import com.lmax.disruptor.EventHandler;
+import com.matching.core.domain.BboSnapshot;
+import com.matching.core.domain.DepthLevel;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Instrument;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.core.engine.MatchingEngine;
+import com.matching.core.engine.MatchingEngineManager;
+import com.matching.disruptor.MarketDataEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.matching.feed.FeedLayout.*;
+
+/**
+ * 行情 RingBuffer 上和 DepthBatcher 并列的消费者：把逐档深度变化原样写进共享内存环（不经 50ms 合并），
+ * 每批结束时给本批涉及的交易对各补一条 BBO（版本没变不写）
+ * 同机的定价、风控、K 线等进程用 MarketDataFeedReader 映射同一个文件读取，不走 socket、不解析 JSON
+ * 文件格式见 FeedLayout；写端每次启动换一个任期、清空环，读端据此发现重启
+ */
+@Slf4j
+@Component
+public class MarketDataFeedWriter implements EventHandler<MarketDataEvent> {
+
+    private final InstrumentRegistry instruments;
+    private final boolean enabled;
+    private final int capacity;
+    private final int symbols;
+    private final FileChannel channel;
+    private final ByteBuffer buf;
+    private final int records;
+    private final long mask;
+    private long cursor;
+
+    private final BboSnapshot bbo = new BboSnapshot();
+    private long[] bboVersion = new long[64];       // 交易对 id → 上次写出的 BBO 版本
+    private boolean[] touched = new boolean[64];    // 本批有深度变化的交易对
+    private int[] touchedIds = new int[64];
+    private int touchedCount;
+    private boolean[] named = new boolean[64];      // 已登记进交易对表
+
+    public MarketDataFeedWriter(InstrumentRegistry instruments,
+                                @Value("${app.feed.enabled:false}") boolean enabled,
+                                @Value("${app.feed.path:./feed/market-data.ring}") String path,
+                                @Value("${app.feed.capacity:65536}") int capacity,
+                                @Value("${app.feed.symbols:4096}") int symbols) throws IOException {
+        this.instruments = instruments;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.symbols = symbols;
+        this.records = FeedLayout.records(symbols);
+        this.mask = capacity - 1;
+        if (!enabled) {
+            channel = null;
+            buf = null;
+            return;
+        }
+        if (Integer.bitCount(capacity) != 1 || FeedLayout.fileSize(capacity, symbols) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("app.feed.capacity must be a power of two below 2^25: " + capacity);
+        }
+        Path file = Paths.get(path);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        // 原地复用同一个文件（不删除重建），已映射的读端看得到新任期
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, FeedLayout.fileSize(capacity, symbols));
+        buf = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        Arrays.fill(bboVersion, -1);
+        init();
+        log.info("Market data feed {}: {} slots", file.toAbsolutePath(), capacity);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    // 先让读端看到“格式变了 / 写端重启”（任期 0 = 初始化中），清空交易对表和环，最后发布新任期
+    private void init() {
+        LONGS.setRelease(buf, H_EPOCH, 0L);
+        buf.putInt(H_MAGIC, MAGIC);
+        buf.putInt(H_VERSION, VERSION);
+        buf.putInt(H_RECORD_SIZE, RECORD);
+        buf.putInt(H_CAPACITY, capacity);
+        buf.putInt(H_SYMBOLS, symbols);
+        LONGS.setRelease(buf, H_CURSOR, 0L);
+        for (int i = 0; i < symbols; i++) {
+            buf.putInt(HEADER + i * SYMBOL_ENTRY, 0);
+        }
+        for (int i = 0; i < capacity; i++) {
+            buf.putLong(records + i * RECORD + R_STAMP, -1L);
+        }
+        LONGS.setRelease(buf, H_EPOCH, System.nanoTime() | 1);
+    }
+
+    @Override
+    public void onEvent(MarketDataEvent event, long sequence, boolean endOfBatch) {
+        Instrument instrument = event.symbol == null ? null : instruments.find(event.symbol);
+        if (instrument != null && instrument.getId() < symbols) {
+            int id = instrument.getId();
+            if (id >= touched.length) {
+                grow(id);
+            }
+            if (!named[id]) {
+                name(id, instrument.getSymbol());
+            }
+            depth(id, BID, event.bids, event.timestamp, event.sequence);
+            depth(id, ASK, event.asks, event.timestamp, event.sequence);
+            if (!touched[id]) {
+                touched[id] = true;
+                touchedIds[touchedCount++] = id;
+            }
+        }
+        if (endOfBatch) {
+            for (int i = 0; i < touchedCount; i++) {
+                int id = touchedIds[i];
+                touched[id] = false;
+                bbo(id);
+            }
+            touchedCount = 0;
+        }
+    }
+
+    private void depth(int id, byte side, List<DepthLevel> levels, long timestamp, long eventSeq) {
+        for (int i = 0; i < levels.size(); i++) {
+            DepthLevel level = levels.get(i);
+            int at = begin(DEPTH, side, id);
+            buf.putLong(at + R_FIELDS, FixedPoint.toLong(level.price()));
+            buf.putLong(at + R_FIELDS + 8, FixedPoint.toLong(level.quantity()));
+            buf.putLong(at + R_FIELDS + 16, timestamp);
+            buf.putLong(at + R_FIELDS + 24, eventSeq);
+            commit(at);
+        }
+    }
+
+    private void bbo(int id) {
+        MatchingEngine engine = MatchingEngineManager.findEngine(id);
+        if (engine == null) {
+            return;
+        }
+        long version = engine.getBbo().read(bbo);
+        if (version == bboVersion[id]) {
+            return;
+        }
+        bboVersion[id] = version;
+        int at = begin(BBO, (byte) 0, id);
+        buf.putLong(at + R_FIELDS, FixedPoint.toLong(bbo.getBidPrice()));
+        buf.putLong(at + R_FIELDS + 8, FixedPoint.toLong(bbo.getBidQty()));
+        buf.putLong(at + R_FIELDS + 16, FixedPoint.toLong(bbo.getAskPrice()));
+        buf.putLong(at + R_FIELDS + 24, FixedPoint.toLong(bbo.getAskQty()));
+        buf.putLong(at + R_FIELDS + 32, FixedPoint.toLong(bbo.getLastPrice()));
+        buf.putLong(at + R_FIELDS + 40, bbo.getTimestamp());
+        commit(at);
+    }
+
+    // 占下一个槽位：stamp 置 -1 后才改正文，读端据此丢弃读到一半的记录
+    private int begin(byte type, byte side, int id) {
+        int at = records + (int) (cursor & mask) * RECORD;
+        LONGS.setOpaque(buf, at + R_STAMP, -1L);
+        VarHandle.storeStoreFence();
+        buf.put(at + R_TYPE, type);
+        buf.put(at + R_SIDE, side);
+        buf.putInt(at + R_INSTRUMENT, id);
+        return at;
+    }
+
+    private void commit(int at) {
+        LONGS.setRelease(buf, at + R_STAMP, cursor);
+        LONGS.setRelease(buf, H_CURSOR, ++cursor);
+    }
+
+    // 交易对名在它的第一条记录之前登记；名字太长的只有 id
+    private void name(int id, String symbol) {
+        named[id] = true;
+        byte[] bytes = symbol.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > SYMBOL_MAX_LENGTH) {
+            log.warn("Symbol {} too long for the market data feed symbol table", symbol);
+            return;
+        }
+        int at = HEADER + id * SYMBOL_ENTRY;
+        buf.put(at + 4, bytes);
+        INTS.setRelease(buf, at, bytes.length);
+    }
+
+    private void grow(int id) {
+        int n = Math.max(touched.length * 2, id + 1);
+        int old = bboVersion.length;
+        bboVersion = Arrays.copyOf(bboVersion, n);
+        Arrays.fill(bboVersion, old, n, -1);
+        touched = Arrays.copyOf(touched, n);
+        touchedIds = Arrays.copyOf(touchedIds, n);
+        named = Arrays.copyOf(named, n);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -7,13 +7,16 @@ import com.matching.core.domain.Side;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Component
+@ConditionalOnProperty(prefix = "app.load-test", name = "enabled", havingValue = "true", matchIfMissing = true)
 @Slf4j
 public class LoadTester implements ApplicationRunner {
 
@@ -40,8 +43,11 @@ public class LoadTester implements ApplicationRunner {
             executor.submit(() -> {
                 for (long j = 0; j < perThread; j++) {
                     try {
-                        sendRandomOrder();
-                        successCount.incrementAndGet();
+                        if (sendRandomOrder()) {
+                            successCount.incrementAndGet();
+                        } else {
+                            failCount.incrementAndGet();   // 被准入控制拒绝（429）或校验失败
+                        }
                     } catch (Exception e) {
                         failCount.incrementAndGet();
                     }
@@ -51,8 +57,9 @@ public class LoadTester implements ApplicationRunner {
 
 
         for (long j = 0; j < totalOrders % threads; j++) {
-            sendRandomOrder();
-            successCount.incrementAndGet();
+            if (sendRandomOrder()) {
+                successCount.incrementAndGet();
+            }
         }
 
         executor.shutdown();
@@ -64,16 +71,17 @@ public class LoadTester implements ApplicationRunner {
 
     }
 
-    private void sendRandomOrder() {
+    private boolean sendRandomOrder() {
         OrderRequest req = new OrderRequest();
-        req.setOrderId("load_" + ThreadLocalRandom.current().nextLong(1_000_000_000L));
+        req.setClientOrderId("load_" + ThreadLocalRandom.current().nextLong(1_000_000_000L));
         req.setSymbol(ThreadLocalRandom.current().nextBoolean() ? "BTCUSDT" : "ETHUSDT");
         req.setSide(Side.valueOf(ThreadLocalRandom.current().nextBoolean() ? "BUY" : "SELL"));
         req.setType(ThreadLocalRandom.current().nextBoolean() ? OrderType.LIMIT : OrderType.MARKET);
         if (!req.getType().equals(OrderType.MARKET)) {
             req.setPrice(new BigDecimal(1000));
         }
-        req.setQuantity(BigDecimal.valueOf(0.001 + ThreadLocalRandom.current().nextDouble() * 0.2));
-        orderController.submitOrder(req);
+        req.setQuantity(BigDecimal.valueOf(0.001 + ThreadLocalRandom.current().nextDouble() * 0.2)
+                .setScale(4, RoundingMode.DOWN));   // 对齐 lotSize
+        return orderController.submitOrder(req).getStatusCode().is2xxSuccessful();
     }
 }
\ No newline at end of file
@@ -0,0 +1,294 @@
+package com.matching.wal;
+
+import com.matching.core.domain.OrderIds;
+import com.matching.disruptor.InputSequencer;
+import com.matching.disruptor.OrderEvent;
+import com.matching.disruptor.OrderEventProducer;
+import com.matching.disruptor.RiskCheckHandler;
+import com.matching.disruptor.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileLock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 主备切换：
+ *   主机 —— 开新任期写日志，每 heartbeat-millis 刷一次租约心跳；备机复制延迟超过 max-lag-records 时暂停新单
+ *   备机 —— 入口不接单，回放主机的输入日志（已定序）直接转发到自己的分片；主机心跳停了 failover-timeout-millis
+ *          就拿走租约，读完旧任期剩下的记录后定序器接着最后一个序号往下打，开新任期接单，切换耗时 ≈ 超时 + 复制延迟
+ * 旧主机恢复后看到租约任期变了就不再接单（没写进日志的指令由 JournalWriter 标成 FENCED 丢弃）
+ */
+@Slf4j
+@Component
+public class HaCoordinator {
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final Journal journal;
+    private final OrderEventProducer producer;
+    private final ShardRouter router;
+    private final InputSequencer sequencer;
+    private final RiskCheckHandler risk;
+    private final long heartbeatMillis;
+    private final long failoverTimeoutMillis;
+    private final long maxLagRecords;
+    private final long me = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ha-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> beating;
+    private Thread replica;
+    private volatile boolean running = true;
+    private volatile long epoch;             // 本进程作为主机的任期，0 = 不是主机
+    private boolean shedding;
+
+    // 以下只有回放线程访问
+    private final OrderEvent scratch = new OrderEvent();
+    private JournalTailer tailer;
+    private long replayEpoch;
+    private long applied;                  // 已回放到的全局序号
+    private long appliedTime;
+    private long lastRecordAt;
+
+    public HaCoordinator(Journal journal, OrderEventProducer producer, ShardRouter router, InputSequencer sequencer,
+                         RiskCheckHandler risk,
+                         @Value("${app.ha.heartbeat-millis:100}") long heartbeatMillis,
+                         @Value("${app.ha.failover-timeout-millis:500}") long failoverTimeoutMillis,
+                         @Value("${app.ha.max-lag-records:100000}") long maxLagRecords) {
+        this.journal = journal;
+        this.producer = producer;
+        this.router = router;
+        this.sequencer = sequencer;
+        this.risk = risk;
+        this.heartbeatMillis = heartbeatMillis;
+        this.failoverTimeoutMillis = failoverTimeoutMillis;
+        this.maxLagRecords = maxLagRecords;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (journal.getRole() == HaRole.PRIMARY) {
+            if (!becomePrimary()) {
+                startStandby();
+            }
+        } else if (journal.getRole() == HaRole.STANDBY) {
+            startStandby();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        heartbeat.shutdownNow();
+        if (replica != null) {
+            replica.join(1000);
+        }
+    }
+
+    public boolean isPrimary() {
+        return epoch != 0;
+    }
+
+    // 从空订单簿开新基线任期；另一个主机心跳还新鲜时放弃，转为备机
+    private boolean becomePrimary() throws IOException {
+        HaLease lease = journal.lease();
+        long now = System.currentTimeMillis();
+        long next;
+        FileLock lock = lease.lock();
+        try {
+            if (lease.epoch() != 0 && now - lease.heartbeat() <= failoverTimeoutMillis) {
+                log.error("Another primary holds epoch {} (heartbeat {}ms ago), starting as standby",
+                        lease.epoch(), now - lease.heartbeat());
+                return false;
+            }
+            next = lease.epoch() + 1;
+            lease.takeOver(next, me, next, now);
+        } finally {
+            lock.release();
+        }
+        lead(next);
+        log.info("Primary for epoch {} (new baseline, order books start empty)", next);
+        return true;
+    }
+
+    private void lead(long newEpoch) {
+        journal.activate(newEpoch);
+        epoch = newEpoch;
+        beating = heartbeat.scheduleAtFixedRate(this::beat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        producer.setAccepting(true);
+    }
+
+    private void beat() {
+        try {
+            HaLease lease = journal.lease();
+            long now = System.currentTimeMillis();
+            FileLock lock = lease.lock();
+            try {
+                if (lease.epoch() != epoch) {
+                    producer.setAccepting(false);
+                    log.error("Lost lease: epoch {} taken by {}, no longer accepting orders", lease.epoch(), lease.owner());
+                    epoch = 0;
+                    beating.cancel(false);
+                    return;
+                }
+                lease.heartbeat(now);
+            } finally {
+                lock.release();
+            }
+            checkLag(lease, now);
+        } catch (IOException e) {
+            log.error("HA heartbeat failed", e);
+        }
+    }
+
+    // 备机在线时比较已落盘 / 已回放的全局序号；备机不在线不限流（不能因为备机挂了停止交易）
+    private void checkLag(HaLease lease, long now) {
+        boolean standbyUp = now - lease.standbyHeartbeat() <= failoverTimeoutMillis;
+        long lag = journal.writtenSequence() - lease.standbyApplied();
+        boolean shed = standbyUp && lag > maxLagRecords;
+        if (shed != shedding) {
+            shedding = shed;
+            producer.setShedSubmits(shed);
+            if (shed) {
+                log.warn("Standby lag {} records exceeds {}, rejecting new orders", lag, maxLagRecords);
+            } else {
+                log.info("Standby caught up, accepting new orders");
+            }
+        }
+    }
+
+    private void startStandby() {
+        producer.setAccepting(false);
+        replica = new Thread(this::replicate, "ha-standby");
+        replica.setDaemon(true);
+        replica.start();
+    }
+
+    private void replicate() {
+        HaLease lease = journal.lease();
+        try {
+            while (running && lease.epoch() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(heartbeatMillis));
+            }
+            long base = lease.baseEpoch();
+            open(base);
+            log.info("Standby replaying from epoch {} in {}", base, journal.file(base).getParent().getParent());
+            long reportedAt = 0;
+            while (running) {
+                int n = poll();
+                long now = System.currentTimeMillis();
+                if (now - reportedAt >= heartbeatMillis) {
+                    lease.reportStandby(now, replayEpoch, applied);
+                    reportedAt = now;
+                }
+                if (n > 0) {
+                    continue;
+                }
+                if (lease.baseEpoch() != base) {
+                    log.error("Primary restarted with empty books (baseline epoch {} -> {}); this standby is stale "
+                            + "and stops replicating, restart it to follow the new primary", base, lease.baseEpoch());
+                    return;
+                }
+                if (lease.epoch() > replayEpoch && now - lastRecordAt > heartbeatMillis) {
+                    open(replayEpoch + 1);      // 上一任期已读完，跟到下一任期
+                    continue;
+                }
+                if (lease.epoch() == replayEpoch && lease.owner() != me
+                        && now - lease.heartbeat() > failoverTimeoutMillis && promote(lease)) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        } catch (Exception e) {
+            log.error("Standby replication stopped", e);
+        } finally {
+            closeTailer();
+        }
+    }
+
+    private boolean promote(HaLease lease) throws IOException {
+        long start = System.currentTimeMillis();
+        long silence = start - lease.heartbeat();
+        long next;
+        FileLock lock = lease.lock();
+        try {
+            if (start - lease.heartbeat() <= failoverTimeoutMillis) {
+                return false;           // 主机刚好恢复心跳
+            }
+            next = lease.epoch() + 1;
+            lease.takeOver(next, me, lease.baseEpoch(), start);
+        } finally {
+            lock.release();
+        }
+        // 旧主机在拿走租约前可能还写了最后一批：读到文件末尾并安静一个心跳间隔
+        long before = applied;
+        while (System.currentTimeMillis() - lastRecordAt <= heartbeatMillis) {
+            if (poll() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        producer.awaitDrained();
+        sequencer.resume(applied, appliedTime);
+        lead(next);
+        log.info("Promoted to primary for epoch {}: primary silent {}ms, drained {} trailing records in {}ms, "
+                + "continuing after sequence {}", next, silence, applied - before, System.currentTimeMillis() - start, applied);
+        return true;
+    }
+
+    private int poll() throws IOException {
+        int n = tailer.poll(scratch, this::apply);
+        if (n > 0) {
+            lastRecordAt = System.currentTimeMillis();
+        }
+        return n;
+    }
+
+    private void apply(OrderEvent event) {
+        if ("SUBMIT".equals(event.getAction())) {
+            if (event.getOrder() == null) {
+                OrderIds.observe(event.getOrderSeq());
+            } else {
+                String orderId = event.getOrder().getOrderId();
+                String symbol = OrderIds.symbolOf(orderId);
+                if (symbol != null) {
+                    OrderIds.observe(OrderIds.seqOf(symbol, orderId));
+                }
+            }
+        }
+        risk.replay(event);           // 主机已放行，照样冻结，接管后冻结和挂单对得上
+        router.replay(event);
+        applied = event.getSequence();
+        appliedTime = event.getIngressTime();
+    }
+
+    private void open(long newEpoch) {
+        closeTailer();
+        tailer = new JournalTailer(journal.file(newEpoch));
+        replayEpoch = newEpoch;
+        lastRecordAt = System.currentTimeMillis();
+    }
+
+    private void closeTailer() {
+        if (tailer == null) {
+            return;
+        }
+        try {
+            tailer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.matching.wal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 主备共享目录下的两个小文件（都映射进内存，两个进程直接读写）：
+ *   lease   —— 当前任期 epoch、持有者 id、主机心跳时间、基线任期（订单簿从空开始的那个任期）
+ *   standby —— 备机心跳、正在回放的任期、已回放到的全局序号（主机据此算复制延迟）
+ * 改任期的读-判断-写用文件锁串行化，主机心跳和备机接管不会交错
+ */
+final class HaLease implements AutoCloseable {
+    private static final int EPOCH = 0;
+    private static final int OWNER = 8;
+    private static final int HEARTBEAT = 16;
+    private static final int BASE_EPOCH = 24;
+
+    private static final int STANDBY_HEARTBEAT = 0;
+    private static final int STANDBY_EPOCH = 8;
+    private static final int STANDBY_APPLIED = 16;
+
+    private final FileChannel leaseChannel;
+    private final MappedByteBuffer lease;
+    private final FileChannel standbyChannel;
+    private final MappedByteBuffer standby;
+
+    HaLease(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        leaseChannel = FileChannel.open(dir.resolve("lease"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lease = leaseChannel.map(FileChannel.MapMode.READ_WRITE, 0, 4096);
+        standbyChannel = FileChannel.open(dir.resolve("standby"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        standby = standbyChannel.map(FileChannel.MapMode.READ_WRITE, 0, 4096);
+    }
+
+    // 跨进程互斥（同一进程内只有 HA 线程调用）
+    FileLock lock() throws IOException {
+        return leaseChannel.lock();
+    }
+
+    long epoch() {
+        return lease.getLong(EPOCH);
+    }
+
+    long owner() {
+        return lease.getLong(OWNER);
+    }
+
+    long heartbeat() {
+        return lease.getLong(HEARTBEAT);
+    }
+
+    long baseEpoch() {
+        return lease.getLong(BASE_EPOCH);
+    }
+
+    void heartbeat(long millis) {
+        lease.putLong(HEARTBEAT, millis);
+    }
+
+    /**
+     * 持锁调用：开始新任期
+     */
+    void takeOver(long epoch, long owner, long baseEpoch, long millis) {
+        lease.putLong(BASE_EPOCH, baseEpoch);
+        lease.putLong(OWNER, owner);
+        lease.putLong(HEARTBEAT, millis);
+        lease.putLong(EPOCH, epoch);
+        lease.force();
+    }
+
+    long standbyHeartbeat() {
+        return standby.getLong(STANDBY_HEARTBEAT);
+    }
+
+    long standbyEpoch() {
+        return standby.getLong(STANDBY_EPOCH);
+    }
+
+    long standbyApplied() {
+        return standby.getLong(STANDBY_APPLIED);
+    }
+
+    void reportStandby(long millis, long epoch, long appliedSequence) {
+        standby.putLong(STANDBY_APPLIED, appliedSequence);
+        standby.putLong(STANDBY_EPOCH, epoch);
+        standby.putLong(STANDBY_HEARTBEAT, millis);
+    }
+
+    @Override
+    public void close() throws IOException {
+        leaseChannel.close();
+        standbyChannel.close();
+    }
+}
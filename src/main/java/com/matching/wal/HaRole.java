@@ -0,0 +1,10 @@
+package com.matching.wal;
+
+/**
+ * 进程角色：NONE 不写输入日志（单机），PRIMARY 接单并写日志，STANDBY 只回放主机日志、不接单
+ */
+public enum HaRole {
+    NONE,
+    PRIMARY,
+    STANDBY
+}
@@ -0,0 +1,90 @@
+package com.matching.wal;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 输入日志：{dir}/{epoch}/input.journal，由定序器写，指令先落日志再转发到分片撮合；备机整条回放
+ * epoch 为 0 时不写（单机或备机），主机 / 接管后的新主机激活后才写
+ */
+@Slf4j
+@Component
+public class Journal {
+    static final int FILE_MAGIC = 0x4D4A4E4C;    // "MJNL"
+    static final int FILE_VERSION = 2;
+    static final int FILE_HEADER = 32;           // magic、版本、epoch、保留
+
+    @Getter
+    private final HaRole role;
+    private final Path dir;
+    private final boolean fsync;
+    private final HaLease lease;
+    private volatile long epoch;
+    private volatile long writtenSequence;       // 已落盘的最大全局序号
+
+    public Journal(@Value("${app.ha.role:NONE}") HaRole role,
+                   @Value("${app.ha.dir:./ha/}") String dir,
+                   @Value("${app.ha.fsync:false}") boolean fsync) {
+        this.role = role;
+        this.dir = Paths.get(dir);
+        this.fsync = fsync;
+        try {
+            this.lease = role == HaRole.NONE ? null : new HaLease(this.dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open HA lease in " + dir, e);
+        }
+    }
+
+    public boolean enabled() {
+        return role != HaRole.NONE;
+    }
+
+    public JournalWriter writer() {
+        return new JournalWriter(this);
+    }
+
+    HaLease lease() {
+        return lease;
+    }
+
+    Path file(long epoch) {
+        return dir.resolve(Long.toString(epoch)).resolve("input.journal");
+    }
+
+    boolean fsync() {
+        return fsync;
+    }
+
+    // 0 = 不写日志
+    long activeEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 成为主机时调用：之后的指令写进这个任期的日志文件
+     */
+    void activate(long epoch) {
+        this.epoch = epoch;
+        log.info("Journal active: epoch {} in {}", epoch, dir.toAbsolutePath());
+    }
+
+    // 租约已被别人拿走（备机接管）：本进程不能再写日志，也不能再撮合
+    boolean fenced(long epoch) {
+        return lease.epoch() != epoch;
+    }
+
+    void written(long sequence) {
+        writtenSequence = sequence;
+    }
+
+    long writtenSequence() {
+        return writtenSequence;
+    }
+}
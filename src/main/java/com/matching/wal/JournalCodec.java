@@ -0,0 +1,225 @@
+package com.matching.wal;
+
+import com.matching.core.domain.Order;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
+import com.matching.core.domain.TimeInForce;
+import com.matching.disruptor.OrderEvent;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 输入日志的记录格式：[int 长度][long 全局序号][long 入口时间][byte 指令][int 交易对 id][各指令字段]
+ * 记录的是定序器打过序号和时间、进入撮合前的指令本身（不是结果），按同样顺序喂给撮合线程即可得到同样的订单簿和成交
+ * 流式入口的下单直接记定点 long；旧入口的 Order 按 BigDecimal 字符串记，保留原始写法
+ * 多进程分区时网关转发给撮合节点的指令也用这个格式（序号和时间为 0，由节点的定序器打）
+ */
+public final class JournalCodec {
+    private static final byte SUBMIT = 1;        // event.order 不为 null
+    private static final byte SUBMIT_WIRE = 2;   // 流式入口的原始字段
+    private static final byte CANCEL = 3;
+    private static final byte AMEND = 4;
+    private static final byte CANCEL_ALL = 5;
+    private static final byte AMEND_ACCOUNT = 6; // 带账户的改单；AMEND 是不带账户的旧记录
+
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] TYPES = OrderType.values();
+    private static final StpMode[] STP_MODES = StpMode.values();
+    private static final TimeInForce[] TIFS = TimeInForce.values();
+
+    private JournalCodec() {
+    }
+
+    /**
+     * 需要写日志的指令（PARK 之类只影响本进程内存的不写）
+     */
+    static boolean journaled(String action) {
+        return "SUBMIT".equals(action) || "CANCEL".equals(action) || "AMEND".equals(action) || "CANCEL_ALL".equals(action);
+    }
+
+    /**
+     * 编码一条记录到 buf 当前位置；空间不够返回 false（buf 位置不变）
+     */
+    public static boolean encode(OrderEvent event, ByteBuffer buf) {
+        int start = buf.position();
+        try {
+            buf.putInt(0).putLong(event.getSequence()).putLong(event.getIngressTime());
+            Order order = event.getOrder();
+            switch (event.getAction()) {
+                case "SUBMIT" -> {
+                    if (order != null) {
+                        buf.put(SUBMIT).putInt(event.getInstrumentId());
+                        putString(buf, order.getOrderId());
+                        putString(buf, order.getClientOrderId());
+                        buf.put((byte) order.getSide().ordinal()).put((byte) order.getType().ordinal());
+                        putDecimal(buf, order.getPrice());
+                        putDecimal(buf, order.getStopPrice());
+                        putDecimal(buf, order.getQuantity());
+                        putDecimal(buf, order.getDisplayQuantity());
+                        buf.put((byte) ((order.isHidden() ? 1 : 0) | (order.isPostOnly() ? 2 : 0) | (order.isReduceOnly() ? 4 : 0)));
+                        buf.putLong(order.getAccountId());
+                        buf.put(ordinal(order.getStpMode())).put(ordinal(order.getTimeInForce()));
+                    } else {
+                        buf.put(SUBMIT_WIRE).putInt(event.getInstrumentId());
+                        buf.putLong(event.getOrderSeq());
+                        buf.put((byte) event.getSide().ordinal()).put((byte) event.getType().ordinal());
+                        buf.putLong(event.getPrice()).putLong(event.getStopPrice())
+                                .putLong(event.getQuantity()).putLong(event.getDisplayQuantity());
+                        buf.put((byte) (event.isHidden() ? 1 : 0)).putLong(event.getAccountId()).put(ordinal(event.getStpMode()));
+                        putString(buf, event.getClientOrderId());
+                    }
+                }
+                case "CANCEL" -> {
+                    buf.put(CANCEL).putInt(event.getInstrumentId());
+                    putString(buf, order.getOrderId());
+                }
+                case "AMEND" -> {
+                    buf.put(AMEND_ACCOUNT).putInt(event.getInstrumentId());
+                    putString(buf, order.getOrderId());
+                    putDecimal(buf, order.getPrice());
+                    putDecimal(buf, order.getQuantity());
+                    buf.putLong(order.getAccountId());
+                }
+                case "CANCEL_ALL" -> {
+                    buf.put(CANCEL_ALL).putInt(event.getInstrumentId());
+                    buf.putLong(event.getAccountId()).put(ordinal(event.getSide()));
+                    putString(buf, event.getReason());
+                }
+                default -> throw new IllegalArgumentException("Not journaled: " + event.getAction());
+            }
+        } catch (BufferOverflowException e) {
+            buf.position(start);
+            return false;
+        }
+        buf.putInt(start, buf.position() - start - Integer.BYTES);
+        return true;
+    }
+
+    /**
+     * buf 当前位置有一条完整记录时解码进 out 并返回它的序号，不完整返回 -1（buf 位置不变）
+     */
+    public static long decode(ByteBuffer buf, OrderEvent out) {
+        if (buf.remaining() < Integer.BYTES) {
+            return -1;
+        }
+        int len = buf.getInt(buf.position());
+        if (len <= 0 || buf.remaining() < Integer.BYTES + len) {
+            return -1;
+        }
+        buf.getInt();
+        long seq = buf.getLong();
+        long time = buf.getLong();
+        byte kind = buf.get();
+        out.clearWire();
+        out.setOrder(null);
+        out.setReason(null);
+        out.setSequence(seq);
+        out.setIngressTime(time);
+        out.setInstrumentId(buf.getInt());
+        switch (kind) {
+            case SUBMIT -> {
+                Order order = new Order();
+                order.setOrderId(getString(buf));
+                order.setClientOrderId(getString(buf));
+                order.setSide(SIDES[buf.get()]);
+                order.setType(TYPES[buf.get()]);
+                order.setPrice(getDecimal(buf));
+                order.setStopPrice(getDecimal(buf));
+                order.setQuantity(getDecimal(buf));
+                order.setDisplayQuantity(getDecimal(buf));
+                byte flags = buf.get();
+                order.setHidden((flags & 1) != 0);
+                order.setPostOnly((flags & 2) != 0);
+                order.setReduceOnly((flags & 4) != 0);
+                order.setAccountId(buf.getLong());
+                order.setStpMode(value(STP_MODES, buf.get()));
+                TimeInForce tif = value(TIFS, buf.get());
+                if (tif != null) {
+                    order.setTimeInForce(tif);
+                }
+                out.setOrder(order);
+                out.setAction("SUBMIT");
+            }
+            case SUBMIT_WIRE -> {
+                out.setOrderSeq(buf.getLong());
+                out.setSide(SIDES[buf.get()]);
+                out.setType(TYPES[buf.get()]);
+                out.setPrice(buf.getLong());
+                out.setStopPrice(buf.getLong());
+                out.setQuantity(buf.getLong());
+                out.setDisplayQuantity(buf.getLong());
+                out.setHidden(buf.get() != 0);
+                out.setAccountId(buf.getLong());
+                out.setStpMode(value(STP_MODES, buf.get()));
+                out.setClientOrderId(getString(buf));
+                out.setAction("SUBMIT");
+            }
+            case CANCEL -> {
+                Order order = new Order();
+                order.setOrderId(getString(buf));
+                out.setOrder(order);
+                out.setAction("CANCEL");
+            }
+            case AMEND, AMEND_ACCOUNT -> {
+                Order order = new Order();
+                order.setOrderId(getString(buf));
+                order.setPrice(getDecimal(buf));
+                order.setQuantity(getDecimal(buf));
+                if (kind == AMEND_ACCOUNT) {
+                    order.setAccountId(buf.getLong());
+                }
+                out.setOrder(order);
+                out.setAction("AMEND");
+            }
+            case CANCEL_ALL -> {
+                out.setAccountId(buf.getLong());
+                out.setSide(value(SIDES, buf.get()));
+                out.setReason(getString(buf));
+                out.setAction("CANCEL_ALL");
+            }
+            default -> throw new IllegalStateException("Corrupt journal record, kind " + kind + " seq " + seq);
+        }
+        return seq;
+    }
+
+    // 枚举存序号 + 1，0 表示 null
+    private static byte ordinal(Enum<?> value) {
+        return (byte) (value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private static <E> E value(E[] values, byte ordinal) {
+        return ordinal == 0 ? null : values[ordinal - 1];
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        if (s == null) {
+            buf.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        short len = buf.getShort();
+        if (len < 0) {
+            return null;
+        }
+        String s = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    private static void putDecimal(ByteBuffer buf, BigDecimal value) {
+        putString(buf, value == null ? null : value.toString());
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buf) {
+        String s = getString(buf);
+        return s == null ? null : new BigDecimal(s);
+    }
+}
@@ -0,0 +1,77 @@
+package com.matching.wal;
+
+import com.matching.disruptor.OrderEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * 备机侧：增量读取一个任期的输入日志文件（主机还在追加）
+ * 只按文件当前长度读，长度之内的字节一定已经写完；末尾半条记录留到下次再读
+ */
+final class JournalTailer implements AutoCloseable {
+    private final Path path;
+    private FileChannel channel;
+    private ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+    private long position = Journal.FILE_HEADER;
+
+    JournalTailer(Path path) {
+        this.path = path;
+        buf.limit(0);
+    }
+
+    /**
+     * 把当前可读的完整记录逐条解码进 scratch 交给 sink，返回本次读到的记录数；文件还不存在返回 0
+     */
+    int poll(OrderEvent scratch, Consumer<OrderEvent> sink) throws IOException {
+        if (channel == null && !open()) {
+            return 0;
+        }
+        buf.compact();
+        if (!buf.hasRemaining()) {
+            buf = ByteBuffer.allocate(buf.capacity() * 2).put(buf.flip());
+        }
+        int n = channel.read(buf, position);
+        if (n > 0) {
+            position += n;
+        }
+        buf.flip();
+        int count = 0;
+        while (JournalCodec.decode(buf, scratch) > 0) {
+            sink.accept(scratch);
+            count++;
+        }
+        return count;
+    }
+
+    private boolean open() throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(Journal.FILE_HEADER);
+        if (channel.read(header, 0) < Journal.FILE_HEADER) {
+            channel.close();
+            channel = null;
+            return false;
+        }
+        header.flip();
+        if (header.getInt() != Journal.FILE_MAGIC || header.getInt() != Journal.FILE_VERSION) {
+            throw new IllegalStateException("Bad journal header: " + path);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.matching.wal;
+
+import com.matching.disruptor.OrderEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 输入日志写入器，只由定序器线程调用：每条指令定序后 append 编码进缓冲，批尾 flush 一次 write 后才转发到分片，
+ * 撮合线程只会看到已经写进页缓存的指令
+ * 同机备机直接读页缓存，不需要 fsync；fsync 打开时批尾再 force
+ * 租约被备机拿走后不再写，append 返回 false，定序器丢弃这条指令
+ */
+@Slf4j
+public class JournalWriter {
+    private final Journal journal;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+    private FileChannel channel;
+    private long fileEpoch;
+    private long lastSequence;
+    private boolean fenced;
+
+    JournalWriter(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return false 表示本进程已被隔离，指令不能进撮合
+     */
+    public boolean append(OrderEvent event) throws IOException {
+        long epoch = journal.activeEpoch();
+        if (epoch == 0 || !JournalCodec.journaled(event.getAction())) {
+            return true;
+        }
+        if (fenced || journal.fenced(epoch)) {
+            if (!fenced) {
+                fenced = true;
+                log.error("Journal fenced: lease epoch moved past {}, dropping further commands", epoch);
+            }
+            return false;
+        }
+        if (epoch != fileEpoch) {
+            open(epoch);
+        }
+        if (!JournalCodec.encode(event, buf)) {
+            flush();
+            if (!JournalCodec.encode(event, buf)) {
+                throw new IllegalStateException("Journal record too large: " + event.getAction());
+            }
+        }
+        lastSequence = event.getSequence();
+        return true;
+    }
+
+    public void flush() throws IOException {
+        if (buf.position() == 0) {
+            return;
+        }
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+        if (journal.fsync()) {
+            channel.force(false);
+        }
+        journal.written(lastSequence);
+    }
+
+    private void open(long epoch) throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+        Path path = journal.file(epoch);
+        Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(Journal.FILE_HEADER);
+        header.putInt(Journal.FILE_MAGIC).putInt(Journal.FILE_VERSION).putLong(epoch).rewind();    // 含保留字节
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileEpoch = epoch;
+    }
+}
@@ -0,0 +1,41 @@
+package com.matching.api;
+
+import com.matching.core.engine.InstrumentRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarketDataControllerTest {
+    private final MarketDataController controller = new MarketDataController(null, null,
+            new InstrumentRegistry(new MockEnvironment()
+                    .withProperty("app.instruments[0].symbol", "BTCUSDT")
+                    .withProperty("app.instruments[0].tick-size", "0.01")
+                    .withProperty("app.instruments[0].lot-size", "0.00001")));
+
+    @Test
+    void registeredSymbolWithoutEngineReturnsEmptyBbo() {
+        ResponseEntity<String> response = controller.bbo("BTCUSDT");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).startsWith("{\"symbol\":\"BTCUSDT\"").contains("\"bid\":null", "\"ask\":null");
+    }
+
+    @Test
+    void registeredSymbolWithoutEngineReturnsEmptyDepth() {
+        ResponseEntity<byte[]> response = controller.depth("BTCUSDT", null, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8)).contains("\"bids\":[]", "\"asks\":[]");
+    }
+
+    @Test
+    void unknownSymbolIsNotFound() {
+        assertThat(controller.bbo("NOPE").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(controller.depth("NOPE", null, null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,128 @@
+package com.matching.api;
+
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.disruptor.OrderEvent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderJsonDecoderTest {
+    private static InstrumentRegistry registry;
+
+    private final OrderJsonDecoder decoder = new OrderJsonDecoder();
+    private final OrderEvent event = new OrderEvent();
+
+    @BeforeAll
+    static void loadInstruments() {
+        registry = new InstrumentRegistry(new MockEnvironment()
+                .withProperty("app.instruments[0].symbol", "BTCUSDT")
+                .withProperty("app.instruments[0].tick-size", "0.01")
+                .withProperty("app.instruments[0].lot-size", "0.00001")
+                .withProperty("app.instruments[0].min-qty", "0.00001")
+                .withProperty("app.instruments[0].max-qty", "9000"));
+    }
+
+    @Test
+    void decodesLimitOrder() throws IOException {
+        String reason = decode("{\"symbol\":\"BTCUSDT\",\"side\":\"BUY\",\"type\":\"LIMIT\",\"price\":\"100.25\","
+                + "\"quantity\":0.5,\"accountId\":42,\"stpMode\":\"DECREMENT\",\"clientOrderId\":\"c-1\"}");
+
+        assertThat(reason).isNull();
+        assertThat(event.getInstrumentId()).isEqualTo(registry.find("BTCUSDT").getId());
+        assertThat(event.getSide()).isEqualTo(Side.BUY);
+        assertThat(event.getType()).isEqualTo(OrderType.LIMIT);
+        assertThat(event.getPrice()).isEqualTo(FixedPoint.toLong(new BigDecimal("100.25")));
+        assertThat(event.getQuantity()).isEqualTo(FixedPoint.toLong(new BigDecimal("0.5")));
+        assertThat(event.getAccountId()).isEqualTo(42);
+        assertThat(event.getStpMode()).isEqualTo(StpMode.DECREMENT);
+        assertThat(event.getClientOrderId()).isEqualTo("c-1");
+    }
+
+    @Test
+    void skipsUnknownFields() throws IOException {
+        assertThat(decode("{\"symbol\":\"BTCUSDT\",\"extra\":{\"a\":[1,2]},\"side\":\"SELL\",\"type\":\"MARKET\","
+                + "\"quantity\":1}")).isNull();
+        assertThat(event.getType()).isEqualTo(OrderType.MARKET);
+    }
+
+    @Test
+    void rejectsBadNumbers() throws IOException {
+        assertThat(decode(order("\"price\":-1"))).isEqualTo("INVALID_NUMBER");
+        assertThat(decode(order("\"price\":1e5"))).isEqualTo("INVALID_NUMBER");
+        assertThat(decode(order("\"price\":\"100"))).isEqualTo("INVALID_NUMBER");
+        assertThat(decode(order("\"price\":100."))).isEqualTo("INVALID_NUMBER");
+        assertThat(decode(order("\"price\":0.000000001"))).isEqualTo("INVALID_NUMBER");
+        assertThat(decode(order("\"price\":92233720368"))).isEqualTo("INVALID_NUMBER");
+        assertThat(decode(order("\"price\":100,\"accountId\":99999999999999999999"))).isEqualTo("INVALID_NUMBER");
+    }
+
+    @Test
+    void acceptsTrailingZerosBeyondFixedScale() throws IOException {
+        assertThat(decode(order("\"price\":100.0000000000"))).isNull();
+        assertThat(event.getPrice()).isEqualTo(100 * FixedPoint.ONE);
+    }
+
+    @Test
+    void rejectsOffTickPrice() throws IOException {
+        assertThat(decode(order("\"price\":100.001"))).isEqualTo("INVALID_TICK_SIZE");
+    }
+
+    @Test
+    void rejectsUnknownEnums() throws IOException {
+        assertThat(decode("{\"symbol\":\"BTCUSDT\",\"side\":\"UP\",\"type\":\"LIMIT\",\"price\":1,\"quantity\":1}"))
+                .isEqualTo("INVALID_ENUM");
+        assertThat(decode("{\"symbol\":\"BTCUSDT\",\"side\":\"BUY\",\"type\":\"limit\",\"price\":1,\"quantity\":1}"))
+                .isEqualTo("INVALID_ENUM");
+        assertThat(decode(order("\"price\":1,\"stpMode\":\"NEVER\""))).isEqualTo("INVALID_ENUM");
+    }
+
+    @Test
+    void rejectsMalformedJsonAndMissingFields() throws IOException {
+        assertThat(decode("{\"symbol\":\"BTCUSDT\",")).isEqualTo("MALFORMED_JSON");
+        assertThat(decode("{\"symbol\":\"BTC\\u0055SDT\"}")).isEqualTo("MALFORMED_JSON");
+        assertThat(decode(order("\"price\":1") + "x")).isEqualTo("MALFORMED_JSON");
+        assertThat(decode("{\"symbol\":\"DOGEUSDT\",\"side\":\"BUY\",\"type\":\"MARKET\",\"quantity\":1}"))
+                .isEqualTo("UNKNOWN_SYMBOL");
+        assertThat(decode("{\"symbol\":\"BTCUSDT\",\"type\":\"MARKET\",\"quantity\":1}"))
+                .isEqualTo("MISSING_SIDE_OR_TYPE");
+    }
+
+    @Test
+    void refusesOversizedBody() throws IOException {
+        String fits = pad(order("\"price\":1"), OrderJsonDecoder.MAX_BODY);
+        assertThat(decoder.read(stream(fits))).isTrue();
+        assertThat(decoder.decode(registry, event)).isNull();
+
+        String tooLarge = pad(order("\"price\":1"), OrderJsonDecoder.MAX_BODY + 1);
+        assertThat(decoder.read(stream(tooLarge))).isFalse();
+    }
+
+    private String decode(String json) throws IOException {
+        assertThat(decoder.read(stream(json))).isTrue();
+        return decoder.decode(registry, event);
+    }
+
+    private static String order(String priceFields) {
+        return "{\"symbol\":\"BTCUSDT\",\"side\":\"BUY\",\"type\":\"LIMIT\",\"quantity\":1," + priceFields + "}";
+    }
+
+    // 尾部补空白到指定字节数
+    private static String pad(String json, int length) {
+        return json + " ".repeat(length - json.length());
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.US_ASCII));
+    }
+}
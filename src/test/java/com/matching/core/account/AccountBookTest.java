@@ -0,0 +1,142 @@
+package com.matching.core.account;
+
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.engine.InstrumentRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountBookTest {
+    private static final long ACCOUNT = 1001;
+    private static final long ORDER = 7;
+
+    private AccountBook book;
+    private int usdt;
+    private int btc;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.instruments[0].symbol", "BTCUSDT")
+                .withProperty("app.risk.deposits[0].account-id", String.valueOf(ACCOUNT))
+                .withProperty("app.risk.deposits[0].asset", "USDT")
+                .withProperty("app.risk.deposits[0].amount", "1000")
+                .withProperty("app.risk.deposits[1].account-id", String.valueOf(ACCOUNT))
+                .withProperty("app.risk.deposits[1].asset", "BTC")
+                .withProperty("app.risk.deposits[1].amount", "2");
+        InstrumentRegistry instruments = new InstrumentRegistry(env);
+        book = new AccountBook(instruments, env, true, 4);
+        book.seed();
+        usdt = instruments.findAsset("USDT");
+        btc = instruments.findAsset("BTC");
+    }
+
+    @Test
+    void seedsConfiguredDeposits() {
+        assertThat(book.balance(ACCOUNT, usdt)).isEqualTo(fp("1000"));
+        assertThat(book.balance(ACCOUNT, btc)).isEqualTo(fp("2"));
+        assertThat(book.held(ACCOUNT, usdt)).isZero();
+    }
+
+    @Test
+    void holdReservesFundsAndRejectsWhenInsufficient() {
+        assertThat(book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false)).isTrue();
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("500"));
+
+        assertThat(book.hold(ACCOUNT, ORDER + 1, usdt, fp("100"), fp("6"), false)).isFalse();
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("500"));
+        assertThat(book.hold(ACCOUNT, ORDER + 1, usdt, fp("100"), fp("6"), true)).isTrue();   // 回放不检查可用
+        assertThat(book.holdCount()).isEqualTo(2);
+    }
+
+    @Test
+    void sellHoldReservesBaseQuantity() {
+        assertThat(book.hold(ACCOUNT, ORDER, btc, 0, fp("1.5"), false)).isTrue();
+        assertThat(book.held(ACCOUNT, btc)).isEqualTo(fp("1.5"));
+        assertThat(book.hold(ACCOUNT, ORDER + 1, btc, 0, fp("1"), false)).isFalse();
+    }
+
+    @Test
+    void fillsAndLeavesReleaseHold() {
+        book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false);
+
+        apply(LedgerBatch.FILL, ORDER, fp("2"), 0);
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("300"));
+
+        apply(LedgerBatch.LEAVES, ORDER, 0, 0);
+        assertThat(book.held(ACCOUNT, usdt)).isZero();
+        assertThat(book.holdCount()).isZero();
+    }
+
+    @Test
+    void rejectedAmendRestoresHold() {
+        book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false);
+        assertThat(book.raise(ACCOUNT, ORDER, fp("120"), fp("6"), false)).isTrue();
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("720"));
+
+        apply(LedgerBatch.AMEND_REJECTED, ORDER, 0, fp("5"));
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("500"));
+
+        // 退回的是改单前的单价：之后成交按 100 释放
+        apply(LedgerBatch.FILL, ORDER, fp("1"), 0);
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("400"));
+    }
+
+    @Test
+    void acceptedAmendKeepsRaisedPrice() {
+        book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false);
+        book.raise(ACCOUNT, ORDER, fp("120"), 0, false);
+
+        apply(LedgerBatch.LEAVES, ORDER, fp("5"), fp("5"));
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("600"));
+
+        // 下一笔改单被拒退回到已确认的 120
+        book.raise(ACCOUNT, ORDER, fp("150"), 0, false);
+        apply(LedgerBatch.AMEND_REJECTED, ORDER, 0, fp("5"));
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("600"));
+    }
+
+    @Test
+    void raiseBeyondAvailableIsRefused() {
+        book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false);
+        assertThat(book.raise(ACCOUNT, ORDER, fp("300"), 0, false)).isFalse();
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("500"));
+    }
+
+    @Test
+    void cancelRaiseUndoesAmendThatNeverReachedEngine() {
+        book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false);
+        book.raise(ACCOUNT, ORDER, fp("110"), fp("8"), false);
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("880"));
+
+        book.cancelRaise(ACCOUNT, ORDER);
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("500"));
+    }
+
+    @Test
+    void raiseUnderAnotherAccountLeavesHoldAlone() {
+        long other = ACCOUNT + book.stripeCount();      // 同一分段的另一个账户
+        assertThat(book.stripeOf(other)).isEqualTo(book.stripeOf(ACCOUNT));
+        book.deposit(other, usdt, fp("10000"));
+        book.hold(ACCOUNT, ORDER, usdt, fp("100"), fp("5"), false);
+
+        assertThat(book.raise(other, ORDER, fp("1000"), 0, false)).isTrue();     // 交给撮合按账户不符拒掉
+        book.cancelRaise(other, ORDER);
+        assertThat(book.held(ACCOUNT, usdt)).isEqualTo(fp("500"));
+        assertThat(book.held(other, usdt)).isZero();
+    }
+
+    private void apply(byte kind, long orderSeq, long b, long c) {
+        LedgerBatch batch = new LedgerBatch(book.stripeCount());
+        batch.add(book.stripeOf(ACCOUNT), kind, ACCOUNT, orderSeq, b, c);
+        book.apply(batch);
+    }
+
+    private static long fp(String value) {
+        return FixedPoint.toLong(new BigDecimal(value));
+    }
+}
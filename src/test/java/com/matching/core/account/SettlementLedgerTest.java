@@ -0,0 +1,80 @@
+package com.matching.core.account;
+
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.OrderIds;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.Trade;
+import com.matching.core.engine.InstrumentRegistry;
+import com.matching.disruptor.ExecutionEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SettlementLedgerTest {
+    private static final long BUYER = 1001;
+    private static final long SELLER = 1002;
+
+    @TempDir
+    Path dir;
+
+    private InstrumentRegistry instruments;
+    private AccountBook book;
+    private int usdt;
+    private int btc;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.instruments[0].symbol", "BTCUSDT")
+                .withProperty("app.risk.deposits[0].account-id", String.valueOf(BUYER))
+                .withProperty("app.risk.deposits[0].asset", "USDT")
+                .withProperty("app.risk.deposits[0].amount", "1000")
+                .withProperty("app.risk.deposits[1].account-id", String.valueOf(SELLER))
+                .withProperty("app.risk.deposits[1].asset", "BTC")
+                .withProperty("app.risk.deposits[1].amount", "10");
+        instruments = new InstrumentRegistry(env);
+        book = new AccountBook(instruments, env, true, 4);
+        book.seed();
+        usdt = instruments.findAsset("USDT");
+        btc = instruments.findAsset("BTC");
+    }
+
+    @Test
+    void riskWithoutSettlementFailsStartup() {
+        assertThatThrownBy(() -> new SettlementLedger(book, instruments, false, dir.toString(), 0, 0, 0, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("app.settlement.enabled");
+    }
+
+    @Test
+    void fillReleasesHoldAndMovesBalances() throws IOException {
+        SettlementLedger ledger = new SettlementLedger(book, instruments, true, dir.toString(), 0, 0, 0, false);
+        book.hold(BUYER, 1, usdt, fp("100"), fp("5"), false);
+        book.hold(SELLER, 2, btc, 0, fp("2"), false);
+
+        ExecutionEvent event = new ExecutionEvent();
+        event.trade = new Trade(1, "BTCUSDT", Side.BUY, new BigDecimal("100"), new BigDecimal("2"),
+                OrderIds.format("BTCUSDT", 1), OrderIds.format("BTCUSDT", 2), BUYER, SELLER, 0);
+        ledger.onEvent(event, 0, true);
+
+        assertThat(book.balance(BUYER, usdt)).isEqualTo(fp("800"));
+        assertThat(book.balance(BUYER, btc)).isEqualTo(fp("2"));
+        assertThat(book.held(BUYER, usdt)).isEqualTo(fp("300"));
+        assertThat(book.balance(SELLER, btc)).isEqualTo(fp("8"));
+        assertThat(book.balance(SELLER, usdt)).isEqualTo(fp("200"));
+        assertThat(book.held(SELLER, btc)).isZero();
+        ledger.close();
+    }
+
+    private static long fp(String value) {
+        return FixedPoint.toLong(new BigDecimal(value));
+    }
+}
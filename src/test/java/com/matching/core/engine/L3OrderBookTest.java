@@ -0,0 +1,531 @@
+package com.matching.core.engine;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.matching.core.domain.ExecType;
+import com.matching.core.domain.ExecutionReport;
+import com.matching.core.domain.FixedPoint;
+import com.matching.core.domain.Order;
+import com.matching.core.domain.OrderIds;
+import com.matching.core.domain.OrderStatus;
+import com.matching.core.domain.OrderType;
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
+import com.matching.core.domain.Trade;
+import com.matching.disruptor.ExecutionEvent;
+import com.matching.disruptor.ExecutionPublisher;
+import com.matching.disruptor.MboEvent;
+import com.matching.disruptor.MboPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class L3OrderBookTest {
+    private static final String SYMBOL = "BTCUSDT";
+
+    private RingBuffer<ExecutionEvent> executions;
+    private RingBuffer<MboEvent> mbo;
+    private L3OrderBook book;
+    private long seq;
+    private long readUpTo = -1;
+    private long mboReadUpTo = -1;
+
+    @BeforeEach
+    void setUp() {
+        // 不启动消费者：没有门控序号，回报留在 RingBuffer 里由测试直接读
+        Disruptor<ExecutionEvent> disruptor = new Disruptor<>(ExecutionEvent::new, 1024, DaemonThreadFactory.INSTANCE);
+        executions = disruptor.getRingBuffer();
+        Disruptor<MboEvent> mboDisruptor = new Disruptor<>(MboEvent::new, 1024, DaemonThreadFactory.INSTANCE);
+        mbo = mboDisruptor.getRingBuffer();
+        book = new L3OrderBook(SYMBOL, null, new MboPublisher(mboDisruptor), new ExecutionPublisher(disruptor));
+    }
+
+    @Test
+    void limitOrdersMatchAtMakerPriceInTimePriority() {
+        Order first = limit(Side.SELL, "100", "10", 1);
+        Order second = limit(Side.SELL, "100", "5", 2);
+        book.processOrder(first);
+        book.processOrder(second);
+
+        Order taker = limit(Side.BUY, "101", "12", 3);
+        List<Trade> trades = book.processOrder(taker);
+
+        assertThat(trades).hasSize(2);
+        assertThat(trades.get(0).getSellOrderId()).isEqualTo(first.getOrderId());
+        assertThat(trades.get(0).getPrice()).isEqualByComparingTo("100");
+        assertThat(trades.get(0).getQuantity()).isEqualByComparingTo("10");
+        assertThat(trades.get(1).getSellOrderId()).isEqualTo(second.getOrderId());
+        assertThat(trades.get(1).getQuantity()).isEqualByComparingTo("2");
+        assertThat(trades.get(1).getBuyAccountId()).isEqualTo(3);
+        assertThat(taker.getStatus()).isEqualTo(OrderStatus.FILLED);
+        assertThat(book.restingOrderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nonCrossingOrderRests() {
+        book.processOrder(limit(Side.SELL, "100", "1", 1));
+        Order bid = limit(Side.BUY, "99", "1", 2);
+
+        assertThat(book.processOrder(bid)).isEmpty();
+        assertThat(bid.getStatus()).isEqualTo(OrderStatus.NEW);
+        assertThat(book.restingOrderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void mboFeedFollowsRestingOrderLifecycle() {
+        Order maker = limit(Side.SELL, "100", "3", 1);
+        book.processOrder(maker);
+        Order hidden = limit(Side.SELL, "100", "5", 1);
+        hidden.setHidden(true);
+        book.processOrder(hidden);                               // 隐藏单不进逐笔委托
+        book.processOrder(limit(Side.BUY, "100", "1", 2));
+        book.cancelOrder(maker.getOrderId(), nextTime());
+
+        assertThat(mboEvents()).containsExactly("ADD 1 3", "EXECUTE 1 2", "DELETE 1 2");
+        MboEvent execute = mbo.get(1);
+        assertThat(execute.execQuantity).isEqualTo(FixedPoint.ONE);
+        assertThat(execute.price).isEqualTo(100 * FixedPoint.ONE);
+        assertThat(execute.side).isEqualTo(Side.SELL);
+        assertThat(mbo.get(2).sequence).isEqualTo(execute.sequence + 1);   // 每个 symbol 连续编号
+    }
+
+    @Test
+    void marketBuyStopsAtProtectionPriceBudget() {
+        book.processOrder(limit(Side.SELL, "100", "1", 1));
+        book.processOrder(limit(Side.SELL, "110", "1", 1));
+        book.processOrder(limit(Side.SELL, "130", "1", 1));
+        reports();
+
+        Order buy = market(Side.BUY, "3", 2);
+        buy.setPrice(new BigDecimal("112"));          // 风控按 112 × 3 = 336 冻结
+        List<Trade> trades = book.processOrder(buy);
+
+        assertThat(trades).extracting(Trade::getPrice).map(BigDecimal::toPlainString).containsExactly("100", "110");
+        assertThat(buy.getStatus()).isEqualTo(OrderStatus.REJECTED);
+        ExecutionReport report = reports().get(0);
+        assertThat(report.getReason()).isEqualTo("PROTECTION_PRICE_EXCEEDED");
+        assertThat(report.getQuantity()).isEqualByComparingTo("1");
+        assertThat(book.restingOrderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void marketBuyWithinBudgetSweepsPastProtectionPrice() {
+        book.processOrder(limit(Side.SELL, "100", "1", 1));
+        book.processOrder(limit(Side.SELL, "110", "1", 1));
+        book.processOrder(limit(Side.SELL, "130", "1", 1));
+
+        Order buy = market(Side.BUY, "3", 2);
+        buy.setPrice(new BigDecimal("115"));          // 345 够付 100 + 110 + 130
+        assertThat(book.processOrder(buy)).hasSize(3);
+        assertThat(buy.getStatus()).isEqualTo(OrderStatus.FILLED);
+    }
+
+    @Test
+    void marketBuyWithoutProtectionPriceTakesAllLiquidity() {
+        book.processOrder(limit(Side.SELL, "100", "1", 1));
+        book.processOrder(limit(Side.SELL, "1000", "1", 1));
+
+        Order buy = market(Side.BUY, "3", 2);
+        assertThat(book.processOrder(buy)).hasSize(2);
+        assertThat(reports()).last().extracting(ExecutionReport::getReason).isEqualTo("NO_LIQUIDITY");
+    }
+
+    @Test
+    void stpCancelNewestIsTheDefault() {
+        Order maker = limit(Side.SELL, "100", "1", 7);
+        book.processOrder(maker);
+        reports();
+        Order taker = limit(Side.BUY, "100", "1", 7);
+
+        assertThat(book.processOrder(taker)).isEmpty();
+
+        assertThat(taker.getStatus()).isEqualTo(OrderStatus.CANCELED);
+        assertThat(taker.getRejectReason()).isEqualTo("STP_CANCEL_NEWEST");
+        assertThat(book.restingOrderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void stpCancelOldestRemovesOwnMakerAndKeepsMatching() {
+        Order own = limit(Side.SELL, "100", "1", 7);
+        Order other = limit(Side.SELL, "100", "1", 8);
+        book.processOrder(own);
+        book.processOrder(other);
+        reports();
+        Order taker = limit(Side.BUY, "100", "2", 7);
+        taker.setStpMode(StpMode.CANCEL_OLDEST);
+
+        List<Trade> trades = book.processOrder(taker);
+
+        assertThat(trades).hasSize(1);
+        assertThat(trades.get(0).getSellOrderId()).isEqualTo(other.getOrderId());
+        ExecutionReport canceled = reports().get(0);
+        assertThat(canceled.getOrderId()).isEqualTo(own.getOrderId());
+        assertThat(canceled.getReason()).isEqualTo("STP_CANCEL_OLDEST");
+        assertThat(taker.getStatus()).isEqualTo(OrderStatus.PARTIALLY_FILLED);
+        assertThat(book.restingOrderCount()).isEqualTo(1);       // 吃单方剩余 1 挂上
+    }
+
+    @Test
+    void stpCancelBothRemovesBothOrders() {
+        book.processOrder(limit(Side.SELL, "100", "1", 7));
+        reports();
+        Order taker = limit(Side.BUY, "100", "1", 7);
+        taker.setStpMode(StpMode.CANCEL_BOTH);
+
+        assertThat(book.processOrder(taker)).isEmpty();
+
+        assertThat(reports()).extracting(ExecutionReport::getExecType)
+                .containsExactly(ExecType.CANCELED, ExecType.CANCELED);
+        assertThat(book.restingOrderCount()).isZero();
+    }
+
+    @Test
+    void stpNoneAllowsSelfTrade() {
+        book.processOrder(limit(Side.SELL, "100", "1", 7));
+        Order taker = limit(Side.BUY, "100", "1", 7);
+        taker.setStpMode(StpMode.NONE);
+
+        assertThat(book.processOrder(taker)).hasSize(1);
+        assertThat(taker.getStatus()).isEqualTo(OrderStatus.FILLED);
+    }
+
+    @Test
+    void stpDecrementReducesBothOrders() {
+        Order maker = limit(Side.SELL, "100", "10", 7);
+        book.processOrder(maker);
+        Order taker = limit(Side.BUY, "100", "4", 7);
+        taker.setStpMode(StpMode.DECREMENT);
+
+        assertThat(book.processOrder(taker)).isEmpty();
+
+        List<ExecutionReport> reports = reports();
+        assertThat(reports).extracting(ExecutionReport::getExecType)
+                .containsExactly(ExecType.DECREMENTED, ExecType.DECREMENTED);
+        assertThat(reports.get(0).getOrderId()).isEqualTo(maker.getOrderId());
+        assertThat(reports.get(0).getLeavesQty()).isEqualByComparingTo("6");
+        assertThat(reports.get(1).getOrderId()).isEqualTo(taker.getOrderId());
+        assertThat(reports.get(1).getLeavesQty()).isEqualByComparingTo("0");
+        assertThat(taker.getStatus()).isEqualTo(OrderStatus.CANCELED);
+        assertThat(taker.getQuantity()).isEqualByComparingTo("0");
+
+        // 挂单总量也扣掉了：改成当前剩余量是原地改单，剩余量不变
+        book.amendOrder(maker.getOrderId(), 0, null, new BigDecimal("6"), nextTime());
+        ExecutionReport amended = reports().get(0);
+        assertThat(amended.getExecType()).isEqualTo(ExecType.AMENDED);
+        assertThat(amended.getLeavesQty()).isEqualByComparingTo("6");
+    }
+
+    @Test
+    void stpDecrementedTakerRestsWithReducedQuantity() {
+        book.processOrder(limit(Side.SELL, "100", "10", 7));
+        Order taker = limit(Side.BUY, "100", "15", 7);
+        taker.setStpMode(StpMode.DECREMENT);
+
+        book.processOrder(taker);
+
+        assertThat(taker.getQuantity()).isEqualByComparingTo("5");
+        assertThat(taker.getFilledQuantity()).isEqualByComparingTo("0");
+        assertThat(book.restingOrderCount()).isEqualTo(1);
+        assertThat(book.getDepth(1).get(0).getQuantity()).isEqualByComparingTo("5");
+    }
+
+    @Test
+    void stpDecrementOfIcebergSliceDeletesOldHandle() {
+        Order iceberg = limit(Side.SELL, "100", "10", 7);
+        iceberg.setDisplayQuantity(new BigDecimal("2"));
+        book.processOrder(iceberg);
+        assertThat(mboEvents()).containsExactly("ADD 1 2");
+
+        Order taker = limit(Side.BUY, "100", "2", 7);
+        taker.setStpMode(StpMode.DECREMENT);
+        book.processOrder(taker);
+
+        // 切片递减完：旧句柄删除，新切片换句柄加入
+        assertThat(mboEvents()).containsExactly("DELETE 1 2", "ADD 2 2");
+        assertThat(book.getDepth(1).get(0).getQuantity()).isEqualByComparingTo("2");
+    }
+
+    @Test
+    void restoredBookMatchesLikeTheParkedOne() {
+        book.processOrder(limit(Side.BUY, "99", "1", 1));
+        Order iceberg = limit(Side.SELL, "100", "5", 2);
+        iceberg.setDisplayQuantity(new BigDecimal("1"));
+        book.processOrder(iceberg);
+        Order hidden = limit(Side.SELL, "101", "2", 3);
+        hidden.setHidden(true);
+        book.processOrder(hidden);
+        book.processOrder(limit(Side.SELL, "101", "1", 4));
+
+        ByteBuffer image = book.park();
+        Disruptor<ExecutionEvent> disruptor = new Disruptor<>(ExecutionEvent::new, 1024, DaemonThreadFactory.INSTANCE);
+        L3OrderBook restored = new L3OrderBook(SYMBOL, null, null, new ExecutionPublisher(disruptor));
+        restored.restore(image);
+
+        assertThat(restored.restingOrderCount()).isEqualTo(book.restingOrderCount());
+        assertThat(restored.changeCount()).isEqualTo(book.changeCount());
+        assertThat(restored.restingAccounts()).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(restored.getDepthSnapshot().getVersion()).isEqualTo(book.getDepthSnapshot().getVersion());
+        assertThat(restored.getDepth(5)).usingRecursiveFieldByFieldElementComparator().isEqualTo(book.getDepth(5));
+
+        // 显示队列、隐藏队列按原顺序恢复：同一笔吃单在两边成交顺序一致
+        List<Trade> expected = book.processOrder(market(Side.BUY, "7", 5));
+        List<Trade> actual = restored.processOrder(market(Side.BUY, "7", 5));
+        assertThat(actual).extracting(Trade::getSellOrderId, Trade::getPrice, Trade::getQuantity)
+                .isEqualTo(expected.stream().map(t -> tuple(
+                        t.getSellOrderId(), t.getPrice(), t.getQuantity())).toList());
+        assertThat(actual).hasSize(7);
+        assertThat(actual.get(6).getSellOrderId()).isEqualTo(hidden.getOrderId());   // 同价位隐藏单排在显示单之后
+    }
+
+    @Test
+    void stopOrdersCascadeWithinOneCommand() {
+        book.processOrder(limit(Side.SELL, "100", "1", 1));
+        book.processOrder(limit(Side.SELL, "101", "1", 1));
+        book.processOrder(limit(Side.SELL, "102", "1", 1));
+        Order first = stopLimit(Side.BUY, "100", "101", "1", 2);
+        Order second = stopLimit(Side.BUY, "101", "102", "1", 3);
+        book.processOrder(first);
+        book.processOrder(second);
+        assertThat(book.pendingTriggerCount()).isEqualTo(2);
+
+        // 100 成交触发第一张，它在 101 的成交再触发第二张，都在同一条指令里完成
+        List<Trade> trades = book.processOrder(limit(Side.BUY, "100", "1", 4));
+
+        assertThat(trades).extracting(Trade::getPrice).map(BigDecimal::toPlainString)
+                .containsExactly("100", "101", "102");
+        assertThat(trades).extracting(Trade::getBuyOrderId).endsWith(first.getOrderId(), second.getOrderId());
+        assertThat(book.pendingTriggerCount()).isZero();
+        assertThat(book.restingOrderCount()).isZero();
+    }
+
+    @Test
+    void risingPriceTriggersTakeProfitSellButNotStopSell() {
+        book.processOrder(limit(Side.BUY, "100", "1", 1));
+        book.processOrder(limit(Side.SELL, "101", "1", 5));
+        Order takeProfit = stopLimit(Side.SELL, "101", "100", "1", 2);
+        takeProfit.setType(OrderType.TAKE_PROFIT);
+        Order stop = stopLimit(Side.SELL, "95", "94", "1", 2);
+        book.processOrder(takeProfit);
+        book.processOrder(stop);
+
+        List<Trade> trades = book.processOrder(limit(Side.BUY, "101", "1", 4));
+
+        assertThat(trades).extracting(Trade::getSellOrderId).endsWith(takeProfit.getOrderId());
+        assertThat(trades.get(1).getPrice()).isEqualByComparingTo("100");
+        assertThat(book.pendingTriggerCount()).isEqualTo(1);
+        assertThat(stop.getStatus()).isEqualTo(OrderStatus.NEW);
+    }
+
+    @Test
+    void conditionalOrderAlreadyCrossedIsRejected() {
+        book.processOrder(limit(Side.SELL, "100", "1", 1));
+        book.processOrder(limit(Side.BUY, "100", "1", 2));          // 最新价 100
+        Order stop = stopLimit(Side.BUY, "99", "101", "1", 3);
+
+        book.processOrder(stop);
+
+        assertThat(stop.getStatus()).isEqualTo(OrderStatus.REJECTED);
+        assertThat(stop.getRejectReason()).isEqualTo("WOULD_IMMEDIATELY_TRIGGER");
+        assertThat(book.pendingTriggerCount()).isZero();
+    }
+
+    @Test
+    void cancelOfConditionalOrderEndsCommand() {
+        Order stop = stopLimit(Side.SELL, "95", "94", "1", 4);
+        book.processOrder(stop);
+        long before = book.changeCount();
+
+        assertThat(book.cancelOrder(stop.getOrderId(), nextTime())).isTrue();
+
+        assertThat(book.changeCount()).isEqualTo(before + 1);
+        assertThat(book.pendingTriggerCount()).isZero();
+        ExecutionReport report = reports().get(0);
+        assertThat(report.getExecType()).isEqualTo(ExecType.CANCELED);
+        assertThat(report.getLeavesQty()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void cancelOfUnknownOrderReturnsFalse() {
+        assertThat(book.cancelOrder(OrderIds.format(SYMBOL, 12345), nextTime())).isFalse();
+        assertThat(reports()).isEmpty();
+    }
+
+    @Test
+    void amendReducingQuantityKeepsPriority() {
+        Order first = limit(Side.SELL, "100", "5", 1);
+        Order second = limit(Side.SELL, "100", "5", 2);
+        book.processOrder(first);
+        book.processOrder(second);
+        reports();
+
+        assertThat(book.amendOrder(first.getOrderId(), 1, null, new BigDecimal("2"), nextTime())).isEmpty();
+        ExecutionReport amended = reports().get(0);
+        assertThat(amended.getExecType()).isEqualTo(ExecType.AMENDED);
+        assertThat(amended.getLeavesQty()).isEqualByComparingTo("2");
+
+        List<Trade> trades = book.processOrder(limit(Side.BUY, "100", "3", 3));
+        assertThat(trades).extracting(Trade::getSellOrderId).containsExactly(first.getOrderId(), second.getOrderId());
+        assertThat(trades.get(0).getQuantity()).isEqualByComparingTo("2");
+    }
+
+    @Test
+    void amendIncreasingQuantityLosesPriority() {
+        Order first = limit(Side.SELL, "100", "5", 1);
+        Order second = limit(Side.SELL, "100", "5", 2);
+        book.processOrder(first);
+        book.processOrder(second);
+
+        book.amendOrder(first.getOrderId(), 1, null, new BigDecimal("8"), nextTime());
+
+        List<Trade> trades = book.processOrder(limit(Side.BUY, "100", "1", 3));
+        assertThat(trades).extracting(Trade::getSellOrderId).containsExactly(second.getOrderId());
+        assertThat(book.getDepth(1).get(0).getQuantity()).isEqualByComparingTo("12");
+    }
+
+    @Test
+    void amendRepricingAcrossTheSpreadMatches() {
+        book.processOrder(limit(Side.BUY, "99", "1", 3));
+        Order ask = limit(Side.SELL, "100", "2", 1);
+        book.processOrder(ask);
+
+        List<Trade> trades = book.amendOrder(ask.getOrderId(), 1, new BigDecimal("99"), null, nextTime());
+
+        assertThat(trades).hasSize(1);
+        assertThat(trades.get(0).getPrice()).isEqualByComparingTo("99");
+        assertThat(trades.get(0).getSellOrderId()).isEqualTo(ask.getOrderId());
+        assertThat(book.restingOrderCount()).isEqualTo(1);        // 剩余 1 按新价挂在 99
+    }
+
+    @Test
+    void amendBelowFilledQuantityCancelsTheRest() {
+        Order ask = limit(Side.SELL, "100", "5", 1);
+        book.processOrder(ask);
+        book.processOrder(limit(Side.BUY, "100", "2", 2));
+        reports();
+
+        book.amendOrder(ask.getOrderId(), 1, null, new BigDecimal("2"), nextTime());
+
+        ExecutionReport report = reports().get(0);
+        assertThat(report.getExecType()).isEqualTo(ExecType.CANCELED);
+        assertThat(report.getReason()).isEqualTo("AMEND_BELOW_FILLED");
+        assertThat(book.restingOrderCount()).isZero();
+    }
+
+    @Test
+    void amendFromAnotherAccountIsRejected() {
+        Order ask = limit(Side.SELL, "100", "5", 1);
+        book.processOrder(ask);
+        reports();
+
+        book.amendOrder(ask.getOrderId(), 2, null, new BigDecimal("1"), nextTime());
+
+        ExecutionReport report = reports().get(0);
+        assertThat(report.getExecType()).isEqualTo(ExecType.AMEND_REJECTED);
+        assertThat(report.getReason()).isEqualTo("ACCOUNT_MISMATCH");
+        assertThat(report.getLeavesQty()).isEqualByComparingTo("5");
+    }
+
+    @Test
+    void amendOfUnknownOrderIsRejected() {
+        book.amendOrder(OrderIds.format(SYMBOL, 999), 0, new BigDecimal("100"), new BigDecimal("1"), nextTime());
+
+        List<ExecutionReport> reports = reports();
+        assertThat(reports).hasSize(1);
+        assertThat(reports.get(0).getExecType()).isEqualTo(ExecType.AMEND_REJECTED);
+        assertThat(reports.get(0).getReason()).isEqualTo("UNKNOWN_ORDER");
+        assertThat(reports.get(0).getLeavesQty()).isNull();
+    }
+
+    @Test
+    void amendWithInvalidQuantityIsRejected() {
+        Order order = limit(Side.BUY, "99", "3", 1);
+        book.processOrder(order);
+
+        book.amendOrder(order.getOrderId(), 0, null, BigDecimal.ZERO, nextTime());
+
+        ExecutionReport report = reports().get(0);
+        assertThat(report.getExecType()).isEqualTo(ExecType.AMEND_REJECTED);
+        assertThat(report.getReason()).isEqualTo("INVALID_AMEND");
+        assertThat(report.getLeavesQty()).isEqualByComparingTo("3");
+        assertThat(book.restingOrderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void amendOfConditionalOrderIsRejectedWithLeaves() {
+        Order stop = stopLimit(Side.BUY, "105", "106", "2", 4);
+        book.processOrder(stop);
+
+        book.amendOrder(stop.getOrderId(), 0, new BigDecimal("107"), null, nextTime());
+
+        ExecutionReport report = reports().get(0);
+        assertThat(report.getExecType()).isEqualTo(ExecType.AMEND_REJECTED);
+        assertThat(report.getReason()).isEqualTo("ORDER_NOT_RESTING");
+        assertThat(report.getAccountId()).isEqualTo(4);
+        assertThat(report.getLeavesQty()).isEqualByComparingTo("2");
+        assertThat(book.pendingTriggerCount()).isEqualTo(1);
+    }
+
+    private Order limit(Side side, String price, String qty, long account) {
+        Order order = new Order();
+        order.setOrderId(OrderIds.format(SYMBOL, ++seq));
+        order.setSide(side);
+        order.setType(OrderType.LIMIT);
+        order.setPrice(new BigDecimal(price));
+        order.setQuantity(new BigDecimal(qty));
+        order.setAccountId(account);
+        order.setTimestamp(nextTime());
+        return order;
+    }
+
+    private Order market(Side side, String qty, long account) {
+        Order order = limit(side, "1", qty, account);
+        order.setType(OrderType.MARKET);
+        order.setPrice(null);
+        return order;
+    }
+
+    private Order stopLimit(Side side, String stopPrice, String price, String qty, long account) {
+        Order order = limit(side, price, qty, account);
+        order.setType(OrderType.STOP_LIMIT);
+        order.setStopPrice(new BigDecimal(stopPrice));
+        return order;
+    }
+
+    private long nextTime() {
+        return seq * 1_000_000L;
+    }
+
+    // 上次读过之后发布的回报
+    private List<ExecutionReport> reports() {
+        List<ExecutionReport> out = new ArrayList<>();
+        long cursor = executions.getCursor();
+        for (long s = readUpTo + 1; s <= cursor; s++) {
+            ExecutionReport report = executions.get(s).report;
+            if (report != null) {
+                out.add(report);
+            }
+        }
+        readUpTo = cursor;
+        return out;
+    }
+
+    // 上次读过之后的逐笔委托，按 "类型 句柄 显示量" 还原
+    private List<String> mboEvents() {
+        List<String> out = new ArrayList<>();
+        long cursor = mbo.getCursor();
+        for (long s = mboReadUpTo + 1; s <= cursor; s++) {
+            MboEvent e = mbo.get(s);
+            out.add(e.type + " " + e.orderHandle + " " + e.quantity / FixedPoint.ONE);
+        }
+        mboReadUpTo = cursor;
+        return out;
+    }
+}
@@ -0,0 +1,94 @@
+package com.matching.core.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiquidityIndexTest {
+
+    @Test
+    void askSideAccumulatesFromLowestPrice() {
+        LiquidityIndex asks = new LiquidityIndex(Comparator.naturalOrder());
+        asks.update(price("101"), 2);
+        asks.update(price("100"), 1);
+        asks.update(price("102"), 3);
+
+        assertThat(asks.total()).isEqualTo(6);
+        assertThat(asks.levels()).isEqualTo(3);
+        assertThat(asks.sumUpTo(price("101"))).isEqualTo(3);
+        assertThat(asks.sumUpTo(price("99"))).isZero();
+        assertThat(asks.sumUpTo(null)).isEqualTo(6);
+        assertThat(asks.levelsUpTo(price("101.5"))).isEqualTo(2);
+        assertThat(asks.levelsToFill(3)).isEqualTo(2);
+        assertThat(asks.levelsToFill(4)).isEqualTo(3);
+        assertThat(asks.levelsToFill(7)).isEqualTo(4);          // 全簿不够：levels() + 1
+    }
+
+    @Test
+    void bidSideAccumulatesFromHighestPrice() {
+        LiquidityIndex bids = new LiquidityIndex(Comparator.reverseOrder());
+        bids.update(price("99"), 5);
+        bids.update(price("100"), 1);
+        bids.update(price("98"), 7);
+
+        assertThat(bids.sumUpTo(price("99"))).isEqualTo(6);
+        assertThat(bids.levelsUpTo(price("100"))).isEqualTo(1);
+        assertThat(bids.levelsToFill(2)).isEqualTo(2);
+    }
+
+    @Test
+    void updateReplacesAndZeroRemovesLevel() {
+        LiquidityIndex asks = new LiquidityIndex(Comparator.naturalOrder());
+        asks.update(price("100"), 4);
+        asks.update(price("100"), 1);
+        asks.update(price("101"), 2);
+        asks.update(price("101"), 0);
+
+        assertThat(asks.total()).isEqualTo(1);
+        assertThat(asks.levels()).isEqualTo(1);
+        assertThat(asks.levelsToFill(1)).isEqualTo(1);
+    }
+
+    @Test
+    void matchesBruteForceUnderRandomUpdates() {
+        LiquidityIndex asks = new LiquidityIndex(Comparator.naturalOrder());
+        TreeMap<BigDecimal, Long> levels = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            BigDecimal p = BigDecimal.valueOf(100 + random.nextInt(200), 1);
+            long qty = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(1_000);
+            asks.update(p, qty);
+            if (qty == 0) {
+                levels.remove(p);
+            } else {
+                levels.put(p, qty);
+            }
+
+            BigDecimal limit = BigDecimal.valueOf(100 + random.nextInt(200), 1);
+            Map<BigDecimal, Long> within = levels.headMap(limit, true);
+            assertThat(asks.sumUpTo(limit)).isEqualTo(within.values().stream().mapToLong(Long::longValue).sum());
+            assertThat(asks.levelsUpTo(limit)).isEqualTo(within.size());
+            assertThat(asks.levels()).isEqualTo(levels.size());
+
+            long want = 1 + random.nextInt(20_000);
+            int n = 0;
+            long acc = 0;
+            for (long q : levels.values()) {
+                if (acc >= want) break;
+                acc += q;
+                n++;
+            }
+            assertThat(asks.levelsToFill(want)).isEqualTo(acc >= want ? n : levels.size() + 1);
+        }
+    }
+
+    private static BigDecimal price(String p) {
+        return new BigDecimal(p);
+    }
+}
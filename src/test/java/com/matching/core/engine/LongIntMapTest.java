@@ -0,0 +1,60 @@
+package com.matching.core.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntMapTest {
+
+    @Test
+    void putGetRemove() {
+        LongIntMap map = new LongIntMap(4);
+
+        assertThat(map.put(7, 1)).isEqualTo(LongIntMap.MISSING);
+        assertThat(map.put(7, 2)).isEqualTo(1);
+        assertThat(map.get(7)).isEqualTo(2);
+        assertThat(map.get(8)).isEqualTo(LongIntMap.MISSING);
+        assertThat(map.remove(7)).isEqualTo(2);
+        assertThat(map.remove(7)).isEqualTo(LongIntMap.MISSING);
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() {
+        LongIntMap map = new LongIntMap(1 << 10);
+        // 连续序号聚在一起，删中间的键后，后面同一探测链上的键必须仍能查到
+        for (long k = 1; k <= 300; k++) {
+            map.put(k, (int) k);
+        }
+        for (long k = 1; k <= 300; k += 3) {
+            map.remove(k);
+        }
+        for (long k = 1; k <= 300; k++) {
+            assertThat(map.get(k)).isEqualTo(k % 3 == 1 ? LongIntMap.MISSING : (int) k);
+        }
+        assertThat(map.size()).isEqualTo(200);
+    }
+
+    @Test
+    void matchesHashMapAcrossGrowth() {
+        LongIntMap map = new LongIntMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, LongIntMap.MISSING));
+                expected.remove(key);
+            } else {
+                assertThat(map.put(key, i)).isEqualTo(expected.getOrDefault(key, LongIntMap.MISSING));
+                expected.put(key, i);
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((k, v) -> assertThat(map.get(k)).isEqualTo(v));
+    }
+}
@@ -0,0 +1,62 @@
+package com.matching.core.engine;
+
+import com.matching.core.domain.Side;
+import com.matching.core.domain.StpMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStoreTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void roundTripsEveryField(boolean offHeap) {
+        OrderStore store = offHeap ? OrderStore.offHeap() : OrderStore.heap();
+        int slot = store.allocate();
+
+        store.init(slot, 42, 7, 100_00000000L, 5_00000000L, 1_00000000L, 4_00000000L, 2_00000000L,
+                2_00000000L, 9, 3, Side.SELL, false, StpMode.DECREMENT);
+
+        assertThat(store.isDirect()).isEqualTo(offHeap);
+        assertThat(store.orderSeq(slot)).isEqualTo(42);
+        assertThat(store.handle(slot)).isEqualTo(7);
+        assertThat(store.price(slot)).isEqualTo(100_00000000L);
+        assertThat(store.quantity(slot)).isEqualTo(5_00000000L);
+        assertThat(store.filled(slot)).isEqualTo(1_00000000L);
+        assertThat(store.remain(slot)).isEqualTo(4_00000000L);
+        assertThat(store.display(slot)).isEqualTo(2_00000000L);
+        assertThat(store.reserve(slot)).isEqualTo(2_00000000L);
+        assertThat(store.accountId(slot)).isEqualTo(9);
+        assertThat(store.level(slot)).isEqualTo(3);
+        assertThat(store.side(slot)).isEqualTo(Side.SELL);
+        assertThat(store.hidden(slot)).isFalse();
+        assertThat(store.stpMode(slot)).isEqualTo(StpMode.DECREMENT);
+        assertThat(store.next(slot)).isEqualTo(OrderStore.NIL);
+        assertThat(store.acctPrev(slot)).isEqualTo(OrderStore.NIL);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void freedSlotsAreReusedBeforeGrowing(boolean offHeap) {
+        OrderStore store = offHeap ? OrderStore.offHeap() : OrderStore.heap();
+        int[] slots = new int[40_000];          // 跨过两个块边界，共三块
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.allocate();
+            store.init(slots[i], i + 1, i + 1, 1, 1, 0, 1, 1, 0, 0, 0, Side.BUY, true, null);
+        }
+        long reserved = store.reservedBytes();
+        assertThat(reserved).isEqualTo(3L * 16384 * OrderStore.SLOT_SIZE);
+
+        store.free(slots[10]);
+        store.free(slots[20_000]);
+        assertThat(store.size()).isEqualTo(slots.length - 2);
+        assertThat(store.allocate()).isEqualTo(slots[20_000]);     // 空闲链表后进先出
+        assertThat(store.allocate()).isEqualTo(slots[10]);
+        assertThat(store.reservedBytes()).isEqualTo(reserved);
+
+        assertThat(store.orderSeq(slots[39_999])).isEqualTo(40_000);
+        assertThat(store.hidden(slots[39_999])).isTrue();
+        assertThat(store.stpMode(slots[39_999])).isNull();
+    }
+}
@@ -0,0 +1,115 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEventProducerTest {
+    private static final int RING = 8;
+
+    private Disruptor<OrderEvent> sequencer;
+    private Disruptor<OrderEvent>[] shards;
+    private Sequence consumed;
+    private ShardRouter router;
+    private long seq;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // 定序器不启动（没有门控，总有空位），分片 0 用门控序号模拟一个不动的撮合线程
+        sequencer = new Disruptor<>(OrderEvent.EVENT_FACTORY, 64, DaemonThreadFactory.INSTANCE);
+        shards = new Disruptor[2];
+        for (int i = 0; i < 2; i++) {
+            shards[i] = new Disruptor<>(OrderEvent.EVENT_FACTORY, RING, DaemonThreadFactory.INSTANCE);
+        }
+        consumed = new Sequence(-1);
+        shards[0].getRingBuffer().addGatingSequences(consumed);
+        router = new ShardRouter(shards, 4);
+    }
+
+    @Test
+    void rejectPolicyRefusesOnceShardAndOverflowAreFull() {
+        OrderEventProducer producer = producer(AdmissionPolicy.REJECT, 1.0);
+        fillShard(RING + 3);
+        assertThat(producer.publish(command("CANCEL", 0))).isTrue();
+
+        fillShard(1);
+        assertThat(producer.occupancy(0)).isEqualTo(1.0);
+        assertThat(producer.publish(command("CANCEL", 0))).isFalse();
+        assertThat(producer.publishCancelAll(7, -1, null, "USER")).isFalse();
+        assertThat(producer.publish(command("CANCEL", 1))).isTrue();     // 其他分片不受影响
+        assertThat(producer.rejectedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void boundedWaitGivesUpAfterMaxWait() {
+        OrderEventProducer producer = producer(AdmissionPolicy.BOUNDED_WAIT, 1.0);
+        fillShard(RING + 4);
+
+        long start = System.nanoTime();
+        assertThat(producer.publish(command("CANCEL", 0))).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    @Test
+    void boundedWaitAdmitsOnceShardDrains() throws InterruptedException {
+        OrderEventProducer producer = new OrderEventProducer(sequencer, shards, router, AdmissionPolicy.BOUNDED_WAIT,
+                TimeUnit.SECONDS.toNanos(5), 1.0);
+        fillShard(RING + 4);
+
+        Thread drainer = new Thread(() -> {
+            sleep(50);
+            consumed.set(0);
+        });
+        drainer.start();
+        assertThat(producer.publish(command("CANCEL", 0))).isTrue();
+        drainer.join();
+    }
+
+    @Test
+    void shedPolicyCountsOverflowBacklog() {
+        OrderEventProducer producer = producer(AdmissionPolicy.SHED_LOW_PRIORITY, 0.5);
+        fillShard(RING + 3);
+        consumed.set(RING - 1);            // 分片已经腾空，溢出环还没补发
+        assertThat(producer.publish(command("SUBMIT", 0))).isTrue();
+
+        fillShard(1);                      // 溢出积压到水位
+        assertThat(router.backlog(0)).isEqualTo(4);
+        assertThat(producer.publish(command("SUBMIT", 0))).isFalse();
+        assertThat(producer.publish(command("CANCEL", 0))).isTrue();     // 撤单照收
+    }
+
+    private OrderEventProducer producer(AdmissionPolicy policy, double shedThreshold) {
+        return new OrderEventProducer(sequencer, shards, router, policy, TimeUnit.MILLISECONDS.toNanos(2), shedThreshold);
+    }
+
+    // 定序器直接往分片 0 转发 n 条（分片满了停进溢出环）
+    private void fillShard(int n) {
+        for (int i = 0; i < n; i++) {
+            OrderEvent event = command("CANCEL", 0);
+            event.setSequence(++seq);
+            router.route(event);
+        }
+    }
+
+    private static OrderEvent command(String action, int instrumentId) {
+        OrderEvent event = new OrderEvent();
+        event.setAction(action);
+        event.setInstrumentId(instrumentId);
+        return event;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.matching.disruptor;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRouterTest {
+    private static final int RING = 4;
+
+    private Disruptor<OrderEvent>[] shards;
+    private Sequence[] consumed;
+    private ShardRouter router;
+    private long seq;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // 不启动消费者，用门控序号模拟撮合线程处理到哪里
+        shards = new Disruptor[2];
+        consumed = new Sequence[2];
+        for (int i = 0; i < 2; i++) {
+            shards[i] = new Disruptor<>(OrderEvent.EVENT_FACTORY, RING, DaemonThreadFactory.INSTANCE);
+            consumed[i] = new Sequence(-1);
+            shards[i].getRingBuffer().addGatingSequences(consumed[i]);
+        }
+        router = new ShardRouter(shards, 2);
+    }
+
+    @Test
+    void routesByInstrumentId() {
+        router.route(command(0));
+        router.route(command(1));
+        router.route(command(3));
+
+        assertThat(sequencesIn(0)).containsExactly(1L);
+        assertThat(sequencesIn(1)).containsExactly(2L, 3L);
+        assertThat(router.hasBacklog()).isFalse();
+    }
+
+    @Test
+    void fullShardParksCommandsWithoutBlockingOtherShards() {
+        for (int i = 0; i < RING + 2; i++) {
+            router.route(command(0));
+        }
+        router.route(command(1));
+
+        assertThat(router.backlog(0)).isEqualTo(2);
+        assertThat(router.backlog(1)).isZero();
+        assertThat(sequencesIn(1)).containsExactly(7L);
+    }
+
+    @Test
+    void drainPublishesParkedCommandsInSequenceOrder() {
+        for (int i = 0; i < RING + 2; i++) {
+            router.route(command(0));
+        }
+        consumed[0].set(0);        // 撮合线程处理掉一条
+        router.drain();
+
+        assertThat(router.backlog(0)).isEqualTo(1);
+        assertThat(shards[0].getRingBuffer().get(RING).getSequence()).isEqualTo(5L);
+
+        consumed[0].set(RING);
+        router.drain();
+        assertThat(router.hasBacklog()).isFalse();
+        assertThat(shards[0].getRingBuffer().get(RING + 1).getSequence()).isEqualTo(6L);
+    }
+
+    @Test
+    void commandBehindParkedOnesQueuesEvenWhenShardHasRoom() {
+        for (int i = 0; i < RING + 1; i++) {
+            router.route(command(0));
+        }
+        consumed[0].set(RING - 1);     // 分片腾空，但溢出环里还有更早的指令
+        router.route(command(0));
+
+        assertThat(router.backlog(0)).isEqualTo(2);
+        router.drain();
+        assertThat(shards[0].getRingBuffer().get(RING).getSequence()).isEqualTo(5L);
+        assertThat(shards[0].getRingBuffer().get(RING + 1).getSequence()).isEqualTo(6L);
+    }
+
+    @Test
+    void fullOverflowMakesSequencerWaitInsteadOfGrowing() throws InterruptedException {
+        for (int i = 0; i < RING + 2; i++) {
+            router.route(command(0));
+        }
+        Thread sequencer = new Thread(() -> router.route(command(0)));
+        sequencer.start();
+        sequencer.join(100);
+        assertThat(sequencer.isAlive()).isTrue();
+        assertThat(router.backlog(0)).isEqualTo(2);
+
+        consumed[0].set(0);
+        sequencer.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(sequencer.isAlive()).isFalse();
+        assertThat(router.backlog(0)).isEqualTo(2);
+        assertThat(shards[0].getRingBuffer().get(RING).getSequence()).isEqualTo(5L);
+    }
+
+    @Test
+    void replayBroadcastsCancelAllToEveryShard() {
+        OrderEvent cancelAll = command(-1);
+        cancelAll.setAction("CANCEL_ALL");
+        router.replay(cancelAll);
+
+        assertThat(sequencesIn(0)).containsExactly(1L);
+        assertThat(sequencesIn(1)).containsExactly(1L);
+        assertThat(router.hasBacklog()).isFalse();
+    }
+
+    @Test
+    void replayWaitsForShardInsteadOfParking() throws InterruptedException {
+        for (int i = 0; i < RING; i++) {
+            router.replay(command(1));
+        }
+        Thread replayer = new Thread(() -> router.replay(command(1)));
+        replayer.start();
+        replayer.join(100);
+        assertThat(replayer.isAlive()).isTrue();
+        assertThat(router.hasBacklog()).isFalse();
+
+        consumed[1].set(0);
+        replayer.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(replayer.isAlive()).isFalse();
+        assertThat(shards[1].getRingBuffer().get(RING).getSequence()).isEqualTo(5L);
+    }
+
+    private OrderEvent command(int instrumentId) {
+        OrderEvent event = new OrderEvent();
+        event.setAction("CANCEL");
+        event.setInstrumentId(instrumentId);
+        event.setSequence(++seq);
+        return event;
+    }
+
+    private List<Long> sequencesIn(int shard) {
+        RingBuffer<OrderEvent> ringBuffer = shards[shard].getRingBuffer();
+        List<Long> out = new ArrayList<>();
+        for (long s = 0; s <= ringBuffer.getCursor(); s++) {
+            out.add(ringBuffer.get(s).getSequence());
+        }
+        return out;
+    }
+}